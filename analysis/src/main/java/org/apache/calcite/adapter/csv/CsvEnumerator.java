@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import au.com.bytecode.opencsv.CSVReader;
@@ -26,6 +29,7 @@ import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Source;
 import org.apache.commons.lang3.time.FastDateFormat;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.text.ParseException;
@@ -34,6 +38,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /** Enumerator that reads from a CSV file.
  *
@@ -87,6 +92,51 @@ class CsvEnumerator<E> implements Enumerator<E> {
     }
   }
 
+  //Modified by QSQL.
+  /** Creates an enumerator over a CSV file. A local uncompressed file is
+   * scanned by {@link CsvMappedEnumerator}, in splits if it is large enough
+   * for {@code parallelScan}; other sources are read by opencsv.
+   *
+   * @param parallelScan how to split a local file
+   * @param fields indexes of projected fields
+   * @param filterValues values fields must equal, null if not filtered
+   * @param scalar whether a row is the value of its only field, instead of
+   *     an array
+   */
+  static <E> Enumerator<E> create(Source source, AtomicBoolean cancelFlag,
+      ParallelScan parallelScan, List<CsvFieldType> fieldTypes, int[] fields,
+      String[] filterValues, boolean scalar) {
+    if ("file".equals(source.protocol())
+        && CsvMappedReader.canRead(source.file())) {
+      final File file = source.file();
+      if (!parallelScan.isParallel(file)) {
+        return new CsvMappedEnumerator<>(file, cancelFlag, fieldTypes,
+            fields, filterValues, scalar);
+      }
+      final long[] bounds;
+      try {
+        bounds = parallelScan.split(file, true);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      final List<Supplier<Enumerator<E>>> splits = new ArrayList<>();
+      for (int i = 0; i < bounds.length - 1; i++) {
+        final long start = bounds[i];
+        final long end = bounds[i + 1];
+        splits.add(() ->
+            new CsvMappedEnumerator<>(file, start, end, cancelFlag,
+                fieldTypes, fields, filterValues, scalar));
+      }
+      return parallelScan.enumerator(splits);
+    }
+    final RowConverter<?> rowConverter = scalar
+        ? new SingleColumnRowConverter(fieldTypes.get(fields[0]), fields[0])
+        : new ArrayRowConverter(fieldTypes, fields);
+    //noinspection unchecked
+    return new CsvEnumerator<>(source, cancelFlag, false, filterValues,
+        (RowConverter<E>) rowConverter);
+  }
+
   private static RowConverter<?> converter(List<CsvFieldType> fieldTypes,
       int[] fields) {
     if (fields.length == 1) {
@@ -238,6 +288,84 @@ class CsvEnumerator<E> implements Enumerator<E> {
     return integers;
   }
 
+  //Modified by QSQL, shared with CsvMappedReader.
+  /** Converts a field to the value of its type. */
+  static Object convert(CsvFieldType fieldType, String string) {
+    if (fieldType == null) {
+      return string;
+    }
+    switch (fieldType) {
+    case BOOLEAN:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Boolean.parseBoolean(string);
+    case BYTE:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Byte.parseByte(string);
+    case SHORT:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Short.parseShort(string);
+    case INT:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Integer.parseInt(string);
+    case LONG:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Long.parseLong(string);
+    case FLOAT:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Float.parseFloat(string);
+    case DOUBLE:
+      if (string.length() == 0) {
+        return null;
+      }
+      return Double.parseDouble(string);
+    case DATE:
+      if (string.length() == 0) {
+        return null;
+      }
+      try {
+        Date date = TIME_FORMAT_DATE.parse(string);
+        return (int) (date.getTime() / DateTimeUtils.MILLIS_PER_DAY);
+      } catch (ParseException e) {
+        return null;
+      }
+    case TIME:
+      if (string.length() == 0) {
+        return null;
+      }
+      try {
+        Date date = TIME_FORMAT_TIME.parse(string);
+        return (int) date.getTime();
+      } catch (ParseException e) {
+        return null;
+      }
+    case TIMESTAMP:
+      if (string.length() == 0) {
+        return null;
+      }
+      try {
+        Date date = TIME_FORMAT_TIMESTAMP.parse(string);
+        return date.getTime();
+      } catch (ParseException e) {
+        return null;
+      }
+    case STRING:
+    default:
+      return string;
+    }
+  }
+
   /** Row converter.
    *
    * @param <E> element type */
@@ -245,79 +373,7 @@ class CsvEnumerator<E> implements Enumerator<E> {
     abstract E convertRow(String[] rows);
 
     protected Object convert(CsvFieldType fieldType, String string) {
-      if (fieldType == null) {
-        return string;
-      }
-      switch (fieldType) {
-      case BOOLEAN:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Boolean.parseBoolean(string);
-      case BYTE:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Byte.parseByte(string);
-      case SHORT:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Short.parseShort(string);
-      case INT:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Integer.parseInt(string);
-      case LONG:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Long.parseLong(string);
-      case FLOAT:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Float.parseFloat(string);
-      case DOUBLE:
-        if (string.length() == 0) {
-          return null;
-        }
-        return Double.parseDouble(string);
-      case DATE:
-        if (string.length() == 0) {
-          return null;
-        }
-        try {
-          Date date = TIME_FORMAT_DATE.parse(string);
-          return (int) (date.getTime() / DateTimeUtils.MILLIS_PER_DAY);
-        } catch (ParseException e) {
-          return null;
-        }
-      case TIME:
-        if (string.length() == 0) {
-          return null;
-        }
-        try {
-          Date date = TIME_FORMAT_TIME.parse(string);
-          return (int) date.getTime();
-        } catch (ParseException e) {
-          return null;
-        }
-      case TIMESTAMP:
-        if (string.length() == 0) {
-          return null;
-        }
-        try {
-          Date date = TIME_FORMAT_TIMESTAMP.parse(string);
-          return date.getTime();
-        } catch (ParseException e) {
-          return null;
-        }
-      case STRING:
-      default:
-        return string;
-      }
+      return CsvEnumerator.convert(fieldType, string);
     }
   }
 
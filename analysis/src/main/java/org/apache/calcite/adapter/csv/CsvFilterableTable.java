@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import org.apache.calcite.DataContext;
@@ -46,6 +49,11 @@ public class CsvFilterableTable extends CsvTable
     super(source, protoRowType);
   }
 
+  public CsvFilterableTable(Source source, RelProtoDataType protoRowType,
+      ParallelScan parallelScan) {
+    super(source, protoRowType, parallelScan);
+  }
+
   public String toString() {
     return "CsvFilterableTable";
   }
@@ -62,8 +70,9 @@ public class CsvFilterableTable extends CsvTable
     final AtomicBoolean cancelFlag = DataContext.Variable.CANCEL_FLAG.get(root);
     return new AbstractEnumerable<Object[]>() {
       public Enumerator<Object[]> enumerator() {
-        return new CsvEnumerator<>(source, cancelFlag, false, filterValues,
-            new CsvEnumerator.ArrayRowConverter(fieldTypes, fields));
+        //Modified by QSQL.
+        return CsvEnumerator.create(source, cancelFlag, parallelScan,
+            fieldTypes, fields, filterValues, false);
       }
     };
   }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Enumerator that scans a local CSV file by {@link CsvMappedReader}.
+ *
+ * <p>Created by QSQL. Filters are tested on the bytes of their fields, and
+ * only projected fields of matched records are decoded.
+ *
+ * @param <E> Row type, an array of projected fields or the value of the
+ *     only projected field
+ */
+class CsvMappedEnumerator<E> implements Enumerator<E> {
+  private final CsvMappedReader reader;
+  private final AtomicBoolean cancelFlag;
+  private final CsvFieldType[] fieldTypes;
+  private final int[] fields;
+  private final byte[][] filterValues;
+  private final boolean scalar;
+  private E current;
+
+  CsvMappedEnumerator(File file, AtomicBoolean cancelFlag,
+      List<CsvFieldType> fieldTypes, int[] fields, String[] filterValues,
+      boolean scalar) {
+    this(file, 0, -1, cancelFlag, fieldTypes, fields, filterValues, scalar);
+  }
+
+  /** Creates an enumerator of the records between two offsets of a file,
+   * which are aligned to starts of lines. The header row is skipped only by
+   * the enumerator of the range that starts at 0.
+   *
+   * @param end offset after the last record, or -1 for the end of file
+   */
+  CsvMappedEnumerator(File file, long start, long end, AtomicBoolean cancelFlag,
+      List<CsvFieldType> fieldTypes, int[] fields, String[] filterValues,
+      boolean scalar) {
+    this.cancelFlag = cancelFlag;
+    this.fieldTypes = fieldTypes.toArray(new CsvFieldType[0]);
+    this.fields = fields;
+    this.filterValues = encode(filterValues);
+    this.scalar = scalar;
+    try {
+      this.reader = new CsvMappedReader(file, start, end,
+          CsvMappedReader.DEFAULT_WINDOW_SIZE);
+      if (start == 0) {
+        this.reader.next(); // skip header row
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static byte[][] encode(String[] filterValues) {
+    if (filterValues == null) {
+      return null;
+    }
+    byte[][] values = new byte[filterValues.length][];
+    boolean any = false;
+    for (int i = 0; i < filterValues.length; i++) {
+      if (filterValues[i] != null) {
+        values[i] = filterValues[i].getBytes(StandardCharsets.UTF_8);
+        any = true;
+      }
+    }
+    return any ? values : null;
+  }
+
+  public E current() {
+    return current;
+  }
+
+  public boolean moveNext() {
+    try {
+    outer:
+      for (;;) {
+        if (cancelFlag.get()) {
+          return false;
+        }
+        if (!reader.next()) {
+          current = null;
+          reader.close();
+          return false;
+        }
+        if (filterValues != null) {
+          for (int i = 0; i < filterValues.length; i++) {
+            if (filterValues[i] != null
+                && !reader.fieldEquals(i, filterValues[i])) {
+              continue outer;
+            }
+          }
+        }
+        current = convertRow();
+        return true;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private E convertRow() {
+    if (scalar) {
+      return (E) reader.field(fields[0], fieldTypes[fields[0]]);
+    }
+    final Object[] objects = new Object[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      objects[i] = reader.field(fields[i], fieldTypes[fields[i]]);
+    }
+    return (E) objects;
+  }
+
+  public void reset() {
+    throw new UnsupportedOperationException();
+  }
+
+  public void close() {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Error closing CSV reader", e);
+    }
+  }
+}
+
+// End CsvMappedEnumerator.java
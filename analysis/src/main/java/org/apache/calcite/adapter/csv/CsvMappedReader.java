@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import au.com.bytecode.opencsv.CSVParser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads records of a CSV file through a memory-mapped window, without
+ * decoding the bytes of a record into strings.
+ *
+ * <p>Created by QSQL. Separators are found eight bytes at a time: each
+ * word is tested against the separator, line feed, quote and escape bytes
+ * at once, and only the matched bytes are visited. Fields are then decoded
+ * one by one by the caller, so that columns out of the projection cost
+ * nothing but their separators.
+ *
+ * <p>A record that contains a quote or an escape is parsed by opencsv's
+ * {@link CSVParser}, with the same defaults as {@code CSVReader}, so quoted
+ * fields and fields spanning lines are read as before.
+ */
+class CsvMappedReader implements Closeable {
+  /** Size of mapped window; a window is moved forward when a line crosses
+   * its end, and grown when a line does not fit in it. */
+  static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long SEPARATOR = ONES * ',';
+  private static final long LINE_FEED = ONES * '\n';
+  private static final long QUOTE = ONES * '"';
+  private static final long ESCAPE = ONES * '\\';
+
+  private static final int MAX_EXACT_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final long fileSize;
+  private int windowSize;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+  private int position;
+
+  /** Offset in window where each field ends, exclusive. */
+  private int[] fieldEnds = new int[16];
+  private int lineStart;
+  private int fieldCount;
+  /** Whether current line has a quote or an escape. */
+  private boolean quoted;
+
+  /** Fields of current record when it is parsed by opencsv, else null. */
+  private String[] parsed;
+  private CSVParser parser;
+  private byte[] bytes = new byte[64];
+
+  CsvMappedReader(File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  CsvMappedReader(File file, int windowSize) throws IOException {
+    this(file, 0, -1, windowSize);
+  }
+
+  /** Creates a reader of the lines between two offsets of a file.
+   *
+   * @param start offset of the first line
+   * @param end offset after the last line, or -1 for the end of file
+   */
+  CsvMappedReader(File file, long start, long end, int windowSize)
+      throws IOException {
+    this.file = new RandomAccessFile(file, "r");
+    this.channel = this.file.getChannel();
+    this.fileSize = end < 0 ? channel.size() : Math.min(end, channel.size());
+    this.windowSize = windowSize;
+    map(start);
+  }
+
+  /** Whether a local file can be read by this reader. Compressed files are
+   * read through {@code CSVReader}. */
+  static boolean canRead(File file) {
+    return file != null && file.isFile() && !file.getName().endsWith(".gz");
+  }
+
+  /** Moves to the next record.
+   *
+   * @return false if file ends */
+  boolean next() throws IOException {
+    parsed = null;
+    if (!scanLine()) {
+      return false;
+    }
+    if (!quoted) {
+      return true;
+    }
+    // parse this line, and following lines of a multi-line field, by opencsv
+    // as CSVReader.readNext() does
+    if (parser == null) {
+      parser = new CSVParser();
+    }
+    String[] fields = parser.parseLineMulti(lineString());
+    while (parser.isPending() && scanLine()) {
+      String[] rest = parser.parseLineMulti(lineString());
+      String[] joined = Arrays.copyOf(fields, fields.length + rest.length);
+      System.arraycopy(rest, 0, joined, fields.length, rest.length);
+      fields = joined;
+    }
+    parsed = fields;
+    fieldCount = fields.length;
+    return true;
+  }
+
+  int fieldCount() {
+    return fieldCount;
+  }
+
+  /** Whether a field of current record has the same UTF-8 bytes as value. */
+  boolean fieldEquals(int field, byte[] value) {
+    if (field >= fieldCount) {
+      return false;
+    }
+    if (parsed != null) {
+      return Arrays.equals(parsed[field].getBytes(StandardCharsets.UTF_8), value);
+    }
+    int start = fieldStart(field);
+    if (fieldEnds[field] - start != value.length) {
+      return false;
+    }
+    for (int i = 0; i < value.length; i++) {
+      if (window.get(start + i) != value[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Decodes a field of current record, as
+   * {@link CsvEnumerator.RowConverter} converts its string. A field missing
+   * from a short record is null. */
+  Object field(int field, CsvFieldType fieldType) {
+    if (field >= fieldCount) {
+      return null;
+    }
+    if (parsed != null) {
+      return CsvEnumerator.convert(fieldType, parsed[field]);
+    }
+    int start = fieldStart(field);
+    int end = fieldEnds[field];
+    if (fieldType == null) {
+      return string(start, end);
+    }
+    switch (fieldType) {
+    case STRING:
+    case CHAR:
+      return string(start, end);
+    case BOOLEAN:
+      return start == end ? null : isTrue(start, end);
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+      return start == end ? null : integer(fieldType, start, end);
+    case DOUBLE:
+      return start == end ? null : decimal(start, end);
+    default:
+      return CsvEnumerator.convert(fieldType, string(start, end));
+    }
+  }
+
+  public void close() throws IOException {
+    window = null;
+    file.close();
+  }
+
+  private void map(long start) throws IOException {
+    windowStart = start;
+    long size = Math.min(windowSize, fileSize - start);
+    window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    window.order(ByteOrder.LITTLE_ENDIAN);
+    position = 0;
+  }
+
+  /** Finds fields and end of next line, starting at current position. */
+  private boolean scanLine() throws IOException {
+    for (;;) {
+      int limit = window.limit();
+      if (position >= limit && windowStart + limit >= fileSize) {
+        return false;
+      }
+      int end = scanFields(position, limit);
+      if (end >= 0) {
+        position = end + 1;
+        return true;
+      }
+      if (windowStart + limit >= fileSize) {
+        // last line has no line feed
+        closeLine(limit);
+        position = limit;
+        return true;
+      }
+      // line crosses end of window, map again from its start
+      if (position == 0) {
+        windowSize = (int) Math.min(Integer.MAX_VALUE - 8, 2L * windowSize);
+      }
+      map(windowStart + position);
+    }
+  }
+
+  /** Records separators between start and the first line feed.
+   *
+   * @return offset of line feed, or -1 if there is none before limit */
+  private int scanFields(int start, int limit) {
+    lineStart = start;
+    fieldCount = 0;
+    quoted = false;
+    boolean plain = true;
+    int i = start;
+    for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+      long word = window.getLong(i);
+      long matches = plain
+          ? match(word, SEPARATOR) | match(word, LINE_FEED)
+              | match(word, QUOTE) | match(word, ESCAPE)
+          : match(word, LINE_FEED);
+      while (matches != 0) {
+        int offset = i + (Long.numberOfTrailingZeros(matches) >>> 3);
+        matches &= matches - 1;
+        byte b = window.get(offset);
+        if (b == '\n') {
+          closeLine(offset);
+          return offset;
+        } else if (b == ',') {
+          if (plain) {
+            addField(offset);
+          }
+        } else if (plain) {
+          plain = false;
+          quoted = true;
+          matches &= match(word, LINE_FEED);
+        }
+      }
+    }
+    for (; i < limit; i++) {
+      byte b = window.get(i);
+      if (b == '\n') {
+        closeLine(i);
+        return i;
+      } else if (!plain) {
+        continue;
+      } else if (b == ',') {
+        addField(i);
+      } else if (b == '"' || b == '\\') {
+        plain = false;
+        quoted = true;
+      }
+    }
+    return -1;
+  }
+
+  /** Marks each byte of word which equals the byte of pattern by its high
+   * bit, without carries between bytes. */
+  private static long match(long word, long pattern) {
+    long x = word ^ pattern;
+    return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+  }
+
+  private void addField(int end) {
+    if (fieldCount == fieldEnds.length) {
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldEnds[fieldCount++] = end;
+  }
+
+  private void closeLine(int end) {
+    // a line read by CSVReader never ends with carriage return
+    if (end > lineStart && window.get(end - 1) == '\r') {
+      end--;
+    }
+    addField(end);
+  }
+
+  private int fieldStart(int field) {
+    return field == 0 ? lineStart : fieldEnds[field - 1] + 1;
+  }
+
+  private String lineString() {
+    return string(lineStart, fieldEnds[fieldCount - 1]);
+  }
+
+  private String string(int start, int end) {
+    int length = end - start;
+    if (bytes.length < length) {
+      bytes = new byte[Math.max(length, bytes.length * 2)];
+    }
+    window.position(start);
+    window.get(bytes, 0, length);
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private boolean isTrue(int start, int end) {
+    if (end - start != 4) {
+      return false;
+    }
+    return (window.get(start) | 0x20) == 't'
+        && (window.get(start + 1) | 0x20) == 'r'
+        && (window.get(start + 2) | 0x20) == 'u'
+        && (window.get(start + 3) | 0x20) == 'e';
+  }
+
+  /** Parses digits with an optional sign; anything else, and numbers which
+   * may overflow, are left to the parse methods of boxed types, so that
+   * errors are the same. */
+  private Object integer(CsvFieldType fieldType, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    byte first = window.get(i);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+    }
+    if (i == end || end - i > 18) {
+      return CsvEnumerator.convert(fieldType, string(start, end));
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = window.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return CsvEnumerator.convert(fieldType, string(start, end));
+      }
+      value = value * 10 + digit;
+    }
+    if (negative) {
+      value = -value;
+    }
+    switch (fieldType) {
+    case BYTE:
+      if (value == (byte) value) {
+        return (byte) value;
+      }
+      break;
+    case SHORT:
+      if (value == (short) value) {
+        return (short) value;
+      }
+      break;
+    case INT:
+      if (value == (int) value) {
+        return (int) value;
+      }
+      break;
+    default:
+      return value;
+    }
+    return CsvEnumerator.convert(fieldType, string(start, end));
+  }
+
+  /** Parses plain decimals of at most 15 significant digits, which are
+   * exactly a long divided by an exact power of ten and rounded once, the
+   * same as {@link Double#parseDouble}. Other numbers go through it. */
+  private Object decimal(int start, int end) {
+    int i = start;
+    boolean negative = false;
+    byte first = window.get(i);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < end; i++) {
+      byte b = window.get(i);
+      if (b == '.' && scale < 0) {
+        scale = 0;
+        continue;
+      }
+      int digit = b - '0';
+      if (digit < 0 || digit > 9 || digits == MAX_EXACT_DIGITS) {
+        return CsvEnumerator.convert(CsvFieldType.DOUBLE, string(start, end));
+      }
+      mantissa = mantissa * 10 + digit;
+      digits++;
+      if (scale >= 0) {
+        scale++;
+      }
+    }
+    if (digits == 0) {
+      return CsvEnumerator.convert(CsvFieldType.DOUBLE, string(start, end));
+    }
+    double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+    return negative ? -value : value;
+  }
+}
+
+// End CsvMappedReader.java
@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import org.apache.calcite.DataContext;
@@ -39,6 +42,11 @@ public class CsvScannableTable extends CsvTable
     super(source, protoRowType);
   }
 
+  CsvScannableTable(Source source, RelProtoDataType protoRowType,
+      ParallelScan parallelScan) {
+    super(source, protoRowType, parallelScan);
+  }
+
   public String toString() {
     return "CsvScannableTable";
   }
@@ -48,8 +56,9 @@ public class CsvScannableTable extends CsvTable
     final AtomicBoolean cancelFlag = DataContext.Variable.CANCEL_FLAG.get(root);
     return new AbstractEnumerable<Object[]>() {
       public Enumerator<Object[]> enumerator() {
-        return new CsvEnumerator<>(source, cancelFlag, false, null,
-            new CsvEnumerator.ArrayRowConverter(fieldTypes, fields));
+        //Modified by QSQL.
+        return CsvEnumerator.create(source, cancelFlag, parallelScan,
+            fieldTypes, fields, null, false);
       }
     };
   }
@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import com.google.common.collect.ImmutableMap;
@@ -33,6 +36,7 @@ import java.util.Map;
 public class CsvSchema extends AbstractSchema {
   private final File directoryFile;
   private final CsvTable.Flavor flavor;
+  private final ParallelScan parallelScan;
   private Map<String, Table> tableMap;
 
   /**
@@ -43,9 +47,24 @@ public class CsvSchema extends AbstractSchema {
    *                   query optimization
    */
   public CsvSchema(File directoryFile, CsvTable.Flavor flavor) {
+    this(directoryFile, flavor, ParallelScan.SEQUENTIAL);
+  }
+
+  //Modified by QSQL.
+  /**
+   * Creates a CSV schema whose tables scan large files in parallel.
+   *
+   * @param directoryFile Directory that holds {@code .csv} files
+   * @param flavor     Whether to instantiate flavor tables that undergo
+   *                   query optimization
+   * @param parallelScan How tables split their files
+   */
+  CsvSchema(File directoryFile, CsvTable.Flavor flavor,
+      ParallelScan parallelScan) {
     super();
     this.directoryFile = directoryFile;
     this.flavor = flavor;
+    this.parallelScan = parallelScan;
   }
 
   /** Looks for a suffix on a string and returns
@@ -95,7 +114,7 @@ public class CsvSchema extends AbstractSchema {
       Source sourceSansGz = source.trim(".gz");
       final Source sourceSansJson = sourceSansGz.trimOrNull(".json");
       if (sourceSansJson != null) {
-        JsonTable table = new JsonTable(source);
+        JsonTable table = new JsonTable(source, parallelScan);
         builder.put(sourceSansJson.relative(baseSource).path(), table);
         continue;
       }
@@ -111,11 +130,11 @@ public class CsvSchema extends AbstractSchema {
   private Table createTable(Source source) {
     switch (flavor) {
     case TRANSLATABLE:
-      return new CsvTranslatableTable(source, null);
+      return new CsvTranslatableTable(source, null, parallelScan);
     case SCANNABLE:
-      return new CsvScannableTable(source, null);
+      return new CsvScannableTable(source, null, parallelScan);
     case FILTERABLE:
-      return new CsvFilterableTable(source, null);
+      return new CsvFilterableTable(source, null, parallelScan);
     default:
       throw new AssertionError("Unknown flavor " + this.flavor);
     }
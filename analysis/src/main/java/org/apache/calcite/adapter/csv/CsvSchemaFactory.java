@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import org.apache.calcite.model.ModelHandler;
@@ -59,7 +62,8 @@ public class CsvSchemaFactory implements SchemaFactory {
     } else {
       flavor = CsvTable.Flavor.valueOf(flavorName.toUpperCase(Locale.ROOT));
     }
-    return new CsvSchema(directoryFile, flavor);
+    //Modified by QSQL.
+    return new CsvSchema(directoryFile, flavor, ParallelScan.of(operand));
   }
 }
 
@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import java.util.Properties;
@@ -34,11 +37,20 @@ public abstract class CsvTable extends AbstractTable {
   protected final Source source;
   protected final RelProtoDataType protoRowType;
   protected List<CsvFieldType> fieldTypes;
+  //Modified by QSQL.
+  protected final ParallelScan parallelScan;
 
   /** Creates a CsvTable. */
   CsvTable(Source source, RelProtoDataType protoRowType) {
+    this(source, protoRowType, ParallelScan.SEQUENTIAL);
+  }
+
+  /** Creates a CsvTable that scans its file as {@code parallelScan} says. */
+  CsvTable(Source source, RelProtoDataType protoRowType,
+      ParallelScan parallelScan) {
     this.source = source;
     this.protoRowType = protoRowType;
+    this.parallelScan = parallelScan;
   }
 
   public RelDataType getRowType(RelDataTypeFactory typeFactory) {
@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import org.apache.calcite.DataContext;
@@ -41,6 +44,11 @@ public class CsvTranslatableTable extends CsvTable
     super(source, protoRowType);
   }
 
+  CsvTranslatableTable(Source source, RelProtoDataType protoRowType,
+      ParallelScan parallelScan) {
+    super(source, protoRowType, parallelScan);
+  }
+
   public String toString() {
     return "CsvTranslatableTable";
   }
@@ -53,7 +61,9 @@ public class CsvTranslatableTable extends CsvTable
     final AtomicBoolean cancelFlag = DataContext.Variable.CANCEL_FLAG.get(root);
     return new AbstractEnumerable<Object>() {
       public Enumerator<Object> enumerator() {
-        return new CsvEnumerator<>(source, cancelFlag, fieldTypes, fields);
+        //Modified by QSQL.
+        return CsvEnumerator.create(source, cancelFlag, parallelScan,
+            fieldTypes, fields, null, fields.length == 1);
       }
     };
   }
@@ -14,56 +14,133 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.io.ByteStreams;
 import org.apache.calcite.linq4j.Enumerator;
-import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.util.Source;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
 
-/** Enumerator that reads from a JSON file. */
+//Modified by QSQL.
+/** Enumerator that reads from a JSON file.
+ *
+ * <p>Values are parsed one at a time, from a root array or from a sequence
+ * of root values such as one value per line, so that a large file is not
+ * held in memory. */
 class JsonEnumerator implements Enumerator<Object[]> {
-  private final Enumerator<Object> enumerator;
+  private static final ObjectReader READER;
+
+  static {
+    final ObjectMapper mapper = new ObjectMapper();
+    mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+    mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+    mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+    READER = mapper.readerFor(Object.class);
+  }
+
+  private final Source source;
+  private final long start;
+  private final long end;
+  private MappingIterator<Object> iterator;
+  private Object current;
 
   JsonEnumerator(Source source) {
+    this(source, 0, -1);
+  }
+
+  /** Creates an enumerator of the values between two offsets of a file of
+   * one value per line.
+   *
+   * @param start offset of the first line
+   * @param end offset after the last line, or -1 for the end of file
+   */
+  JsonEnumerator(Source source, long start, long end) {
+    this.source = source;
+    this.start = start;
+    this.end = end;
+    this.iterator = open();
+  }
+
+  private MappingIterator<Object> open() {
     try {
-      final ObjectMapper mapper = new ObjectMapper();
-      mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-      mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-      mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
-      List<Object> list;
-      if (source.protocol().equals("file")) {
-        //noinspection unchecked
-        list = mapper.readValue(source.file(), List.class);
-      } else {
-        //noinspection unchecked
-        list = mapper.readValue(source.url(), List.class);
+      if (!source.protocol().equals("file")) {
+        return READER.readValues(source.url());
+      }
+      if (end < 0) {
+        return READER.readValues(source.file());
+      }
+      final FileInputStream in = new FileInputStream(source.file());
+      try {
+        in.getChannel().position(start);
+        final InputStream range =
+            ByteStreams.limit(new BufferedInputStream(in), end - start);
+        return READER.readValues(range);
+      } catch (IOException e) {
+        in.close();
+        throw e;
       }
-      enumerator = Linq4j.enumerator(list);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /** Whether a local file holds root values one after another, instead of
+   * one root array, so that it can be split at line feeds. */
+  static boolean isLineDelimited(File file) {
+    if (file.getName().endsWith(".gz")) {
+      return false;
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      int b;
+      while ((b = in.read()) >= 0) {
+        if (!Character.isWhitespace(b)) {
+          return b != '[';
+        }
+      }
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
   public Object[] current() {
-    return new Object[] {enumerator.current()};
+    return new Object[] {current};
   }
 
   public boolean moveNext() {
-    return enumerator.moveNext();
+    try {
+      if (iterator.hasNextValue()) {
+        current = iterator.nextValue();
+        return true;
+      }
+      current = null;
+      return false;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   public void reset() {
-    enumerator.reset();
+    close();
+    iterator = open();
+    current = null;
   }
 
   public void close() {
     try {
-      enumerator.close();
+      iterator.close();
     } catch (Exception e) {
       throw new RuntimeException("Error closing JSON reader", e);
     }
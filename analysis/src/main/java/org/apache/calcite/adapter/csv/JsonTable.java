@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.adapter.csv;
 
 import org.apache.calcite.DataContext;
@@ -27,15 +30,30 @@ import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.util.Source;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * Table based on a JSON file.
  */
 public class JsonTable extends AbstractTable implements ScannableTable {
   private final Source source;
+  //Modified by QSQL.
+  private final ParallelScan parallelScan;
 
   /** Creates a JsonTable. */
   public JsonTable(Source source) {
+    this(source, ParallelScan.SEQUENTIAL);
+  }
+
+  /** Creates a JsonTable that scans a large file of one value per line in
+   * splits. */
+  JsonTable(Source source, ParallelScan parallelScan) {
     this.source = source;
+    this.parallelScan = parallelScan;
   }
 
   public String toString() {
@@ -53,10 +71,32 @@ public class JsonTable extends AbstractTable implements ScannableTable {
   public Enumerable<Object[]> scan(DataContext root) {
     return new AbstractEnumerable<Object[]>() {
       public Enumerator<Object[]> enumerator() {
-        return new JsonEnumerator(source);
+        //Modified by QSQL.
+        if (!source.protocol().equals("file")
+            || !parallelScan.isParallel(source.file())
+            || !JsonEnumerator.isLineDelimited(source.file())) {
+          return new JsonEnumerator(source);
+        }
+        return parallelScan.enumerator(splits(source.file()));
       }
     };
   }
+
+  private List<Supplier<Enumerator<Object[]>>> splits(File file) {
+    final long[] bounds;
+    try {
+      bounds = parallelScan.split(file);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    final List<Supplier<Enumerator<Object[]>>> splits = new ArrayList<>();
+    for (int i = 0; i < bounds.length - 1; i++) {
+      final long start = bounds[i];
+      final long end = bounds[i + 1];
+      splits.add(() -> new JsonEnumerator(source, start, end));
+    }
+    return splits;
+  }
 }
 
 // End JsonTable.java
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * How tables of a {@link CsvSchema} scan their files.
+ *
+ * <p>Created by QSQL. By default a file is read by one enumerator on the
+ * calling thread. With schema operand {@code parallelism} greater than 1, a
+ * large local file is split into byte ranges that start right after a line
+ * feed, and the ranges are scanned by at most {@code parallelism} tasks of
+ * {@link ParallelScanEnumerator}. Rows keep the order of the file unless
+ * operand {@code ordered} is false.
+ *
+ * <p>CSV files are split only at line feeds outside quoted fields, which is
+ * found by reading the file once from its start and tracking quotes and
+ * backslash escapes as opencsv does by default, so quoted fields may span
+ * lines. JSON files are split at any line feed, and are only split when
+ * they hold one value per line.
+ */
+final class ParallelScan {
+  /** Scan of one enumerator, on calling thread. */
+  static final ParallelScan SEQUENTIAL = new ParallelScan(1, true);
+
+  /** Files smaller than two splits of this size are scanned sequentially,
+   * by default. */
+  static final long MIN_SPLIT_SIZE = 16L << 20;
+
+  /** Splits per task, so that tasks finishing early take more. */
+  private static final int SPLITS_PER_TASK = 4;
+
+  /** Size of buffer used to find record bounds of CSV files. */
+  private static final int SCAN_BUFFER_SIZE = 64 << 10;
+
+  final int parallelism;
+  final boolean ordered;
+  private final long minSplitSize;
+
+  ParallelScan(int parallelism, boolean ordered) {
+    this(parallelism, ordered, MIN_SPLIT_SIZE);
+  }
+
+  ParallelScan(int parallelism, boolean ordered, long minSplitSize) {
+    this.parallelism = Math.max(1, parallelism);
+    this.ordered = ordered;
+    this.minSplitSize = minSplitSize;
+  }
+
+  /** Reads operands {@code parallelism} and {@code ordered} of a schema. */
+  static ParallelScan of(Map<String, Object> operand) {
+    final Object parallelism = operand.get("parallelism");
+    if (parallelism == null) {
+      return SEQUENTIAL;
+    }
+    final Object ordered = operand.get("ordered");
+    return new ParallelScan(
+        parallelism instanceof Number
+            ? ((Number) parallelism).intValue()
+            : Integer.parseInt(parallelism.toString().trim()),
+        ordered == null || Boolean.parseBoolean(ordered.toString()));
+  }
+
+  /** Whether a file is large enough to be scanned in parallel. */
+  boolean isParallel(File file) {
+    return parallelism > 1 && file.length() >= 2 * minSplitSize;
+  }
+
+  /** Splits a file into ranges of whole lines.
+   *
+   * @return offsets of n + 1 range bounds, the first is 0 and the last is
+   *     the length of file */
+  long[] split(File file) throws IOException {
+    return split(file, false);
+  }
+
+  /** Splits a file into ranges of whole records.
+   *
+   * @param quoted whether line feeds in quoted CSV fields are part of a
+   *     record, rather than ends of it
+   * @return offsets of n + 1 range bounds, the first is 0 and the last is
+   *     the length of file */
+  long[] split(File file, boolean quoted) throws IOException {
+    final long length = file.length();
+    final int count = (int) Math.max(1, Math.min(
+        (long) parallelism * SPLITS_PER_TASK, length / minSplitSize));
+    final List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      if (quoted) {
+        splitRecords(in, length, count, bounds);
+      } else {
+        final byte[] buffer = new byte[8192];
+        for (int i = 1; i < count; i++) {
+          long bound = nextLine(in, buffer,
+              Math.max(length * i / count, bounds.get(bounds.size() - 1)));
+          if (bound > bounds.get(bounds.size() - 1) && bound < length) {
+            bounds.add(bound);
+          }
+        }
+      }
+    }
+    bounds.add(length);
+    final long[] offsets = new long[bounds.size()];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = bounds.get(i);
+    }
+    return offsets;
+  }
+
+  /** Adds bounds right after the first line feed outside quotes at or after
+   * each of {@code count - 1} even offsets, reading the file from its start
+   * so that the quote state at a line feed is known. */
+  private static void splitRecords(RandomAccessFile in, long length, int count,
+      List<Long> bounds) throws IOException {
+    final byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+    int next = 1;
+    boolean inQuotes = false;
+    boolean escaped = false;
+    long position = 0;
+    int read;
+    in.seek(0);
+    while (next < count && (read = in.read(buffer)) > 0) {
+      for (int i = 0; i < read; i++) {
+        final byte b = buffer[i];
+        if (escaped) {
+          // only a quote or an escape is escaped
+          escaped = false;
+          if (b == '"' || b == '\\') {
+            continue;
+          }
+        }
+        if (b == '\\') {
+          escaped = true;
+        } else if (b == '"') {
+          inQuotes = !inQuotes;
+        } else if (b == '\n' && !inQuotes
+            && position + i >= length * next / count) {
+          final long bound = position + i + 1;
+          if (bound < length) {
+            bounds.add(bound);
+          }
+          // skip targets which fall into the same record
+          while (next < count && length * next / count <= position + i) {
+            next++;
+          }
+          if (next == count) {
+            return;
+          }
+        }
+      }
+      position += read;
+    }
+  }
+
+  /** Returns offset right after the first line feed at or after offset. */
+  private static long nextLine(RandomAccessFile in, byte[] buffer, long offset)
+      throws IOException {
+    in.seek(offset);
+    long position = offset;
+    int read;
+    while ((read = in.read(buffer)) > 0) {
+      for (int i = 0; i < read; i++) {
+        if (buffer[i] == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return position;
+  }
+
+  /** Creates an enumerator over the rows of splits. */
+  <E> Enumerator<E> enumerator(List<Supplier<Enumerator<E>>> splits) {
+    if (splits.size() == 1) {
+      return splits.get(0).get();
+    }
+    return new ParallelScanEnumerator<>(splits, parallelism, ordered);
+  }
+}
+
+// End ParallelScan.java
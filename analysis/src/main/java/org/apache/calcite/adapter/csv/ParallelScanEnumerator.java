@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/** Enumerator that drains the enumerators of splits on a fork-join pool.
+ *
+ * <p>Created by QSQL. Tasks take splits in order and hand their rows over
+ * in batches through bounded queues, so that at most a few batches per task
+ * are held in memory. In ordered mode each split has its own queue, which is
+ * read after the queues of previous splits are done; otherwise batches are
+ * read from one queue as soon as they are made.
+ *
+ * @param <E> Row type
+ */
+class ParallelScanEnumerator<E> implements Enumerator<E> {
+  private static final int BATCH_SIZE = 1024;
+  private static final int BATCHES_PER_TASK = 4;
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+  /** Pool shared by scans; its workers are daemon threads. */
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  private final List<Supplier<Enumerator<E>>> splits;
+  private final int tasks;
+  private final boolean ordered;
+  private final List<BlockingQueue<Batch<E>>> queues;
+  private final AtomicInteger nextSplit = new AtomicInteger();
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  private boolean started;
+  private int remaining;
+  private int split;
+  private List<E> rows = Collections.emptyList();
+  private int row;
+  private E current;
+
+  ParallelScanEnumerator(List<Supplier<Enumerator<E>>> splits,
+      int parallelism, boolean ordered) {
+    this.splits = splits;
+    this.tasks = Math.min(parallelism, splits.size());
+    this.ordered = ordered;
+    this.remaining = splits.size();
+    this.queues = new ArrayList<>();
+    if (ordered) {
+      for (int i = 0; i < splits.size(); i++) {
+        queues.add(new ArrayBlockingQueue<>(BATCHES_PER_TASK));
+      }
+    } else {
+      queues.add(new ArrayBlockingQueue<>(BATCHES_PER_TASK * tasks));
+    }
+  }
+
+  public E current() {
+    return current;
+  }
+
+  public boolean moveNext() {
+    if (!started) {
+      started = true;
+      for (int i = 0; i < tasks; i++) {
+        POOL.execute(this::scanSplits);
+      }
+    }
+    for (;;) {
+      if (row < rows.size()) {
+        current = rows.get(row++);
+        return true;
+      }
+      if (remaining == 0) {
+        current = null;
+        return false;
+      }
+      final Batch<E> batch = take();
+      if (batch.error != null) {
+        close();
+        if (batch.error instanceof RuntimeException) {
+          throw (RuntimeException) batch.error;
+        }
+        if (batch.error instanceof Error) {
+          throw (Error) batch.error;
+        }
+        throw new RuntimeException(batch.error);
+      }
+      if (batch.last) {
+        remaining--;
+        split++;
+      }
+      rows = batch.rows;
+      row = 0;
+    }
+  }
+
+  private Batch<E> take() {
+    try {
+      return queues.get(ordered ? split : 0).take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Body of a task, which scans splits until none is left. */
+  private void scanSplits() {
+    int index;
+    while (!closed.get() && (index = nextSplit.getAndIncrement()) < splits.size()) {
+      final BlockingQueue<Batch<E>> queue = queues.get(ordered ? index : 0);
+      try (Enumerator<E> enumerator = splits.get(index).get()) {
+        List<E> batch = new ArrayList<>(BATCH_SIZE);
+        while (!closed.get() && enumerator.moveNext()) {
+          batch.add(enumerator.current());
+          if (batch.size() == BATCH_SIZE) {
+            offer(queue, new Batch<>(batch, false, null));
+            batch = new ArrayList<>(BATCH_SIZE);
+          }
+        }
+        offer(queue, new Batch<>(batch, true, null));
+      } catch (Throwable e) {
+        offer(queue, new Batch<>(Collections.emptyList(), true, e));
+      }
+    }
+  }
+
+  /** Puts a batch into a full queue once the consumer takes one, or drops
+   * it if the enumerator is closed meanwhile. The wait is managed by the
+   * pool, which adds a thread for it, so that a consumer that stops reading
+   * one scan to read another does not starve the tasks of the other. */
+  private void offer(BlockingQueue<Batch<E>> queue, Batch<E> batch) {
+    try {
+      ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+        private boolean done;
+
+        public boolean block() throws InterruptedException {
+          done = closed.get()
+              || queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+          return done;
+        }
+
+        public boolean isReleasable() {
+          return done || closed.get() || (done = queue.offer(batch));
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public void reset() {
+    throw new UnsupportedOperationException();
+  }
+
+  public void close() {
+    closed.set(true);
+    for (BlockingQueue<Batch<E>> queue : queues) {
+      queue.clear();
+    }
+  }
+
+  /** Rows of a split, or the error that stopped it.
+   *
+   * @param <E> Row type */
+  private static class Batch<E> {
+    final List<E> rows;
+    final boolean last;
+    final Throwable error;
+
+    Batch(List<E> rows, boolean last, Throwable error) {
+      this.rows = rows;
+      this.last = last;
+      this.error = error;
+    }
+  }
+}
+
+// End ParallelScanEnumerator.java
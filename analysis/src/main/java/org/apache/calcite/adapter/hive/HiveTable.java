@@ -6,6 +6,8 @@ import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTable;
 
@@ -21,6 +23,8 @@ public class HiveTable extends AbstractTable implements TranslatableTable {
     public final String tableName;
     public final String modelUri;
     public Properties properties;
+    //collected by analyze action of metadata tool, set by factory
+    Statistic statistic = Statistics.UNKNOWN;
 
     public Properties getProperties() {
         return properties;
@@ -48,6 +52,11 @@ public class HiveTable extends AbstractTable implements TranslatableTable {
         return new HiveTableScan(cluster, cluster.traitSet(), relOptTable);
     }
 
+    @Override
+    public Statistic getStatistic() {
+        return statistic;
+    }
+
     @Override
     public String getBaseName() {
         return dbName;
@@ -5,6 +5,7 @@ import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.TableFactory;
+import org.apache.calcite.schema.impl.OperandStatistic;
 
 import java.util.Map;
 
@@ -20,6 +21,8 @@ public class HiveTableFactory implements TableFactory {
         String cluster = operand.get("cluster").toString();
         String tableName = operand.get("tableName").toString();
         String modelUri = operand.get("modelUri").toString();
-        return new HiveTable(dbName, cluster, tableName, modelUri);
+        HiveTable table = new HiveTable(dbName, cluster, tableName, modelUri);
+        table.statistic = OperandStatistic.of(operand, modelUri, dbName, tableName);
+        return table;
     }
 }
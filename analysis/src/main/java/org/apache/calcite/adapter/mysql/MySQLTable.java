@@ -5,6 +5,8 @@ import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTable;
 
@@ -20,6 +22,8 @@ public class MySQLTable extends AbstractTable implements TranslatableTable {
     public final String dbName;
 
     public Properties properties;
+    //collected by analyze action of metadata tool, set by factory
+    Statistic statistic = Statistics.UNKNOWN;
 
     public Properties getProperties() {
         return properties;
@@ -51,6 +55,11 @@ public class MySQLTable extends AbstractTable implements TranslatableTable {
         return new MySQLTableScan(cluster, cluster.traitSet(), relOptTable);
     }
 
+    @Override
+    public Statistic getStatistic() {
+        return statistic;
+    }
+
     @Override
     public String getBaseName() {
         return dbName;
@@ -4,11 +4,17 @@ import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.TableFactory;
+import org.apache.calcite.schema.impl.OperandStatistic;
 
 import java.util.Map;
 
 public class MySQLTableFactory implements TableFactory {
 
+    //optional, used to read table in parallel range partitions
+    private static final String[] PARTITION_PROPERTIES = {
+        "jdbcPartitionColumn", "jdbcPartitionNum", "jdbcFetchSize"
+    };
+
     @Override
     public Table create(SchemaPlus schema, String name, Map operand, RelDataType rowType) {
         String tableName = operand.get("tableName").toString();
@@ -19,9 +25,17 @@ public class MySQLTableFactory implements TableFactory {
         String jdbcDriver = operand.get("jdbcDriver").toString();
         String modelUri = operand.get("modelUri").toString();
         
-        return new MySQLTable(tableName, dbName,
+        MySQLTable table = new MySQLTable(tableName, dbName,
             jdbcDriver, jdbcUrl,
             jdbcUser, jdbcPassword,
             modelUri);
+        for (String key : PARTITION_PROPERTIES) {
+            Object value = operand.get(key);
+            if (value != null && ! value.toString().isEmpty()) {
+                table.properties.put(key, value.toString());
+            }
+        }
+        table.statistic = OperandStatistic.of(operand, modelUri, dbName, tableName);
+        return table;
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package org.apache.calcite.model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * created By QSql team.
+ *
+ * <p>Columns of tables declared in a model, indexed by lower-cased db name and table name. An index is built from the
+ * {@link JsonRoot} that {@link ModelHandler} has read, so that row types are looked up without reading the model
+ * again. Indexes are held by weak reference to the model uri string shared with handler and tables, and are dropped
+ * together with them.
+ */
+public class ModelColumns {
+
+    private static final Cache<String, ModelColumns> INDEXES = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build();
+
+    private final Map<String, List<JsonColumn>> columns;
+
+    private ModelColumns(JsonRoot root) {
+        Map<String, List<JsonColumn>> index = new HashMap<>();
+        for (JsonSchema schema : root.schemas) {
+            if (! (schema instanceof JsonMapSchema)) {
+                continue;
+            }
+            for (JsonTable table : ((JsonMapSchema) schema).tables) {
+                //later declaration wins, as the model was scanned before
+                index.put(key(schema.name, table.name), ImmutableList.copyOf(table.columns));
+            }
+        }
+        this.columns = index;
+    }
+
+    /**
+     * Index model which is read by handler.
+     *
+     * @param modelUri uri of model, its instance is shared by tables of model
+     * @param root model
+     */
+    static void register(String modelUri, JsonRoot root) {
+        INDEXES.put(modelUri, new ModelColumns(root));
+    }
+
+    /**
+     * Get index of model, the model is read if it has not been indexed.
+     *
+     * @param modelUri uri of model, "inline:" followed by model or path of model file
+     * @return index of model
+     */
+    public static ModelColumns of(String modelUri) {
+        try {
+            return INDEXES.get(modelUri, () -> new ModelColumns(ModelHandler.read(modelUri)));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Get columns of table, each of them is named as "name:type".
+     *
+     * @param dbName db name, not case sensitive
+     * @param tableName table name, not case sensitive
+     * @return columns, empty if table is not declared
+     */
+    public List<JsonColumn> getColumns(String dbName, String tableName) {
+        return columns.getOrDefault(key(dbName, tableName), Collections.emptyList());
+    }
+
+    private static String key(String dbName, String tableName) {
+        return dbName.toLowerCase(Locale.ROOT) + "." + tableName.toLowerCase(Locale.ROOT);
+    }
+}
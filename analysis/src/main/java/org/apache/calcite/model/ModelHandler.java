@@ -100,9 +100,23 @@ public class ModelHandler {
         initialize(uri);
     }
 
+    //Modified by QSQL, model is built by caller instead of being read from uri
+    public ModelHandler(SchemaPlus plus, String uri, JsonRoot root) {
+        this.rootSchemaPlus = plus;
+        this.modelUri = uri;
+        ModelColumns.register(uri, root);
+        visit(root);
+    }
+
     //Modified by QSQL
     private void initialize(String uri) throws IOException {
-        JsonRoot root;
+        JsonRoot root = read(uri);
+        ModelColumns.register(uri, root);
+        visit(root);
+    }
+
+    //Modified by QSQL
+    static JsonRoot read(String uri) throws IOException {
         ObjectMapper mapper;
         if (uri.startsWith("inline:")) {
             // trim here is to correctly autodetect if it is json or not in case of leading spaces
@@ -110,12 +124,10 @@ public class ModelHandler {
             mapper = (inline.startsWith("/*") || inline.startsWith("{"))
                 ? JSON_MAPPER
                 : YAML_MAPPER;
-            root = mapper.readValue(inline, JsonRoot.class);
-        } else {
-            mapper = uri.endsWith(".yaml") || uri.endsWith(".yml") ? YAML_MAPPER : JSON_MAPPER;
-            root = mapper.readValue(new File(uri), JsonRoot.class);
+            return mapper.readValue(inline, JsonRoot.class);
         }
-        visit(root);
+        mapper = uri.endsWith(".yaml") || uri.endsWith(".yml") ? YAML_MAPPER : JSON_MAPPER;
+        return mapper.readValue(new File(uri), JsonRoot.class);
     }
 
 
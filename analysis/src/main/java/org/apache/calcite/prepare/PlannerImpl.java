@@ -14,6 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+/*
+ * Modifications copyright (C) 2018 QSQL
+ */
 package org.apache.calcite.prepare;
 
 import org.apache.calcite.adapter.java.JavaTypeFactory;
@@ -177,6 +180,18 @@ public class PlannerImpl implements Planner {
   }
 
   public SqlNode validate(SqlNode sqlNode) throws ValidationException {
+    //Modified by QSQL, for validating a node which is parsed ahead of planner.
+    switch (state) {
+    case STATE_0_CLOSED:
+    case STATE_1_RESET:
+      ready();
+      // fall through
+    case STATE_2_READY:
+      state = State.STATE_3_PARSED;
+      break;
+    default:
+      break;
+    }
     ensure(State.STATE_3_PARSED);
     final SqlConformance conformance = conformance();
     final CalciteCatalogReader catalogReader = createCatalogReader();
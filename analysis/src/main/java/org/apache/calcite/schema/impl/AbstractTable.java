@@ -19,10 +19,10 @@
  */
 package org.apache.calcite.schema.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.calcite.config.CalciteConnectionConfig;
 import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
-import org.apache.calcite.model.*;
+import org.apache.calcite.model.JsonColumn;
+import org.apache.calcite.model.ModelColumns;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.schema.Schema;
@@ -34,7 +34,7 @@ import org.apache.calcite.sql.SqlCall;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.util.Pair;
 
-import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -48,6 +48,11 @@ import java.util.List;
  */
 public abstract class AbstractTable implements Table, Wrapper {
 
+    //Modified by QSQL.
+    private static final JavaTypeFactoryImpl JAVA_TYPE_FACTORY = new JavaTypeFactoryImpl();
+
+    private volatile CachedRowType cachedRowType;
+
     protected AbstractTable() {
     }
 
@@ -81,39 +86,37 @@ public abstract class AbstractTable implements Table, Wrapper {
     //Modified by QSQL.
     protected RelDataType getRowType(String modelUri, String dbName,
         String tableName, RelDataTypeFactory relDataTypeFactory) {
-        final ObjectMapper mapper = new ObjectMapper();
-        JsonRoot root;
-        try {
-            if (modelUri.startsWith("inline:")) {
-                root = mapper.readValue(modelUri.substring("inline:".length()), JsonRoot.class);
-            } else {
-                root = mapper.readValue(new File(modelUri), JsonRoot.class);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        //validator and planner ask for row type many times with the type factory of a query
+        CachedRowType cached = cachedRowType;
+        if (cached != null && cached.factory.get() == relDataTypeFactory) {
+            return cached.rowType;
         }
 
-        List<JsonColumn> columns = new ArrayList<>();
-        for (JsonSchema schema : root.schemas) {
-            if (dbName.toLowerCase().equals(schema.name.toLowerCase())) {
-                JsonCustomSchema jsonCustomSchema = (JsonCustomSchema) schema;
-                for (JsonTable table : jsonCustomSchema.tables) {
-                    if (tableName.toLowerCase().equals(table.name.toLowerCase())) {
-                        columns = table.columns;
-                    }
-                }
-            }
-        }
+        List<JsonColumn> columns = ModelColumns.of(modelUri).getColumns(dbName, tableName);
 
         //Support column type: int, varchar, tinyint, float, double, long, boolean, array, map. not sensitive case
         List<String> names = new ArrayList<>();
         List<RelDataType> types = new ArrayList<>();
-        JavaTypeFactoryImpl javaTypeFactory = new JavaTypeFactoryImpl();
         for (JsonColumn column : columns) {
             String[] array = column.name.split(":", -1);
             names.add(array[0]);
-            types.add(javaTypeFactory.getDataType(relDataTypeFactory, array[1]));
+            types.add(JAVA_TYPE_FACTORY.getDataType(relDataTypeFactory, array[1]));
+        }
+        RelDataType rowType = relDataTypeFactory.createStructType(Pair.zip(names, types));
+        cachedRowType = new CachedRowType(relDataTypeFactory, rowType);
+        return rowType;
+    }
+
+    /**
+     * Row type made by a type factory, which is not kept alive by table.
+     */
+    private static class CachedRowType {
+        final WeakReference<RelDataTypeFactory> factory;
+        final RelDataType rowType;
+
+        CachedRowType(RelDataTypeFactory factory, RelDataType rowType) {
+            this.factory = new WeakReference<>(factory);
+            this.rowType = rowType;
         }
-        return relDataTypeFactory.createStructType(Pair.zip(names, types));
     }
 }
\ No newline at end of file
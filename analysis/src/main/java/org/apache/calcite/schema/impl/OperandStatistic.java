@@ -0,0 +1,162 @@
+package org.apache.calcite.schema.impl;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import org.apache.calcite.model.ModelColumns;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.RelDistributionTraitDef;
+import org.apache.calcite.rel.RelReferentialConstraint;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * created By QSql team.
+ *
+ * <p>Statistic of a table carried by its operand in model, which are collected into metastore by the analyze action
+ * of metadata tool. Operand keys are {@link #ROW_COUNT}, {@link #TOTAL_SIZE} in bytes, {@link #COLUMN_NDV} as
+ * "column:ndv" separated by comma and {@link #UNIQUE_COLUMNS} as column names separated by comma, a missing or empty
+ * value means that it is unknown.
+ *
+ * <p>Number of distinct values is an estimate of data source, so a column is a key only if data source declares it
+ * unique, never because its ndv reaches the row count.
+ */
+public class OperandStatistic implements Statistic {
+
+    public static final String ROW_COUNT = "rowCount";
+    public static final String TOTAL_SIZE = "totalSize";
+    public static final String COLUMN_NDV = "columnNdv";
+    public static final String UNIQUE_COLUMNS = "uniqueColumns";
+
+    private final Double rowCount;
+    private final Double totalSize;
+    private final Map<String, Double> columnNdv;
+    private final Set<String> uniqueColumns;
+    private final Supplier<List<String>> fieldNames;
+
+    private OperandStatistic(Double rowCount, Double totalSize, Map<String, Double> columnNdv,
+        Set<String> uniqueColumns, Supplier<List<String>> fieldNames) {
+        this.rowCount = rowCount;
+        this.totalSize = totalSize;
+        this.columnNdv = columnNdv;
+        this.uniqueColumns = uniqueColumns;
+        this.fieldNames = Suppliers.memoize(fieldNames);
+    }
+
+    /**
+     * Read statistic from operand of a table declared in model.
+     *
+     * @param operand operand of table
+     * @param modelUri uri of model, used to find field names of table lazily
+     * @param dbName db name of table
+     * @param tableName table name
+     * @return statistic, whose values are null if they are not collected
+     */
+    public static OperandStatistic of(Map operand, String modelUri, String dbName, String tableName) {
+        return of(operand, () -> ModelColumns.of(modelUri).getColumns(dbName, tableName).stream()
+            .map(column -> column.name.split(":", -1)[0])
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Read statistic from operand of a table.
+     *
+     * @param operand operand of table
+     * @param fieldNames field names of table in order of row type
+     * @return statistic, whose values are null if they are not collected
+     */
+    public static OperandStatistic of(Map operand, Supplier<List<String>> fieldNames) {
+        Map<String, Double> columnNdv = new HashMap<>();
+        Object ndvValue = operand.get(COLUMN_NDV);
+        if (ndvValue != null) {
+            for (String pair : ndvValue.toString().split(",")) {
+                int index = pair.lastIndexOf(':');
+                Double ndv = index > 0 ? parse(pair.substring(index + 1)) : null;
+                if (ndv != null) {
+                    columnNdv.put(pair.substring(0, index).trim().toLowerCase(Locale.ROOT), ndv);
+                }
+            }
+        }
+        Set<String> uniqueColumns = new HashSet<>();
+        Object uniqueValue = operand.get(UNIQUE_COLUMNS);
+        if (uniqueValue != null) {
+            for (String column : uniqueValue.toString().split(",")) {
+                if (! column.trim().isEmpty()) {
+                    uniqueColumns.add(column.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return new OperandStatistic(parse(operand.get(ROW_COUNT)), parse(operand.get(TOTAL_SIZE)),
+            columnNdv, uniqueColumns, fieldNames);
+    }
+
+    private static Double parse(Object value) {
+        if (value == null || value.toString().trim().isEmpty()) {
+            return null;
+        }
+        try {
+            double number = Double.parseDouble(value.toString().trim());
+            return number < 0 ? null : number;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    public Double getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get size of table in bytes.
+     *
+     * @return total size, null if it is unknown
+     */
+    public Double getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Get number of distinct values of a column.
+     *
+     * @param column column name, not case sensitive
+     * @return ndv, null if it is unknown
+     */
+    public Double getColumnNdv(String column) {
+        return columnNdv.get(column.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean isKey(ImmutableBitSet columns) {
+        if (uniqueColumns.isEmpty()) {
+            return false;
+        }
+        List<String> names = fieldNames.get();
+        //columns containing a unique column are a key
+        for (int index : columns) {
+            if (index < names.size() && uniqueColumns.contains(names.get(index).toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<RelReferentialConstraint> getReferentialConstraints() {
+        return ImmutableList.of();
+    }
+
+    public List<RelCollation> getCollations() {
+        return ImmutableList.of();
+    }
+
+    public RelDistribution getDistribution() {
+        return RelDistributionTraitDef.INSTANCE.getDefault();
+    }
+}
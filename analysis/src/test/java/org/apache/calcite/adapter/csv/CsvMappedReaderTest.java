@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CsvMappedReader}.
+ */
+public class CsvMappedReaderTest {
+  private static final String TEXT = "ID:int,NAME:string,SCORE:double\n"
+      + "1,alice,1.5\r\n"
+      + "-20,\"b,ob\",0.1\n"
+      + ",,\n"
+      + "3,\"multi\nline \"\"quoted\"\"\",12345678901.25\n"
+      + "2147483647,caf\u00e9,-0\n"
+      + "4,a field long enough to cross small windows,1e3";
+
+  private File file;
+
+  @Before public void setUp() throws IOException {
+    file = File.createTempFile("mapped", ".csv");
+    Files.write(file.toPath(), TEXT.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After public void tearDown() {
+    assertTrue(file.delete());
+  }
+
+  /** Reads the same strings as CSVReader, whatever the window size is. */
+  @Test public void testSameFieldsAsOpenCsv() throws IOException {
+    final List<List<Object>> expected = new ArrayList<>();
+    try (CSVReader reader = new CSVReader(new StringReader(TEXT))) {
+      reader.readNext(); // skip header row
+      String[] strings;
+      while ((strings = reader.readNext()) != null) {
+        expected.add(Arrays.asList((Object[]) strings));
+      }
+    }
+    for (int window : new int[] {8, 13, 64, CsvMappedReader.DEFAULT_WINDOW_SIZE}) {
+      assertEquals(expected, read(window, null, null, null));
+    }
+  }
+
+  @Test public void testDecodeTypes() throws IOException {
+    final List<List<Object>> rows =
+        read(16, CsvFieldType.INT, CsvFieldType.STRING, CsvFieldType.DOUBLE);
+    assertEquals(Arrays.asList(1, "alice", 1.5), rows.get(0));
+    assertEquals(Arrays.asList(-20, "b,ob", 0.1), rows.get(1));
+    assertEquals(Arrays.asList(null, "", null), rows.get(2));
+    assertEquals(12345678901.25, rows.get(3).get(2));
+    assertEquals(Arrays.asList(2147483647, "caf\u00e9", -0.0), rows.get(4));
+    assertEquals(1000.0, rows.get(5).get(2));
+  }
+
+  @Test public void testFieldEquals() throws IOException {
+    try (CsvMappedReader reader = new CsvMappedReader(file)) {
+      int matched = 0;
+      while (reader.next()) {
+        if (reader.fieldEquals(1, "caf\u00e9".getBytes(StandardCharsets.UTF_8))
+            || reader.fieldEquals(1, "b,ob".getBytes(StandardCharsets.UTF_8))) {
+          matched++;
+        }
+        assertFalse(reader.fieldEquals(3, new byte[0]));
+      }
+      assertEquals(2, matched);
+    }
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testIntOverflow() throws IOException {
+    Files.write(file.toPath(),
+        "A:int\n99999999999\n".getBytes(StandardCharsets.UTF_8));
+    read(1024, CsvFieldType.INT);
+  }
+
+  private List<List<Object>> read(int window, CsvFieldType... types)
+      throws IOException {
+    final List<List<Object>> rows = new ArrayList<>();
+    try (CsvMappedReader reader = new CsvMappedReader(file, window)) {
+      reader.next(); // skip header row
+      while (reader.next()) {
+        final List<Object> row = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+          row.add(reader.field(i, types[i]));
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+}
+
+// End CsvMappedReaderTest.java
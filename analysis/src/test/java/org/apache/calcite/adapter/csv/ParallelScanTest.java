@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ParallelScan} and {@link ParallelScanEnumerator}.
+ */
+public class ParallelScanTest {
+  private static final int ROWS = 5000;
+
+  private File file;
+
+  @Before public void setUp() throws IOException {
+    final StringBuilder text = new StringBuilder("ID:int,NAME:string\n");
+    for (int i = 0; i < ROWS; i++) {
+      text.append(i).append(",name").append(i).append('\n');
+    }
+    file = File.createTempFile("parallel", ".csv");
+    Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After public void tearDown() {
+    assertTrue(file.delete());
+  }
+
+  @Test public void testSplitAtLineStarts() throws IOException {
+    final long[] bounds = new ParallelScan(4, true, 1024).split(file);
+    assertEquals(17, bounds.length);
+    assertEquals(0, bounds[0]);
+    assertEquals(file.length(), bounds[bounds.length - 1]);
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    for (int i = 1; i < bounds.length - 1; i++) {
+      assertTrue(bounds[i] > bounds[i - 1]);
+      assertEquals('\n', bytes[(int) bounds[i] - 1]);
+    }
+  }
+
+  @Test public void testSplitOutsideQuotedFields() throws IOException {
+    final StringBuilder text = new StringBuilder("ID:int,NAME:string\n");
+    for (int i = 0; i < ROWS; i++) {
+      text.append(i).append(",\"name\n\\\"").append(i).append("\\\"\n\"\n");
+    }
+    Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+
+    final ParallelScan parallelScan = new ParallelScan(4, true, 1024);
+    final long[] bounds = parallelScan.split(file, true);
+    assertTrue(bounds.length > 2);
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    for (int i = 1; i < bounds.length - 1; i++) {
+      assertTrue(bounds[i] > bounds[i - 1]);
+      assertEquals('\n', bytes[(int) bounds[i] - 1]);
+      // a record starts with its id, not with the rest of a quoted field
+      assertTrue(Character.isDigit(bytes[(int) bounds[i]]));
+    }
+
+    final List<Object> rows = scan(parallelScan, bounds);
+    assertEquals(ROWS, rows.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(i, rows.get(i));
+    }
+  }
+
+  @Test public void testOrderedScan() throws IOException {
+    final List<Object> rows = scan(new ParallelScan(4, true, 1024));
+    assertEquals(ROWS, rows.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(i, rows.get(i));
+    }
+  }
+
+  @Test public void testUnorderedScan() throws IOException {
+    final List<Object> rows = scan(new ParallelScan(4, false, 1024));
+    assertEquals(ROWS, rows.size());
+    final List<Integer> sorted = new ArrayList<>();
+    for (Object row : rows) {
+      sorted.add((Integer) row);
+    }
+    Collections.sort(sorted);
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(i, (int) sorted.get(i));
+    }
+  }
+
+  @Test public void testSplitError() {
+    final List<Supplier<Enumerator<Object>>> splits = Arrays.asList(
+        () -> new CsvMappedEnumerator<>(file, 0, -1, new AtomicBoolean(),
+            Arrays.asList(CsvFieldType.INT, CsvFieldType.STRING),
+            new int[] {0}, null, true),
+        () -> {
+          throw new IllegalStateException("broken split");
+        });
+    try (Enumerator<Object> enumerator =
+             new ParallelScanEnumerator<>(splits, 2, true)) {
+      while (enumerator.moveNext()) {
+        assertTrue(enumerator.current() instanceof Integer);
+      }
+      fail("expected error of second split");
+    } catch (IllegalStateException e) {
+      assertEquals("broken split", e.getMessage());
+    }
+  }
+
+  private List<Object> scan(ParallelScan parallelScan) throws IOException {
+    return scan(parallelScan, parallelScan.split(file));
+  }
+
+  private List<Object> scan(ParallelScan parallelScan, long[] bounds) {
+    final List<Supplier<Enumerator<Object>>> splits = new ArrayList<>();
+    for (int i = 0; i < bounds.length - 1; i++) {
+      final long start = bounds[i];
+      final long end = bounds[i + 1];
+      splits.add(() ->
+          new CsvMappedEnumerator<>(file, start, end, new AtomicBoolean(),
+              Arrays.asList(CsvFieldType.INT, CsvFieldType.STRING),
+              new int[] {0}, null, true));
+    }
+    final List<Object> rows = new ArrayList<>();
+    try (Enumerator<Object> enumerator = parallelScan.enumerator(splits)) {
+      while (enumerator.moveNext()) {
+        rows.add(enumerator.current());
+      }
+    }
+    return rows;
+  }
+}
+
+// End ParallelScanTest.java
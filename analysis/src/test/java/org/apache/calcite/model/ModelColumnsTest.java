@@ -0,0 +1,44 @@
+package org.apache.calcite.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ModelColumns}.
+ */
+public class ModelColumnsTest {
+
+    private static final String MODEL = "inline: {"
+        + "version: '1.0',"
+        + "schemas: [{"
+        + "  type: 'custom', name: 'Db', factory: 'org.apache.calcite.adapter.mysql.MySQLSchemaFactory',"
+        + "  tables: [{"
+        + "    name: 'Student', factory: 'org.apache.calcite.adapter.mysql.MySQLTableFactory',"
+        + "    columns: [{name: 'id:int'}, {name: 'name:string'}]"
+        + "  }]"
+        + "}]}";
+
+    @Test
+    public void testColumnsAreIndexed() {
+        List<String> names = ModelColumns.of(MODEL).getColumns("db", "STUDENT")
+            .stream()
+            .map(column -> column.name)
+            .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("id:int", "name:string"), names);
+    }
+
+    @Test
+    public void testUnknownTableHasNoColumns() {
+        Assert.assertEquals(Collections.emptyList(), ModelColumns.of(MODEL).getColumns("db", "teacher"));
+        Assert.assertEquals(Collections.emptyList(), ModelColumns.of(MODEL).getColumns("other", "student"));
+    }
+
+    @Test
+    public void testModelIsReadOnce() {
+        Assert.assertSame(ModelColumns.of(MODEL), ModelColumns.of(MODEL));
+    }
+}
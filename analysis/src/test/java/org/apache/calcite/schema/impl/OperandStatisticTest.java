@@ -0,0 +1,60 @@
+package org.apache.calcite.schema.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Tests for {@link OperandStatistic}.
+ */
+public class OperandStatisticTest {
+
+    @Test
+    public void testReadOperand() {
+        Map<String, String> operand = ImmutableMap.of(
+            OperandStatistic.ROW_COUNT, "1000",
+            OperandStatistic.TOTAL_SIZE, "",
+            OperandStatistic.COLUMN_NDV, "Stu_Id:1000,city:12,time:stamp:5,name:-1,broken");
+        OperandStatistic statistic = OperandStatistic.of(operand, () -> ImmutableList.of("stu_id", "city"));
+
+        Assert.assertEquals(Double.valueOf(1000), statistic.getRowCount());
+        Assert.assertNull(statistic.getTotalSize());
+        Assert.assertEquals(Double.valueOf(1000), statistic.getColumnNdv("STU_ID"));
+        Assert.assertEquals(Double.valueOf(12), statistic.getColumnNdv("city"));
+        Assert.assertEquals(Double.valueOf(5), statistic.getColumnNdv("time:stamp"));
+        Assert.assertNull(statistic.getColumnNdv("name"));
+        Assert.assertNull(statistic.getColumnNdv("broken"));
+    }
+
+    @Test
+    public void testUnknownStatistic() {
+        OperandStatistic statistic = OperandStatistic.of(
+            ImmutableMap.of(OperandStatistic.ROW_COUNT, "many"), ImmutableList::of);
+
+        Assert.assertNull(statistic.getRowCount());
+        Assert.assertNull(statistic.getTotalSize());
+        Assert.assertNull(statistic.getColumnNdv("stu_id"));
+        Assert.assertFalse(statistic.isKey(ImmutableBitSet.of(0)));
+    }
+
+    @Test
+    public void testKeyOnlyDeclaredUnique() {
+        Map<String, String> operand = ImmutableMap.of(
+            OperandStatistic.ROW_COUNT, "1000",
+            OperandStatistic.COLUMN_NDV, "stu_id:1000,city:1200",
+            OperandStatistic.UNIQUE_COLUMNS, "Stu_Id");
+        OperandStatistic statistic = OperandStatistic.of(operand,
+            () -> ImmutableList.of("city", "stu_id", "name"));
+
+        Assert.assertTrue(statistic.isKey(ImmutableBitSet.of(1)));
+        Assert.assertTrue(statistic.isKey(ImmutableBitSet.of(1, 2)));
+        //ndv is an estimate, reaching row count does not make a column unique
+        Assert.assertFalse(statistic.isKey(ImmutableBitSet.of(0)));
+        Assert.assertFalse(statistic.isKey(ImmutableBitSet.of(0, 2)));
+        Assert.assertFalse(statistic.isKey(ImmutableBitSet.of(5)));
+    }
+}
@@ -0,0 +1,57 @@
+package com.qihoo.qsql.benchmark;
+
+import java.io.File;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry of the benchmark jar, which runs benchmarks selected by jmh command line options and writes results as
+ * json. It is the only entry, benchmark classes have no main method, run one of them by passing its simple name as the
+ * include regexp, e.g. {@code java -jar qsql-benchmark-0.5.jar MetadataPostmanBenchmark}.
+ *
+ * <p>Results are written to {@code jmh-result-<version>.json} in the working directory unless options {@code -rf}
+ * or {@code -rff} say otherwise, so that results of two versions can be compared side by side. Benchmarks read {@code
+ * metadata.properties} and {@code qsql-runner.properties} from conf directory of QSQL_HOME, and metadata of tables
+ * from the bundled sqlite store, so no external service is needed.</p>
+ */
+public class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Run benchmarks.
+     *
+     * @param args jmh command line options, e.g. a regexp of benchmarks to include or -h for help
+     * @throws RunnerException exception from jmh runner
+     * @throws CommandLineOptionException if options are wrong
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        if (options.shouldList()) {
+            new Runner(options).list();
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (! options.getResultFormat().hasValue() && ! options.getResult().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON)
+                .result(new File(resultFileName()).getAbsolutePath());
+        }
+        new Runner(builder.build()).run();
+    }
+
+    private static String resultFileName() {
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+        return "jmh-result-" + (version == null ? "dev" : version) + ".json";
+    }
+}
@@ -0,0 +1,77 @@
+package com.qihoo.qsql.codegen;
+
+import com.qihoo.qsql.codegen.spark.SparkBodyWrapper;
+import com.qihoo.qsql.plan.QueryProcedureProducer;
+import com.qihoo.qsql.plan.proc.QueryProcedure;
+import com.qihoo.qsql.utils.SqlUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of generating a Spark requirement from a query procedure and getting its class through {@link
+ * ClassBodyWrapper#compile()}, with the class cached in memory and with the memory cache dropped, in which case it is
+ * read from the disk cache or compiled as {@code qsql.codegen.cache.dir} says.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassBodyWrapperBenchmark {
+
+    private static final String SINGLE_SOURCE =
+        "SELECT dep_id, type FROM edu_manage.department WHERE dep_id = 1";
+    private static final String MIXED_SOURCES = "SELECT a.dep_id, b.signature FROM edu_manage.department AS a"
+        + " JOIN action_required.homework_content AS b ON a.dep_id = b.stu_id";
+
+    /**
+     * Query of one source or of two sources.
+     */
+    @Param({"single", "mixed"})
+    public String sources;
+
+    private QueryProcedure procedure;
+
+    @Setup
+    public void setUp() {
+        String sql = "single".equals(sources) ? SINGLE_SOURCE : MIXED_SOURCES;
+        procedure = new QueryProcedureProducer(SqlUtil.getSchemaPath(SqlUtil.parseTableName(sql)))
+            .createQueryProcedure(sql);
+        wrap().compile();
+    }
+
+    private IntegratedQueryWrapper wrap() {
+        IntegratedQueryWrapper wrapper = new SparkBodyWrapper();
+        wrapper.interpretProcedure(procedure);
+        wrapper.importSpecificDependency();
+        return wrapper;
+    }
+
+    /**
+     * Class of code is in memory cache.
+     */
+    @Benchmark
+    public RequirementClassCache.CompiledRequirement cached() {
+        return wrap().compile();
+    }
+
+    /**
+     * Class of code is not in memory cache.
+     */
+    @Benchmark
+    public RequirementClassCache.CompiledRequirement uncached() {
+        RequirementClassCache.invalidateAll();
+        return wrap().compile();
+    }
+}
@@ -0,0 +1,71 @@
+package com.qihoo.qsql.codegen;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.codehaus.commons.compiler.CompileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of compiling a generated Spark requirement with javac and with Janino, bypassing {@link
+ * RequirementClassCache}. Startup benchmarks measure the first compilation of a fresh JVM, latency benchmarks measure
+ * compilations once the compiler is warm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequirementCompilerBenchmark {
+
+    private static final String SOURCE = JaninoRequirementCompilerTest.SOURCE;
+    private static final String CLASS_NAME = "Requirement_janino";
+
+    /**
+     * Latency of javac through the system java compiler.
+     */
+    @Benchmark
+    public Map<String, byte[]> javac() throws Exception {
+        return ClassBodyWrapper.compileToBytecode(CLASS_NAME, SOURCE, "");
+    }
+
+    /**
+     * Latency of in-process Janino.
+     */
+    @Benchmark
+    public Map<String, byte[]> janino() throws CompileException {
+        return JaninoRequirementCompiler.compile(SOURCE, "");
+    }
+
+    /**
+     * First compilation of javac in a new JVM.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(5)
+    public Map<String, byte[]> javacStartup() throws Exception {
+        return javac();
+    }
+
+    /**
+     * First compilation of Janino in a new JVM.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(5)
+    public Map<String, byte[]> janinoStartup() throws CompileException {
+        return janino();
+    }
+}
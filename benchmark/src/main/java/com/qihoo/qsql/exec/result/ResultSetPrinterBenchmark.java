@@ -0,0 +1,85 @@
+package com.qihoo.qsql.exec.result;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of printing an in-memory result set into a discarding stream, as rows per second, with rows concatenated
+ * and printed line by line as before and with {@link ResultSetPrinter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSetPrinterBenchmark {
+
+    private static final int ROWS = 10000;
+    private static final int[] TYPES = {
+        Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.DOUBLE, Types.DECIMAL, Types.VARCHAR};
+
+    private Object[][] rows;
+    private PrintStream printStream;
+    private OutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[] {
+                (long) i * 7919, i % 100, "name_" + i, i * 0.25D,
+                BigDecimal.valueOf(i, 2), i % 10 == 0 ? null : "2018-10-" + (i % 28 + 1)};
+        }
+        outputStream = new OutputStream() {
+            @Override
+            public void write(int value) {
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+            }
+        };
+        printStream = new PrintStream(outputStream, true);
+    }
+
+    /**
+     * Rows converted to arrays, joined by stream and printed with a println for each.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void concatAndPrintln() {
+        JdbcResultSetIterator<Object> iterator = new JdbcResultSetIterator<>(resultSet());
+        iterator.forEachRemaining(result -> printStream.println(JdbcResultSetIterator.CONCAT_FUNC.apply(result)));
+    }
+
+    /**
+     * Rows read by typed getters into a reused buffer and flushed once.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long resultSetPrinter() throws SQLException, IOException {
+        return new ResultSetPrinter(outputStream).print(resultSet());
+    }
+
+    private ResultSet resultSet() {
+        return InMemoryResultSet.create(TYPES, rows);
+    }
+}
@@ -0,0 +1,67 @@
+package com.qihoo.qsql.metadata;
+
+import com.qihoo.qsql.metadata.entity.ColumnValue;
+import com.qihoo.qsql.metadata.entity.TableValue;
+import com.qihoo.qsql.metadata.utils.MetaConnectionUtil;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of looking up a table in the embedded metadata storage, with a new connection per lookup and with a
+ * pooled connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataClientBenchmark {
+
+    private String url;
+
+    @Setup
+    public void setUp() {
+        url = MetaConnectionUtil.getEmbeddedUrl(PropertiesReader.readProperties("metadata.properties"));
+    }
+
+    /**
+     * Lookup through a new sqlite connection, as before pooling.
+     */
+    @Benchmark
+    public List<ColumnValue> directConnection() throws SQLException {
+        try (MetadataClient client = new MetadataClient(DriverManager.getConnection(url))) {
+            return lookup(client);
+        }
+    }
+
+    /**
+     * Lookup through a pooled connection with cached prepared statements.
+     */
+    @Benchmark
+    public List<ColumnValue> pooledConnection() throws SQLException {
+        try (MetadataClient client = new MetadataClient()) {
+            return lookup(client);
+        }
+    }
+
+    private List<ColumnValue> lookup(MetadataClient client) {
+        TableValue table = client.getTableSchema("student").get(0);
+        client.getBasicDatabaseInfoById(table.getDbId());
+        client.getDatabaseSchema(table.getDbId());
+        return client.getFieldsSchema(table.getTblId());
+    }
+}
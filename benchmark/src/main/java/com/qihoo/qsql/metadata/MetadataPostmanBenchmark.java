@@ -0,0 +1,74 @@
+package com.qihoo.qsql.metadata;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of assembling schemas of tables from the bundled sqlite metadata store, with assemblers taken from
+ * {@link MetadataCache} and fetched from store after the cache is dropped.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataPostmanBenchmark {
+
+    private static final List<String> ALL_TABLES = Arrays.asList(
+        "edu_manage.department",
+        "edu_manage.department_student_relation",
+        "action_required.homework_content",
+        "action_required.action_detection_in_class");
+
+    /**
+     * Number of tables in one lookup.
+     */
+    @Param({"1", "4"})
+    public int tables;
+
+    private List<String> identifiers;
+
+    @Setup
+    public void setUp() {
+        identifiers = ALL_TABLES.subList(0, tables);
+        MetadataPostman.getAssembledSchema(identifiers);
+    }
+
+    /**
+     * Assemblers are cached.
+     */
+    @Benchmark
+    public List<SchemaAssembler> cached() {
+        return MetadataPostman.getAssembledSchema(identifiers);
+    }
+
+    /**
+     * Assemblers of all tables are fetched in one batch.
+     */
+    @Benchmark
+    public List<SchemaAssembler> uncached() {
+        MetadataCache.invalidateAll();
+        return MetadataPostman.getAssembledSchema(identifiers);
+    }
+
+    /**
+     * Cached assemblers are turned into a calcite model.
+     */
+    @Benchmark
+    public String calciteModel() {
+        return MetadataPostman.getCalciteModelSchema(identifiers);
+    }
+}
@@ -0,0 +1,61 @@
+package com.qihoo.qsql.plan;
+
+import com.qihoo.qsql.plan.proc.QueryProcedure;
+import com.qihoo.qsql.utils.SqlUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of creating query procedures of several plan shapes, by a producer whose planner config is already
+ * initialized, with procedures taken from {@link QueryProcedureCache} and with both caches of plans and parse trees
+ * dropped before each call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryProcedureProducerBenchmark {
+
+    @Param({"DIRECT", "AGGREGATE", "MIXED_JOIN", "MIXED_UNION"})
+    public String shape;
+
+    private String sql;
+    private QueryProcedureProducer producer;
+
+    @Setup
+    public void setUp() {
+        sql = QueryShape.valueOf(shape).sql;
+        producer = new QueryProcedureProducer(SqlUtil.getSchemaPath(SqlUtil.parseTableName(sql)));
+        producer.createQueryProcedure(sql);
+    }
+
+    /**
+     * Procedure is found in cache.
+     */
+    @Benchmark
+    public QueryProcedure cached() {
+        return producer.createQueryProcedure(sql);
+    }
+
+    /**
+     * Sql is parsed, validated, optimized and separated again.
+     */
+    @Benchmark
+    public QueryProcedure uncached() {
+        QueryProcedureCache.invalidateAll();
+        ParsedQuery.invalidateAll();
+        return producer.createQueryProcedure(sql);
+    }
+}
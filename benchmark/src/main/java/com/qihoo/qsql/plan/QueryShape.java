@@ -0,0 +1,55 @@
+package com.qihoo.qsql.plan;
+
+/**
+ * Shapes of queries planned by benchmarks, over tables of the bundled metadata store which are planned without
+ * connecting to their sources.
+ */
+enum QueryShape {
+    /**
+     * Query of one table, executed by its source.
+     */
+    DIRECT("SELECT dep_id, type FROM edu_manage.department WHERE dep_id = 1"),
+    /**
+     * Filter and aggregate over one table.
+     */
+    AGGREGATE("SELECT times, SUM(dep_id) FROM edu_manage.department WHERE times > 1 GROUP BY times"),
+    /**
+     * Join of subqueries on tables of two sources.
+     */
+    MIXED_JOIN("SELECT a.dep_id, b.signature"
+        + " FROM (SELECT dep_id FROM edu_manage.department WHERE dep_id > 10) AS a"
+        + " JOIN (SELECT stu_id, signature FROM action_required.homework_content) AS b"
+        + " ON a.dep_id = b.stu_id"),
+    /**
+     * Union of tables of two sources.
+     */
+    MIXED_UNION("SELECT dep_id AS id FROM edu_manage.department"
+        + " UNION SELECT stu_id AS id FROM action_required.action_detection_in_class");
+
+    final String sql;
+
+    QueryShape(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Join of a number of tables alternating between MySQL and Hive, so that every join is cut by {@link
+     * SubtreeSyncopator}.
+     *
+     * @param width number of tables
+     * @return sql
+     */
+    static String wideJoin(int width) {
+        StringBuilder sql = new StringBuilder("SELECT t0.dep_id FROM edu_manage.department AS t0");
+        for (int i = 1; i < width; i++) {
+            if (i % 2 == 1) {
+                sql.append(" JOIN action_required.homework_content AS t").append(i)
+                    .append(" ON t").append(i - 1).append(".dep_id = t").append(i).append(".stu_id");
+            } else {
+                sql.append(" JOIN edu_manage.department AS t").append(i)
+                    .append(" ON t").append(i - 1).append(".stu_id = t").append(i).append(".dep_id");
+            }
+        }
+        return sql.toString();
+    }
+}
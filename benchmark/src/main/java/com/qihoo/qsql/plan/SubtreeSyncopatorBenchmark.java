@@ -0,0 +1,101 @@
+package com.qihoo.qsql.plan;
+
+import com.qihoo.qsql.utils.SqlUtil;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.calcite.model.ModelHandler;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelTraitDef;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.rules.SubQueryRemoveRule;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.apache.calcite.sql2rel.SqlToRelConverter;
+import org.apache.calcite.tools.FrameworkConfig;
+import org.apache.calcite.tools.Frameworks;
+import org.apache.calcite.tools.Planner;
+import org.apache.calcite.tools.RelConversionException;
+import org.apache.calcite.tools.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of cutting a logical plan of joins between MySQL and Hive tables into subtrees of each source.
+ *
+ * <p>{@link SubtreeSyncopator} replaces inputs of the plan it cuts, so a new plan is built before each call, out of
+ * the measured time.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubtreeSyncopatorBenchmark {
+
+    /**
+     * Number of joined tables.
+     */
+    @Param({"2", "4", "8", "16"})
+    public int width;
+
+    private String sql;
+    private FrameworkConfig config;
+    private RelNode plan;
+
+    @Setup
+    public void setUp() throws IOException {
+        sql = QueryShape.wideJoin(width);
+        SchemaPlus rootSchema = Frameworks.createRootSchema(true);
+        new ModelHandler(rootSchema, SqlUtil.getSchemaPath(SqlUtil.parseTableName(sql)));
+        config = Frameworks.newConfigBuilder()
+            .parserConfig(ParsedQuery.PARSER_CONFIG)
+            .defaultSchema(rootSchema)
+            .traitDefs((List<RelTraitDef>) null)
+            .sqlToRelConverterConfig(SqlToRelConverter.configBuilder()
+                .withTrimUnusedFields(false)
+                .withConvertTableAccess(false)
+                .withExpand(false)
+                .build())
+            .build();
+    }
+
+    /**
+     * Build plan as {@link QueryProcedureProducer} does.
+     */
+    @Setup(Level.Invocation)
+    public void buildPlan() throws SqlParseException, ValidationException, RelConversionException {
+        Planner planner = Frameworks.getPlanner(config);
+        RelNode origin = planner.rel(planner.validate(planner.parse(sql))).rel;
+        HepPlanner prePlanner = new HepPlanner(new HepProgramBuilder()
+            .addRuleInstance(SubQueryRemoveRule.PROJECT)
+            .addRuleInstance(SubQueryRemoveRule.FILTER)
+            .addRuleInstance(SubQueryRemoveRule.JOIN)
+            .build());
+        prePlanner.setRoot(origin);
+        plan = prePlanner.findBestExp();
+    }
+
+    /**
+     * Cut plan into subtrees.
+     */
+    @Benchmark
+    public Map<RelNode, AbstractMap.SimpleEntry<String, RelOptTable>> syncopate() {
+        return new SubtreeSyncopator(plan).rootNodeSchemas;
+    }
+}
@@ -0,0 +1,46 @@
+package com.qihoo.qsql.plan;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of parsing sql and collecting names of its tables, without the cache of {@link ParsedQuery}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableNameCollectorBenchmark {
+
+    @Param({"DIRECT", "AGGREGATE", "MIXED_JOIN", "MIXED_UNION"})
+    public String shape;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        sql = QueryShape.valueOf(shape).sql;
+    }
+
+    /**
+     * Parse sql and visit its tree.
+     */
+    @Benchmark
+    public List<String> parseTableName() throws SqlParseException {
+        return new TableNameCollector().parseTableName(sql);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.util.Source;
+import org.apache.calcite.util.Sources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scans a generated CSV file through opencsv, through
+ * {@link CsvMappedEnumerator} and through {@link ParallelScan}, as rows per
+ * second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvEnumeratorBenchmark {
+  private static final int ROWS = 1_000_000;
+  private static final List<CsvFieldType> FIELD_TYPES = Arrays.asList(
+      CsvFieldType.INT, CsvFieldType.STRING, CsvFieldType.DOUBLE,
+      CsvFieldType.LONG);
+
+  /**
+   * Reader of file: "opencsv", "mapped" or "parallel".
+   */
+  @Param({"opencsv", "mapped", "parallel"})
+  public String reader;
+
+  private File file;
+  private Source source;
+  private int[] fields;
+  private ParallelScan parallelScan;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = File.createTempFile("benchmark", ".csv");
+    try (Writer writer =
+             Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("ID:int,NAME:string,SCORE:double,TOTAL:long\n");
+      for (int i = 0; i < ROWS; i++) {
+        writer.write(i + ",name_" + i + "," + (i * 0.25D) + ","
+            + (i * 7919L) + "\n");
+      }
+    }
+    source = Sources.of(file);
+    fields = CsvEnumerator.identityList(FIELD_TYPES.size());
+    parallelScan = new ParallelScan(
+        Runtime.getRuntime().availableProcessors(), true, 1 << 20);
+  }
+
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Scan all rows of file.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void scan(Blackhole blackhole) {
+    try (Enumerator<Object[]> enumerator = enumerator()) {
+      while (enumerator.moveNext()) {
+        blackhole.consume(enumerator.current());
+      }
+    }
+  }
+
+  private Enumerator<Object[]> enumerator() {
+    final AtomicBoolean cancelFlag = new AtomicBoolean();
+    switch (reader) {
+    case "opencsv":
+      return new CsvEnumerator<>(source, cancelFlag, false, null,
+          new CsvEnumerator.ArrayRowConverter(FIELD_TYPES, fields));
+    case "mapped":
+      return CsvEnumerator.create(source, cancelFlag, ParallelScan.SEQUENTIAL,
+          FIELD_TYPES, fields, null, false);
+    default:
+      return CsvEnumerator.create(source, cancelFlag, parallelScan,
+          FIELD_TYPES, fields, null, false);
+    }
+  }
+}
+
+// End CsvEnumeratorBenchmark.java
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.calcite.linq4j.function.Function1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a recorded search response through
+ * {@link ElasticsearchJson.Result} and {@link ElasticsearchEnumerators#getter(List)}
+ * with {@link ElasticsearchRowDecoder}.
+ *
+ * <p>Run with {@code -prof gc} to compare allocation rates as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElasticsearchRowDecoderBenchmark {
+
+  /**
+   * Projection of query: {@code select *}, one field or several fields.
+   */
+  @Param({"star", "single", "multiple"})
+  public String projection;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private byte[] response;
+  private List<Map.Entry<String, Class>> fields;
+  private Function1<ElasticsearchJson.SearchHit, Object> getter;
+  private ElasticsearchRowDecoder decoder;
+
+  @Setup
+  public void setUp() throws IOException {
+    response = Resources.toByteArray(
+        ElasticsearchRowDecoderBenchmark.class.getResource("/search-response-zips.json"));
+    switch (projection) {
+    case "star":
+      fields = null;
+      break;
+    case "single":
+      fields = Collections.singletonList(field("city", String.class));
+      break;
+    default:
+      fields = Arrays.asList(field("city", String.class), field("pop", Long.class),
+          field("state", String.class));
+    }
+    getter = ElasticsearchEnumerators.getter(fields);
+    decoder = new ElasticsearchRowDecoder(mapper, fields);
+  }
+
+  private static Map.Entry<String, Class> field(String name, Class type) {
+    return new AbstractMap.SimpleEntry<>(name, type);
+  }
+
+  /**
+   * Reads response into object graph, then converts hits into rows.
+   */
+  @Benchmark
+  public List<Object> objectGraph() throws IOException {
+    try (InputStream is = new ByteArrayInputStream(response)) {
+      ElasticsearchJson.Result result = mapper.readValue(is, ElasticsearchJson.Result.class);
+      List<Object> rows = new ArrayList<>(result.searchHits().hits().size());
+      for (ElasticsearchJson.SearchHit hit : result.searchHits().hits()) {
+        rows.add(getter.apply(hit));
+      }
+      return rows;
+    }
+  }
+
+  /**
+   * Reads rows straight from the token stream.
+   */
+  @Benchmark
+  public List<Object> streaming() throws IOException {
+    try (InputStream is = new ByteArrayInputStream(response)) {
+      return decoder.decode(is).rows();
+    }
+  }
+}
+
+// End ElasticsearchRowDecoderBenchmark.java
@@ -10,7 +10,6 @@ import java.sql.CallableStatement;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.NClob;
 import java.sql.PreparedStatement;
 import java.sql.SQLClientInfoException;
@@ -22,6 +21,7 @@ import java.sql.Statement;
 import java.sql.Struct;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -30,27 +30,17 @@ import java.util.concurrent.Executor;
 
 /**
  * JDBC connection implementation.
+ * <p>
+ * Underlying connections are drawn from the connection pool of {@link JdbcPipeline}, one for each set of tables the
+ * statements refer to. A statement is prepared on a connection whose tables cover its own, so statements prepared
+ * before stay open when other tables are queried. All underlying connections are given back to pool on close.
+ * </p>
  */
 public class AutomaticConnection implements Connection {
 
-    private static final String VALUES_SCHEMA = "inline:"
-        + "{\n"
-        + "  version: '1.0',\n"
-        + "  defaultSchema: 'SALES',\n"
-        + "  schemas: [\n"
-        + "    {\n"
-        + "      name: 'SALES',\n"
-        + "      type: 'custom',\n"
-        + "      factory: 'org.apache.calcite.adapter.csv.CsvSchemaFactory',\n"
-        + "      operand: {\n"
-        + "        directory: 'sales'\n"
-        + "      }\n"
-        + "    }\n"
-        + "  ]\n"
-        + "}";
     private Connection connection;
     private String schemaPath = "";
-    private Set<String> tableNames = new HashSet<>();
+    private final Map<Set<String>, Connection> connections = new LinkedHashMap<>();
     private Connection simpleConnection;
 
     public AutomaticConnection(String path) throws SQLException {
@@ -62,9 +52,7 @@ public class AutomaticConnection implements Connection {
      * Automatic Connection based on json config.
      */
     public AutomaticConnection() throws SQLException {
-        Properties info = new Properties();
-        info.put("model", VALUES_SCHEMA);
-        this.simpleConnection = DriverManager.getConnection("jdbc:calcite:", info);
+        this.simpleConnection = JdbcPipeline.createCsvConnection();
     }
 
     @Override
@@ -76,15 +64,14 @@ public class AutomaticConnection implements Connection {
         }
 
         //caution: tableName has changed to dbName.tableName
-        if (names.stream().anyMatch(name -> ! tableNames.contains(name))) {
-            tableNames.clear();
-            tableNames.addAll(names);
-        } else {
-            if (connection != null) {
+        for (Map.Entry<Set<String>, Connection> entry : connections.entrySet()) {
+            if (entry.getKey().containsAll(names)) {
+                this.connection = entry.getValue();
                 return connection.prepareStatement(sql);
             }
         }
 
+        Set<String> tableNames = new HashSet<>(names);
         if (schemaPath.isEmpty()) {
             this.connection = JdbcPipeline.createSpecificConnection(
                 MetadataPostman.getAssembledSchema(new ArrayList<>(tableNames)));
@@ -92,6 +79,7 @@ public class AutomaticConnection implements Connection {
             this.connection =
                 JdbcPipeline.createSpecificConnection(schemaPath, new ArrayList<>(tableNames));
         }
+        connections.put(tableNames, connection);
 
         return connection.prepareStatement(sql);
     }
@@ -175,12 +163,37 @@ public class AutomaticConnection implements Connection {
 
     @Override
     public void close() throws SQLException {
-        connection.close();
+        SQLException failure = null;
+        for (Connection underlying : connections.values()) {
+            try {
+                underlying.close();
+            } catch (SQLException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        connections.clear();
+        connection = null;
+        try {
+            simpleConnection.close();
+        } catch (SQLException ex) {
+            if (failure == null) {
+                failure = ex;
+            } else {
+                failure.addSuppressed(ex);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     @Override
     public boolean isClosed() throws SQLException {
-        return connection.isClosed();
+        return simpleConnection.isClosed();
     }
 
     @Override
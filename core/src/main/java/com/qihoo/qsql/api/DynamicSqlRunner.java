@@ -1,7 +1,10 @@
 package com.qihoo.qsql.api;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.qihoo.qsql.exception.QsqlException;
 import com.qihoo.qsql.metadata.MetadataPostman;
+import com.qihoo.qsql.metadata.SchemaAssembler;
 import com.qihoo.qsql.plan.QueryProcedureProducer;
 import com.qihoo.qsql.plan.proc.DirectQueryProcedure;
 import com.qihoo.qsql.plan.proc.ExtractProcedure;
@@ -9,6 +12,7 @@ import com.qihoo.qsql.plan.proc.PreparedExtractProcedure;
 import com.qihoo.qsql.plan.proc.QueryProcedure;
 import com.qihoo.qsql.exec.AbstractPipeline;
 import com.qihoo.qsql.exec.JdbcPipeline;
+import com.qihoo.qsql.exec.LocalPipeline;
 import com.qihoo.qsql.exec.flink.FlinkPipeline;
 import com.qihoo.qsql.exec.spark.SparkPipeline;
 import com.qihoo.qsql.utils.SqlUtil;
@@ -35,34 +39,39 @@ public class DynamicSqlRunner extends SqlRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamicSqlRunner.class);
     private AbstractPipeline pipeline = null;
     private List<String> tableNames;
+    //model is only written as Json when local runner needs it
+    private Supplier<String> schema;
 
     DynamicSqlRunner(Builder builder) {
         super(builder);
     }
 
-    private String getFullSchemaFromAssetDataSource() {
-        return "inline: " + MetadataPostman.getCalciteModelSchema(tableNames);
-    }
-
     private QueryProcedure createQueryPlan(String sql) {
         String schema = environment.getSchemaPath();
 
         if (schema.isEmpty()) {
             LOGGER.info("Read schema from " + "embedded database.");
+            List<SchemaAssembler> assemblers = MetadataPostman.getAssembledSchema(tableNames);
+            if (! assemblers.isEmpty()) {
+                this.schema = inlineSchema(assemblers);
+                return new QueryProcedureProducer(assemblers).createQueryProcedure(sql);
+            }
+            schema = JdbcPipeline.CSV_DEFAULT_SCHEMA;
         } else {
             LOGGER.info("Read schema from " + ("manual schema, schema or path is: " + schema));
         }
 
-        if (environment.getSchemaPath().isEmpty()) {
-            schema = getFullSchemaFromAssetDataSource();
-        }
-
         if (schema.equals("inline: ")) {
             schema = JdbcPipeline.CSV_DEFAULT_SCHEMA;
         }
+        this.schema = Suppliers.ofInstance(schema);
         return new QueryProcedureProducer(schema).createQueryProcedure(sql);
     }
 
+    private static Supplier<String> inlineSchema(List<SchemaAssembler> assemblers) {
+        return Suppliers.memoize(() -> "inline: " + MetadataPostman.assembleSchema(new ArrayList<>(assemblers)));
+    }
+
     @Override
     public AbstractPipeline sql(String sql) {
         LOGGER.info("The SQL that is ready to execute is: \n" + sql);
@@ -77,6 +86,30 @@ public class DynamicSqlRunner extends SqlRunner {
         return chooseAdaptPipeline(procedure);
     }
 
+    /**
+     * Choose a suitable pipeline based on QueryProcedure, a small mixed query can be executed locally.
+     *
+     * @param procedure QueryProcedure, which is created based on metadata
+     * @param schema schema path or inline model the procedure is made with
+     * @return Suitable pipeline for the procedure
+     */
+    public AbstractPipeline chooseAdaptPipeline(QueryProcedure procedure, String schema) {
+        this.schema = Suppliers.ofInstance(schema);
+        return chooseAdaptPipeline(procedure);
+    }
+
+    /**
+     * Choose a suitable pipeline based on QueryProcedure, a small mixed query can be executed locally.
+     *
+     * @param procedure QueryProcedure, which is created based on metadata
+     * @param assemblers schemas of tables the procedure is made with
+     * @return Suitable pipeline for the procedure
+     */
+    public AbstractPipeline chooseAdaptPipeline(QueryProcedure procedure, List<SchemaAssembler> assemblers) {
+        this.schema = inlineSchema(assemblers);
+        return chooseAdaptPipeline(procedure);
+    }
+
     /**
      * Choose a suitable pipeline based on QueryProcedure.
      *
@@ -100,10 +133,15 @@ public class DynamicSqlRunner extends SqlRunner {
                 return getOrCreateClusterPipeline(procedure);
             }
 
-            //need a JDBC connection pool
             pipeline = new JdbcPipeline(extractProcedure, tableNames, environment);
             return pipeline;
         } else {
+            if (schema != null && (environment.isDefaultMode() || environment.isJdbcMode())
+                && LocalPipeline.isApplicable(procedure, environment)) {
+                LOGGER.debug("Choose local runner to execute small mixed query");
+                pipeline = new LocalPipeline(procedure, schema.get(), environment);
+                return pipeline;
+            }
             if (LOGGER.isDebugEnabled()) {
                 if (environment.isSpark()) {
                     LOGGER.debug("Choose mixed runner " + "Spark" + " to execute query");
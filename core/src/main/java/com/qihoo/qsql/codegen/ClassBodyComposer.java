@@ -218,12 +218,17 @@ public class ClassBodyComposer {
         public void compose(StringBuilder builder) {
             builder.append("\n");
             builder.append("       public void execute(){\n");
+            //temporary files written by sentences are deleted even if execution fails
+            builder.append("           try {\n");
 
             for (String sentence : sentences) {
                 builder.append("\t\t\t").append(sentence).append("\n");
             }
 
-            builder.append("       }\n");
+            builder.append("           } finally {\n")
+                .append("               deleteTemporaryPaths();\n")
+                .append("           }\n")
+                .append("       }\n");
         }
     }
 
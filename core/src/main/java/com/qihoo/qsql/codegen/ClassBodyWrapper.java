@@ -8,17 +8,26 @@ import com.github.picadoh.imc.model.CompilationUnit;
 import com.github.picadoh.imc.model.JavaSourceFromString;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.qihoo.qsql.exec.Requirement;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 import org.apache.calcite.util.Util;
 import org.slf4j.Logger;
@@ -81,31 +90,33 @@ public abstract class ClassBodyWrapper {
     }
 
     /**
-     * Compile Java Code.
+     * Compile Java Code, or get class compiled from code of the same shape before.
      *
-     * @return Class
+     * @return compiled class and literals of this code
      */
-    @SuppressWarnings("unchecked")
-    public Class<? extends Requirement> compile() {
+    public RequirementClassCache.CompiledRequirement compile() {
         composer.handleComposition(ClassBodyComposer.CodeCategory.CLASS, className);
         String code = composer.getCompleteClass();
         QueryGenerator.close();
         LOGGER.debug("The Java Code is {}", code);
-        /*
-          CAUTION!!
-          compile and load class in memory may throw NoClassFoundException,
-          reason for that is current dynamic compiler has a bug which will be
-          trigger when class loaded has multiple level inner class.
-         */
-        try {
-            return compileSourceAndLoadClass(code, className, "");
-        } catch (InMemoryCompiler.CompilerException | ClassNotFoundException ex) {
-            throw new RuntimeException("Compile failed!!", ex);
-        }
+        return RequirementClassCache.load(code, className, "");
+    }
+
+    /**
+     * Compile class and return bytecode of it and its nested classes, keyed by binary name.
+     */
+    static Map<String, byte[]> compileToBytecode(String name, String source, String extraJars)
+        throws InMemoryCompiler.CompilerException {
+        return new WithClassPathInMemoryCompiler().compileToBytecode(name, source, extraJars);
     }
 
     private static class WithClassPathInMemoryCompiler extends InMemoryCompiler {
 
+        //modified classpath acquirement mode, class path of process does not change
+        private static final String CLASS_PATH = System.getProperty("java.class.path")
+            + System.getProperty("path.separator")
+            + ClassBodyWrapper.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+
         JavaCompiler getSystemJavaCompiler() {
             return ToolProvider.getSystemJavaCompiler();
         }
@@ -125,18 +136,7 @@ public abstract class ClassBodyWrapper {
 
         public CompilationPackage compile(Map<String, String> classesToCompile, String extraJars)
             throws CompilerException {
-            //modified classpath acquirement mode
-            String belongingJarPath = ClassBodyWrapper.class.getProtectionDomain().getCodeSource()
-                .getLocation()
-                .getPath();
-
-            List<String> options = Arrays
-                .asList("-classpath", extraJars
-                    + System.getProperty("path.separator")
-                    + System.getProperty("java.class.path")
-                    + System.getProperty("path.separator")
-                    + belongingJarPath
-                );
+            List<String> options = classPathOptions(extraJars);
 
             List<JavaSourceFromString> strFiles = Lists.newArrayList();
             Iterator it = classesToCompile.keySet().iterator();
@@ -163,6 +163,24 @@ public abstract class ClassBodyWrapper {
             }
         }
 
+        Map<String, byte[]> compileToBytecode(String className, String code, String extraJars)
+            throws CompilerException {
+            List<String> options = classPathOptions(extraJars);
+            JavaCompiler compiler = this.getSystemJavaCompiler();
+            DiagnosticCollector<JavaFileObject> collector = this.getDiagnosticCollector();
+            BytecodeFileManager manager = new BytecodeFileManager(compiler.getStandardFileManager(null, null, null));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, manager, collector, options, null,
+                Collections.singletonList(new JavaSourceFromString(className, code)));
+            if (! task.call()) {
+                throw new CompilerException(this.buildCompilationReport(collector, options));
+            }
+            return manager.bytecode;
+        }
+
+        List<String> classPathOptions(String extraJars) {
+            return Arrays.asList("-classpath", extraJars + System.getProperty("path.separator") + CLASS_PATH);
+        }
+
         String buildCompilationReport(DiagnosticCollector<JavaFileObject> collector,
             List<String> options) {
             int count = 0;
@@ -186,4 +204,34 @@ public abstract class ClassBodyWrapper {
             return "Compilation error\n" + compilationErrorsOverview + "\n" + diagnosticString;
         }
     }
+
+    /**
+     * Keep class files written by javac in memory.
+     */
+    private static class BytecodeFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, byte[]> bytecode = new HashMap<>();
+
+        BytecodeFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+            JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(
+                URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            bytecode.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.qihoo.qsql.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.IClassLoader;
+import org.codehaus.janino.Java;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.UnitCompiler;
+import org.codehaus.janino.util.ClassFile;
+
+/**
+ * Compile generated code in process with Janino, which takes milliseconds instead of seconds of javac.
+ * <p>
+ * Classes referred by code are resolved through the class loader of QSQL, whose resolved classes are kept and shared
+ * by all compilations. Janino does not support every syntax of Java 8, such as lambdas, callers fall back to javac on
+ * {@link CompileException}.
+ * </p>
+ */
+class JaninoRequirementCompiler {
+
+    private static final IClassLoader PARENT =
+        new ClassLoaderIClassLoader(JaninoRequirementCompiler.class.getClassLoader());
+
+    private JaninoRequirementCompiler() {
+    }
+
+    /**
+     * Compile class and return bytecode of it and its nested classes, keyed by binary name.
+     *
+     * @param source complete code of class
+     * @param extraJars class path besides the one of QSQL, split by path separator
+     * @return bytecode of classes
+     * @throws CompileException if code is invalid or not supported by Janino
+     */
+    static Map<String, byte[]> compile(String source, String extraJars) throws CompileException {
+        try {
+            Java.CompilationUnit unit = new Parser(new Scanner(null, new StringReader(source)))
+                .parseCompilationUnit();
+            ClassFile[] classFiles;
+            if (extraJars == null || extraJars.trim().isEmpty()) {
+                //loaded classes are cached by the shared loader, which is not thread safe
+                synchronized (PARENT) {
+                    classFiles = new UnitCompiler(unit, PARENT).compileUnit(true, true, true);
+                }
+            } else {
+                //classes are resolved during compilation only, jars are released once bytecode is generated
+                try (URLClassLoader loader = withJars(extraJars)) {
+                    classFiles = new UnitCompiler(unit, new ClassLoaderIClassLoader(loader))
+                        .compileUnit(true, true, true);
+                }
+            }
+
+            Map<String, byte[]> bytecode = new HashMap<>();
+            for (ClassFile classFile : classFiles) {
+                bytecode.put(classFile.getThisClassName(), classFile.toByteArray());
+            }
+            return bytecode;
+        } catch (IOException ex) {
+            throw new CompileException("Cannot read generated code: " + ex.getMessage(), null, ex);
+        }
+    }
+
+    private static URLClassLoader withJars(String extraJars) throws CompileException {
+        List<URL> urls = new ArrayList<>();
+        for (String jar : extraJars.split(File.pathSeparator)) {
+            if (jar.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                urls.add(new File(jar.trim()).toURI().toURL());
+            } catch (MalformedURLException ex) {
+                throw new CompileException("Invalid class path " + jar, null, ex);
+            }
+        }
+        return new URLClassLoader(urls.toArray(new URL[0]), JaninoRequirementCompiler.class.getClassLoader());
+    }
+}
@@ -0,0 +1,111 @@
+package com.qihoo.qsql.codegen;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Kind of a column read from a JDBC source, which code generators map to a type of Spark or Flink.
+ * <p>
+ * Unsigned integers are widened so that their values fit, an unsigned BIGINT becomes a decimal. BIT(n) with n &gt; 1
+ * is a bit field rather than a flag and is read as a number. Types which engines do not know are read as strings.
+ * </p>
+ */
+public enum JdbcColumnType {
+    BOOLEAN, INT, LONG, FLOAT, DOUBLE, DECIMAL, DATE, TIME, TIMESTAMP, BINARY, STRING;
+
+    /**
+     * Get kind of a column of result set.
+     *
+     * @param metaData metadata of result set
+     * @param index index of column, starting from 1
+     * @return kind of column
+     * @throws SQLException if metadata can not be read
+     */
+    public static JdbcColumnType of(ResultSetMetaData metaData, int index) throws SQLException {
+        boolean signed = metaData.isSigned(index);
+        switch (metaData.getColumnType(index)) {
+            case Types.BIT:
+                return metaData.getPrecision(index) > 1 ? LONG : BOOLEAN;
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return INT;
+            case Types.INTEGER:
+                return signed ? INT : LONG;
+            case Types.BIGINT:
+                return signed ? LONG : DECIMAL;
+            case Types.REAL:
+                return FLOAT;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DECIMAL;
+            case Types.DATE:
+                return DATE;
+            case Types.TIME:
+                return TIME;
+            case Types.TIMESTAMP:
+                return TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BINARY;
+            default:
+                return STRING;
+        }
+    }
+
+    /**
+     * Read value of a column of current row, null values stay null.
+     *
+     * @param resultSet result set positioned on a row
+     * @param index index of column, starting from 1
+     * @return value of column
+     * @throws SQLException if value can not be read
+     */
+    public Object read(ResultSet resultSet, int index) throws SQLException {
+        Object value;
+        switch (this) {
+            case BOOLEAN:
+                value = resultSet.getBoolean(index);
+                break;
+            case INT:
+                value = resultSet.getInt(index);
+                break;
+            case LONG:
+                value = resultSet.getLong(index);
+                break;
+            case FLOAT:
+                value = resultSet.getFloat(index);
+                break;
+            case DOUBLE:
+                value = resultSet.getDouble(index);
+                break;
+            case DECIMAL:
+                value = resultSet.getBigDecimal(index);
+                break;
+            case DATE:
+                value = resultSet.getDate(index);
+                break;
+            case TIME:
+                value = resultSet.getTime(index);
+                break;
+            case TIMESTAMP:
+                value = resultSet.getTimestamp(index);
+                break;
+            case BINARY:
+                value = resultSet.getBytes(index);
+                break;
+            default:
+                value = resultSet.getString(index);
+                break;
+        }
+        return resultSet.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,269 @@
+package com.qihoo.qsql.codegen;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Properties;
+
+/**
+ * Split a query pushed down to a JDBC source into range partitions, which can be read in parallel.
+ * <p>
+ * Partitions are given as predicates on a numeric or date column, in the same way as Spark's partitioned JDBC read
+ * does: the first partition also takes null values and the last one is open ended, so rows outside of the bounds
+ * computed before reading are never lost. The column is taken from {@code jdbcPartitionColumn} in metadata of the
+ * table, or else the first numeric or date column of the query is chosen. Every partition evaluates the query again, so
+ * a query with a limit or an offset is never given to it, see {@link QueryGenerator#jdbcPartitionNum()}.
+ * </p>
+ */
+public class JdbcRangePartitioner {
+
+    public static final String PARTITION_COLUMN = "jdbcPartitionColumn";
+    public static final String PARTITION_NUM = "jdbcPartitionNum";
+    public static final String FETCH_SIZE = "jdbcFetchSize";
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final String NO_PARTITION = "1 = 1";
+
+    private final String column;
+    private final int partitions;
+
+    /**
+     * Create partitioner.
+     *
+     * @param column column to split on, null or empty to choose it from the query
+     * @param partitions expected number of partitions
+     */
+    public JdbcRangePartitioner(String column, int partitions) {
+        this.column = column;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Read number of partitions from connection properties of table.
+     *
+     * @param properties connection properties
+     * @return number of partitions, 1 if partitioning is not configured
+     */
+    public static int partitionNum(Properties properties) {
+        return Math.max(1, intProperty(properties, PARTITION_NUM, 1));
+    }
+
+    /**
+     * Read fetch size from connection properties of table.
+     *
+     * @param properties connection properties
+     * @return rows fetched in one round trip
+     */
+    public static int fetchSize(Properties properties) {
+        return intProperty(properties, FETCH_SIZE, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Read partition column from connection properties of table.
+     *
+     * @param properties connection properties
+     * @return column name, empty if it should be chosen from the query
+     */
+    public static String partitionColumn(Properties properties) {
+        return properties.getProperty(PARTITION_COLUMN, "").trim();
+    }
+
+    /**
+     * Enable cursor fetch of a MySQL url, without which Connector/J reads whole result into memory and ignores the
+     * fetch size. Other urls and urls which set {@code useCursorFetch} already are returned unchanged.
+     *
+     * @param url jdbc url
+     * @return url with {@code useCursorFetch=true}
+     */
+    public static String cursorFetchUrl(String url) {
+        if (! url.startsWith("jdbc:mysql:") || url.toLowerCase().contains("usecursorfetch=")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException("Illegal value of " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Wrap query so that it can be used as a table.
+     *
+     * @param sql query
+     * @return derived table
+     */
+    public static String asTable(String sql) {
+        return "(" + sql + ") qsql_partitioned";
+    }
+
+    /**
+     * Restrict query to one partition.
+     *
+     * @param sql query
+     * @param predicate predicate of partition
+     * @return query of partition
+     */
+    public static String partitionQuery(String sql, String predicate) {
+        return "SELECT * FROM " + asTable(sql) + " WHERE " + predicate;
+    }
+
+    /**
+     * Compute predicates of partitions, bounds of the partition column are queried first.
+     *
+     * @param connection connection to source
+     * @param sql query
+     * @return predicates, a single always true one if query can not be split
+     * @throws SQLException if source can not be queried
+     */
+    public String[] predicates(Connection connection, String sql) throws SQLException {
+        if (partitions <= 1) {
+            return new String[] {NO_PARTITION};
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            String name = column;
+            if (name == null || name.isEmpty()) {
+                try (ResultSet resultSet = statement.executeQuery(partitionQuery(sql, "1 = 0"))) {
+                    name = chooseColumn(resultSet.getMetaData());
+                }
+                if (name == null) {
+                    return new String[] {NO_PARTITION};
+                }
+            }
+
+            String quoted = quote(name);
+            String bounds = "SELECT MIN(" + quoted + "), MAX(" + quoted + ") FROM " + asTable(sql);
+            try (ResultSet resultSet = statement.executeQuery(bounds)) {
+                if (! resultSet.next()) {
+                    return new String[] {NO_PARTITION};
+                }
+                if (isDateType(resultSet.getMetaData().getColumnType(1))) {
+                    Timestamp lower = resultSet.getTimestamp(1);
+                    Timestamp upper = resultSet.getTimestamp(2);
+                    if (lower == null || upper == null) {
+                        return new String[] {NO_PARTITION};
+                    }
+                    return datePredicates(quoted, lower.getTime(), upper.getTime(), partitions);
+                }
+
+                long lower = resultSet.getLong(1);
+                boolean empty = resultSet.wasNull();
+                long upper = resultSet.getLong(2);
+                if (empty || resultSet.wasNull()) {
+                    return new String[] {NO_PARTITION};
+                }
+                return numericPredicates(quoted, lower, upper, partitions);
+            }
+        }
+    }
+
+    /**
+     * Compute predicates of partitions on a numeric column.
+     *
+     * @param column quoted column
+     * @param lower smallest value of column
+     * @param upper largest value of column
+     * @param partitions expected number of partitions
+     * @return predicates
+     */
+    public static String[] numericPredicates(String column, long lower, long upper, int partitions) {
+        long[] bounds = bounds(lower, upper, partitions);
+        String[] values = new String[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            values[i] = String.valueOf(bounds[i]);
+        }
+        return rangePredicates(column, values);
+    }
+
+    /**
+     * Compute predicates of partitions on a date or timestamp column.
+     *
+     * @param column quoted column
+     * @param lower smallest value of column in milliseconds
+     * @param upper largest value of column in milliseconds
+     * @param partitions expected number of partitions
+     * @return predicates
+     */
+    public static String[] datePredicates(String column, long lower, long upper, int partitions) {
+        long[] bounds = bounds(lower, upper, partitions);
+        String[] values = new String[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            values[i] = "'" + new Timestamp(bounds[i]) + "'";
+        }
+        return rangePredicates(column, values);
+    }
+
+    //inner bounds between partitions, there are less partitions than expected if range is too small
+    private static long[] bounds(long lower, long upper, int partitions) {
+        if (partitions <= 1 || upper <= lower) {
+            return new long[0];
+        }
+        double range = (double) upper - (double) lower;
+        int count = (int) Math.min(partitions, range + 1);
+        double stride = range / count;
+        long[] bounds = new long[count - 1];
+        for (int i = 1; i < count; i++) {
+            //offsets of a range wider than long are not representable
+            bounds[i - 1] = range < Long.MAX_VALUE
+                ? lower + (long) Math.ceil(stride * i)
+                : (long) Math.ceil(lower + stride * i);
+        }
+        return bounds;
+    }
+
+    private static String[] rangePredicates(String column, String[] bounds) {
+        if (bounds.length == 0) {
+            return new String[] {NO_PARTITION};
+        }
+        String[] predicates = new String[bounds.length + 1];
+        predicates[0] = column + " < " + bounds[0] + " OR " + column + " IS NULL";
+        for (int i = 1; i < bounds.length; i++) {
+            predicates[i] = column + " >= " + bounds[i - 1] + " AND " + column + " < " + bounds[i];
+        }
+        predicates[bounds.length] = column + " >= " + bounds[bounds.length - 1];
+        return predicates;
+    }
+
+    private static String chooseColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int index = 1; index <= metaData.getColumnCount(); index++) {
+            int type = metaData.getColumnType(index);
+            if (isIntegralType(type) || isDateType(type)) {
+                return metaData.getColumnLabel(index);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntegralType(int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isDateType(int type) {
+        return type == Types.DATE || type == Types.TIMESTAMP;
+    }
+
+    private static String quote(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+}
@@ -10,6 +10,7 @@ import com.qihoo.qsql.codegen.spark.SparkElasticsearchGenerator;
 import com.qihoo.qsql.codegen.spark.SparkHiveGenerator;
 import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator;
 import com.qihoo.qsql.codegen.spark.SparkVirtualGenerator;
+import com.qihoo.qsql.plan.proc.DynamicFilter;
 import com.qihoo.qsql.plan.proc.ExtractProcedure;
 import com.qihoo.qsql.plan.proc.PreparedExtractProcedure;
 import java.util.ArrayList;
@@ -33,6 +34,8 @@ public abstract class QueryGenerator {
     protected String query;
     protected String tableName;
     protected Properties properties;
+    protected DynamicFilter dynamicFilter;
+    protected boolean limited;
 
     protected String alias;
 
@@ -168,6 +171,9 @@ public abstract class QueryGenerator {
         generator.setQuery(procedure.toRecognizedQuery());
         generator.setTableName(procedure.getTableName());
         generator.setProperties(procedure.getConnProperties());
+        generator.setDynamicFilter(procedure.getDynamicFilter());
+        generator.setLimited(procedure instanceof PreparedExtractProcedure
+            && ((PreparedExtractProcedure) procedure).isLimited());
     }
 
     /**
@@ -202,6 +208,24 @@ public abstract class QueryGenerator {
         this.properties = properties;
     }
 
+    private void setDynamicFilter(DynamicFilter dynamicFilter) {
+        this.dynamicFilter = dynamicFilter;
+    }
+
+    private void setLimited(boolean limited) {
+        this.limited = limited;
+    }
+
+    /**
+     * Number of range partitions a JDBC source is read in. A limited query is read once, every partition would
+     * evaluate the limit on its own and could see a different set of rows.
+     *
+     * @return number of partitions
+     */
+    protected int jdbcPartitionNum() {
+        return limited ? 1 : JdbcRangePartitioner.partitionNum(properties);
+    }
+
     protected abstract void importDependency();
 
     protected abstract void prepareQuery();
@@ -0,0 +1,458 @@
+package com.qihoo.qsql.codegen;
+
+import com.github.picadoh.imc.compiler.InMemoryCompiler;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.qihoo.qsql.exec.BoundLiterals;
+import com.qihoo.qsql.exec.Requirement;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.codehaus.commons.compiler.CompileException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed cache of compiled {@link Requirement} classes, shared by pipelines and {@link
+ * com.qihoo.qsql.launcher.ProcessExecutor}.
+ * <p>
+ * String literals of generated code, such as sql and connection properties, are replaced by {@code literal(n)} calls,
+ * and the class is named after a hash of what remains. Plans of the same shape with different literals thus share one
+ * class, and the literals are bound to each instance. Bytecode is kept in memory, at most {@code
+ * qsql.codegen.cache.max.size} classes, and in directory {@code qsql.codegen.cache.dir} so that later processes skip
+ * compiling as well, "none" disables the disk cache. The directory defaults to ~/.qsql/codegen, it is created readable
+ * by its owner only and classes are not loaded from it unless it is owned by current user and writable by nobody else.
+ * The QSQL version is part of the hash, so classes compiled against an older version are not reused. Sources which
+ * can not be parameterized, for example with literals in static nested classes, are compiled as they are.
+ * </p>
+ * <p>
+ * Classes are compiled in process by Janino unless {@code qsql.codegen.compiler} is "javac", code which Janino does
+ * not support is compiled by javac.
+ * </p>
+ */
+public class RequirementClassCache {
+
+    public static final String CACHE_MAX_SIZE = "qsql.codegen.cache.max.size";
+    public static final String CACHE_DIR = "qsql.codegen.cache.dir";
+    public static final String COMPILER = "qsql.codegen.compiler";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequirementClassCache.class);
+    private static final long DEFAULT_MAX_SIZE = 128L;
+    private static final String CLASS_NAME_PREFIX = "Requirement_";
+    private static final String CLASS_NAME_HOLDER = "$QSQL_REQUIREMENT$";
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final String QSQL_VERSION = qsqlVersion();
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private static final Cache<String, Class<? extends Requirement>> CACHE;
+    private static final Path CACHE_PATH;
+    private static final boolean JANINO;
+
+    static {
+        Properties properties = PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties");
+        long maxSize = Long.parseLong(properties.getProperty(
+            CACHE_MAX_SIZE, String.valueOf(DEFAULT_MAX_SIZE)).trim());
+        String dir = properties.getProperty(CACHE_DIR,
+            Paths.get(System.getProperty("user.home"), ".qsql", "codegen").toString()).trim();
+
+        CACHE = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+        CACHE_PATH = dir.isEmpty() || "none".equalsIgnoreCase(dir) ? null : Paths.get(dir);
+        JANINO = "janino".equalsIgnoreCase(properties.getProperty(COMPILER, "janino").trim());
+    }
+
+    private RequirementClassCache() {
+    }
+
+    /**
+     * Get compiled class of generated code, compile it only if neither memory nor disk has it.
+     *
+     * @param source complete code of generated class
+     * @param className name of class in code
+     * @param extraJars class path added to compiler
+     * @return compiled class with literals of this code
+     */
+    public static CompiledRequirement load(String source, String className, String extraJars) {
+        ParameterizedSource parameterized = ParameterizedSource.parameterize(source, className);
+        try {
+            return new CompiledRequirement(load(parameterized, extraJars), parameterized.literals);
+        } catch (RuntimeException ex) {
+            if (parameterized.literals.length == 0) {
+                throw ex;
+            }
+            LOGGER.debug("Cannot compile parameterized code of {}, compile it with literals", className, ex);
+        }
+        ParameterizedSource inline = ParameterizedSource.inline(source, className);
+        return new CompiledRequirement(load(inline, extraJars), inline.literals);
+    }
+
+    /**
+     * Get hit, miss and load statistics of the in-memory cache.
+     *
+     * @return statistics since process started
+     */
+    public static CacheStats stats() {
+        return CACHE.stats();
+    }
+
+    /**
+     * Drop all classes cached in memory, files on disk are kept.
+     */
+    public static void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+
+    private static Class<? extends Requirement> load(ParameterizedSource source, String extraJars) {
+        try {
+            return CACHE.get(source.hash, () -> defineClass(source, extraJars));
+        } catch (UncheckedExecutionException | ExecutionError ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Compile failed!!", ex.getCause());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Requirement> defineClass(ParameterizedSource source, String extraJars)
+        throws InMemoryCompiler.CompilerException, ClassNotFoundException {
+        Map<String, byte[]> bytecode = readFromDisk(source);
+        if (bytecode == null) {
+            bytecode = compile(source, extraJars);
+            writeToDisk(source, bytecode);
+        }
+        BytecodeClassLoader loader = new BytecodeClassLoader(bytecode, ClassBodyWrapper.class.getClassLoader());
+        return (Class<? extends Requirement>) loader.loadClass(source.className);
+    }
+
+    private static Map<String, byte[]> compile(ParameterizedSource source, String extraJars)
+        throws InMemoryCompiler.CompilerException {
+        if (JANINO) {
+            try {
+                LOGGER.debug("Compile generated class {} with janino", source.className);
+                return JaninoRequirementCompiler.compile(source.code, extraJars);
+            } catch (CompileException ex) {
+                LOGGER.debug("Janino cannot compile {}, compile it with javac", source.className, ex);
+            }
+        }
+        LOGGER.debug("Compile generated class {} with javac", source.className);
+        return ClassBodyWrapper.compileToBytecode(source.className, source.code, extraJars);
+    }
+
+    private static Map<String, byte[]> readFromDisk(ParameterizedSource source) {
+        if (CACHE_PATH == null || ! Files.isDirectory(CACHE_PATH.resolve(source.hash))) {
+            return null;
+        }
+        if (! isPrivate(CACHE_PATH) || ! isPrivate(CACHE_PATH.resolve(source.hash))) {
+            LOGGER.warn("Cached class {} is writable by other users, compile it again", source.className);
+            return null;
+        }
+        Map<String, byte[]> bytecode = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+            CACHE_PATH.resolve(source.hash), "*" + CLASS_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                bytecode.put(name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()),
+                    Files.readAllBytes(file));
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot read cached class {}, compile it again", source.className, ex);
+            return null;
+        }
+        return bytecode.containsKey(source.className) ? bytecode : null;
+    }
+
+    private static void writeToDisk(ParameterizedSource source, Map<String, byte[]> bytecode) {
+        if (CACHE_PATH == null) {
+            return;
+        }
+        Path temp = null;
+        try {
+            createPrivateDirectories(CACHE_PATH);
+            if (! isPrivate(CACHE_PATH)) {
+                LOGGER.warn("Cannot cache class {}, {} is writable by other users", source.className, CACHE_PATH);
+                return;
+            }
+            //publish a complete directory only, concurrent processes may compile the same class
+            temp = Files.createTempDirectory(CACHE_PATH, source.hash + ".tmp");
+            for (Map.Entry<String, byte[]> entry : bytecode.entrySet()) {
+                Files.write(temp.resolve(entry.getKey() + CLASS_FILE_SUFFIX), entry.getValue());
+            }
+            Files.move(temp, CACHE_PATH.resolve(source.hash), StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (FileAlreadyExistsException ex) {
+            LOGGER.debug("Class {} has been cached by another process", source.className);
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot cache class {} in {}", source.className, CACHE_PATH, ex);
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private static void createPrivateDirectories(Path dir) throws IOException {
+        if (Files.isDirectory(dir)) {
+            return;
+        }
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        } else {
+            Files.createDirectories(dir);
+        }
+    }
+
+    /**
+     * Check that a directory of cache is owned by current user and can not be written by others, so that no other
+     * user can plant classes in it.
+     */
+    private static boolean isPrivate(Path dir) {
+        try {
+            if (! Files.getOwner(dir).getName().equals(System.getProperty("user.name"))) {
+                return false;
+            }
+            if (! FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                return true;
+            }
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(dir);
+            return ! permissions.contains(PosixFilePermission.GROUP_WRITE)
+                && ! permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            LOGGER.debug("Cannot read owner of {}", dir, ex);
+            return false;
+        }
+    }
+
+    private static String qsqlVersion() {
+        String version = RequirementClassCache.class.getPackage().getImplementationVersion();
+        return version == null ? "dev" : version;
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot remove temporary directory {}", dir, ex);
+        }
+    }
+
+    /**
+     * Compiled class of generated code, with literals which were taken out of the code.
+     */
+    public static class CompiledRequirement {
+
+        private final Class<? extends Requirement> requirementClass;
+        private final String[] literals;
+
+        CompiledRequirement(Class<? extends Requirement> requirementClass, String[] literals) {
+            this.requirementClass = requirementClass;
+            this.literals = literals;
+        }
+
+        public Class<? extends Requirement> getRequirementClass() {
+            return requirementClass;
+        }
+
+        /**
+         * Create requirement with its engine context, literals of its code are bound before its constructor runs.
+         *
+         * @param argumentType type of constructor argument, such as SparkSession
+         * @param argument constructor argument
+         * @return requirement ready to execute
+         */
+        public Requirement newInstance(Class<?> argumentType, Object argument) {
+            BoundLiterals.bind(literals.clone());
+            try {
+                return requirementClass.getConstructor(argumentType).newInstance(argument);
+            } catch (NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException | InstantiationException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                BoundLiterals.clear();
+            }
+        }
+    }
+
+    /**
+     * Generated code whose string literals have been replaced by {@code literal(n)} calls, and whose class is named
+     * after hash of the remaining code.
+     */
+    static class ParameterizedSource {
+
+        final String className;
+        final String code;
+        final String[] literals;
+        final String hash;
+
+        private ParameterizedSource(String template, String[] literals) {
+            this.hash = Hashing.murmur3_128().hashString(QSQL_VERSION + "\n" + template, StandardCharsets.UTF_8)
+                .toString();
+            this.className = CLASS_NAME_PREFIX + hash;
+            this.code = template.replace(CLASS_NAME_HOLDER, className);
+            this.literals = literals;
+        }
+
+        static ParameterizedSource inline(String source, String className) {
+            return new ParameterizedSource(renameClass(source, className), new String[0]);
+        }
+
+        static ParameterizedSource parameterize(String source, String className) {
+            StringBuilder template = new StringBuilder(source.length());
+            List<String> literals = new ArrayList<>();
+            int length = source.length();
+            int i = 0;
+            while (i < length) {
+                char ch = source.charAt(i);
+                if (ch == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                    int end = source.indexOf('\n', i);
+                    end = end < 0 ? length : end;
+                    template.append(source, i, end);
+                    i = end;
+                } else if (ch == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                    int end = source.indexOf("*/", i + 2);
+                    end = end < 0 ? length : end + 2;
+                    template.append(source, i, end);
+                    i = end;
+                } else if (ch == '\'') {
+                    int end = endOfQuote(source, i, '\'');
+                    template.append(source, i, end);
+                    i = end;
+                } else if (ch == '"') {
+                    int end = endOfQuote(source, i, '"');
+                    template.append("literal(").append(literals.size()).append(')');
+                    literals.add(unescape(source.substring(i + 1, end - 1)));
+                    i = end;
+                } else {
+                    template.append(ch);
+                    i++;
+                }
+            }
+            return new ParameterizedSource(renameClass(template.toString(), className),
+                literals.toArray(new String[0]));
+        }
+
+        private static String renameClass(String code, String className) {
+            return code.replaceAll("\\b" + Pattern.quote(className) + "\\b",
+                Matcher.quoteReplacement(CLASS_NAME_HOLDER));
+        }
+
+        private static int endOfQuote(String source, int start, char quote) {
+            int i = start + 1;
+            while (i < source.length()) {
+                char ch = source.charAt(i);
+                if (ch == '\\') {
+                    i += 2;
+                } else if (ch == quote) {
+                    return i + 1;
+                } else {
+                    i++;
+                }
+            }
+            throw new IllegalArgumentException("Unclosed literal in generated code at " + start);
+        }
+
+        static String unescape(String literal) {
+            StringBuilder builder = new StringBuilder(literal.length());
+            for (int i = 0; i < literal.length(); i++) {
+                char ch = literal.charAt(i);
+                if (ch != '\\' || i + 1 == literal.length()) {
+                    builder.append(ch);
+                    continue;
+                }
+                char next = literal.charAt(++ i);
+                switch (next) {
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 'u':
+                        while (literal.charAt(i) == 'u') {
+                            i++;
+                        }
+                        builder.append((char) Integer.parseInt(literal.substring(i, i + 4), 16));
+                        i += 3;
+                        break;
+                    default:
+                        if (next >= '0' && next <= '7') {
+                            //octal escape has at most 3 digits and a value up to \377
+                            int end = i + 1;
+                            int max = next <= '3' ? i + 3 : i + 2;
+                            while (end < Math.min(max, literal.length())
+                                && literal.charAt(end) >= '0' && literal.charAt(end) <= '7') {
+                                end++;
+                            }
+                            builder.append((char) Integer.parseInt(literal.substring(i, end), 8));
+                            i = end - 1;
+                        } else {
+                            builder.append(next);
+                        }
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Define classes from bytecode of one compilation.
+     */
+    private static class BytecodeClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> bytecode;
+
+        BytecodeClassLoader(Map<String, byte[]> bytecode, ClassLoader parent) {
+            super(parent);
+            this.bytecode = bytecode;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = bytecode.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -3,57 +3,67 @@ package com.qihoo.qsql.codegen.flink;
 
 import com.qihoo.qsql.codegen.QueryGenerator;
 import com.qihoo.qsql.codegen.ClassBodyComposer;
+import com.qihoo.qsql.codegen.JdbcColumnType;
+import com.qihoo.qsql.codegen.JdbcRangePartitioner;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.flink.api.common.io.DefaultInputSplitAssigner;
+import org.apache.flink.api.common.io.RichInputFormat;
+import org.apache.flink.api.common.io.statistics.BaseStatistics;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.PrimitiveArrayTypeInfo;
+import org.apache.flink.api.common.typeinfo.SqlTimeTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.io.GenericInputSplit;
+import org.apache.flink.core.io.InputSplit;
+import org.apache.flink.core.io.InputSplitAssigner;
+import org.apache.flink.types.Row;
 
 /**
  * Code generator, used when {@link com.qihoo.qsql.exec.flink.FlinkPipeline} is chosen and source data of query is in
  * MySql at the same time.
+ * <p>
+ * Data is read by {@link PartitionedJdbcInputFormat}, which splits the query by {@link JdbcRangePartitioner} when
+ * {@code jdbcPartitionNum} in metadata of the table is greater than 1 and the query has no limit, so that partitions
+ * are read in parallel by task managers. {@code useCursorFetch=true} is added to the url so that MySQL Connector/J honors
+ * {@code jdbcFetchSize} instead of reading a whole partition into memory.
+ * </p>
  */
 public class FlinkMySqlGenerator extends QueryGenerator {
 
-    private static final String CODE_FUNTION_BODY = "";
-
     @Override
     protected void importDependency() {
         String[] imports = {
-            "import org.apache.flink.api.common.typeinfo.BasicTypeInfo",
-            "import org.apache.flink.api.common.typeinfo.TypeInformation",
             "import org.apache.flink.api.java.DataSet",
-            "import org.apache.flink.api.java.ExecutionEnvironment",
-            "import org.apache.flink.api.java.typeutils.RowTypeInfo",
-            "import org.apache.flink.table.api.Table",
-            "import org.apache.flink.table.api.TableEnvironment",
-            "import org.apache.flink.table.api.java.BatchTableEnvironment",
             "import org.apache.flink.types.Row",
-            "import java.sql.*",
-            "import java.util.ArrayList",
-            "import java.util.List"
+            "import com.qihoo.qsql.codegen.flink.FlinkMySqlGenerator.PartitionedJdbcInputFormat"
         };
         composer.handleComposition(ClassBodyComposer.CodeCategory.IMPORT, imports);
     }
 
     @Override
     protected void prepareQuery() {
-        composer.handleComposition(ClassBodyComposer.CodeCategory.METHOD,
-            declareGetDataTypeMethod(alias));
-        composer
-            .handleComposition(ClassBodyComposer.CodeCategory.METHOD, declareQueryMethod(alias));
-        composer.handleComposition(ClassBodyComposer.CodeCategory.INNER_CLASS,
-            declareDataSetWrapperClass(alias));
+        //no action
     }
 
     @Override
     protected void executeQuery() {
-        Invoker config = Invoker.registerMethod("query");
-
-        String invokeWrap = config.invoke(convertProperties("jdbcUrl", "jdbcUser", "jdbcPassword"));
-        String wrapper = with("wrapper", alias);
-        String invokedStatement =
-            with("DataSetListWrapper", alias) + " " + wrapper + " = " + invokeWrap + ";";
-        composer.handleComposition(ClassBodyComposer.CodeCategory.SENTENCE, invokedStatement);
-
-        String invoked =
-            "DataSet " + alias + " = env.fromCollection(" + wrapper + ".rows, " + wrapper + ""
-                + ".rowTypeInfo);";
+        String[] params = convertProperties("jdbcUrl", "jdbcUser", "jdbcPassword");
+        String invoked = "DataSet<Row> " + alias + " = env.createInput(new PartitionedJdbcInputFormat(\""
+            + escaped(params[0]) + "\", \"" + escaped(params[1]) + "\", \"" + escaped(params[2]) + "\",\n"
+            + "            \"" + escaped(query) + "\",\n"
+            + "            \"" + escaped(JdbcRangePartitioner.partitionColumn(properties)) + "\", "
+            + jdbcPartitionNum() + ", "
+            + JdbcRangePartitioner.fetchSize(properties) + "));";
         composer.handleComposition(ClassBodyComposer.CodeCategory.SENTENCE, invoked);
 
         String created = "tEnv.registerDataSet(\"" + tableName + "\", " + alias + ");";
@@ -65,88 +75,198 @@ public class FlinkMySqlGenerator extends QueryGenerator {
 
     }
 
-    private String declareGetDataTypeMethod(String varName) {
-        return " private String[] " + with("getDataTypes", varName)
-            + "(ResultSet resultSet) throws SqlException { \n"
-            + "    int n = resultSet.getMetaData().getColumnCount(); \n"
-            + "    String[] array = new String[n]; \n"
-            + "    for (int index = 1; index <= n; index++) { \n"
-            + "        String labelName = resultSet.getMetaData().getColumnLabel(index); \n"
-            + "        array[index - 1] = labelName; \n"
-            + "    } \n"
-            + "    return array; \n"
-            + " } \n";
+    private static String escaped(String value) {
+        return StringEscapeUtils.escapeJava(value);
     }
 
-    private String declareQueryMethod(String varName) {
-        return " private " + with("DataSetListWrapper", varName) + " " + with("query", varName)
-            + "(String url, String user, String password) { \n"
-            + "     try { \n"
-            + "         Class.forName(\"com.mysql.jdbc.Driver\"); \n"
-            + "     } catch (ClassNotFoundException e) { \n"
-            + "         e.printStackTrace(); \n"
-            + "         throw new RuntimeException(e.getMessage()); \n"
-            + "     } \n"
-            + "  \n"
-            + "    Connection conn = null; \n"
-            + "     Statement stmt = null; \n"
-            + "     ResultSet resultSet = null; \n"
-            + "     List<Row> rows = new ArrayList<>(); \n"
-            + "     String[] columns; \n"
-            + "     try { \n"
-            + "         conn = DriverManager.getConnection(url, user, password); \n"
-            + "         String sql = \"" + query.toLowerCase() + "\"; \n"
-            + "         stmt = conn.prepareStatement(sql); \n"
-            + "         resultSet = stmt.executeQuery(sql); \n"
-            + "         columns = " + with("getDataTypes", varName) + "(resultSet); \n"
-            + "         int n = resultSet.getMetaData().getColumnCount(); \n"
-            + "         while (resultSet.next()) { \n"
-            + "             Row row = new Row(n); \n"
-            + "             for (int index = 1; index <= n; index++) { \n"
-            + "                 Object obj = resultSet.getObject(index); \n"
-            + "                 row.setField(index - 1, obj); \n"
-            + "             } \n"
-            + "             rows.add(row); \n"
-            + "         } \n"
-            + "     } catch (SqlException e) { \n"
-            + "         throw new RuntimeException(e.getMessage()); \n"
-            + "     } finally { \n"
-            + "         try { \n"
-            + "             if (resultSet != null) { \nresultSet.close(); \n} \n"
-            + "             if (stmt != null) { \nstmt.close(); \n} \n"
-            + "             if (conn != null) { \nconn.close(); \n} \n"
-            + "         } catch (SqlException e) { \n"
-            + "             e.printStackTrace(); \n"
-            + "         } \n"
-            + "     } \n"
-            + "  \n"
-            + "     TypeInformation<?>[] types = { \n"
-            + "             BasicTypeInfo.LONG_TYPE_INFO, \n"
-            + "             BasicTypeInfo.STRING_TYPE_INFO, \n"
-            + "             BasicTypeInfo.STRING_TYPE_INFO, \n"
-            + "             BasicTypeInfo.STRING_TYPE_INFO, \n"
-            + "             BasicTypeInfo.STRING_TYPE_INFO \n"
-            + "     }; \n"
-            + "  \n"
-            + "     String[] fieldNames = columns; \n"
-            + "     RowTypeInfo rowTypeInfo = new RowTypeInfo(types, fieldNames); \n"
-            + "  \n"
-            + "     return new " + with("DataSetListWrapper", varName) + "(rows, rowTypeInfo); \n"
-            + " }  \n";
-    }
+    /**
+     * Read each partition of a MySQL query as an input split, with column types given by metadata of the query.
+     */
+    public static class PartitionedJdbcInputFormat extends RichInputFormat<Row, InputSplit>
+        implements ResultTypeQueryable<Row> {
 
-    private String declareDataSetWrapperClass(String varName) {
-        return "private class " + with("DataSetListWrapper", varName) + " { \n"
-            + "    public List<Row> rows; \n"
-            + "    public RowTypeInfo rowTypeInfo; \n"
-            + " \n"
-            + "    public " + with("DataSetListWrapper", varName)
-            + "(List<Row> rows, RowTypeInfo rowTypeInfo) { \n"
-            + "        this.rows = rows; \n"
-            + "        this.rowTypeInfo = rowTypeInfo; \n"
-            + "    } \n"
-            + "} \n";
-    }
+        private static final long serialVersionUID = 1L;
 
-}
+        private static final String DRIVER = "com.mysql.jdbc.Driver";
+
+        private final String url;
+        private final String user;
+        private final String password;
+        private final String sql;
+        private final int fetchSize;
+        private final String[] predicates;
+        private final RowTypeInfo rowTypeInfo;
+        private final JdbcColumnType[] columnTypes;
+
+        private transient Connection connection;
+        private transient Statement statement;
+        private transient ResultSet resultSet;
+        private transient boolean hasNext;
+
+        /**
+         * Compute partitions and row type of query, on client.
+         *
+         * @param url jdbc url
+         * @param user jdbc user
+         * @param password jdbc password
+         * @param sql query pushed down to MySQL
+         * @param column partition column, empty to choose it from the query
+         * @param partitions expected number of partitions
+         * @param fetchSize rows fetched in one round trip
+         */
+        public PartitionedJdbcInputFormat(String url, String user, String password, String sql,
+            String column, int partitions, int fetchSize) {
+            this.url = JdbcRangePartitioner.cursorFetchUrl(url);
+            this.user = user;
+            this.password = password;
+            this.sql = sql;
+            this.fetchSize = fetchSize;
+
+            try (Connection conn = connect(this.url, user, password);
+                Statement stmt = conn.createStatement();
+                ResultSet empty = stmt.executeQuery(JdbcRangePartitioner.partitionQuery(sql, "1 = 0"))) {
+                ResultSetMetaData metaData = empty.getMetaData();
+                this.columnTypes = new JdbcColumnType[metaData.getColumnCount()];
+                for (int index = 1; index <= columnTypes.length; index++) {
+                    columnTypes[index - 1] = JdbcColumnType.of(metaData, index);
+                }
+                this.rowTypeInfo = toRowTypeInfo(metaData, columnTypes);
+                this.predicates = new JdbcRangePartitioner(column, partitions).predicates(conn, sql);
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        @Override
+        public TypeInformation<Row> getProducedType() {
+            return rowTypeInfo;
+        }
+
+        @Override
+        public void configure(Configuration parameters) {
+            //no action
+        }
 
+        @Override
+        public BaseStatistics getStatistics(BaseStatistics cachedStatistics) {
+            return cachedStatistics;
+        }
+
+        @Override
+        public InputSplit[] createInputSplits(int minNumSplits) {
+            InputSplit[] splits = new InputSplit[predicates.length];
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = new GenericInputSplit(i, splits.length);
+            }
+            return splits;
+        }
+
+        @Override
+        public InputSplitAssigner getInputSplitAssigner(InputSplit[] inputSplits) {
+            return new DefaultInputSplitAssigner(inputSplits);
+        }
+
+        @Override
+        public void open(InputSplit split) throws IOException {
+            try {
+                connection = connect(url, user, password);
+                statement = connection.createStatement();
+                statement.setFetchSize(fetchSize);
+                resultSet = statement.executeQuery(
+                    JdbcRangePartitioner.partitionQuery(sql, predicates[split.getSplitNumber()]));
+                hasNext = resultSet.next();
+            } catch (SQLException ex) {
+                close();
+                throw new IOException("Failed to read partition " + split.getSplitNumber() + " of " + sql, ex);
+            }
+        }
+
+        @Override
+        public boolean reachedEnd() {
+            return ! hasNext;
+        }
+
+        @Override
+        public Row nextRecord(Row reuse) throws IOException {
+            int arity = rowTypeInfo.getArity();
+            Row row = reuse != null && reuse.getArity() == arity ? reuse : new Row(arity);
+            try {
+                for (int index = 1; index <= arity; index++) {
+                    row.setField(index - 1, columnTypes[index - 1].read(resultSet, index));
+                }
+                hasNext = resultSet.next();
+            } catch (SQLException ex) {
+                throw new IOException(ex);
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (SQLException ex) {
+                throw new IOException(ex);
+            } finally {
+                resultSet = null;
+                statement = null;
+                connection = null;
+            }
+        }
+
+        private static Connection connect(String url, String user, String password) throws SQLException {
+            try {
+                Class.forName(DRIVER);
+            } catch (ClassNotFoundException ex) {
+                throw new SQLException(ex);
+            }
+            return DriverManager.getConnection(url, user, password);
+        }
+
+        private static RowTypeInfo toRowTypeInfo(ResultSetMetaData metaData, JdbcColumnType[] columnTypes)
+            throws SQLException {
+            TypeInformation<?>[] types = new TypeInformation<?>[columnTypes.length];
+            String[] names = new String[columnTypes.length];
+            for (int index = 1; index <= columnTypes.length; index++) {
+                types[index - 1] = toTypeInformation(columnTypes[index - 1]);
+                names[index - 1] = metaData.getColumnLabel(index);
+            }
+            return new RowTypeInfo(types, names);
+        }
+
+        private static TypeInformation<?> toTypeInformation(JdbcColumnType type) {
+            switch (type) {
+                case BOOLEAN:
+                    return BasicTypeInfo.BOOLEAN_TYPE_INFO;
+                case INT:
+                    return BasicTypeInfo.INT_TYPE_INFO;
+                case LONG:
+                    return BasicTypeInfo.LONG_TYPE_INFO;
+                case FLOAT:
+                    return BasicTypeInfo.FLOAT_TYPE_INFO;
+                case DOUBLE:
+                    return BasicTypeInfo.DOUBLE_TYPE_INFO;
+                case DECIMAL:
+                    return BasicTypeInfo.BIG_DEC_TYPE_INFO;
+                case DATE:
+                    return SqlTimeTypeInfo.DATE;
+                case TIME:
+                    return SqlTimeTypeInfo.TIME;
+                case TIMESTAMP:
+                    return SqlTimeTypeInfo.TIMESTAMP;
+                case BINARY:
+                    return PrimitiveArrayTypeInfo.BYTE_PRIMITIVE_ARRAY_TYPE_INFO;
+                default:
+                    return BasicTypeInfo.STRING_TYPE_INFO;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.qihoo.qsql.codegen.spark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qihoo.qsql.plan.proc.DynamicFilter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DateType;
+import org.apache.spark.sql.types.NumericType;
+import org.apache.spark.sql.types.TimestampType;
+import org.apache.spark.storage.StorageLevel;
+
+/**
+ * Inject keys of build side of a join into the query of probe side at runtime, used by code generated for a
+ * {@link com.qihoo.qsql.plan.proc.DynamicFilter}.
+ * <p>
+ * Distinct non-null keys are collected from the Dataset of build side. A sql query is wrapped with an IN predicate on
+ * them and an Elasticsearch query gets a terms filter. When there are too many numeric or date keys, a range predicate
+ * between the smallest and the largest key is injected instead. Too many keys of other types leave the query
+ * unfiltered: Spark orders strings by their bytes while MySQL compares them by the collation of the column, usually
+ * case insensitive, so a range of Spark could exclude matching rows.
+ * </p>
+ */
+public class SparkDynamicFilter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ALIAS = "dynamic_filtered";
+
+    private SparkDynamicFilter() {
+    }
+
+    /**
+     * Filter a sql query of MySql or Hive by keys of build side.
+     *
+     * @param sql query of probe side
+     * @param build rows of build side
+     * @param buildColumn join key of build side
+     * @param probeColumn join key of probe side, which is a column of the query
+     * @param maxKeys max number of keys in IN predicate
+     * @return filtered query
+     */
+    public static String filterSql(String sql, Dataset<Row> build, String buildColumn,
+        String probeColumn, int maxKeys) {
+        return filterSql(sql, probeColumn, collect(build, buildColumn, maxKeys));
+    }
+
+    /**
+     * Filter an Elasticsearch query by keys of build side.
+     *
+     * @param json query of probe side
+     * @param build rows of build side
+     * @param buildColumn join key of build side
+     * @param probeField join key of probe side, which is a field of index
+     * @param maxKeys max number of keys in terms filter
+     * @return filtered query
+     */
+    public static String filterElasticsearchQuery(String json, Dataset<Row> build, String buildColumn,
+        String probeField, int maxKeys) {
+        return filterElasticsearchQuery(json, probeField, collect(build, buildColumn, maxKeys));
+    }
+
+    /**
+     * Code which filters a query of probe side at runtime.
+     *
+     * @param method name of filter method
+     * @param query code of query of probe side
+     * @param filter dynamic filter of probe side
+     * @return code of method invocation, which returns filtered query
+     */
+    static String invocation(String method, String query, DynamicFilter filter) {
+        return "SparkDynamicFilter." + method + "(" + query + ", spark.table(\"" + filter.getBuildTableName()
+            + "\"), \"" + filter.getBuildColumn() + "\", \"" + filter.getProbeColumn() + "\", "
+            + DynamicFilter.MAX_KEYS + ")";
+    }
+
+    static String filterSql(String sql, String column, Keys keys) {
+        if (keys.isUnfiltered()) {
+            return sql;
+        }
+        String quoted = "`" + column.replace("`", "``") + "`";
+        String predicate;
+        if (keys.isRange()) {
+            predicate = quoted + " BETWEEN " + literal(keys.lower) + " AND " + literal(keys.upper);
+        } else if (keys.values.isEmpty()) {
+            predicate = "1 = 0";
+        } else {
+            predicate = quoted + " IN (" + keys.values.stream()
+                .map(SparkDynamicFilter::literal)
+                .collect(Collectors.joining(", ")) + ")";
+        }
+        return "SELECT * FROM (" + sql + ") " + ALIAS + " WHERE " + predicate;
+    }
+
+    static String filterElasticsearchQuery(String json, String field, Keys keys) {
+        if (keys.isUnfiltered()) {
+            return json;
+        }
+        try {
+            ObjectNode root = (ObjectNode) MAPPER.readTree(json);
+            ObjectNode filter = MAPPER.createObjectNode();
+            if (keys.isRange()) {
+                ObjectNode bounds = filter.putObject("range").putObject(field);
+                bounds.set("gte", MAPPER.valueToTree(keys.lower));
+                bounds.set("lte", MAPPER.valueToTree(keys.upper));
+            } else {
+                filter.putObject("terms").set(field, MAPPER.valueToTree(keys.values));
+            }
+
+            ObjectNode bool = MAPPER.createObjectNode();
+            JsonNode query = root.get("query");
+            if (query != null && query.size() > 0) {
+                bool.set("must", query);
+            }
+            bool.set("filter", filter);
+            root.putObject("query").set("bool", bool);
+            return MAPPER.writeValueAsString(root);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error when injecting keys into Elasticsearch query: " + json, ex);
+        }
+    }
+
+    private static Keys collect(Dataset<Row> build, String column, int maxKeys) {
+        Column key = build.col(column);
+        //build side is read once, both the keys and their range come from the persisted distinct keys
+        Dataset<Row> keys = build.select(key).where(key.isNotNull()).distinct()
+            .persist(StorageLevel.MEMORY_AND_DISK());
+        try {
+            if (keys.count() <= maxKeys) {
+                List<Row> rows = keys.collectAsList();
+                List<Object> values = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    values.add(row.get(0));
+                }
+                return Keys.of(values);
+            }
+            if (! isRangeComparable(keys.schema().fields()[0].dataType())) {
+                return Keys.unfiltered();
+            }
+            Column distinct = keys.col(keys.columns()[0]);
+            Row range = keys.agg(functions.min(distinct), functions.max(distinct)).first();
+            return Keys.range(range.get(0), range.get(1));
+        } finally {
+            keys.unpersist();
+        }
+    }
+
+    /**
+     * Whether data sources order values of a type in the same way as Spark, so that the range of keys computed by
+     * Spark covers all of them in a data source.
+     *
+     * @param type type of keys
+     * @return true for numeric, date and timestamp types
+     */
+    static boolean isRangeComparable(DataType type) {
+        return type instanceof NumericType || type instanceof DateType || type instanceof TimestampType;
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())
+            || value instanceof Float && (((Float) value).isNaN() || ((Float) value).isInfinite())) {
+            //NaN and Infinity are not numeric literals of sql, quote them so that the database casts them
+            return "'" + value + "'";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    /**
+     * Distinct keys of build side, the range of them when there are too many, or nothing when they can not be given to
+     * probe side.
+     */
+    static class Keys {
+
+        private static final Keys UNFILTERED = new Keys(null, null, null);
+
+        private final List<Object> values;
+        private final Object lower;
+        private final Object upper;
+
+        private Keys(List<Object> values, Object lower, Object upper) {
+            this.values = values;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        static Keys of(List<?> values) {
+            return new Keys(Collections.<Object>unmodifiableList(values), null, null);
+        }
+
+        static Keys range(Object lower, Object upper) {
+            return new Keys(null, lower, upper);
+        }
+
+        static Keys unfiltered() {
+            return UNFILTERED;
+        }
+
+        boolean isRange() {
+            return values == null && ! isUnfiltered();
+        }
+
+        boolean isUnfiltered() {
+            return this == UNFILTERED;
+        }
+    }
+}
@@ -17,6 +17,7 @@ public class SparkElasticsearchGenerator extends QueryGenerator {
             "import org.apache.spark.sql.Dataset",
             "import org.apache.spark.sql.Row",
             "import org.elasticsearch.spark.sql.api.java.JavaEsSparkSQL",
+            "import com.qihoo.qsql.codegen.spark.SparkDynamicFilter",
             "import org.apache.commons.lang.StringEscapeUtils",
             "import java.util.HashMap",
             "import java.util.Map",
@@ -40,7 +41,13 @@ public class SparkElasticsearchGenerator extends QueryGenerator {
             "esPass", "esIndex", "esQuery", "esScrollNum"));
 
         String tmpAlias = "_tmp";
+        String filter = "";
+        if (dynamicFilter != null) {
+            filter = "        config.put(\"es.query\", " + SparkDynamicFilter.invocation(
+                "filterElasticsearchQuery", "config.get(\"es.query\")", dynamicFilter) + ");\n";
+        }
         String invoked = "      Map<String, String> config =" + invokeWrap + ";\n"
+            + filter
             + "        Dataset<Row> " + alias + ";\n"
             + "        if(config.containsKey(\"" + LIMIT_PARAM + "\")){\n"
             + "            Dataset<Row> " + (alias + tmpAlias) + " = JavaEsSparkSQL.esDF(spark, \n\t\t\t\tconfig);\n"
@@ -13,7 +13,8 @@ public class SparkHiveGenerator extends QueryGenerator {
     public void importDependency() {
         String[] imports = {
             "import org.apache.spark.sql.Dataset",
-            "import org.apache.spark.sql.Row"
+            "import org.apache.spark.sql.Row",
+            "import com.qihoo.qsql.codegen.spark.SparkDynamicFilter"
         };
         composer.handleComposition(ClassBodyComposer.CodeCategory.IMPORT, imports);
     }
@@ -25,7 +26,11 @@ public class SparkHiveGenerator extends QueryGenerator {
 
     @Override
     public void executeQuery() {
-        String invoked = "Dataset<Row> " + alias + " = spark.sql(\"" + query + "\");";
+        String sql = "\"" + query + "\"";
+        if (dynamicFilter != null) {
+            sql = SparkDynamicFilter.invocation("filterSql", sql, dynamicFilter);
+        }
+        String invoked = "Dataset<Row> " + alias + " = spark.sql(" + sql + ");";
         composer.handleComposition(ClassBodyComposer.CodeCategory.SENTENCE, invoked);
     }
 
@@ -2,22 +2,34 @@ package com.qihoo.qsql.codegen.spark;
 
 import com.qihoo.qsql.codegen.QueryGenerator;
 import com.qihoo.qsql.codegen.ClassBodyComposer;
-import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FSDataOutputStream;
-import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
-import org.apache.spark.api.java.function.Function;
+import com.qihoo.qsql.codegen.JdbcColumnType;
+import com.qihoo.qsql.codegen.JdbcRangePartitioner;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
 
-import java.io.IOException;
-import java.net.URI;
-import java.util.List;
-
 /**
  * Code generator, used when {@link com.qihoo.qsql.exec.spark.SparkPipeline} is chosen and source
  * data of query is in MySql at the same time.
+ * <p>
+ * Rows are read with the column types given by {@link ResultSetMetaData}. Small results are kept in memory, larger
+ * ones are spilled in chunks as snappy compressed Parquet through Spark's own writer and read back as a typed
+ * Dataset. Spilled files are deleted when the generated job finishes.
+ * </p>
+ * <p>
+ * If {@code jdbcPartitionNum} in metadata of the table is greater than 1 and the query has no limit, it is split by
+ * {@link JdbcRangePartitioner} and partitions are read in parallel by executors through Spark's JDBC source instead,
+ * {@code jdbcFetchSize} is used as its fetch size. MySQL Connector/J ignores the fetch size unless
+ * {@code useCursorFetch=true} is set, so it is added to the url, see {@link JdbcRangePartitioner#cursorFetchUrl}.
+ * </p>
  */
 public class SparkMySqlGenerator extends QueryGenerator {
 
@@ -29,35 +41,22 @@ public class SparkMySqlGenerator extends QueryGenerator {
     public void importDependency() {
         String[] imports = {
             "import org.apache.spark.sql.Dataset",
-            "import org.apache.spark.api.java.JavaRDD",
             "import org.apache.spark.sql.Row",
             "import org.apache.spark.sql.RowFactory",
+            "import org.apache.spark.sql.SaveMode",
             "import org.apache.spark.sql.SparkSession",
-            "import org.apache.spark.sql.types.DataTypes",
-            "import org.apache.spark.sql.types.StructField",
             "import org.apache.spark.sql.types.StructType",
             "import java.sql.*",
-            "import java.util.Enumeration",
-            "import java.sql.Driver",
-            "import java.sql.DriverManager",
             "import java.util.ArrayList",
             "import java.util.List",
-            "import org.apache.hadoop.conf.Configuration",
-            "import org.apache.hadoop.fs.FileSystem",
-            "import org.apache.hadoop.fs.Path",
-            "import java.io.IOException",
-            "import java.net.URI",
-            "import java.util.ArrayDeque",
-            "import java.util.Queue",
-            "import java.util.concurrent.ArrayBlockingQueue",
-            "import java.util.concurrent.BlockingQueue",
-            "import java.util.concurrent.ExecutorService",
-            "import java.util.concurrent.Executors",
+            "import java.util.Properties",
+            "import java.util.UUID",
+            "import com.qihoo.qsql.codegen.JdbcRangePartitioner",
+            "import com.qihoo.qsql.codegen.spark.SparkDynamicFilter",
             "import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.ResultSetWrapper",
             "import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.ResultSetInMemoryWrapper",
             "import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.ResultSetInFileSystemWrapper",
-            "import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.SpecificFunction",
-            "import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.ResultsTransporter"
+            "import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.TypedRowReader"
         };
 
         composer.handleComposition(ClassBodyComposer.CodeCategory.IMPORT, imports);
@@ -65,22 +64,29 @@ public class SparkMySqlGenerator extends QueryGenerator {
 
     @Override
     public void prepareQuery() {
-        composer.handleComposition(ClassBodyComposer.CodeCategory.METHOD,
-            declareGetDataTypesMethod());
         composer.handleComposition(ClassBodyComposer.CodeCategory.METHOD,
             declarePersistMethod());
         composer.handleComposition(ClassBodyComposer.CodeCategory.METHOD,
-            declareTransferContentsMethod());
+            declareSpillMethod());
+        composer.handleComposition(ClassBodyComposer.CodeCategory.METHOD,
+            declarePartitionedReadMethod());
     }
 
-    //remember to remove temporary files after computing in hdfs or local machine
     @Override
     public void executeQuery() {
+        int partitions = jdbcPartitionNum();
+        if (partitions > 1) {
+            executePartitionedQuery(partitions);
+            return;
+        }
+
         String invoked = "Dataset<Row> " + alias + ";";
         composer.handleComposition(ClassBodyComposer.CodeCategory.SENTENCE, invoked);
 
-        Invoker config = Invoker.registerMethod("persist");
-        String invokeWrap = config.invoke(convertProperties("jdbcUrl", "jdbcUser", "jdbcPassword"));
+        String[] params = convertProperties("jdbcUrl", "jdbcUser", "jdbcPassword");
+        String invokeWrap = "persist(\"" + escaped(params[0]) + "\", \"" + escaped(params[1]) + "\", \""
+            + escaped(params[2]) + "\", "
+            + filtered("\"" + StringEscapeUtils.escapeJava(query) + "\"") + ")";
 
         String wrapper = with("wrapper", alias);
         String invokedStatement = "ResultSetWrapper" + " " + wrapper + " = " + invokeWrap + ";";
@@ -96,92 +102,48 @@ public class SparkMySqlGenerator extends QueryGenerator {
         composer.handleComposition(ClassBodyComposer.CodeCategory.SENTENCE, created);
     }
 
+    private void executePartitionedQuery(int partitions) {
+        String[] params = convertProperties("jdbcUrl", "jdbcUser", "jdbcPassword");
+        String invoked = "Dataset<Row> " + alias + " = readPartitioned(\""
+            + escaped(params[0]) + "\", \"" + escaped(params[1]) + "\", \"" + escaped(params[2]) + "\",\n"
+            + "            " + filtered("\"" + StringEscapeUtils.escapeJava(query) + "\"") + ",\n"
+            + "            \"" + escaped(JdbcRangePartitioner.partitionColumn(properties)) + "\", "
+            + partitions + ", " + JdbcRangePartitioner.fetchSize(properties) + ");";
+        composer.handleComposition(ClassBodyComposer.CodeCategory.SENTENCE, invoked);
+    }
+
+    private static String escaped(String value) {
+        return StringEscapeUtils.escapeJava(value);
+    }
+
+    private String filtered(String sql) {
+        if (dynamicFilter == null) {
+            return sql;
+        }
+        return SparkDynamicFilter.invocation("filterSql", sql, dynamicFilter);
+    }
+
     private String invokeWrapperUnwrap(String wrapperName) {
         return "        if(" + wrapperName + " instanceof ResultSetInMemoryWrapper)\n"
             + "            " + alias + " = spark.createDataFrame(((ResultSetInMemoryWrapper) "
             + wrapperName + ").getRows(), "
             + wrapperName + ".getType());\n"
-            + "        else {\n"
-            + "            JavaRDD<String> lines = spark.sparkContext()\n"
-            + "                    .textFile(((ResultSetInFileSystemWrapper) "
-            + wrapperName + ").getPath(), 100).toJavaRDD();\n"
-            + "            JavaRDD<Row> rows = lines.map(new SpecificFunction());\n"
-            + "            " + alias + " = spark.createDataFrame(rows, "
-            + wrapperName + ".getType());\n"
-            + "        }";
-    }
-
-    private String declareGetDataTypesMethod() {
-        return "    private List<StructField> getDataTypes(ResultSet resultSet) {\n"
-            + "        List<StructField> columns;\n"
-            + "\n"
-            + "        try {\n"
-            + "            int n = resultSet.getMetaData().getColumnCount();\n"
-            + "            String labelName;\n"
-            + "\n"
-            + "            columns = new ArrayList<StructField>();\n"
-            + "\n"
-            + "            for (int index = 1; index <= n; index++) {\n"
-            + "                labelName = resultSet.getMetaData().getColumnLabel(index);\n"
-            + "                columns.add(DataTypes.createStructField(labelName, DataTypes.StringType, true));\n"
-            + "            }\n"
-            + "        } catch (SQLException e) {\n"
-            + "            throw new RuntimeException(e.getMessage());\n"
-            + "        }\n"
-            + "\n"
-            + "        return columns;\n"
-            + "    }";
+            + "        else\n"
+            + "            " + alias + " = spark.read().schema(" + wrapperName + ".getType())\n"
+            + "                .parquet(((ResultSetInFileSystemWrapper) " + wrapperName + ").getPath());";
     }
 
     private String declarePersistMethod() {
-        //TODO debug toLowerCase, will lead to mistake occured which sql identifier was changed
-        return "private ResultSetWrapper persist(String url, String user, String password) {\n"
-            + "        String sql = \"" + query.toLowerCase() + "\";\n"
-            + "        String baseURI = \"" + FILE_SYSTEM_URI + "\";\n"
+        return "private ResultSetWrapper persist(String url, String user, String password, String sql) {\n"
+            + "        String spillPath = \"" + FILE_SYSTEM_URI + "\" + \"/\"\n"
+            + "            + System.currentTimeMillis() + \"-\" + UUID.randomUUID();\n"
             + "        Connection connection = null;\n"
             + "        Statement statement = null;\n"
             + "        ResultSet resultSet = null;\n"
             + "\n"
-            + "        StructType schema;\n"
-            + "\n"
-            + "        final int THRESHOLD = 0x400000;\n"
             + "        final int BUFFER_SIZE = 0x40000;\n"
-            + "        final int CONCURRENT_PACKAGE_NUM = 8;\n"
-            + "\n"
-            + "        int rowCount = 0;\n"
-            + "        int rowPartition = 0;\n"
-            + "\n"
-            + "        long partitionStamp = System.currentTimeMillis();\n"
-            + "\n"
-            + "        BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<List<String[]>>"
-            + "(CONCURRENT_PACKAGE_NUM);\n"
-            + "        Queue<String> partitionQueue = new ArrayDeque<String>();\n"
-            + "\n"
-            + "        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_PACKAGE_NUM);\n"
             + "\n"
             + getTryAndCatchCodeInMethod()
-            + "\n"
-            + "        if (!queue.isEmpty()) {\n"
-            + "            List<Row> rows = new ArrayList<Row>(queue.size() * rowPartition);\n"
-            + "\n"
-            + "            for (List<String[]> rowSet : queue) {\n"
-            + "                for (String[] rowFields : rowSet)\n"
-            + "                    rows.add(RowFactory.create((Object[]) rowFields));\n"
-            + "                rowSet.clear();\n"
-            + "            }\n"
-            + "\n"
-            + "            return new ResultSetInMemoryWrapper(rows, schema);\n"
-            + "        } else {\n"
-            + "            executor.shutdown();\n"
-            + "            try {\n"
-            + "                while (!executor.isTerminated())\n"
-            + "                    Thread.sleep(500);\n"
-            + "            } catch (InterruptedException e) {\n"
-            + "                throw new RuntimeException(e);\n"
-            + "            }\n"
-            + "\n"
-            + "            return new ResultSetInFileSystemWrapper(baseURI, schema);\n"
-            + "        }\n"
             + "    }";
     }
 
@@ -189,34 +151,22 @@ public class SparkMySqlGenerator extends QueryGenerator {
         return "        try {\n"
             + "            Class.forName(\"com.mysql.jdbc.Driver\");\n"
             + "            connection = DriverManager.getConnection(url, user, password);\n"
-            + "            statement = connection.prepareStatement(sql);\n"
+            + "            statement = connection.createStatement();\n"
             + "            resultSet = statement.executeQuery(sql);\n"
             + "\n"
-            + "            schema = DataTypes.createStructType(getDataTypes(resultSet));\n"
-            + "\n"
-            + "            List<String[]> rows = new ArrayList<String[]>();\n"
-            + "            int n = resultSet.getMetaData().getColumnCount();\n"
+            + "            TypedRowReader reader = new TypedRowReader(resultSet.getMetaData());\n"
+            + "            StructType schema = reader.getSchema();\n"
+            + "            List<Row> rows = new ArrayList<Row>();\n"
+            + "            boolean spilled = false;\n"
             + "\n"
             + getWhileCodeInMethod()
             + "\n"
-            + "            if (!rows.isEmpty()) {\n"
-            + "                queue.offer(rows);\n"
-            + "                partitionQueue.offer(baseURI + \"/\" + partitionStamp +\n"
-            + "                        \"/partition#\" + rowPartition);\n"
-            + "\n"
-            + "                if (rowPartition * BUFFER_SIZE > THRESHOLD) {\n"
-            + "                    while (!queue.isEmpty()) {\n"
-            + "                        try {\n"
-            + "                            transferContents((List<String[]>) queue.take(), (String) partitionQueue.poll"
-            + "(), executor);\n"
-            + "                        } catch (InterruptedException e) {\n"
-            + "                            e.printStackTrace();\n"
-            + "                        }\n"
-            + "                    }\n"
-            + "                }\n"
-            + "            }\n"
+            + "            if (! spilled)\n"
+            + "                return new ResultSetInMemoryWrapper(rows, schema);\n"
             + "\n"
-            + "//            Row row = RowFactory.create(rowValue.toArray());\n"
+            + "            if (! rows.isEmpty())\n"
+            + "                spill(rows, schema, spillPath);\n"
+            + "            return new ResultSetInFileSystemWrapper(spillPath, schema);\n"
             + "        } catch (Exception e) {\n"
             + "            throw new RuntimeException(e);\n"
             + "        } finally {\n"
@@ -234,63 +184,50 @@ public class SparkMySqlGenerator extends QueryGenerator {
 
     private String getWhileCodeInMethod() {
         return "            while (resultSet.next()) {\n"
-            + "                String[] rowValue = new String[n];\n"
-            + "\n"
-            + "                for (int index = 1; index <= n; index++)\n"
-            + "                    rowValue[index - 1] = resultSet.getObject(index).toString();\n"
-            + "\n"
-            + "                rows.add(rowValue);\n"
-            + "                rowCount++;\n"
-            + "\n"
-            + "                if (rowCount > BUFFER_SIZE) {\n"
-            + "                    queue.offer(rows);\n"
-            + "                    //magic value '#'\n"
-            + "                    partitionQueue.offer(baseURI + \"/\" + partitionStamp +\n"
-            + "                            \"/partition#\" + rowPartition);\n"
-            + "\n"
-            + "                    if (rowPartition * BUFFER_SIZE > THRESHOLD) {\n"
-            + "                        while (!queue.isEmpty()) {\n"
-            + "                            transferContents((List<String[]>) queue.poll(), (String) partitionQueue.poll"
-            + "(), executor);\n"
-            + "                        }\n"
-            + "                    }\n"
-            + "                    rows = new ArrayList<String[]>();\n"
+            + "                rows.add(RowFactory.create(reader.read(resultSet)));\n"
             + "\n"
-            + "                    rowCount = 0;\n"
-            + "                    rowPartition++;\n"
+            + "                if (rows.size() >= BUFFER_SIZE) {\n"
+            + "                    if (! spilled)\n"
+            + "                        deleteAfterExecution(spillPath);\n"
+            + "                    spill(rows, schema, spillPath);\n"
+            + "                    rows = new ArrayList<Row>();\n"
+            + "                    spilled = true;\n"
             + "                }\n"
             + "            }\n";
     }
 
+    private String declareSpillMethod() {
+        return "    private void spill(List<Row> rows, StructType schema, String path) {\n"
+            + "        spark.createDataFrame(rows, schema)\n"
+            + "            .write()\n"
+            + "            .mode(SaveMode.Append)\n"
+            + "            .option(\"compression\", \"snappy\")\n"
+            + "            .parquet(path);\n"
+            + "    }";
+    }
 
-    private String declareTransferContentsMethod() {
-        return "    private void transferContents(List<String[]> rows,\n"
-            + "                                  String url,\n"
-            + "                                  ExecutorService executor) {\n"
-            + "        Configuration conf = new Configuration();\n"
-            + "\n"
-            + "        String hadoopConfDir = System.getenv(\"SPARK_HOME\") + \"/hadoopconf/\";\n"
-            + "        conf.addResource(new Path(hadoopConfDir + \"core-site.xml\"));\n"
-            + "        conf.addResource(new Path(hadoopConfDir + \"hdfs-site.xml\"));\n"
-            + "\n"
-            + "        FileSystem fs = null;\n"
+    private String declarePartitionedReadMethod() {
+        return "    private Dataset<Row> readPartitioned(String url, String user, String password, String sql,\n"
+            + "        String column, int partitions, int fetchSize) {\n"
+            + "        String[] predicates;\n"
             + "        try {\n"
-            + "            fs = FileSystem.get(URI.create(\"" + QSQL_CLUSTER_URL + "\"), conf);\n"
-            + "            Path path = new Path(url.substring(0, url.lastIndexOf('/')));\n"
-            + "\n"
-            + "            if (!fs.exists(path))\n"
-            + "                fs.mkdirs(path);\n"
-            + "        } catch (IOException e) {\n"
-            + "            e.printStackTrace();\n"
-            + "        } finally {\n"
-            + "            if (fs != null) {\n"
-            + "                try {\n"
-            + "                    fs.close();\n"
-            + "                } catch (IOException ignored) {}\n"
+            + "            Class.forName(\"com.mysql.jdbc.Driver\");\n"
+            + "            try (Connection connection = DriverManager.getConnection(url, user, password)) {\n"
+            + "                predicates = new JdbcRangePartitioner(column, partitions)"
+            + ".predicates(connection, sql);\n"
             + "            }\n"
+            + "        } catch (Exception e) {\n"
+            + "            throw new RuntimeException(e);\n"
             + "        }\n"
             + "\n"
-            + "        executor.execute(new ResultsTransporter(url, rows, conf));\n"
+            + "        Properties connectionProperties = new Properties();\n"
+            + "        connectionProperties.put(\"user\", user);\n"
+            + "        connectionProperties.put(\"password\", password);\n"
+            + "        connectionProperties.put(\"driver\", \"com.mysql.jdbc.Driver\");\n"
+            + "        connectionProperties.put(\"fetchsize\", String.valueOf(fetchSize));\n"
+            + "        return spark.read().jdbc(JdbcRangePartitioner.cursorFetchUrl(url), "
+            + "JdbcRangePartitioner.asTable(sql), predicates, "
+            + "connectionProperties);\n"
             + "    }";
     }
 
@@ -335,66 +272,93 @@ public class SparkMySqlGenerator extends QueryGenerator {
         }
     }
 
-    public static class SpecificFunction implements Function {
-
-        @Override
-        public Row call(Object ob) throws Exception {
-            return RowFactory.create((Object[]) ((String) ob).split("\u0006"));
-        }
-    }
-
     /**
-     * Transport results to HDFS cache.
+     * Read rows of a {@link ResultSet} as values of the Spark types which match their JDBC types.
      */
-    public static class ResultsTransporter implements Runnable {
+    public static class TypedRowReader {
+
+        private static final int MAX_PRECISION = 38;
+
+        private final StructType schema;
+        private final JdbcColumnType[] types;
+
+        /**
+         * Build Spark schema from metadata of result set.
+         *
+         * @param metaData metadata of result set
+         * @throws SQLException if metadata can not be read
+         */
+        public TypedRowReader(ResultSetMetaData metaData) throws SQLException {
+            int count = metaData.getColumnCount();
+            StructField[] fields = new StructField[count];
+            types = new JdbcColumnType[count];
+            for (int index = 1; index <= count; index++) {
+                JdbcColumnType type = JdbcColumnType.of(metaData, index);
+                DataType sparkType = toSparkType(type, metaData, index);
+                //columns which have no exact Spark type are kept as text
+                types[index - 1] = sparkType == DataTypes.StringType ? JdbcColumnType.STRING : type;
+                fields[index - 1] = DataTypes.createStructField(
+                    metaData.getColumnLabel(index), sparkType, true);
+            }
+            schema = DataTypes.createStructType(fields);
+        }
 
-        private String url;
-        private Configuration conf;
-        private List<String[]> content;
-        private char separator = '\u0006';
+        public StructType getSchema() {
+            return schema;
+        }
 
         /**
-         * Transport results to HDFS cache.
+         * Read current row, null values stay null.
          *
-         * @param url path of HDFS
-         * @param content result of query
-         * @param conf config of the calculation
+         * @param resultSet result set positioned on a row
+         * @return values of row
+         * @throws SQLException if row can not be read
          */
-        public ResultsTransporter(String url, List<String[]> content, Configuration conf) {
-            this.url = url;
-            this.content = content;
-            this.conf = conf;
+        public Object[] read(ResultSet resultSet) throws SQLException {
+            Object[] values = new Object[types.length];
+            for (int index = 1; index <= types.length; index++) {
+                values[index - 1] = types[index - 1].read(resultSet, index);
+            }
+            return values;
         }
 
-        @Override
-        public void run() {
-            try {
-                try (FileSystem fs = FileSystem.get(
-                    URI.create(QSQL_CLUSTER_URL), conf)) {
-                    FSDataOutputStream out = fs.create(new Path(url));
-                    try {
-                        for (String[] arrayContent : content) {
-                            StringBuilder builder = new StringBuilder();
-
-                            for (int j = 0; j < arrayContent.length; j++) {
-                                builder.append(arrayContent[j]);
-                                if (j != arrayContent.length - 1) {
-                                    builder.append(separator);
-                                }
-                            }
-                            builder.append("\n");
-                            out.writeChars(builder.toString());
-                        }
-                        content = null;
-                    } finally {
-                        out.flush();
-                        out.close();
-                        System.gc();
-                    }
-                }
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
+        private static DataType toSparkType(JdbcColumnType type, ResultSetMetaData metaData, int index)
+            throws SQLException {
+            switch (type) {
+                case BOOLEAN:
+                    return DataTypes.BooleanType;
+                case INT:
+                    return DataTypes.IntegerType;
+                case LONG:
+                    return DataTypes.LongType;
+                case FLOAT:
+                    return DataTypes.FloatType;
+                case DOUBLE:
+                    return DataTypes.DoubleType;
+                case DECIMAL:
+                    return metaData.getColumnType(index) == Types.BIGINT
+                        ? DataTypes.createDecimalType(20, 0)
+                        : toDecimalType(metaData.getPrecision(index), metaData.getScale(index));
+                case DATE:
+                    return DataTypes.DateType;
+                case TIMESTAMP:
+                    return DataTypes.TimestampType;
+                case BINARY:
+                    return DataTypes.BinaryType;
+                default:
+                    return DataTypes.StringType;
+            }
+        }
+
+        private static DataType toDecimalType(int precision, int scale) {
+            if (precision <= 0) {
+                return DataTypes.createDecimalType(MAX_PRECISION, 18);
+            }
+            if (precision > MAX_PRECISION) {
+                //keep exact value as text
+                return DataTypes.StringType;
             }
+            return DataTypes.createDecimalType(precision, Math.max(0, Math.min(scale, precision)));
         }
     }
 }
@@ -4,8 +4,6 @@ import com.qihoo.qsql.api.SqlRunner;
 import com.qihoo.qsql.exec.result.PipelineResult;
 import com.qihoo.qsql.codegen.IntegratedQueryWrapper;
 import com.qihoo.qsql.plan.proc.QueryProcedure;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
 /**
  * A pipeline between {@link SqlRunner} and {@link PipelineResult}, which provides series Apis to user that can control
@@ -44,16 +42,7 @@ public abstract class AbstractPipeline {
 
     public abstract void shutdown();
 
-    @SuppressWarnings("unchecked")
     protected Requirement compileRequirement(IntegratedQueryWrapper wrapper, Object argument, Class clazz) {
-        Class requirementClass = wrapper.compile();
-        try {
-            final Constructor<Requirement> constructor = requirementClass.getConstructor(clazz);
-            return constructor.newInstance(argument);
-        } catch (NoSuchMethodException | IllegalAccessException
-            | InvocationTargetException | InstantiationException ex) {
-            ex.printStackTrace();
-            throw new RuntimeException(ex);
-        }
+        return wrapper.compile().newInstance(clazz, argument);
     }
 }
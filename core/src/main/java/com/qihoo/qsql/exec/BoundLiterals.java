@@ -0,0 +1,40 @@
+package com.qihoo.qsql.exec;
+
+/**
+ * String literals taken out of generated code, handed to a {@link Requirement} while it is constructed so that field
+ * initializers and constructors of the generated class can use them.
+ */
+public final class BoundLiterals {
+
+    private static final String[] NONE = new String[0];
+    private static final ThreadLocal<String[]> PENDING = new ThreadLocal<>();
+
+    private BoundLiterals() {
+    }
+
+    /**
+     * Bind literals to requirements constructed by current thread, until {@link #clear()} is called.
+     *
+     * @param literals literals, in the order of {@code literal(n)} calls
+     */
+    public static void bind(String[] literals) {
+        PENDING.set(literals);
+    }
+
+    /**
+     * Get literals bound to current thread.
+     *
+     * @return literals, empty if none is bound
+     */
+    public static String[] current() {
+        String[] literals = PENDING.get();
+        return literals == null ? NONE : literals;
+    }
+
+    /**
+     * Unbind literals from current thread.
+     */
+    public static void clear() {
+        PENDING.remove();
+    }
+}
@@ -2,9 +2,9 @@ package com.qihoo.qsql.exec;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
+import com.qihoo.qsql.exec.pool.ConnectionProvider;
+import com.qihoo.qsql.exec.pool.ConnectionProviders;
+import com.qihoo.qsql.exec.pool.DirectConnectionProvider;
 import com.qihoo.qsql.metadata.MetadataPostman;
 import com.qihoo.qsql.metadata.SchemaAssembler;
 import com.qihoo.qsql.plan.proc.DiskLoadProcedure;
@@ -24,14 +24,12 @@ import org.apache.calcite.model.JsonCustomTable;
 import org.apache.calcite.model.JsonRoot;
 import org.apache.calcite.model.JsonSchema;
 import org.apache.calcite.model.JsonTable;
-import org.apache.calcite.runtime.FlatLists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -64,6 +62,9 @@ public class JdbcPipeline extends AbstractPipeline {
         + "    }\n"
         + "  ]\n"
         + "}";
+    private static final String CALCITE_DRIVER = "org.apache.calcite.jdbc.Driver";
+    private static final String CALCITE_URL = "jdbc:calcite:";
+    private static final String MYSQL_DRIVER = "com.mysql.jdbc.Driver";
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcPipeline.class);
     private Connection connection;
     private Statement statement;
@@ -78,7 +79,8 @@ public class JdbcPipeline extends AbstractPipeline {
     }
 
     /**
-     * create Specific Connection based on Data Engine.
+     * create Specific Connection based on Data Engine. Connections are drawn from {@link ConnectionProviders}, and
+     * given back to it when they are closed.
      *
      * @param json json of metadata config
      * @param parsedTables List of TableName
@@ -100,7 +102,7 @@ public class JdbcPipeline extends AbstractPipeline {
                 default:
                     throw new RuntimeException("Not support");
             }
-        } catch (IOException | ClassNotFoundException | SQLException ex) {
+        } catch (IOException | SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
@@ -138,32 +140,38 @@ public class JdbcPipeline extends AbstractPipeline {
                 default:
                     throw new RuntimeException("Unsupported jdbc type");
             }
-        } catch (ClassNotFoundException | SQLException ex) {
+        } catch (SQLException ex) {
             throw new RuntimeException(ex.getMessage());
         }
     }
 
-    private static Connection createElasticsearchConnection(String json) throws SQLException {
-        ConnectionFactory connectionFactory = new MapConnectionFactory(
-            ImmutableMap.of("unquotedCasing", "unchanged", "caseSensitive", "true"),
-            ImmutableList.of()
-        ).with("model", json);
+    static Connection createElasticsearchConnection(String json) throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("unquotedCasing", "unchanged");
+        info.setProperty("caseSensitive", "true");
+        info.setProperty("model", json);
 
-        Connection connection = connectionFactory.createConnection();
+        Connection connection = ConnectionProviders.get().getConnection(CALCITE_DRIVER, CALCITE_URL, info);
         LOGGER.debug("Connect with Elasticsearch server successfully!");
         return connection;
     }
 
-    private static Connection createMySqlConnection(Map<String, String> conn)
-        throws ClassNotFoundException, SQLException {
-        Class.forName("com.mysql.jdbc.Driver");
+    static Connection createMySqlConnection(Map<String, String> conn) throws SQLException {
+        return createMySqlConnection(conn, ConnectionProviders.get());
+    }
+
+    private static Connection createMySqlConnection(Map<String, String> conn, ConnectionProvider provider)
+        throws SQLException {
         String ip = conn.getOrDefault("jdbcNode", "");
         String port = conn.getOrDefault("jdbcPort", "");
         String db = conn.getOrDefault("dbName", "");
         String url = conn.getOrDefault("jdbcUrl", "jdbc:mysql://" + ip + ":" + port + "/" + db);
         String user = conn.getOrDefault("jdbcUser", "");
         String password = conn.getOrDefault("jdbcPassword", "");
-        Connection connection = DriverManager.getConnection(url, user, password);
+        Properties info = new Properties();
+        info.setProperty("user", user);
+        info.setProperty("password", password);
+        Connection connection = provider.getConnection(MYSQL_DRIVER, url, info);
         LOGGER.debug("Connect with MySQL server successfully!");
         return connection;
     }
@@ -205,7 +213,7 @@ public class JdbcPipeline extends AbstractPipeline {
     public static Connection createCsvConnection(String json) throws SQLException {
         Properties info = new Properties();
         info.put("model", json);
-        Connection connection = DriverManager.getConnection("jdbc:calcite:", info);
+        Connection connection = ConnectionProviders.get().getConnection(CALCITE_DRIVER, CALCITE_URL, info);
         LOGGER.debug("Connect with embedded calcite server successfully!");
         return connection;
     }
@@ -221,14 +229,18 @@ public class JdbcPipeline extends AbstractPipeline {
 
         if (next instanceof DiskLoadProcedure) {
             String path = ((DiskLoadProcedure) next).path;
-            String deliminator;
-            if (((DiskLoadProcedure) next).getDataFormat() == LoadProcedure.DataFormat.DEFAULT) {
-                deliminator = "\t";
+            LoadProcedure.DataFormat format = ((DiskLoadProcedure) next).getDataFormat();
+            if (format == LoadProcedure.DataFormat.JSON) {
+                new JdbcPipelineResult.JsonPipelineResult(
+                    new JdbcResultSetIterator<>(resultSet), path).run();
+            } else if (format == LoadProcedure.DataFormat.CSV) {
+                new JdbcPipelineResult.CsvPipelineResult(
+                    new JdbcResultSetIterator<>(resultSet), path).run();
             } else {
-                deliminator = " ";
+                String deliminator = format == LoadProcedure.DataFormat.DEFAULT ? "\t" : " ";
+                new JdbcPipelineResult.TextPipelineResult(
+                    new JdbcResultSetIterator<>(resultSet), path, deliminator).run();
             }
-            new JdbcPipelineResult.TextPipelineResult(
-                new JdbcResultSetIterator<>(resultSet), path, deliminator).run();
         } else {
             new JdbcPipelineResult.ShowPipelineResult(
                 new JdbcResultSetIterator<>(resultSet)).run();
@@ -258,15 +270,33 @@ public class JdbcPipeline extends AbstractPipeline {
             clusterPath);
     }
 
+    /**
+     * Write results as csv files with a header line.
+     *
+     * @param clusterPath directory of result files, local or on HDFS
+     * @return result which writes files when it runs
+     */
+    public PipelineResult asCsvFile(String clusterPath) {
+        ResultSet resultSet = establishStatement();
+        return new JdbcPipelineResult.CsvPipelineResult(
+            new JdbcResultSetIterator<>(resultSet),
+            clusterPath);
+    }
+
     @Override
     public AbstractPipeline asTempTable(String tempTableName) {
         assert (procedure instanceof PreparedExtractProcedure.MySqlExtractor)
             : "Only support MySQL as temporary table";
 
+        //temporary table lives as long as the session, it must not be left in a pooled connection
+        shutdown();
         try {
+            connection = createMySqlConnection(getTempTableConnectionInfo(),
+                new DirectConnectionProvider(new Properties()));
+            statement = connection.createStatement();
             statement.execute("CREATE TEMPORARY TABLE " + tempTableName
                 + " AS " + ((ExtractProcedure) procedure).toRecognizedQuery());
-        } catch (SQLException ex) {
+        } catch (IOException | SQLException ex) {
             throw new RuntimeException(ex);
         }
 
@@ -276,12 +306,12 @@ public class JdbcPipeline extends AbstractPipeline {
     @Override
     public void shutdown() {
         try {
-            if (connection != null) {
-                connection.close();
-            }
             if (statement != null) {
                 statement.close();
             }
+            if (connection != null) {
+                connection.close();
+            }
         } catch (SQLException ex) {
             ex.printStackTrace();
         }
@@ -301,8 +331,8 @@ public class JdbcPipeline extends AbstractPipeline {
         try {
             connection = getConnection();
 
-            if (connection instanceof CalciteConnection) {
-                CalciteConnection calciteConnection = (CalciteConnection) connection;
+            if (connection.isWrapperFor(CalciteConnection.class)) {
+                CalciteConnection calciteConnection = connection.unwrap(CalciteConnection.class);
 
                 calciteConnection.getProperties().setProperty(
                     CalciteConnectionProperty.MATERIALIZATIONS_ENABLED.camelName(),
@@ -357,6 +387,14 @@ public class JdbcPipeline extends AbstractPipeline {
         }
     }
 
+    private Map<String, String> getTempTableConnectionInfo() throws IOException {
+        if (builder.getSchemaPath().isEmpty()) {
+            return MetadataPostman.getAssembledSchema(tableNames).get(0).getConnectionProperties();
+        } else {
+            return parseJsonSchema(tableNames, builder.getSchemaPath());
+        }
+    }
+
     enum JdbcType {
         ELASTICSEARCH, MYSQL, CSV
     }
@@ -366,60 +404,6 @@ public class JdbcPipeline extends AbstractPipeline {
         Connection apply(Connection connection) throws SQLException;
     }
 
-    private abstract static class ConnectionFactory {
-
-        public abstract Connection createConnection() throws SQLException;
-
-        public ConnectionFactory with(String property, Object value) {
-            throw new UnsupportedOperationException();
-        }
-
-        public ConnectionFactory with(ConnectionPostProcessor postProcessor) {
-            throw new UnsupportedOperationException();
-        }
-    }
-
-    private static class MapConnectionFactory extends ConnectionFactory {
-
-        private final ImmutableMap<String, String> map;
-        private final ImmutableList<ConnectionPostProcessor> postProcessors;
-
-        private MapConnectionFactory(ImmutableMap<String, String> map,
-            ImmutableList<ConnectionPostProcessor> postProcessors) {
-            this.map = Preconditions.checkNotNull(map);
-            this.postProcessors = Preconditions.checkNotNull(postProcessors);
-        }
-
-        @Override
-        public Connection createConnection() throws SQLException {
-            final Properties info = new Properties();
-            for (Map.Entry<String, String> entry : map.entrySet()) {
-                info.setProperty(entry.getKey(), entry.getValue());
-            }
-
-            Connection connection = DriverManager.getConnection("jdbc:calcite:", info);
-            for (ConnectionPostProcessor postProcessor : postProcessors) {
-                connection = postProcessor.apply(connection);
-            }
-
-            return connection;
-        }
-
-        @Override
-        public ConnectionFactory with(String property, Object value) {
-            return new MapConnectionFactory(
-                FlatLists.append(this.map, property, value.toString()), postProcessors);
-        }
-
-        @Override
-        public ConnectionFactory with(ConnectionPostProcessor postProcessor) {
-            ImmutableList.Builder<ConnectionPostProcessor> builder = ImmutableList.builder();
-            builder.addAll(postProcessors);
-            builder.add(postProcessor);
-            return new MapConnectionFactory(map, builder.build());
-        }
-    }
-
     //TODO modify jdbc to read from calcite jdbc connection, rather than to read from schema
     public static class JsonVisitor {
 
@@ -0,0 +1,266 @@
+package com.qihoo.qsql.exec;
+
+import com.google.common.collect.Maps;
+import com.qihoo.qsql.api.SqlRunner;
+import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.exec.pool.DirectConnectionProvider;
+import com.qihoo.qsql.exec.result.JdbcPipelineResult;
+import com.qihoo.qsql.exec.result.JdbcResultSetIterator;
+import com.qihoo.qsql.exec.result.PipelineResult;
+import com.qihoo.qsql.plan.proc.DiskLoadProcedure;
+import com.qihoo.qsql.plan.proc.ExtractProcedure;
+import com.qihoo.qsql.plan.proc.LoadProcedure;
+import com.qihoo.qsql.plan.proc.PreparedExtractProcedure;
+import com.qihoo.qsql.plan.proc.QueryProcedure;
+import com.qihoo.qsql.plan.proc.TransformProcedure;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.sql.dialect.CalciteSqlDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pipeline which executes a mixed query in current process by embedded calcite, instead of submitting a job to Spark
+ * or Flink.
+ * <p>
+ * Each {@link ExtractProcedure} is executed on its data source, MySQL through jdbc, Elasticsearch and csv through a
+ * calcite connection on the model. The extracted rows are held in memory as tables named by the temp table names, then
+ * the sql of {@link TransformProcedure} is executed on them by enumerable operators of calcite. Rows extracted by a
+ * query are bounded by {@code qsql.local.max.rows}, the query fails if its inputs are larger.
+ * </p>
+ * <p>
+ * It is chosen by {@link com.qihoo.qsql.api.DynamicSqlRunner} when all the data sources can be read locally and the
+ * estimated rows of each extract procedure are no more than {@code qsql.local.threshold.rows}, 0 disables it. When the
+ * size of rows can be estimated by statistics of tables, it should also be no more than
+ * {@code qsql.local.threshold.bytes}. Dynamic filters are not injected, inputs are small enough to be joined as they
+ * are.
+ * </p>
+ */
+public class LocalPipeline extends AbstractPipeline {
+
+    public static final String LOCAL_THRESHOLD_ROWS = "qsql.local.threshold.rows";
+    public static final String LOCAL_THRESHOLD_BYTES = "qsql.local.threshold.bytes";
+    public static final String LOCAL_MAX_ROWS = "qsql.local.max.rows";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalPipeline.class);
+    private static final String CALCITE_DRIVER = "org.apache.calcite.jdbc.Driver";
+    private static final String CALCITE_URL = "jdbc:calcite:";
+    private static final long DEFAULT_THRESHOLD_ROWS = 10000L;
+    private static final long DEFAULT_THRESHOLD_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_MAX_ROWS = 200000L;
+
+    private final String schema;
+    private final long maxRows;
+    private Connection connection;
+    private Statement statement;
+
+    /**
+     * Pipeline executing in current process.
+     *
+     * @param procedure QueryProcedure, which begins with extract procedures
+     * @param schema schema path or inline model the procedure is made with
+     * @param builder SqlRunner builder
+     */
+    public LocalPipeline(QueryProcedure procedure, String schema, SqlRunner.Builder builder) {
+        super(procedure, builder);
+        this.schema = schema;
+        this.maxRows = Long.parseLong(properties(builder).getProperty(
+            LOCAL_MAX_ROWS, String.valueOf(DEFAULT_MAX_ROWS)).trim());
+    }
+
+    /**
+     * Whether a mixed query is small enough to be executed in current process.
+     *
+     * @param procedure QueryProcedure, which begins with extract procedures
+     * @param builder SqlRunner builder
+     * @return true if all the extract procedures can run locally and their estimated rows are under threshold
+     */
+    public static boolean isApplicable(QueryProcedure procedure, SqlRunner.Builder builder) {
+        Properties properties = properties(builder);
+        long threshold = Long.parseLong(properties.getProperty(
+            LOCAL_THRESHOLD_ROWS, String.valueOf(DEFAULT_THRESHOLD_ROWS)).trim());
+        long thresholdBytes = Long.parseLong(properties.getProperty(
+            LOCAL_THRESHOLD_BYTES, String.valueOf(DEFAULT_THRESHOLD_BYTES)).trim());
+        if (threshold <= 0 || ! (procedure instanceof ExtractProcedure)) {
+            return false;
+        }
+
+        for (QueryProcedure curr = procedure; curr instanceof ExtractProcedure; curr = curr.next()) {
+            if (! isLocallyExtractable(curr)) {
+                return false;
+            }
+            Double rowCount = ((PreparedExtractProcedure) curr).estimateRowCount();
+            Double bytes = ((PreparedExtractProcedure) curr).estimateBytes();
+            LOGGER.debug("Estimated rows of {} are {}, bytes are {}",
+                ((ExtractProcedure) curr).getTableName(), rowCount, bytes);
+            if (rowCount == null || rowCount > threshold || bytes != null && bytes > thresholdBytes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLocallyExtractable(QueryProcedure procedure) {
+        return procedure instanceof PreparedExtractProcedure.MySqlExtractor
+            || procedure instanceof PreparedExtractProcedure.ElasticsearchExtractor
+            || procedure instanceof PreparedExtractProcedure.CsvExtractor;
+    }
+
+    @Override
+    public void run() {
+        ResultSet resultSet = execute();
+        QueryProcedure next = transformProcedure().next();
+
+        if (next instanceof DiskLoadProcedure) {
+            String path = ((DiskLoadProcedure) next).path;
+            LoadProcedure.DataFormat format = ((DiskLoadProcedure) next).getDataFormat();
+            if (format == LoadProcedure.DataFormat.JSON) {
+                new JdbcPipelineResult.JsonPipelineResult(
+                    new JdbcResultSetIterator<>(resultSet), path).run();
+            } else if (format == LoadProcedure.DataFormat.CSV) {
+                new JdbcPipelineResult.CsvPipelineResult(
+                    new JdbcResultSetIterator<>(resultSet), path).run();
+            } else {
+                String deliminator = format == LoadProcedure.DataFormat.DEFAULT ? "\t" : " ";
+                new JdbcPipelineResult.TextPipelineResult(
+                    new JdbcResultSetIterator<>(resultSet), path, deliminator).run();
+            }
+        } else {
+            new JdbcPipelineResult.ShowPipelineResult(
+                new JdbcResultSetIterator<>(resultSet)).run();
+        }
+    }
+
+    @Override
+    public PipelineResult show() {
+        return new JdbcPipelineResult.ShowPipelineResult(
+            new JdbcResultSetIterator<>(execute()));
+    }
+
+    @Override
+    public PipelineResult asTextFile(String clusterPath, String deliminator) {
+        return new JdbcPipelineResult.TextPipelineResult(
+            new JdbcResultSetIterator<>(execute()),
+            clusterPath, deliminator);
+    }
+
+    @Override
+    public PipelineResult asJsonFile(String clusterPath) {
+        return new JdbcPipelineResult.JsonPipelineResult(
+            new JdbcResultSetIterator<>(execute()),
+            clusterPath);
+    }
+
+    /**
+     * Write results as csv files with a header line.
+     *
+     * @param clusterPath directory of result files, local or on HDFS
+     * @return result which writes files when it runs
+     */
+    public PipelineResult asCsvFile(String clusterPath) {
+        return new JdbcPipelineResult.CsvPipelineResult(
+            new JdbcResultSetIterator<>(execute()),
+            clusterPath);
+    }
+
+    @Override
+    public AbstractPipeline asTempTable(String tempTableName) {
+        throw new QsqlException("Temporary table is not supported by local runner, please use Spark runner instead");
+    }
+
+    @Override
+    public void shutdown() {
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException ex) {
+            LOGGER.warn("Failed to close local connection", ex);
+        }
+    }
+
+    private ResultSet execute() {
+        try {
+            connection = createLocalConnection();
+            SchemaPlus rootSchema = connection.unwrap(CalciteConnection.class).getRootSchema();
+
+            Connection modelConnection = null;
+            long remaining = maxRows;
+            try {
+                for (QueryProcedure curr = procedure; curr instanceof ExtractProcedure; curr = curr.next()) {
+                    PreparedExtractProcedure extract = (PreparedExtractProcedure) curr;
+                    LocalTable table;
+                    if (extract instanceof PreparedExtractProcedure.MySqlExtractor) {
+                        try (Connection mysql = JdbcPipeline.createMySqlConnection(
+                            Maps.fromProperties(extract.getConnProperties()))) {
+                            table = extract(mysql, extract.toRecognizedQuery(), remaining);
+                        }
+                    } else {
+                        if (modelConnection == null) {
+                            modelConnection = JdbcPipeline.createElasticsearchConnection(schema);
+                        }
+                        table = extract(modelConnection, extract.toEmbeddedQuery(), remaining);
+                    }
+                    LOGGER.debug("Extracted {} rows as {}", table.size(), extract.getTableName());
+                    rootSchema.add(extract.getTableName(), table);
+                    remaining -= table.size();
+                }
+            } finally {
+                if (modelConnection != null) {
+                    modelConnection.close();
+                }
+            }
+
+            String sql = transformProcedure().sql(CalciteSqlDialect.DEFAULT);
+            LOGGER.debug("Transform sentence executed locally is: \n\t{}", sql);
+
+            statement = connection.createStatement();
+            statement.setMaxRows(Math.max(builder.getAcceptedResultsNum(), 0));
+            return statement.executeQuery(sql);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static LocalTable extract(Connection connection, String sql, long maxRows) throws SQLException {
+        LOGGER.debug("Extract sentence executed on data source is: \n\t{}", sql);
+        try (Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(sql)) {
+            return LocalTable.materialize(resultSet, maxRows);
+        }
+    }
+
+    private TransformProcedure transformProcedure() {
+        QueryProcedure curr = procedure;
+        while (curr instanceof ExtractProcedure) {
+            curr = curr.next();
+        }
+        return (TransformProcedure) curr;
+    }
+
+    private static Connection createLocalConnection() throws SQLException {
+        Properties info = new Properties();
+        //transform sql is generated by calcite dialect, which quotes every identifier by double quote
+        info.setProperty(CalciteConnectionProperty.LEX.camelName(), Lex.ORACLE.name());
+        info.setProperty(CalciteConnectionProperty.MATERIALIZATIONS_ENABLED.camelName(), Boolean.toString(false));
+        //tables in memory are registered into root schema, so the connection must not be shared
+        return new DirectConnectionProvider(info).getConnection(CALCITE_DRIVER, CALCITE_URL, info);
+    }
+
+    private static Properties properties(SqlRunner.Builder builder) {
+        Properties properties = new Properties(PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties"));
+        properties.putAll(builder.getRunnerProperties());
+        return properties;
+    }
+}
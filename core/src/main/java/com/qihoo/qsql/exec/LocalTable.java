@@ -0,0 +1,175 @@
+package com.qihoo.qsql.exec;
+
+import com.qihoo.qsql.exception.QsqlException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.runtime.SqlFunctions;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * Rows extracted by {@link LocalPipeline}, held in memory as a table of embedded calcite.
+ * <p>
+ * Values are kept in the internal representation of calcite, a date is the number of days since epoch and a timestamp
+ * is the number of milliseconds. Columns of types which calcite can not scan are read as strings.
+ * </p>
+ */
+class LocalTable extends AbstractTable implements ScannableTable {
+
+    private final List<Column> columns;
+    private final List<Object[]> rows;
+
+    LocalTable(List<Column> columns, List<Object[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Read all rows of a result set.
+     *
+     * @param resultSet result of an extract query
+     * @param maxRows max number of rows, more rows than it is an error
+     * @return table of rows
+     * @throws SQLException error when reading result set
+     */
+    static LocalTable materialize(ResultSet resultSet, long maxRows) throws SQLException {
+        ResultSetMetaData meta = resultSet.getMetaData();
+        List<Column> columns = new ArrayList<>(meta.getColumnCount());
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            columns.add(new Column(meta.getColumnLabel(i), typeOf(meta.getColumnType(i)),
+                meta.getPrecision(i), meta.getScale(i)));
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        while (resultSet.next()) {
+            if (rows.size() >= maxRows) {
+                throw new QsqlException("Rows extracted are more than " + maxRows
+                    + ", which is the limit of local runner. Please use Spark or Flink runner instead");
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = read(resultSet, i + 1, columns.get(i).type);
+            }
+            rows.add(row);
+        }
+        return new LocalTable(columns, rows);
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    @Override
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+        RelDataTypeFactory.Builder builder = typeFactory.builder();
+        int maxPrecision = typeFactory.getTypeSystem().getMaxNumericPrecision();
+        for (Column column : columns) {
+            if (column.type == SqlTypeName.DECIMAL && column.precision > 0) {
+                int precision = Math.min(column.precision, maxPrecision);
+                builder.add(column.name, column.type, precision, Math.min(column.scale, precision));
+            } else {
+                builder.add(column.name, column.type);
+            }
+            builder.nullable(true);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Enumerable<Object[]> scan(DataContext root) {
+        return Linq4j.asEnumerable(Collections.unmodifiableList(rows));
+    }
+
+    private static SqlTypeName typeOf(int jdbcType) {
+        SqlTypeName type = SqlTypeName.getNameForJdbcType(jdbcType);
+        if (type == null) {
+            return SqlTypeName.VARCHAR;
+        }
+        switch (type) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+                return SqlTypeName.INTEGER;
+            case FLOAT:
+            case REAL:
+            case DOUBLE:
+                return SqlTypeName.DOUBLE;
+            case BIGINT:
+            case DECIMAL:
+            case BOOLEAN:
+            case DATE:
+            case TIME:
+            case TIMESTAMP:
+                return type;
+            default:
+                return SqlTypeName.VARCHAR;
+        }
+    }
+
+    private static Object read(ResultSet resultSet, int index, SqlTypeName type) throws SQLException {
+        Object value;
+        switch (type) {
+            case INTEGER:
+                value = resultSet.getInt(index);
+                break;
+            case BIGINT:
+                value = resultSet.getLong(index);
+                break;
+            case DOUBLE:
+                value = resultSet.getDouble(index);
+                break;
+            case DECIMAL:
+                value = resultSet.getBigDecimal(index);
+                break;
+            case BOOLEAN:
+                value = resultSet.getBoolean(index);
+                break;
+            case DATE:
+                java.sql.Date date = resultSet.getDate(index);
+                value = date == null ? null : SqlFunctions.toInt(date);
+                break;
+            case TIME:
+                Time time = resultSet.getTime(index);
+                value = time == null ? null : SqlFunctions.toInt(time);
+                break;
+            case TIMESTAMP:
+                Timestamp timestamp = resultSet.getTimestamp(index);
+                value = timestamp == null ? null : SqlFunctions.toLong(timestamp);
+                break;
+            default:
+                value = resultSet.getString(index);
+                break;
+        }
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * Name and type of a column.
+     */
+    static class Column {
+
+        private final String name;
+        private final SqlTypeName type;
+        private final int precision;
+        private final int scale;
+
+        Column(String name, SqlTypeName type, int precision, int scale) {
+            this.name = name;
+            this.type = type;
+            this.precision = precision;
+            this.scale = scale;
+        }
+    }
+}
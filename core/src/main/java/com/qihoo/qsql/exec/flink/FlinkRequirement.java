@@ -1,5 +1,6 @@
 package com.qihoo.qsql.exec.flink;
 
+import com.qihoo.qsql.exec.BoundLiterals;
 import com.qihoo.qsql.exec.Requirement;
 import org.apache.flink.api.java.ExecutionEnvironment;
 import org.apache.flink.table.api.BatchTableEnvironment;
@@ -12,12 +13,23 @@ public abstract class FlinkRequirement implements Requirement {
 
     protected ExecutionEnvironment env;
     protected BatchTableEnvironment tableEnv;
+    private final String[] literals = BoundLiterals.current();
 
     protected FlinkRequirement(ExecutionEnvironment environment) {
         this.env = environment;
         this.tableEnv = TableEnvironment.getTableEnvironment(env);
     }
 
+    /**
+     * Get a literal of generated code.
+     *
+     * @param index index of literal in code
+     * @return literal
+     */
+    protected String literal(int index) {
+        return literals[index];
+    }
+
     /**
      * close method.
      */
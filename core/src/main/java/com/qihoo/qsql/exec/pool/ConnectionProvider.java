@@ -0,0 +1,33 @@
+package com.qihoo.qsql.exec.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Provide JDBC connections for queries executed by jdbc.
+ * <p>
+ * Implementations are chosen by {@code qsql.jdbc.connection.provider} in qsql-runner.properties and must have a
+ * public constructor accepting the runner {@link Properties}. Closing a connection returned by provider gives it back
+ * to provider.
+ * </p>
+ */
+public interface ConnectionProvider extends AutoCloseable {
+
+    /**
+     * Get a connection for given driver, url and connection properties.
+     *
+     * @param driver JDBC driver class name
+     * @param url JDBC url
+     * @param info connection properties, such as user, password or calcite model
+     * @return JDBC connection
+     * @throws SQLException if connection cannot be established
+     */
+    Connection getConnection(String driver, String url, Properties info) throws SQLException;
+
+    /**
+     * Release all resources held by provider.
+     */
+    @Override
+    void close();
+}
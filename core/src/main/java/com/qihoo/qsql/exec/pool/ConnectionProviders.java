@@ -0,0 +1,67 @@
+package com.qihoo.qsql.exec.pool;
+
+import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Properties;
+
+/**
+ * Hold the process-wide {@link ConnectionProvider}, configured by qsql-runner.properties.
+ */
+public class ConnectionProviders {
+
+    public static final String CONNECTION_PROVIDER = "qsql.jdbc.connection.provider";
+    public static final String POOL_MAX_TOTAL = "qsql.jdbc.pool.max.total";
+    public static final String POOL_MAX_WAIT_MILLIS = "qsql.jdbc.pool.max.wait.millis";
+    public static final String POOL_MIN_EVICTABLE_IDLE_MILLIS = "qsql.jdbc.pool.min.evictable.idle.millis";
+    public static final String POOL_EVICTION_INTERVAL_MILLIS = "qsql.jdbc.pool.eviction.interval.millis";
+    public static final String POOL_MAX_POOLS = "qsql.jdbc.pool.max.pools";
+
+    private static ConnectionProvider provider;
+
+    private ConnectionProviders() {
+    }
+
+    /**
+     * Get provider, create it from qsql-runner.properties at first time.
+     *
+     * @return connection provider
+     */
+    public static synchronized ConnectionProvider get() {
+        if (provider == null) {
+            provider = create(PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties"));
+        }
+        return provider;
+    }
+
+    /**
+     * Replace provider, the previous one is closed.
+     *
+     * @param newProvider connection provider
+     */
+    public static synchronized void set(ConnectionProvider newProvider) {
+        if (provider != null) {
+            provider.close();
+        }
+        provider = newProvider;
+    }
+
+    /**
+     * Create provider whose class is given by {@code qsql.jdbc.connection.provider}.
+     *
+     * @param properties runner properties
+     * @return connection provider
+     */
+    public static ConnectionProvider create(Properties properties) {
+        String className = properties.getProperty(CONNECTION_PROVIDER,
+            PooledConnectionProvider.class.getCanonicalName()).trim();
+        try {
+            return (ConnectionProvider) Class.forName(className)
+                .getConstructor(Properties.class)
+                .newInstance(properties);
+        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
+            | IllegalAccessException | InvocationTargetException | ClassCastException ex) {
+            throw new QsqlException("Failed in creating connection provider " + className, ex);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.qihoo.qsql.exec.pool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Provider which opens a new connection for each request, through {@link DriverManager}.
+ */
+public class DirectConnectionProvider implements ConnectionProvider {
+
+    public DirectConnectionProvider(Properties properties) {
+    }
+
+    @Override
+    public Connection getConnection(String driver, String url, Properties info) throws SQLException {
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException ex) {
+            throw new SQLException("JDBC driver " + driver + " is not found", ex);
+        }
+        return DriverManager.getConnection(url, info);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,107 @@
+package com.qihoo.qsql.exec.pool;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provider which keeps one bounded connection pool for each (driver, url, connection properties).
+ * <p>
+ * For MySQL the key is jdbcUrl and user, for calcite connections of Elasticsearch or csv it is the inline model, which
+ * is built from nodes, index and tables. Connections are validated on borrow and evicted after being idle for
+ * {@code qsql.jdbc.pool.min.evictable.idle.millis}. A pool which is not used for the same period is closed, and at most
+ * {@code qsql.jdbc.pool.max.pools} pools are kept.
+ * </p>
+ */
+public class PooledConnectionProvider implements ConnectionProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledConnectionProvider.class);
+
+    private final int maxTotal;
+    private final long maxWaitMillis;
+    private final long minEvictableIdleMillis;
+    private final long evictionIntervalMillis;
+    private final Cache<List<Object>, BasicDataSource> dataSources;
+
+    /**
+     * Create provider based on pool params in runner properties.
+     *
+     * @param properties runner properties
+     */
+    public PooledConnectionProvider(Properties properties) {
+        this.maxTotal = Integer.parseInt(
+            properties.getProperty(ConnectionProviders.POOL_MAX_TOTAL, "8").trim());
+        this.maxWaitMillis = Long.parseLong(
+            properties.getProperty(ConnectionProviders.POOL_MAX_WAIT_MILLIS, "30000").trim());
+        this.minEvictableIdleMillis = Long.parseLong(
+            properties.getProperty(ConnectionProviders.POOL_MIN_EVICTABLE_IDLE_MILLIS, "300000").trim());
+        this.evictionIntervalMillis = Long.parseLong(
+            properties.getProperty(ConnectionProviders.POOL_EVICTION_INTERVAL_MILLIS, "60000").trim());
+        long maxPools = Long.parseLong(
+            properties.getProperty(ConnectionProviders.POOL_MAX_POOLS, "64").trim());
+
+        this.dataSources = CacheBuilder.newBuilder()
+            .maximumSize(maxPools)
+            .expireAfterAccess(minEvictableIdleMillis, TimeUnit.MILLISECONDS)
+            .removalListener((RemovalListener<List<Object>, BasicDataSource>) notification ->
+                closeDataSource(notification.getValue()))
+            .build();
+    }
+
+    @Override
+    public Connection getConnection(String driver, String url, Properties info) throws SQLException {
+        Map<String, String> connectionProperties = new TreeMap<>();
+        info.stringPropertyNames().forEach(name -> connectionProperties.put(name, info.getProperty(name)));
+        List<Object> key = Arrays.asList(driver, url, connectionProperties);
+
+        try {
+            return dataSources.get(key, () -> createDataSource(driver, url, connectionProperties))
+                .getConnection();
+        } catch (ExecutionException ex) {
+            throw new SQLException("Failed in creating connection pool for " + url, ex.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        dataSources.invalidateAll();
+    }
+
+    private BasicDataSource createDataSource(String driver, String url, Map<String, String> connectionProperties) {
+        LOGGER.debug("Create connection pool for {}", url);
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(driver);
+        dataSource.setUrl(url);
+        connectionProperties.forEach(dataSource::addConnectionProperty);
+        dataSource.setMaxTotal(maxTotal);
+        dataSource.setMaxIdle(maxTotal);
+        dataSource.setMinIdle(0);
+        dataSource.setMaxWaitMillis(maxWaitMillis);
+        dataSource.setTestOnBorrow(true);
+        dataSource.setTestWhileIdle(true);
+        dataSource.setMinEvictableIdleTimeMillis(minEvictableIdleMillis);
+        dataSource.setTimeBetweenEvictionRunsMillis(evictionIntervalMillis);
+        return dataSource;
+    }
+
+    private static void closeDataSource(BasicDataSource dataSource) {
+        try {
+            //borrowed connections are closed when they are given back
+            dataSource.close();
+        } catch (SQLException ex) {
+            LOGGER.warn("Failed in closing connection pool for {}", dataSource.getUrl(), ex);
+        }
+    }
+}
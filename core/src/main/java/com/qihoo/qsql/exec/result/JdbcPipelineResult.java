@@ -1,6 +1,7 @@
 package com.qihoo.qsql.exec.result;
 
 import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -25,6 +26,31 @@ public abstract class JdbcPipelineResult implements PipelineResult {
         return results;
     }
 
+    /**
+     * Stream all rows into result files, and close iterator.
+     *
+     * @param path directory of result files
+     * @param format format of result files
+     */
+    void writeFiles(String path, RowFileFormat format) {
+        try (RowFileWriter writer = RowFileWriter.create(path, format)) {
+            while (iterator.hasNext()) {
+                writer.write((Object[]) iterator.next());
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed in writing results into " + path, ex);
+        } finally {
+            close();
+        }
+    }
+
+    String[] columnLabels() {
+        if (iterator instanceof JdbcResultSetIterator) {
+            return ((JdbcResultSetIterator) iterator).getColumnLabels();
+        }
+        return new String[0];
+    }
+
     void close() {
         try {
             iterator.close();
@@ -41,11 +67,27 @@ public abstract class JdbcPipelineResult implements PipelineResult {
 
         @Override
         public void run() {
-            if (! iterator.hasNext()) {
-                System.out.println("Empty set");
+            ResultSetPrinter printer = new ResultSetPrinter(System.out);
+            try {
+                long rows;
+                if (iterator instanceof JdbcResultSetIterator) {
+                    rows = printer.print(((JdbcResultSetIterator) iterator).getResultSet());
+                } else {
+                    rows = 0;
+                    while (iterator.hasNext()) {
+                        printer.print((Object[]) iterator.next());
+                        rows++;
+                    }
+                }
+                if (rows == 0) {
+                    printer.println("Empty set");
+                }
+                printer.flush();
+            } catch (IOException | SQLException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                close();
             }
-            iterator.forEachRemaining(result -> System.out.println(JdbcResultSetIterator.CONCAT_FUNC.apply(result)));
-            close();
         }
     }
 
@@ -73,9 +115,7 @@ public abstract class JdbcPipelineResult implements PipelineResult {
 
         @Override
         public void run() {
-            //NOT IMPLEMENT
-            super.iterator.forEachRemaining(result -> System.out.println(result.toString()));
-            close();
+            writeFiles(path, new RowFileFormat.Text(columnLabels(), deliminator));
         }
     }
 
@@ -90,9 +130,22 @@ public abstract class JdbcPipelineResult implements PipelineResult {
 
         @Override
         public void run() {
-            //NOT IMPLEMENT
-            super.iterator.forEachRemaining(result -> System.out.println(result.toString()));
-            close();
+            writeFiles(path, new RowFileFormat.Json(columnLabels()));
+        }
+    }
+
+    public static class CsvPipelineResult extends JdbcPipelineResult {
+
+        private String path;
+
+        public CsvPipelineResult(CloseableIterator<Object> iterator, String path) {
+            super(iterator);
+            this.path = path;
+        }
+
+        @Override
+        public void run() {
+            writeFiles(path, new RowFileFormat.Csv(columnLabels()));
         }
     }
 }
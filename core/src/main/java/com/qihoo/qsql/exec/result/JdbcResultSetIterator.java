@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -32,6 +33,31 @@ public class JdbcResultSetIterator<T> extends LookaheadIterator<T> {
         this.convert = new BasicRowProcessor();
     }
 
+    /**
+     * Get labels of columns in result.
+     *
+     * @return column labels
+     */
+    public String[] getColumnLabels() {
+        try {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            String[] labels = new String[metaData.getColumnCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+            }
+            return labels;
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Error reading from database", ex);
+        }
+    }
+
+    /**
+     * Get the result set being iterated, rows already loaded by {@link #hasNext()} are not in it any more.
+     */
+    ResultSet getResultSet() {
+        return resultSet;
+    }
+
     @Override
     protected T loadNext() {
         try {
@@ -0,0 +1,207 @@
+package com.qihoo.qsql.exec.result;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Print rows of a {@link ResultSet} as tab separated lines, in the same text as {@link
+ * JdbcResultSetIterator#CONCAT_FUNC}.
+ * <p>
+ * Columns are read by index with typed getters, numbers are appended without boxing and each line is formatted into
+ * one reused {@link StringBuilder}, whose chars are copied into a reused array and written through a large buffered
+ * writer. The writer is flushed when printing finishes, not for each row.
+ * </p>
+ */
+public class ResultSetPrinter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int FLOAT = 2;
+    private static final int DOUBLE = 3;
+    private static final int STRING = 4;
+    private static final int OBJECT = 5;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    /**
+     * Create printer which writes into stream with default charset.
+     *
+     * @param output stream, it is flushed but not closed
+     */
+    public ResultSetPrinter(OutputStream output) {
+        this(output, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create printer which writes into stream with default charset.
+     *
+     * @param output stream, it is flushed but not closed
+     * @param bufferSize chars buffered before writing into stream
+     */
+    public ResultSetPrinter(OutputStream output, int bufferSize) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, Charset.defaultCharset()), bufferSize);
+    }
+
+    /**
+     * Print all remaining rows of result set.
+     *
+     * @param resultSet result set, it is not closed
+     * @return number of printed rows
+     * @throws SQLException if result set can not be read
+     * @throws IOException if stream can not be written
+     */
+    public long print(ResultSet resultSet) throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int[] kinds = new int[metaData.getColumnCount()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = kindOf(metaData, i + 1);
+        }
+
+        long rows = 0;
+        while (resultSet.next()) {
+            line.setLength(0);
+            for (int i = 0; i < kinds.length; i++) {
+                if (i > 0) {
+                    line.append('\t');
+                }
+                appendColumn(resultSet, i + 1, kinds[i]);
+            }
+            line.append('\n');
+            writeLine();
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    /**
+     * Print a row which has been read already.
+     *
+     * @param row values of row
+     * @throws IOException if stream can not be written
+     */
+    public void print(Object[] row) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            line.append(row[i]);
+        }
+        line.append('\n');
+        writeLine();
+    }
+
+    /**
+     * Print a line of message.
+     *
+     * @param message message
+     * @throws IOException if stream can not be written
+     */
+    public void println(String message) throws IOException {
+        writer.write(message);
+        writer.write('\n');
+    }
+
+    /**
+     * Write buffered text into stream.
+     *
+     * @throws IOException if stream can not be written
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void appendColumn(ResultSet resultSet, int index, int kind) throws SQLException {
+        switch (kind) {
+            case INT: {
+                int value = resultSet.getInt(index);
+                if (resultSet.wasNull()) {
+                    line.append("null");
+                } else {
+                    line.append(value);
+                }
+                break;
+            }
+            case LONG: {
+                long value = resultSet.getLong(index);
+                if (resultSet.wasNull()) {
+                    line.append("null");
+                } else {
+                    line.append(value);
+                }
+                break;
+            }
+            case FLOAT: {
+                float value = resultSet.getFloat(index);
+                if (resultSet.wasNull()) {
+                    line.append("null");
+                } else {
+                    line.append(value);
+                }
+                break;
+            }
+            case DOUBLE: {
+                double value = resultSet.getDouble(index);
+                if (resultSet.wasNull()) {
+                    line.append("null");
+                } else {
+                    line.append(value);
+                }
+                break;
+            }
+            case STRING:
+                line.append(resultSet.getString(index));
+                break;
+            default:
+                line.append(resultSet.getObject(index));
+        }
+    }
+
+    private void writeLine() throws IOException {
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        line.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    private static int kindOf(ResultSetMetaData metaData, int index) throws SQLException {
+        switch (metaData.getColumnType(index)) {
+            case Types.SMALLINT:
+                return INT;
+            case Types.INTEGER:
+                return metaData.isSigned(index) ? INT : LONG;
+            case Types.BIGINT:
+                //unsigned bigint may overflow long
+                return metaData.isSigned(index) ? LONG : OBJECT;
+            case Types.REAL:
+                return FLOAT;
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            default:
+                //tinyint(1), bit, decimal and dates keep the text of their driver objects
+                return OBJECT;
+        }
+    }
+}
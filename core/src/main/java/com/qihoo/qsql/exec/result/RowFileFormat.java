@@ -0,0 +1,310 @@
+package com.qihoo.qsql.exec.result;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Encode rows of {@link JdbcResultSetIterator} as bytes of a file format.
+ * <p>
+ * An encoder is chosen for each column by the class of its values, once for the first value, so that rows are written
+ * without building intermediate strings. Integral numbers are written digit by digit and strings are escaped char by
+ * char into the buffer of {@link RowFileWriter}.
+ * </p>
+ */
+abstract class RowFileFormat {
+
+    private final String[] columns;
+    private Class<?>[] classes;
+    private ValueEncoder[] encoders;
+
+    RowFileFormat(String[] columns) {
+        this.columns = columns;
+    }
+
+    String[] getColumns() {
+        return columns;
+    }
+
+    abstract String extension();
+
+    /**
+     * Write head of a file, called once for each rolled file.
+     */
+    void begin(RowFileWriter writer) throws IOException {
+    }
+
+    abstract void write(RowFileWriter writer, Object[] row) throws IOException;
+
+    void writeValue(RowFileWriter writer, Object[] row, int index) throws IOException {
+        Object value = row[index];
+        if (value == null) {
+            writeNull(writer);
+            return;
+        }
+
+        if (encoders == null || encoders.length != row.length) {
+            classes = new Class<?>[row.length];
+            encoders = new ValueEncoder[row.length];
+        }
+        if (classes[index] != value.getClass()) {
+            classes[index] = value.getClass();
+            encoders[index] = encoder(value);
+        }
+        encoders[index].encode(writer, value);
+    }
+
+    abstract void writeNull(RowFileWriter writer) throws IOException;
+
+    abstract void writeText(RowFileWriter writer, CharSequence text) throws IOException;
+
+    ValueEncoder encoder(Object value) {
+        if (isIntegral(value)) {
+            return (writer, object) -> writer.writeLong(((Number) object).longValue());
+        }
+        if (value instanceof CharSequence) {
+            return (writer, object) -> writeText(writer, (CharSequence) object);
+        }
+        return (writer, object) -> writeText(writer, object.toString());
+    }
+
+    static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long
+            || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Write value of a column with the type it was chosen for.
+     */
+    interface ValueEncoder {
+
+        void encode(RowFileWriter writer, Object value) throws IOException;
+    }
+
+    /**
+     * Plain text, columns are split by deliminator and nulls are written as "null".
+     */
+    static class Text extends RowFileFormat {
+
+        private final String deliminator;
+
+        Text(String[] columns, String deliminator) {
+            super(columns);
+            this.deliminator = deliminator;
+        }
+
+        @Override
+        String extension() {
+            return ".txt";
+        }
+
+        @Override
+        void write(RowFileWriter writer, Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.writeChars(deliminator);
+                }
+                writeValue(writer, row, i);
+            }
+            writer.writeByte('\n');
+        }
+
+        @Override
+        void writeNull(RowFileWriter writer) throws IOException {
+            writer.writeAscii("null");
+        }
+
+        @Override
+        void writeText(RowFileWriter writer, CharSequence text) throws IOException {
+            writer.writeChars(text);
+        }
+    }
+
+    /**
+     * RFC 4180 csv with a header line, fields are quoted only if they contain separators, quotes or line breaks.
+     */
+    static class Csv extends RowFileFormat {
+
+        Csv(String[] columns) {
+            super(columns);
+        }
+
+        @Override
+        String extension() {
+            return ".csv";
+        }
+
+        @Override
+        void begin(RowFileWriter writer) throws IOException {
+            String[] columns = getColumns();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.writeByte(',');
+                }
+                writeText(writer, columns[i]);
+            }
+            writer.writeAscii("\r\n");
+        }
+
+        @Override
+        void write(RowFileWriter writer, Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.writeByte(',');
+                }
+                writeValue(writer, row, i);
+            }
+            writer.writeAscii("\r\n");
+        }
+
+        @Override
+        void writeNull(RowFileWriter writer) {
+            //empty field
+        }
+
+        @Override
+        void writeText(RowFileWriter writer, CharSequence text) throws IOException {
+            if (! needsQuote(text)) {
+                writer.writeChars(text);
+                return;
+            }
+            writer.writeByte('"');
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (ch == '"') {
+                    writer.writeByte('"');
+                }
+                writer.writeChar(ch);
+            }
+            writer.writeByte('"');
+        }
+
+        private static boolean needsQuote(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One json object in a line for each row, numbers and booleans are written unquoted.
+     */
+    static class Json extends RowFileFormat {
+
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final String[] keys;
+
+        Json(String[] columns) {
+            super(columns);
+            this.keys = new String[columns.length];
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < columns.length; i++) {
+                builder.setLength(0);
+                builder.append(i == 0 ? "{" : ",");
+                appendQuoted(builder, columns[i]);
+                keys[i] = builder.append(':').toString();
+            }
+        }
+
+        @Override
+        String extension() {
+            return ".json";
+        }
+
+        @Override
+        void write(RowFileWriter writer, Object[] row) throws IOException {
+            if (row.length == 0) {
+                writer.writeAscii("{}\n");
+                return;
+            }
+            for (int i = 0; i < row.length; i++) {
+                writer.writeChars(i < keys.length ? keys[i] : (i == 0 ? "{" : ",") + "\"_c" + i + "\":");
+                writeValue(writer, row, i);
+            }
+            writer.writeAscii("}\n");
+        }
+
+        @Override
+        ValueEncoder encoder(Object value) {
+            if (value instanceof Boolean || value instanceof BigDecimal
+                || value instanceof Float || value instanceof Double) {
+                return (writer, object) -> {
+                    if (isFinite(object)) {
+                        writer.writeAscii(object.toString());
+                    } else {
+                        writeText(writer, object.toString());
+                    }
+                };
+            }
+            return super.encoder(value);
+        }
+
+        @Override
+        void writeNull(RowFileWriter writer) throws IOException {
+            writer.writeAscii("null");
+        }
+
+        @Override
+        void writeText(RowFileWriter writer, CharSequence text) throws IOException {
+            writer.writeByte('"');
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                switch (ch) {
+                    case '"':
+                        writer.writeAscii("\\\"");
+                        break;
+                    case '\\':
+                        writer.writeAscii("\\\\");
+                        break;
+                    case '\n':
+                        writer.writeAscii("\\n");
+                        break;
+                    case '\r':
+                        writer.writeAscii("\\r");
+                        break;
+                    case '\t':
+                        writer.writeAscii("\\t");
+                        break;
+                    default:
+                        if (ch < 0x20) {
+                            writer.writeAscii("\\u00");
+                            writer.writeByte(HEX[ch >> 4]);
+                            writer.writeByte(HEX[ch & 0xF]);
+                        } else {
+                            writer.writeChar(ch);
+                        }
+                }
+            }
+            writer.writeByte('"');
+        }
+
+        private static boolean isFinite(Object value) {
+            if (value instanceof Double) {
+                return ! ((Double) value).isNaN() && ! ((Double) value).isInfinite();
+            }
+            if (value instanceof Float) {
+                return ! ((Float) value).isNaN() && ! ((Float) value).isInfinite();
+            }
+            return true;
+        }
+
+        private static void appendQuoted(StringBuilder builder, String text) {
+            builder.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (ch == '"' || ch == '\\') {
+                    builder.append('\\').append(ch);
+                } else if (ch < 0x20) {
+                    builder.append("\\u00").append(HEX[ch >> 4]).append(HEX[ch & 0xF]);
+                } else {
+                    builder.append(ch);
+                }
+            }
+            builder.append('"');
+        }
+    }
+}
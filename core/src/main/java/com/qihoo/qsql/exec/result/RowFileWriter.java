@@ -0,0 +1,319 @@
+package com.qihoo.qsql.exec.result;
+
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream rows encoded by {@link RowFileFormat} into files of a local or HDFS directory.
+ * <p>
+ * Bytes are encoded into one reusable buffer which is drained into a file channel, directly for uncompressed local
+ * files. Files are named {@code part-00000}, {@code part-00001}... and a new one is started once a file has taken
+ * {@code qsql.sink.roll.bytes} bytes before compression. Compression is chosen by {@code qsql.sink.compression}, gzip
+ * is built in and other names are looked up in the codecs of Hadoop 2.7, such as bzip2, deflate or snappy. zstd is
+ * not supported since that Hadoop has no zstd codec and no zstd library is shipped. Part files left in the
+ * directory by a previous export are removed.
+ * </p>
+ */
+class RowFileWriter implements Closeable {
+
+    static final String SINK_COMPRESSION = "qsql.sink.compression";
+    static final String SINK_ROLL_BYTES = "qsql.sink.roll.bytes";
+    static final String SINK_BUFFER_BYTES = "qsql.sink.buffer.bytes";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowFileWriter.class);
+    private static final long DEFAULT_ROLL_BYTES = 256L * 1024 * 1024;
+    private static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+    private static final int MIN_BUFFER_BYTES = 64;
+    private static final String PART_PREFIX = "part-";
+    private static final byte[] MIN_LONG = String.valueOf(Long.MIN_VALUE).getBytes();
+
+    private final String directory;
+    private final RowFileFormat format;
+    private final String compression;
+    private final long rollBytes;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+
+    private WritableByteChannel channel;
+    private long written;
+    private int part;
+    private boolean cleaned;
+    private char highSurrogate;
+
+    RowFileWriter(String directory, RowFileFormat format, Properties properties) {
+        if (directory == null || directory.trim().isEmpty()) {
+            throw new IllegalArgumentException("Path of result files is not given");
+        }
+        this.directory = directory;
+        this.format = format;
+        this.compression = properties.getProperty(SINK_COMPRESSION, "none").trim().toLowerCase(Locale.ROOT);
+        this.rollBytes = Long.parseLong(properties.getProperty(
+            SINK_ROLL_BYTES, String.valueOf(DEFAULT_ROLL_BYTES)).trim());
+        //a long or a char must always fit into an empty buffer
+        this.buffer = ByteBuffer.allocateDirect(Math.max(MIN_BUFFER_BYTES, Integer.parseInt(
+            properties.getProperty(SINK_BUFFER_BYTES, String.valueOf(DEFAULT_BUFFER_BYTES)).trim())));
+        //fail before the directory is touched rather than on the first row
+        extension();
+    }
+
+    /**
+     * Create writer configured by qsql-runner.properties.
+     */
+    static RowFileWriter create(String directory, RowFileFormat format) {
+        return new RowFileWriter(directory, format, PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties"));
+    }
+
+    /**
+     * Write a row, a new file is started after it if the current one is large enough.
+     */
+    void write(Object[] row) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        format.write(this, row);
+        if (rollBytes > 0 && written + buffer.position() >= rollBytes) {
+            closeFile();
+        }
+    }
+
+    void writeByte(int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            drain();
+        }
+        finishSurrogate();
+        buffer.put((byte) value);
+    }
+
+    void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            writeByte(text.charAt(i));
+        }
+    }
+
+    void writeChars(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            writeChar(text.charAt(i));
+        }
+        if (highSurrogate != 0) {
+            if (buffer.remaining() < 3) {
+                drain();
+            }
+            finishSurrogate();
+        }
+    }
+
+    /**
+     * Write a char as UTF-8, a surrogate pair is written once its low surrogate arrives. Unpaired surrogates are
+     * written as U+FFFD, so that the file is always valid UTF-8.
+     */
+    void writeChar(char ch) throws IOException {
+        if (buffer.remaining() < 7) {
+            drain();
+        }
+        if (! Character.isLowSurrogate(ch)) {
+            finishSurrogate();
+        }
+        if (ch < 0x80) {
+            buffer.put((byte) ch);
+        } else if (ch < 0x800) {
+            buffer.put((byte) (0xC0 | (ch >> 6)));
+            buffer.put((byte) (0x80 | (ch & 0x3F)));
+        } else if (Character.isHighSurrogate(ch)) {
+            highSurrogate = ch;
+        } else if (Character.isLowSurrogate(ch)) {
+            if (highSurrogate == 0) {
+                putReplacement();
+                return;
+            }
+            int codePoint = Character.toCodePoint(highSurrogate, ch);
+            highSurrogate = 0;
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else {
+            buffer.put((byte) (0xE0 | (ch >> 12)));
+            buffer.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (ch & 0x3F)));
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        if (buffer.remaining() < digits.length + 3) {
+            drain();
+        }
+        finishSurrogate();
+        if (value == Long.MIN_VALUE) {
+            buffer.put(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = - value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    /**
+     * Write a high surrogate which is not followed by its low surrogate as U+FFFD, needs 3 bytes of buffer.
+     */
+    private void finishSurrogate() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            putReplacement();
+        }
+    }
+
+    private void putReplacement() {
+        buffer.put((byte) 0xEF);
+        buffer.put((byte) 0xBF);
+        buffer.put((byte) 0xBD);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null && part == 0) {
+            //keep an empty file, so that the export can be told from a failed one
+            open();
+        }
+        closeFile();
+    }
+
+    private void open() throws IOException {
+        String name = PART_PREFIX + String.format("%05d", part++) + format.extension();
+        OutputStream raw;
+        if (! directory.contains("://") || directory.startsWith("file:")) {
+            Path dir = directory.startsWith("file:") ? Paths.get(URI.create(directory)) : Paths.get(directory);
+            if (! cleaned) {
+                Files.createDirectories(dir);
+                cleanLocal(dir);
+            }
+            FileChannel file = FileChannel.open(dir.resolve(name + extension()),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            if (isUncompressed()) {
+                channel = file;
+                written = 0;
+                format.begin(this);
+                return;
+            }
+            raw = Channels.newOutputStream(file);
+        } else {
+            FileSystem fs = FileSystem.get(URI.create(directory), new Configuration());
+            org.apache.hadoop.fs.Path dir = new org.apache.hadoop.fs.Path(directory);
+            if (! cleaned) {
+                cleanCluster(fs, dir);
+            }
+            raw = fs.create(new org.apache.hadoop.fs.Path(dir, name + extension()), true);
+        }
+        cleaned = true;
+
+        channel = Channels.newChannel(compress(raw));
+        written = 0;
+        format.begin(this);
+    }
+
+    private void closeFile() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            //closing the channel finishes the compressed stream
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private boolean isUncompressed() {
+        return compression.isEmpty() || "none".equals(compression);
+    }
+
+    private String extension() {
+        if (isUncompressed()) {
+            return "";
+        }
+        if ("gzip".equals(compression) || "gz".equals(compression)) {
+            return ".gz";
+        }
+        return codec().getDefaultExtension();
+    }
+
+    private OutputStream compress(OutputStream raw) throws IOException {
+        if (isUncompressed()) {
+            return raw;
+        }
+        if ("gzip".equals(compression) || "gz".equals(compression)) {
+            return new GZIPOutputStream(raw, buffer.capacity());
+        }
+        return codec().createOutputStream(raw);
+    }
+
+    private CompressionCodec codec() {
+        CompressionCodec codec = new CompressionCodecFactory(new Configuration()).getCodecByName(compression);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unsupported compression of result files: " + compression
+                + ", supported are none, gzip and the Hadoop codecs, such as bzip2, deflate or snappy");
+        }
+        return codec;
+    }
+
+    private void cleanLocal(Path dir) throws IOException {
+        cleaned = true;
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(dir, PART_PREFIX + "*")) {
+            for (Path path : parts) {
+                LOGGER.debug("Remove result file {} of previous export", path);
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void cleanCluster(FileSystem fs, org.apache.hadoop.fs.Path dir) throws IOException {
+        cleaned = true;
+        if (! fs.exists(dir)) {
+            return;
+        }
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (status.getPath().getName().startsWith(PART_PREFIX)) {
+                LOGGER.debug("Remove result file {} of previous export", status.getPath());
+                fs.delete(status.getPath(), false);
+            }
+        }
+    }
+}
@@ -1,19 +1,64 @@
 package com.qihoo.qsql.exec.spark;
 
+import com.qihoo.qsql.exec.BoundLiterals;
 import com.qihoo.qsql.exec.Requirement;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.fs.Path;
 import org.apache.spark.sql.SparkSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Build and close Spark environment needed.
  */
 public abstract class SparkRequirement implements Requirement {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SparkRequirement.class);
+
     protected SparkSession spark;
+    private final String[] literals = BoundLiterals.current();
+    private final List<String> temporaryPaths = new ArrayList<>();
 
     protected SparkRequirement(SparkSession sparkSession) {
         this.spark = sparkSession;
     }
 
+    /**
+     * Get a literal of generated code.
+     *
+     * @param index index of literal in code
+     * @return literal
+     */
+    protected String literal(int index) {
+        return literals[index];
+    }
+
+    /**
+     * Register a path of temporary files written by generated code, it is deleted when execution finishes.
+     *
+     * @param path local or HDFS path
+     */
+    protected void deleteAfterExecution(String path) {
+        temporaryPaths.add(path);
+    }
+
+    /**
+     * Delete temporary files registered during execution, called by generated code whether it succeeds or not.
+     */
+    protected void deleteTemporaryPaths() {
+        for (String path : temporaryPaths) {
+            Path temporary = new Path(path);
+            try {
+                temporary.getFileSystem(spark.sparkContext().hadoopConfiguration()).delete(temporary, true);
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot delete temporary path {}", path, ex);
+            }
+        }
+        temporaryPaths.clear();
+    }
+
     /**
      * close method.
      */
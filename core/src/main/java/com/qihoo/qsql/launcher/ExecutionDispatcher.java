@@ -7,8 +7,8 @@ import com.qihoo.qsql.exception.EmptyMetadataException;
 import com.qihoo.qsql.exception.QsqlException;
 import com.qihoo.qsql.exec.AbstractPipeline;
 import com.qihoo.qsql.exec.JdbcPipeline;
-import com.qihoo.qsql.exec.result.CloseableIterator;
-import com.qihoo.qsql.exec.result.JdbcResultSetIterator;
+import com.qihoo.qsql.exec.LocalPipeline;
+import com.qihoo.qsql.exec.result.ResultSetPrinter;
 import com.qihoo.qsql.launcher.OptionsParser.SubmitOption;
 import com.qihoo.qsql.metadata.MetadataMapping;
 import com.qihoo.qsql.metadata.MetadataPostman;
@@ -24,6 +24,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.PropertyConfigurator;
@@ -73,17 +74,33 @@ public class ExecutionDispatcher {
             return;
         }
 
-        String schema = loadSchemaForTables(tableNames);
-        QueryProcedure procedure = new QueryProcedureProducer(schema).createQueryProcedure(sql);
-
+        List<SchemaAssembler> assemblers = loadSchemaForTables(tableNames);
         SqlRunner sqlRunner = SqlRunner.builder()
             .setAcceptedResultsNum(100)
             .setTransformRunner(RunnerType.value(runner)).ok();
-        AbstractPipeline pipeline = ((DynamicSqlRunner) sqlRunner).chooseAdaptPipeline(procedure);
+
+        QueryProcedure procedure;
+        AbstractPipeline pipeline;
+        if (assemblers.isEmpty()) {
+            procedure = new QueryProcedureProducer(JdbcPipeline.CSV_DEFAULT_SCHEMA).createQueryProcedure(sql);
+            pipeline = ((DynamicSqlRunner) sqlRunner).chooseAdaptPipeline(procedure,
+                JdbcPipeline.CSV_DEFAULT_SCHEMA);
+        } else {
+            procedure = new QueryProcedureProducer(assemblers).createQueryProcedure(sql);
+            pipeline = ((DynamicSqlRunner) sqlRunner).chooseAdaptPipeline(procedure, assemblers);
+        }
+        if (pipeline instanceof LocalPipeline) {
+            LOGGER.info("It's a small mixed query, execute it locally...");
+            try {
+                pipeline.run();
+            } finally {
+                pipeline.shutdown();
+            }
+            System.out.printf("(%.2f sec)\n", ((double) (System.currentTimeMillis() - latestTime) / 1000));
+            return;
+        }
         if (pipeline instanceof JdbcPipeline && isPointedToExecuteByJdbc(runner)) {
-            try (Connection connection = JdbcPipeline.createSpecificConnection(
-                //TODO retrieve metadata repeatedly, should be optimized
-                MetadataPostman.getAssembledSchema(tableNames))) {
+            try (Connection connection = JdbcPipeline.createSpecificConnection(assemblers)) {
                 executeJdbcQuery(connection, sql);
                 System.out.printf("(%.2f sec)", ((double) (System.currentTimeMillis() - latestTime) / 1000));
                 return;
@@ -129,13 +146,12 @@ public class ExecutionDispatcher {
     private static void executeJdbcQuery(Connection connection, String sql) {
         LOGGER.info("Jdbc connection has established, the result set is flying to you.");
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            ResultSet resultSet = statement.executeQuery();
-            try (CloseableIterator<Object> iterator = new JdbcResultSetIterator<>(resultSet)) {
-                if (! iterator.hasNext()) {
-                    System.out.println("[Empty Set]");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetPrinter printer = new ResultSetPrinter(System.out);
+                if (printer.print(resultSet) == 0) {
+                    printer.println("[Empty Set]");
+                    printer.flush();
                 }
-                iterator.forEachRemaining(result ->
-                    System.out.println(JdbcResultSetIterator.CONCAT_FUNC.apply(result)));
             } catch (IOException ex) {
                 throw new RuntimeException(ex);
             }
@@ -161,16 +177,16 @@ public class ExecutionDispatcher {
         return tableNames.isEmpty();
     }
 
-    private static String loadSchemaForTables(List<String> tableNames) {
+    private static List<SchemaAssembler> loadSchemaForTables(List<String> tableNames) {
         if (tableNames.size() >= 1) {
-            String schema = MetadataPostman.getCalciteModelSchema(tableNames);
-            if (schema.isEmpty()) {
+            List<SchemaAssembler> assemblers = MetadataPostman.getAssembledSchema(tableNames);
+            if (assemblers.isEmpty()) {
                 throw new EmptyMetadataException("Table names [" + tableNames + "] cannot fetch metadata from "
                     + "metadata storage");
             }
-            return "inline: " + schema;
+            return assemblers;
         } else {
-            return JdbcPipeline.CSV_DEFAULT_SCHEMA;
+            return Collections.emptyList();
         }
     }
 
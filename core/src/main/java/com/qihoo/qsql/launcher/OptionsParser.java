@@ -52,6 +52,20 @@ public class OptionsParser {
         }
     }
 
+    /**
+     * Check whether an option is left to its default value.
+     *
+     * @param option Option which need to be query
+     * @return true if the option is not given, empty or equal to its default value
+     */
+    public boolean isDefault(SubmitOption option) {
+        if (! commandLine.hasOption(option.key)) {
+            return true;
+        }
+        String value = commandLine.getOptionValue(option.key);
+        return value == null || value.isEmpty() || value.equals(option.value);
+    }
+
 
     public enum SubmitOption {
         CLASS_NAME("class_name", "", null, null),
@@ -5,13 +5,24 @@ import com.qihoo.qsql.exec.AbstractPipeline;
 import com.qihoo.qsql.exec.Compilable;
 import com.qihoo.qsql.exec.flink.FlinkPipeline;
 import com.qihoo.qsql.exec.spark.SparkPipeline;
+import com.qihoo.qsql.launcher.OptionsParser.SubmitOption;
+import com.qihoo.qsql.launcher.SparkJobProtocol.JobRequest;
 import com.qihoo.qsql.utils.PropertiesReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
 import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.PumpStreamHandler;
@@ -98,6 +109,64 @@ public abstract class ProcessExecClient {
             super(pipeline, parser);
         }
 
+        /**
+         * Run on {@link SparkJobServer} if {@code qsql.spark.server.port} is set and the server is up, otherwise
+         * start a new Spark application. A new application is also started if the query gives extra jars or Spark
+         * options other than the defaults, since the server has neither and cannot change its own.
+         *
+         * @return result output stream
+         */
+        @Override
+        public OutputStream exec() {
+            Properties properties = PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties");
+            int port = serverPort(properties);
+            if (port <= 0) {
+                return super.exec();
+            }
+            if (! runsOnServer()) {
+                LOGGER.info("Query gives extra jars or Spark options, start a new Spark application");
+                return super.exec();
+            }
+
+            byte[] secret;
+            try {
+                secret = SparkJobProtocol.readSecret(SparkJobServer.secretFile(properties));
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot read secret of QSQL spark server, start a new Spark application", ex);
+                return super.exec();
+            }
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                LOGGER.info("Submit job to QSQL spark server on port {}", port);
+                SparkJobProtocol.writeRequest(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())),
+                    secret, new JobRequest(className(), source(), "QSQL-" + className()));
+                SparkJobProtocol.readResult(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                    System.out);
+                return System.out;
+            } catch (ConnectException ex) {
+                LOGGER.warn("QSQL spark server is not running on port {}, start a new Spark application", port);
+                return super.exec();
+            } catch (IOException ex) {
+                throw new QsqlException("Failed in running job on QSQL spark server", ex);
+            }
+        }
+
+        private boolean runsOnServer() {
+            return Stream.of(SubmitOption.JAR, SubmitOption.MASTER_MODE, SubmitOption.WORKER_MEMORY,
+                SubmitOption.DRIVER_MEMORY, SubmitOption.WORKER_NUM, SubmitOption.APP_NAME)
+                .allMatch(parser::isDefault);
+        }
+
+        private static int serverPort(Properties properties) {
+            String port = properties.getProperty(SparkJobServer.SERVER_PORT, "0").trim();
+            try {
+                return Integer.parseInt(port);
+            } catch (NumberFormatException ex) {
+                LOGGER.warn("{} is not a port: {}, start a new Spark application", SparkJobServer.SERVER_PORT, port);
+                return 0;
+            }
+        }
+
         @Override
         protected String submit() {
             String sparkDir = System.getenv("SPARK_HOME");
@@ -1,11 +1,6 @@
 package com.qihoo.qsql.launcher;
 
-import com.github.picadoh.imc.compiler.InMemoryCompiler.CompilerException;
-import com.qihoo.qsql.codegen.ClassBodyWrapper;
-import com.qihoo.qsql.exec.flink.FlinkRequirement;
-import com.qihoo.qsql.exec.spark.SparkRequirement;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import com.qihoo.qsql.codegen.RequirementClassCache;
 import java.util.Base64;
 import java.util.UUID;
 import org.apache.commons.cli.CommandLine;
@@ -73,45 +68,24 @@ public class ProcessExecutor {
         executor.execute(source, className, runner, appName, extraJars);
     }
 
-    @SuppressWarnings("unchecked")
     private void execute(String source, String className, String runner, String appName, String extraJars) {
-        Class requirementClass;
-        try {
-            requirementClass = ClassBodyWrapper.compileSourceAndLoadClass(
-                source, className, extraJars.replaceAll(",", System.getProperty("path.separator")));
-        } catch (CompilerException | ClassNotFoundException ex) {
-            throw new RuntimeException(ex);
-        }
+        RequirementClassCache.CompiledRequirement requirement = RequirementClassCache.load(
+            source, className, extraJars.replaceAll(",", System.getProperty("path.separator")));
 
         switch (runner.toUpperCase()) {
             case "DYNAMIC":
             case "SPARK":
-                try {
-                    final Constructor<SparkRequirement> constructor =
-                        ((Class<SparkRequirement>) requirementClass).getConstructor(SparkSession.class);
-                    SparkSession sc = SparkSession.builder()
-                        .appName(appName)
-                        .enableHiveSupport()
-                        .getOrCreate();
+                SparkSession sc = SparkSession.builder()
+                    .appName(appName)
+                    .enableHiveSupport()
+                    .getOrCreate();
 
-                    constructor.newInstance(sc).execute();
-                    sc.stop();
-                } catch (NoSuchMethodException | IllegalAccessException
-                    | InvocationTargetException | InstantiationException ex) {
-                    throw new RuntimeException(ex);
-                }
+                requirement.newInstance(SparkSession.class, sc).execute();
+                sc.stop();
                 break;
             case "FLINK":
-                try {
-                    final Constructor<FlinkRequirement> constructor =
-                        ((Class<FlinkRequirement>) requirementClass).getConstructor(ExecutionEnvironment.class);
-
-                    ExecutionEnvironment executionEnvironment = ExecutionEnvironment.getExecutionEnvironment();
-                    constructor.newInstance(executionEnvironment).execute();
-                } catch (NoSuchMethodException | IllegalAccessException
-                    | InvocationTargetException | InstantiationException ex) {
-                    throw new RuntimeException(ex);
-                }
+                ExecutionEnvironment executionEnvironment = ExecutionEnvironment.getExecutionEnvironment();
+                requirement.newInstance(ExecutionEnvironment.class, executionEnvironment).execute();
                 break;
             default:
         }
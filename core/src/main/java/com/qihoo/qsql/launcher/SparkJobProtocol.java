@@ -0,0 +1,244 @@
+package com.qihoo.qsql.launcher;
+
+import com.qihoo.qsql.exception.QsqlException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Set;
+
+/**
+ * Messages between {@link ProcessExecClient} and {@link SparkJobServer}.
+ * <p>
+ * A client sends one request for each connection, which holds generated code of a requirement. The server answers
+ * with output frames, whatever the job prints to console, and ends with a done or failed frame. Strings and frames are
+ * prefixed by their length, so that code and output of any size can be sent.
+ * </p>
+ * <p>
+ * Each request starts with a shared secret, which the server creates in a file readable by its owner only. Requests
+ * without it are rejected before anything is compiled, so only users who can read the file can run code on the
+ * server.
+ * </p>
+ */
+final class SparkJobProtocol {
+
+    static final int MAGIC = 0x5153514C;
+    static final byte OUTPUT = 1;
+    static final byte DONE = 2;
+    static final byte FAILED = 3;
+    static final int MAX_STRING_BYTES = 64 * 1024 * 1024;
+
+    private static final int MAX_SECRET_BYTES = 1024;
+    private static final int SECRET_BYTES = 32;
+    private static final Set<PosixFilePermission> OWNER_READ_WRITE = PosixFilePermissions.fromString("rw-------");
+
+    private SparkJobProtocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, byte[] secret, JobRequest request) throws IOException {
+        out.writeInt(MAGIC);
+        writeBytes(out, secret);
+        writeString(out, request.className);
+        writeString(out, request.appName);
+        writeString(out, request.source);
+        out.flush();
+    }
+
+    static JobRequest readRequest(DataInputStream in, byte[] secret) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a request of QSQL spark job");
+        }
+        if (! MessageDigest.isEqual(secret, readBytes(in, MAX_SECRET_BYTES))) {
+            throw new IOException("Request of QSQL spark job is not authenticated");
+        }
+        String className = readString(in);
+        String appName = readString(in);
+        return new JobRequest(className, readString(in), appName);
+    }
+
+    static void writeFrame(DataOutputStream out, byte kind, byte[] bytes, int offset, int length)
+        throws IOException {
+        out.writeByte(kind);
+        out.writeInt(length);
+        out.write(bytes, offset, length);
+    }
+
+    static void writeDone(DataOutputStream out) throws IOException {
+        out.writeByte(DONE);
+        out.writeInt(0);
+        out.flush();
+    }
+
+    static void writeFailure(DataOutputStream out, String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        writeFrame(out, FAILED, bytes, 0, bytes.length);
+        out.flush();
+    }
+
+    /**
+     * Copy output of a job until it finishes.
+     *
+     * @param in stream from server
+     * @param output stream job output is copied to
+     * @throws IOException if connection is broken
+     * @throws QsqlException if job failed
+     */
+    static void readResult(DataInputStream in, OutputStream output) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            byte kind = in.readByte();
+            int length = in.readInt();
+            switch (kind) {
+                case OUTPUT:
+                    while (length > 0) {
+                        int read = Math.min(length, buffer.length);
+                        in.readFully(buffer, 0, read);
+                        output.write(buffer, 0, read);
+                        length -= read;
+                    }
+                    break;
+                case DONE:
+                    output.flush();
+                    return;
+                case FAILED:
+                    output.flush();
+                    byte[] message = new byte[checkLength(length, MAX_STRING_BYTES)];
+                    in.readFully(message);
+                    throw new QsqlException("Spark job failed on QSQL spark server: "
+                        + new String(message, StandardCharsets.UTF_8));
+                default:
+                    throw new IOException("Unknown frame " + kind + " from QSQL spark server");
+            }
+        }
+    }
+
+    /**
+     * Read shared secret of server, the file must not be accessible by other users.
+     *
+     * @param file secret file
+     * @return secret
+     * @throws IOException if file can not be read or is accessible by other users
+     */
+    static byte[] readSecret(Path file) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+            && ! OWNER_READ_WRITE.containsAll(Files.getPosixFilePermissions(file))) {
+            throw new IOException(file + " should be readable and writable by its owner only");
+        }
+        byte[] secret = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim()
+            .getBytes(StandardCharsets.UTF_8);
+        if (secret.length == 0) {
+            throw new IOException(file + " is empty");
+        }
+        return secret;
+    }
+
+    /**
+     * Read shared secret of server, or create a random one if file does not exist.
+     *
+     * @param file secret file
+     * @return secret
+     * @throws IOException if file can not be read or written
+     */
+    static byte[] createSecret(Path file) throws IOException {
+        if (Files.exists(file)) {
+            return readSecret(file);
+        }
+        byte[] random = new byte[SECRET_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder secret = new StringBuilder(random.length * 2);
+        for (byte value : random) {
+            secret.append(String.format("%02x", value));
+        }
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_READ_WRITE));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, secret.toString().getBytes(StandardCharsets.UTF_8));
+        return readSecret(file);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in, MAX_STRING_BYTES), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        byte[] bytes = new byte[checkLength(in.readInt(), maxLength)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int checkLength(int length, int maxLength) throws IOException {
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Illegal length " + length + " in message of QSQL spark job");
+        }
+        return length;
+    }
+
+    /**
+     * Generated code of a requirement to run.
+     */
+    static class JobRequest {
+
+        final String className;
+        final String source;
+        final String appName;
+
+        JobRequest(String className, String source, String appName) {
+            this.className = className;
+            this.source = source;
+            this.appName = appName;
+        }
+    }
+
+    /**
+     * Send bytes written by a job as output frames.
+     */
+    static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[] {(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > 0) {
+                writeFrame(out, OUTPUT, bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
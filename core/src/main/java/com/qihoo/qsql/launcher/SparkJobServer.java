@@ -0,0 +1,260 @@
+package com.qihoo.qsql.launcher;
+
+import com.qihoo.qsql.codegen.RequirementClassCache;
+import com.qihoo.qsql.launcher.SparkJobProtocol.FrameOutputStream;
+import com.qihoo.qsql.launcher.SparkJobProtocol.JobRequest;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.spark.sql.SparkSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Console;
+import scala.runtime.AbstractFunction0;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Long-running Spark driver which executes requirements sent by {@link ProcessExecClient}, instead of starting a new
+ * Spark application for each query.
+ * <p>
+ * The server keeps one {@link SparkSession} with Hive support, so executors and the metastore connection are reused,
+ * and listens on {@code qsql.spark.server.port} of the loopback address. Each job runs in a new session sharing the
+ * Spark context, so temp views of concurrent jobs do not clash, and in its own fair scheduler pool. Console output of a
+ * job, such as {@code Dataset.show()}, is streamed back to its client.
+ * </p>
+ * <p>
+ * Start it by {@code bin/qsql-spark-server}, with the same qsql-runner.properties as clients. On start it creates
+ * {@code qsql.spark.server.secret.file}, conf/spark-server.secret by default, readable by its owner only, and rejects
+ * requests which do not carry its content.
+ * </p>
+ */
+public class SparkJobServer implements Closeable {
+
+    public static final String SERVER_PORT = "qsql.spark.server.port";
+    public static final String SERVER_THREADS = "qsql.spark.server.threads";
+    public static final String SERVER_SECRET_FILE = "qsql.spark.server.secret.file";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SparkJobServer.class);
+    private static final int DEFAULT_THREADS = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<OutputStream> JOB_OUTPUT = new ThreadLocal<>();
+
+    private final SparkSession spark;
+    private final ServerSocket serverSocket;
+    private final ExecutorService jobs;
+    private final AtomicLong jobId = new AtomicLong();
+    private final byte[] secret;
+
+    SparkJobServer(SparkSession spark, int port, int threads, byte[] secret) throws IOException {
+        this.spark = spark;
+        this.secret = secret.clone();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.jobs = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicLong threadId = new AtomicLong();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "qsql-spark-job-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start server and serve until process is killed.
+     *
+     * @param args no use
+     * @throws IOException if port can not be listened
+     */
+    public static void main(String[] args) throws IOException {
+        Properties properties = PropertiesReader.readProperties("qsql-runner.properties");
+        int port = Integer.parseInt(properties.getProperty(SERVER_PORT, "0").trim());
+        if (port <= 0) {
+            throw new IllegalArgumentException(SERVER_PORT + " should be set in qsql-runner.properties");
+        }
+        int threads = Integer.parseInt(properties.getProperty(
+            SERVER_THREADS, String.valueOf(DEFAULT_THREADS)).trim());
+        byte[] secret = SparkJobProtocol.createSecret(secretFile(properties));
+
+        SparkSession spark = SparkSession.builder()
+            .appName("QSQL-Spark-Server")
+            .config("spark.scheduler.mode", "FAIR")
+            .enableHiveSupport()
+            .getOrCreate();
+        try (SparkJobServer server = new SparkJobServer(spark, port, threads, secret)) {
+            LOGGER.info("QSQL spark server is listening on port {}", server.getPort());
+            server.serve();
+        } finally {
+            spark.stop();
+        }
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Get path of the secret shared by server and clients.
+     *
+     * @param properties qsql-runner.properties
+     * @return secret file
+     */
+    static Path secretFile(Properties properties) {
+        String file = properties.getProperty(SERVER_SECRET_FILE, "").trim();
+        return file.isEmpty() ? Paths.get(PropertiesReader.getConfFilePath(), "spark-server.secret") : Paths.get(file);
+    }
+
+    /**
+     * Accept jobs until server is closed.
+     */
+    void serve() throws IOException {
+        routeStandardOutput();
+        while (! serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException ex) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw ex;
+            }
+            jobs.execute(() -> handle(socket));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        jobs.shutdown();
+        try {
+            jobs.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(Socket socket) {
+        long id = jobId.incrementAndGet();
+        try (Socket connection = socket;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(connection.getOutputStream(), BUFFER_SIZE))) {
+            JobRequest request = SparkJobProtocol.readRequest(in, secret);
+            LOGGER.info("Start job {} of {}", id, request.appName);
+            OutputStream output = new BufferedOutputStream(new FrameOutputStream(out), BUFFER_SIZE);
+            JOB_OUTPUT.set(output);
+            try {
+                Console.withOut(output, new AbstractFunction0<BoxedUnit>() {
+                    @Override
+                    public BoxedUnit apply() {
+                        runJob(request, "qsql_job_" + id);
+                        return BoxedUnit.UNIT;
+                    }
+                });
+                System.out.flush();
+                output.flush();
+                SparkJobProtocol.writeDone(out);
+                LOGGER.info("Job {} finished", id);
+            } catch (RuntimeException | Error ex) {
+                LOGGER.warn("Job {} failed", id, ex);
+                output.flush();
+                StringWriter trace = new StringWriter();
+                ex.printStackTrace(new PrintWriter(trace));
+                SparkJobProtocol.writeFailure(out, trace.toString());
+            } finally {
+                JOB_OUTPUT.remove();
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Connection of job {} is broken", id, ex);
+        }
+    }
+
+    /**
+     * Run a requirement in a new session and a scheduler pool of its own.
+     *
+     * @param request generated code
+     * @param pool name of scheduler pool and job group
+     */
+    void runJob(JobRequest request, String pool) {
+        SparkSession session = spark.newSession();
+        session.sparkContext().setLocalProperty("spark.scheduler.pool", pool);
+        session.sparkContext().setJobGroup(pool, request.appName, true);
+        try {
+            //requirement is not closed, which would stop the shared context, and clients with extra jars
+            //start their own application, so none are added to the classpath
+            RequirementClassCache.load(request.source, request.className, "")
+                .newInstance(SparkSession.class, session)
+                .execute();
+        } finally {
+            session.sparkContext().clearJobGroup();
+            session.sparkContext().setLocalProperty("spark.scheduler.pool", null);
+        }
+    }
+
+    private static synchronized void routeStandardOutput() {
+        if (System.out instanceof RoutedPrintStream) {
+            return;
+        }
+        System.setOut(new RoutedPrintStream(System.out));
+    }
+
+    /**
+     * Send what a job thread prints to its client, and other output to the original console.
+     */
+    private static class RoutedPrintStream extends PrintStream {
+
+        RoutedPrintStream(PrintStream console) {
+            super(new OutputStream() {
+                @Override
+                public void write(int value) throws IOException {
+                    OutputStream output = JOB_OUTPUT.get();
+                    if (output == null) {
+                        console.write(value);
+                    } else {
+                        output.write(value);
+                    }
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    OutputStream output = JOB_OUTPUT.get();
+                    if (output == null) {
+                        console.write(bytes, offset, length);
+                    } else {
+                        output.write(bytes, offset, length);
+                    }
+                }
+
+                @Override
+                public void flush() {
+                    //job output is flushed once its job finishes
+                    if (JOB_OUTPUT.get() == null) {
+                        console.flush();
+                    }
+                }
+            }, true);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.qihoo.qsql.metadata;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.calcite.adapter.elasticsearch.ElasticsearchMetadataCache;
+
+/**
+ * Process-wide cache of {@link SchemaAssembler} keyed by (db, table).
+ * <p>
+ * Entries expire after {@code meta.cache.expire.seconds} and the cache holds at most {@code meta.cache.max.size}
+ * tables. Every write through {@link MetadataClient} or {@link com.qihoo.qsql.metadata.extern.MetadataTool}
+ * invalidates the whole cache, because a new table may make a short table name ambiguous. Changes made by other
+ * processes become visible once the entries expire.
+ * </p>
+ * <p>
+ * Each invalidation also bumps {@link #version()}, so that caches derived from metadata, such as plans, can tell
+ * that their entries are stale.
+ * </p>
+ */
+public class MetadataCache {
+
+    private static final long DEFAULT_EXPIRE_SECONDS = 300L;
+    private static final long DEFAULT_MAX_SIZE = 1024L;
+
+    private static final Cache<String, SchemaAssembler> CACHE;
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    static {
+        //plans may be cached by processes which are given a schema and never read metadata
+        Properties properties = PropertiesReader.readPropertiesOrEmpty("metadata.properties");
+        long expireSeconds = Long.parseLong(properties.getProperty(
+            MetadataParams.META_CACHE_EXPIRE_SECONDS, String.valueOf(DEFAULT_EXPIRE_SECONDS)).trim());
+        long maxSize = Long.parseLong(properties.getProperty(
+            MetadataParams.META_CACHE_MAX_SIZE, String.valueOf(DEFAULT_MAX_SIZE)).trim());
+
+        CACHE = CacheBuilder.newBuilder()
+            .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+            .maximumSize(maxSize)
+            .build();
+    }
+
+    private MetadataCache() {
+    }
+
+    /**
+     * Get cached schema of table.
+     *
+     * @param dbName Database name, empty if sql does not specify it
+     * @param tableName Table name
+     * @return cached SchemaAssembler, or null if absent
+     */
+    static SchemaAssembler get(String dbName, String tableName) {
+        return CACHE.getIfPresent(key(dbName, tableName));
+    }
+
+    static void put(String dbName, String tableName, SchemaAssembler assembler) {
+        CACHE.put(key(dbName, tableName), assembler);
+    }
+
+    /**
+     * Drop all cached schemas and Elasticsearch cluster metadata, called after metadata is modified.
+     */
+    public static void invalidateAll() {
+        VERSION.incrementAndGet();
+        CACHE.invalidateAll();
+        ElasticsearchMetadataCache.invalidateAll();
+    }
+
+    /**
+     * Get version of metadata seen by this process, it changes whenever metadata is modified.
+     *
+     * @return metadata version
+     */
+    public static long version() {
+        return VERSION.get();
+    }
+
+    private static String key(String dbName, String tableName) {
+        return dbName + "." + tableName;
+    }
+}
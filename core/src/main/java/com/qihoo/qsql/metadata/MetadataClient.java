@@ -1,30 +1,43 @@
 package com.qihoo.qsql.metadata;
 
+import com.qihoo.qsql.metadata.entity.ColumnStatsValue;
 import com.qihoo.qsql.metadata.entity.ColumnValue;
 import com.qihoo.qsql.metadata.entity.DatabaseParamValue;
 import com.qihoo.qsql.metadata.entity.DatabaseValue;
+import com.qihoo.qsql.metadata.entity.TableStatsValue;
 import com.qihoo.qsql.metadata.entity.TableValue;
 import com.qihoo.qsql.metadata.utils.MetaConnectionUtil;
 import com.qihoo.qsql.utils.PropertiesReader;
-import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import javax.sql.DataSource;
 
 /**
  * Provide methods to fetch data from metastore.
+ * <p>
+ * Connections are borrowed from a process-wide pool and given back on {@link #close()}. All statements are
+ * parameterized, so that the pool can reuse them on the same connection.
+ * </p>
  */
 public class MetadataClient implements AutoCloseable {
 
     private static Properties properties;
+    private static DataSource dataSource;
 
     static {
         properties = PropertiesReader.readProperties("metadata.properties");
+        dataSource = MetaConnectionUtil.createPooledDataSource(properties);
     }
 
     private Connection connection;
@@ -35,7 +48,11 @@ public class MetadataClient implements AutoCloseable {
      * @throws SQLException sql exception
      */
     public MetadataClient() throws SQLException {
-        this.connection = createConnection();
+        this(dataSource.getConnection());
+    }
+
+    MetadataClient(Connection connection) {
+        this.connection = connection;
     }
 
     /**
@@ -45,8 +62,9 @@ public class MetadataClient implements AutoCloseable {
      */
     public DatabaseValue getBasicDatabaseInfoById(Long dbId) {
         DatabaseValue databaseValue = null;
-        String sql = String.format("select DB_ID,NAME,DB_TYPE from DBS where DB_ID ='%d'", dbId);
+        String sql = "select DB_ID,NAME,DB_TYPE from DBS where DB_ID = ?";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, dbId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet != null && resultSet.next()) {
                     databaseValue = new DatabaseValue();
@@ -68,8 +86,9 @@ public class MetadataClient implements AutoCloseable {
      */
     public DatabaseValue getBasicDatabaseInfo(String databaseName) {
         DatabaseValue databaseValue = null;
-        String sql = String.format("select DB_ID, `DESC`, NAME,DB_TYPE from DBS where name ='%s'", databaseName);
+        String sql = "select DB_ID, `DESC`, NAME,DB_TYPE from DBS where name = ?";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, databaseName);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet != null && resultSet.next()) {
                     databaseValue = new DatabaseValue();
@@ -90,10 +109,13 @@ public class MetadataClient implements AutoCloseable {
      * @param value data value
      */
     public void insertBasicDatabaseInfo(DatabaseValue value) {
-        String sql = String.format("INSERT INTO DBS(NAME, DB_TYPE, `DESC`) VALUES('%s', '%s', '%s')",
-            value.getName(), value.getDbType(), value.getDesc());
+        String sql = "INSERT INTO DBS(NAME, DB_TYPE, `DESC`) VALUES(?, ?, ?)";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, value.getName());
+            preparedStatement.setString(2, value.getDbType());
+            preparedStatement.setString(3, value.getDesc());
             preparedStatement.execute();
+            MetadataCache.invalidateAll();
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -106,13 +128,16 @@ public class MetadataClient implements AutoCloseable {
     public void insertDatabaseSchema(List<DatabaseParamValue> values) {
         values.removeIf(value -> value.getParamKey().contains("dbName")
             || value.getParamKey().contains("tableName"));
-        String waitedForInsert = values.stream().map(value ->
-            "(" + value.getDbId() + ", '" + value.getParamKey() + "', '" + value.getParamValue() + "')")
-            .reduce((left, right) -> left + ", " + right).orElse("()");
-        String sql = String.format("INSERT INTO DATABASE_PARAMS(DB_ID, PARAM_KEY, PARAM_VALUE) VALUES %s",
-                waitedForInsert);
+        String sql = "INSERT INTO DATABASE_PARAMS(DB_ID, PARAM_KEY, PARAM_VALUE) VALUES(?, ?, ?)";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            preparedStatement.execute();
+            for (DatabaseParamValue value : values) {
+                preparedStatement.setLong(1, value.getDbId());
+                preparedStatement.setString(2, value.getParamKey());
+                preparedStatement.setString(3, value.getParamValue());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            MetadataCache.invalidateAll();
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -125,8 +150,9 @@ public class MetadataClient implements AutoCloseable {
      */
     public List<DatabaseParamValue> getDatabaseSchema(Long databaseId) {
         List<DatabaseParamValue> databaseParams = new ArrayList<>();
-        String sql = String.format("select PARAM_KEY,PARAM_VALUE from DATABASE_PARAMS where DB_ID='%d'", databaseId);
+        String sql = "select PARAM_KEY,PARAM_VALUE from DATABASE_PARAMS where DB_ID = ?";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, databaseId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet != null) {
                     while (resultSet.next()) {
@@ -149,10 +175,12 @@ public class MetadataClient implements AutoCloseable {
      * @param value data value
      */
     public void insertTableSchema(TableValue value) {
-        String sql = String.format("INSERT INTO TBLS(DB_ID, TBL_NAME) VALUES(%s, '%s')",
-            value.getDbId(), value.getTblName());
+        String sql = "INSERT INTO TBLS(DB_ID, TBL_NAME) VALUES(?, ?)";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, value.getDbId());
+            preparedStatement.setString(2, value.getTblName());
             preparedStatement.execute();
+            MetadataCache.invalidateAll();
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -165,8 +193,9 @@ public class MetadataClient implements AutoCloseable {
      */
     public List<TableValue> getTableSchema(String tableName) {
         List<TableValue> tbls = new ArrayList<>();
-        String sql = String.format("select DB_ID,TBL_ID,TBL_NAME from TBLS where TBL_NAME='%s'", tableName);
+        String sql = "select DB_ID,TBL_ID,TBL_NAME from TBLS where TBL_NAME = ?";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, tableName);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet != null) {
                     while (resultSet.next()) {
@@ -189,16 +218,18 @@ public class MetadataClient implements AutoCloseable {
      * @param columns data value
      */
     public void insertFieldsSchema(List<ColumnValue> columns) {
-        String waitedForInsert = columns.stream().map(value ->
-            "(" + value.getCdId() + ",'"
-                + value.getColumnName() + "','"
-                + value.getTypeName() + "', "
-                + (columns.indexOf(value) + 1) + ")")
-            .reduce((left, right) -> left + ", " + right).orElse("()");
-        String sql = String.format(
-            "INSERT INTO COLUMNS(CD_ID, COLUMN_NAME,TYPE_NAME,INTEGER_IDX) VALUES %s", waitedForInsert);
+        String sql = "INSERT INTO COLUMNS(CD_ID, COLUMN_NAME,TYPE_NAME,INTEGER_IDX) VALUES(?, ?, ?, ?)";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            preparedStatement.execute();
+            for (int i = 0; i < columns.size(); i++) {
+                ColumnValue value = columns.get(i);
+                preparedStatement.setLong(1, value.getCdId());
+                preparedStatement.setString(2, value.getColumnName());
+                preparedStatement.setString(3, value.getTypeName());
+                preparedStatement.setInt(4, i + 1);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            MetadataCache.invalidateAll();
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -211,10 +242,9 @@ public class MetadataClient implements AutoCloseable {
      */
     public List<ColumnValue> getFieldsSchema(Long tableId) {
         List<ColumnValue> columns = new ArrayList<>();
-        String sql = String.format(""
-            + "SELECT COLUMN_NAME,TYPE_NAME,INTEGER_IDX FROM COLUMNS WHERE CD_ID='%s' ORDER BY "
-            + "INTEGER_IDX", tableId);
+        String sql = "SELECT COLUMN_NAME,TYPE_NAME,INTEGER_IDX FROM COLUMNS WHERE CD_ID = ? ORDER BY INTEGER_IDX";
         try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setLong(1, tableId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet != null) {
                     while (resultSet.next()) {
@@ -232,21 +262,240 @@ public class MetadataClient implements AutoCloseable {
         }
     }
 
-    private Connection createConnection() throws SQLException {
-        if (! MetaConnectionUtil.isEmbeddedDatabase(properties)) {
-            MetaConnectionUtil.getExternalConnection(properties);
+    /**
+     * Fetch tables with given names together with the databases they belong to in one query.
+     *
+     * @param tableNames table names
+     * @return pairs of table value and its database value
+     */
+    public List<SimpleImmutableEntry<TableValue, DatabaseValue>> getTableSchemasWithDatabase(
+        Collection<String> tableNames) {
+        List<SimpleImmutableEntry<TableValue, DatabaseValue>> tables = new ArrayList<>();
+        if (tableNames.isEmpty()) {
+            return tables;
         }
 
-        try {
-            Class.forName("org.sqlite.JDBC");
-            return DriverManager.getConnection("jdbc:sqlite://"
-                + new File(properties.getProperty(MetadataParams.META_INTERN_SCHEMA_DIR, "../sqlite/schema.db"))
-                .getAbsolutePath());
-        } catch (ClassNotFoundException | SQLException ex) {
+        String sql = "SELECT t.DB_ID, t.TBL_ID, t.TBL_NAME, d.NAME, d.DB_TYPE FROM TBLS t "
+            + "JOIN DBS d ON t.DB_ID = d.DB_ID WHERE t.TBL_NAME IN (" + placeholders(tableNames.size()) + ")";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            bindParameters(preparedStatement, tableNames);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    TableValue tbl = new TableValue();
+                    tbl.setDbId(resultSet.getLong("DB_ID"));
+                    tbl.setTblId(resultSet.getLong("TBL_ID"));
+                    tbl.setTblName(resultSet.getString("TBL_NAME"));
+
+                    DatabaseValue databaseValue = new DatabaseValue();
+                    databaseValue.setDbId(tbl.getDbId());
+                    databaseValue.setName(resultSet.getString("NAME"));
+                    databaseValue.setDbType(resultSet.getString("DB_TYPE"));
+                    tables.add(new SimpleImmutableEntry<>(tbl, databaseValue));
+                }
+            }
+            return tables;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Fetch params of several databases in one query.
+     *
+     * @param databaseIds database ids
+     * @return database params grouped by database id
+     */
+    public Map<Long, List<DatabaseParamValue>> getDatabaseSchemas(Collection<Long> databaseIds) {
+        Map<Long, List<DatabaseParamValue>> databaseParams = new HashMap<>();
+        if (databaseIds.isEmpty()) {
+            return databaseParams;
+        }
+
+        String sql = "SELECT DB_ID, PARAM_KEY, PARAM_VALUE FROM DATABASE_PARAMS WHERE DB_ID IN ("
+            + placeholders(databaseIds.size()) + ")";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            bindParameters(preparedStatement, databaseIds);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    DatabaseParamValue databaseParam = new DatabaseParamValue();
+                    databaseParam.setDbId(resultSet.getLong("DB_ID"));
+                    databaseParam.setParamKey(resultSet.getString("PARAM_KEY"));
+                    databaseParam.setParamValue(resultSet.getString("PARAM_VALUE"));
+                    databaseParams.computeIfAbsent(databaseParam.getDbId(), id -> new ArrayList<>())
+                        .add(databaseParam);
+                }
+            }
+            return databaseParams;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Fetch columns of several tables in one query.
+     *
+     * @param tableIds table ids
+     * @return columns ordered by INTEGER_IDX and grouped by table id
+     */
+    public Map<Long, List<ColumnValue>> getFieldsSchemas(Collection<Long> tableIds) {
+        Map<Long, List<ColumnValue>> columns = new HashMap<>();
+        if (tableIds.isEmpty()) {
+            return columns;
+        }
+
+        String sql = "SELECT CD_ID, COLUMN_NAME, TYPE_NAME, INTEGER_IDX FROM COLUMNS WHERE CD_ID IN ("
+            + placeholders(tableIds.size()) + ") ORDER BY CD_ID, INTEGER_IDX";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            bindParameters(preparedStatement, tableIds);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    ColumnValue column = new ColumnValue();
+                    column.setCdId(resultSet.getLong("CD_ID"));
+                    column.setColumnName(resultSet.getString("COLUMN_NAME"));
+                    column.setTypeName(resultSet.getString("TYPE_NAME"));
+                    column.setIntegerIdx(resultSet.getInt("INTEGER_IDX"));
+                    columns.computeIfAbsent(column.getCdId(), id -> new ArrayList<>()).add(column);
+                }
+            }
+            return columns;
+        } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Fetch statistics of several tables in one query.
+     *
+     * @param tableIds table ids
+     * @return statistics of analyzed tables by table id
+     */
+    public Map<Long, TableStatsValue> getTableStatistics(Collection<Long> tableIds) {
+        Map<Long, TableStatsValue> statistics = new HashMap<>();
+        if (tableIds.isEmpty()) {
+            return statistics;
+        }
+
+        String sql = "SELECT TBL_ID, ROW_COUNT, TOTAL_SIZE, ANALYZED_TIME FROM TABLE_STATS WHERE TBL_ID IN ("
+            + placeholders(tableIds.size()) + ")";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            bindParameters(preparedStatement, tableIds);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    TableStatsValue value = new TableStatsValue();
+                    value.setTblId(resultSet.getLong("TBL_ID"));
+                    value.setRowCount(getNullableLong(resultSet, "ROW_COUNT"));
+                    value.setTotalSize(getNullableLong(resultSet, "TOTAL_SIZE"));
+                    value.setAnalyzedTime(resultSet.getString("ANALYZED_TIME"));
+                    statistics.put(value.getTblId(), value);
+                }
+            }
+            return statistics;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Fetch column statistics of several tables in one query.
+     *
+     * @param tableIds table ids
+     * @return column statistics grouped by table id
+     */
+    public Map<Long, List<ColumnStatsValue>> getColumnStatistics(Collection<Long> tableIds) {
+        Map<Long, List<ColumnStatsValue>> statistics = new HashMap<>();
+        if (tableIds.isEmpty()) {
+            return statistics;
+        }
+
+        String sql = "SELECT CD_ID, COLUMN_NAME, NUM_DISTINCTS, NUM_NULLS, IS_UNIQUE FROM COLUMN_STATS "
+            + "WHERE CD_ID IN ("
+            + placeholders(tableIds.size()) + ")";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            bindParameters(preparedStatement, tableIds);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    ColumnStatsValue value = new ColumnStatsValue();
+                    value.setCdId(resultSet.getLong("CD_ID"));
+                    value.setColumnName(resultSet.getString("COLUMN_NAME"));
+                    value.setNumDistincts(getNullableLong(resultSet, "NUM_DISTINCTS"));
+                    value.setNumNulls(getNullableLong(resultSet, "NUM_NULLS"));
+                    value.setUnique(resultSet.getInt("IS_UNIQUE") != 0);
+                    statistics.computeIfAbsent(value.getCdId(), id -> new ArrayList<>()).add(value);
+                }
+            }
+            return statistics;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Replace statistics of a table and its columns with newly collected ones.
+     *
+     * @param table table statistics
+     * @param columns column statistics of the same table
+     */
+    public void replaceStatistics(TableStatsValue table, List<ColumnStatsValue> columns) {
+        try (PreparedStatement deleteTable = connection.prepareStatement(
+                "DELETE FROM TABLE_STATS WHERE TBL_ID = ?");
+            PreparedStatement deleteColumns = connection.prepareStatement(
+                "DELETE FROM COLUMN_STATS WHERE CD_ID = ?");
+            PreparedStatement insertTable = connection.prepareStatement(
+                "INSERT INTO TABLE_STATS(TBL_ID, ROW_COUNT, TOTAL_SIZE) VALUES(?, ?, ?)");
+            PreparedStatement insertColumns = connection.prepareStatement(
+                "INSERT INTO COLUMN_STATS(CD_ID, COLUMN_NAME, NUM_DISTINCTS, NUM_NULLS, IS_UNIQUE) "
+                    + "VALUES(?, ?, ?, ?, ?)")) {
+            deleteTable.setLong(1, table.getTblId());
+            deleteTable.execute();
+            deleteColumns.setLong(1, table.getTblId());
+            deleteColumns.execute();
+
+            insertTable.setLong(1, table.getTblId());
+            setNullableLong(insertTable, 2, table.getRowCount());
+            setNullableLong(insertTable, 3, table.getTotalSize());
+            insertTable.execute();
+
+            for (ColumnStatsValue column : columns) {
+                insertColumns.setLong(1, table.getTblId());
+                insertColumns.setString(2, column.getColumnName());
+                setNullableLong(insertColumns, 3, column.getNumDistincts());
+                setNullableLong(insertColumns, 4, column.getNumNulls());
+                insertColumns.setInt(5, column.isUnique() ? 1 : 0);
+                insertColumns.addBatch();
+            }
+            if (! columns.isEmpty()) {
+                insertColumns.executeBatch();
+            }
+            MetadataCache.invalidateAll();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static Long getNullableLong(ResultSet resultSet, String column) throws SQLException {
+        long value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static void setNullableLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bindParameters(PreparedStatement statement, Collection<?> values) throws SQLException {
+        int index = 1;
+        for (Object value : values) {
+            statement.setObject(index++, value);
+        }
+    }
+
     public void setAutoCommit(boolean flag) throws SQLException {
         connection.setAutoCommit(flag);
     }
@@ -260,7 +509,7 @@ public class MetadataClient implements AutoCloseable {
     }
 
     /**
-     * close resource.
+     * close resource, pooled connection is given back to pool.
      */
     public void close() {
         try {
@@ -15,7 +15,8 @@ public enum MetadataMapping {
         "org.apache.calcite.adapter.elasticsearch.ElasticsearchTableFactory",
         Arrays.asList(
             "dbName", "tableName", "esNodes", "esPort",
-            "esUser", "esPass", "esIndex", "esScrollNum"),
+            "esUser", "esPass", "esIndex", "esScrollNum", "esScanParallelism", "esScrollKeepAlive",
+            "rowCount", "totalSize", "columnNdv"),
         Collections.singletonList(new SimpleImmutableEntry<>("esIndex", "dbName%/%tableName"))),
     /**
      * use '%' and literal 'value' to complete mapping.
@@ -24,14 +25,17 @@ public enum MetadataMapping {
         "org.apache.calcite.adapter.mysql.MySQLTableFactory",
         Arrays.asList(
             "dbName", "tableName", "jdbcDriver",
-            "jdbcUrl", "jdbcUser", "jdbcPassword"),
+            "jdbcUrl", "jdbcUser", "jdbcPassword",
+            "jdbcPartitionColumn", "jdbcPartitionNum", "jdbcFetchSize",
+            "rowCount", "totalSize", "columnNdv", "uniqueColumns"),
         Collections.emptyList()
         ),
 
     Hive("org.apache.calcite.adapter.hive.HiveSchemaFactory",
         "org.apache.calcite.adapter.hive.HiveTableFactory",
         Arrays.asList(
-            "dbName", "tableName", "cluster"),
+            "dbName", "tableName", "cluster",
+            "rowCount", "totalSize", "columnNdv"),
         Collections.emptyList());
 
     private static final String JOINT_FLAG = "%";
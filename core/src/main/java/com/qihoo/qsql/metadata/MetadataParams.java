@@ -11,5 +11,11 @@ public class MetadataParams {
     public static final String META_EXTERN_SCHEMA_URL = "meta.extern.schema.url";
     public static final String META_EXTERN_SCHEMA_USER = "meta.extern.schema.user";
     public static final String META_EXTERN_SCHEMA_PASSWORD = "meta.extern.schema.password";
+    public static final String META_CACHE_EXPIRE_SECONDS = "meta.cache.expire.seconds";
+    public static final String META_CACHE_MAX_SIZE = "meta.cache.max.size";
+    public static final String META_POOL_MAX_TOTAL = "meta.pool.max.total";
+    public static final String META_POOL_MAX_WAIT_MILLIS = "meta.pool.max.wait.millis";
+    public static final String META_POOL_MAX_STATEMENTS = "meta.pool.max.statements";
+    public static final String META_POOL_EVICTION_INTERVAL_MILLIS = "meta.pool.eviction.interval.millis";
 
 }
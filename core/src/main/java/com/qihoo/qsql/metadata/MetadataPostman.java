@@ -1,18 +1,24 @@
 package com.qihoo.qsql.metadata;
 
 import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.metadata.entity.ColumnStatsValue;
 import com.qihoo.qsql.metadata.entity.ColumnValue;
 import com.qihoo.qsql.metadata.entity.DatabaseParamValue;
 import com.qihoo.qsql.metadata.entity.DatabaseValue;
+import com.qihoo.qsql.metadata.entity.TableStatsValue;
 import com.qihoo.qsql.metadata.entity.TableValue;
 import java.sql.SQLException;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import org.apache.calcite.model.JsonRoot;
+import org.apache.calcite.schema.impl.OperandStatistic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,29 +33,45 @@ public class MetadataPostman {
     }
 
     /**
-     * Fetching metadata from metadata store based on table names.
+     * Fetching metadata from metadata store based on table names. Tables which are not cached are fetched together
+     * in one batch.
      *
      * @param identifiers Table names
      * @return List of SchemaAssembler
      */
     public static List<SchemaAssembler> getAssembledSchema(List<String> identifiers) {
-        return identifiers.stream()
+        List<String[]> names = identifiers.stream()
             .map(identifier -> {
-                String[] names = identifier.split("\\.");
-                MetadataFetcher fetcher;
-                switch (names.length) {
+                String[] parts = identifier.split("\\.");
+                switch (parts.length) {
                     case 1:
-                        fetcher = new MetadataFetcher("", names[0]);
-                        break;
+                        return new String[] {"", parts[0]};
                     case 2:
-                        fetcher = new MetadataFetcher(names[0], names[1]);
-                        break;
+                        return parts;
                     default:
                         throw new QsqlException("Error sql identifier " + identifier);
                 }
-                return fetcher.transformSchemaFormat();
             })
             .collect(Collectors.toList());
+
+        Map<String, SchemaAssembler> resolved = new HashMap<>();
+        List<String[]> missing = new ArrayList<>();
+        names.forEach(name -> {
+            SchemaAssembler cached = MetadataCache.get(name[0], name[1]);
+            if (cached == null) {
+                missing.add(name);
+            } else {
+                resolved.put(name[0] + "." + name[1], cached);
+            }
+        });
+
+        if (! missing.isEmpty()) {
+            resolved.putAll(new MetadataFetcher(missing).transformSchemaFormat());
+        }
+
+        return names.stream()
+            .map(name -> resolved.get(name[0] + "." + name[1]).copy())
+            .collect(Collectors.toList());
     }
 
     /**
@@ -64,82 +86,161 @@ public class MetadataPostman {
         return assembleSchema(assembledSchema);
     }
 
+    /**
+     * Assemble schemas of tables as Json, which is read by calcite from an inline model. It is also a readable dump of
+     * metadata.
+     *
+     * @param assemblers List of SchemaAssembler
+     * @return Json of model, empty if there is no table
+     */
     public static String assembleSchema(List<SchemaAssembler> assemblers) {
         return MetadataWrapper.assembleSchema(assemblers);
     }
 
     /**
-     * Fetch metadata.
+     * Assemble schemas of tables as a model, which is handled by calcite without being written as Json and read
+     * again.
+     *
+     * @param assemblers List of SchemaAssembler
+     * @return model of tables
+     */
+    public static JsonRoot assembleModel(List<SchemaAssembler> assemblers) {
+        return MetadataWrapper.assembleModel(assemblers);
+    }
+
+    /**
+     * Fetch metadata of several tables in one batch.
      */
     private static class MetadataFetcher {
 
-        private String dbName;
-        private String tableName;
+        private List<String[]> names;
 
-        MetadataFetcher(String dbName, String tableName) {
-            this.dbName = dbName;
-            this.tableName = tableName;
+        MetadataFetcher(List<String[]> names) {
+            this.names = names;
         }
 
-        private SchemaAssembler transformSchemaFormat() {
-            Map<String, String> calciteProperties = new HashMap<>();
+        private Map<String, SchemaAssembler> transformSchemaFormat() {
             try (MetadataClient client = new MetadataClient()) {
-                List<TableValue> values = client.getTableSchema(tableName);
-
-                TableValue theUniqueTable;
-                List<DatabaseParamValue> params;
-                DatabaseValue databaseValue;
-                if (values.size() > 1) {
-                    if (dbName.isEmpty()) {
-                        throw new RuntimeException("Metadata for table '" + tableName
-                            + "' is ambiguous!, please add concrete database name");
-                    }
+                List<SimpleImmutableEntry<TableValue, DatabaseValue>> candidates =
+                    client.getTableSchemasWithDatabase(
+                        names.stream().map(name -> name[1]).collect(Collectors.toSet()));
+
+                Map<String, SimpleImmutableEntry<TableValue, DatabaseValue>> uniqueTables = new HashMap<>();
+                names.forEach(name -> uniqueTables.put(name[0] + "." + name[1],
+                    findUniqueTable(name[0], name[1], candidates)));
+
+                Map<Long, List<DatabaseParamValue>> params = client.getDatabaseSchemas(
+                    uniqueTables.values().stream().map(table -> table.getKey().getDbId())
+                        .collect(Collectors.toSet()));
+                Set<Long> tableIds = uniqueTables.values().stream().map(table -> table.getKey().getTblId())
+                    .collect(Collectors.toSet());
+                Map<Long, List<ColumnValue>> columns = client.getFieldsSchemas(tableIds);
+                Map<Long, TableStatsValue> tableStats = new HashMap<>();
+                Map<Long, List<ColumnStatsValue>> columnStats = new HashMap<>();
+                try {
+                    tableStats = client.getTableStatistics(tableIds);
+                    columnStats = client.getColumnStatistics(tableIds);
+                } catch (RuntimeException ex) {
+                    //metastore created by an older version has no statistics tables
+                    LOGGER.debug("Cannot read statistics of tables from metastore", ex);
+                }
 
-                    databaseValue = client.getBasicDatabaseInfo(dbName);
-                    if (databaseValue == null) {
-                        throw new RuntimeException("The database '" + dbName + "' was not found");
-                    }
+                Map<Long, TableStatsValue> finalTableStats = tableStats;
+                Map<Long, List<ColumnStatsValue>> finalColumnStats = columnStats;
+                Map<String, SchemaAssembler> assemblers = new HashMap<>();
+                names.forEach(name -> {
+                    SimpleImmutableEntry<TableValue, DatabaseValue> table =
+                        uniqueTables.get(name[0] + "." + name[1]);
+                    SchemaAssembler assembler = assemble(table.getKey(), table.getValue(),
+                        params.getOrDefault(table.getKey().getDbId(), Collections.emptyList()),
+                        columns.getOrDefault(table.getKey().getTblId(), Collections.emptyList()));
+                    completeStatistics(assembler.getConnectionProperties(),
+                        finalTableStats.get(table.getKey().getTblId()),
+                        finalColumnStats.getOrDefault(table.getKey().getTblId(), Collections.emptyList()));
+                    MetadataCache.put(name[0], name[1], assembler);
+                    assemblers.put(name[0] + "." + name[1], assembler);
+                });
+                return assemblers;
+            } catch (SQLException se) {
+                throw new RuntimeException(se);
+            }
+        }
 
-                    Long dbId = databaseValue.getDbId();
-                    theUniqueTable = values.stream().filter(table -> table.getDbId().equals(dbId))
-                        .findFirst().orElseThrow(() -> new RuntimeException(
-                            "The table '" + tableName + "' for given database '" + dbName + "' was not found"));
-                    params = client.getDatabaseSchema(dbId);
-                } else if (values.size() == 1) {
-                    theUniqueTable = values.get(0);
-                    Long dbId = theUniqueTable.getDbId();
-                    databaseValue = client.getBasicDatabaseInfoById(dbId);
-
-                    if (databaseValue == null) {
-                        throw new RuntimeException("The database '" + dbName + "' was not found");
-                    }
+        /**
+         * Put statistics into the properties of table, which are passed to calcite by table operand.
+         */
+        private void completeStatistics(Map<String, String> properties, TableStatsValue tableStats,
+            List<ColumnStatsValue> columnStats) {
+            if (tableStats != null && tableStats.getRowCount() != null) {
+                properties.put(OperandStatistic.ROW_COUNT, String.valueOf(tableStats.getRowCount()));
+            }
+            if (tableStats != null && tableStats.getTotalSize() != null) {
+                properties.put(OperandStatistic.TOTAL_SIZE, String.valueOf(tableStats.getTotalSize()));
+            }
+            //names are separated by comma in operand, a column whose name contains comma can not be passed
+            List<ColumnStatsValue> passable = columnStats.stream()
+                .filter(column -> ! column.getColumnName().contains(","))
+                .collect(Collectors.toList());
+            String columnNdv = passable.stream()
+                .filter(column -> column.getNumDistincts() != null)
+                .map(column -> column.getColumnName() + ":" + column.getNumDistincts())
+                .collect(Collectors.joining(","));
+            if (! columnNdv.isEmpty()) {
+                properties.put(OperandStatistic.COLUMN_NDV, columnNdv);
+            }
+            String uniqueColumns = passable.stream()
+                .filter(ColumnStatsValue::isUnique)
+                .map(ColumnStatsValue::getColumnName)
+                .collect(Collectors.joining(","));
+            if (! uniqueColumns.isEmpty()) {
+                properties.put(OperandStatistic.UNIQUE_COLUMNS, uniqueColumns);
+            }
+        }
+
+        private SimpleImmutableEntry<TableValue, DatabaseValue> findUniqueTable(String dbName, String tableName,
+            List<SimpleImmutableEntry<TableValue, DatabaseValue>> candidates) {
+            List<SimpleImmutableEntry<TableValue, DatabaseValue>> values = candidates.stream()
+                .filter(candidate -> candidate.getKey().getTblName().equalsIgnoreCase(tableName))
+                .collect(Collectors.toList());
 
-                    client.getDatabaseSchema(dbId);
-                    params = client.getDatabaseSchema(dbId);
-                } else {
-                    throw new RuntimeException("The table '" + tableName + "' not found in any database");
+            if (values.size() > 1) {
+                if (dbName.isEmpty()) {
+                    throw new RuntimeException("Metadata for table '" + tableName
+                        + "' is ambiguous!, please add concrete database name");
                 }
 
-                params.forEach(param -> calciteProperties.put(param.getParamKey(), param.getParamValue()));
+                if (values.stream().noneMatch(value -> value.getValue().getName().equals(dbName))) {
+                    throw new RuntimeException("The database '" + dbName + "' was not found");
+                }
 
-                LOGGER.debug("Received connection info about table {} is {}", tableName, calciteProperties);
+                return values.stream().filter(value -> value.getValue().getName().equals(dbName))
+                    .findFirst().orElseThrow(() -> new RuntimeException(
+                        "The table '" + tableName + "' for given database '" + dbName + "' was not found"));
+            } else if (values.size() == 1) {
+                return values.get(0);
+            } else {
+                throw new RuntimeException("The table '" + tableName + "' not found in any database");
+            }
+        }
 
-                List<ColumnValue> columnValues = client.getFieldsSchema(theUniqueTable.getTblId());
+        private SchemaAssembler assemble(TableValue theUniqueTable, DatabaseValue databaseValue,
+            List<DatabaseParamValue> params, List<ColumnValue> columnValues) {
+            Map<String, String> calciteProperties = new HashMap<>();
+            params.forEach(param -> calciteProperties.put(param.getParamKey(), param.getParamValue()));
 
-                LOGGER.debug("Received fields about table {} are {}", tableName, columnValues);
+            LOGGER.debug("Received connection info about table {} is {}",
+                theUniqueTable.getTblName(), calciteProperties);
+            LOGGER.debug("Received fields about table {} are {}", theUniqueTable.getTblName(), columnValues);
 
-                String dbName = databaseValue.getName();
-                String tbName = theUniqueTable.getTblName();
-                calciteProperties.put("dbName", dbName);
-                calciteProperties.put("tableName", tbName);
+            String dbName = databaseValue.getName();
+            String tbName = theUniqueTable.getTblName();
+            calciteProperties.put("dbName", dbName);
+            calciteProperties.put("tableName", tbName);
 
-                MetadataMapping calciteMeta = MetadataMapping.convertToAdapter(databaseValue.getDbType().toLowerCase());
-                calciteMeta.completeComponentProperties(calciteProperties);
+            MetadataMapping calciteMeta = MetadataMapping.convertToAdapter(databaseValue.getDbType().toLowerCase());
+            calciteMeta.completeComponentProperties(calciteProperties);
 
-                return new SchemaAssembler(dbName, tbName, calciteMeta, calciteProperties, columnValues);
-            } catch (SQLException se) {
-                throw new RuntimeException(se);
-            }
+            return new SchemaAssembler(dbName, tbName, calciteMeta, calciteProperties, columnValues);
         }
     }
 
@@ -168,6 +269,21 @@ public class MetadataPostman {
                 + "}";
         }
 
+        static JsonRoot assembleModel(List<SchemaAssembler> schemas) {
+            JsonRoot root = new JsonRoot();
+            root.version = "1.0";
+            root.defaultSchema = "QSql";
+            if (schemas.isEmpty()) {
+                return root;
+            }
+
+            List<SchemaAssembler> sorted = new ArrayList<>(schemas);
+            sorted.sort(Comparator.comparing(x -> x.dbName));
+            reduceSameSchema(sorted).forEach(assemblers ->
+                root.schemas.add(assemblers.get(0).reduceSameSchema(assemblers)));
+            return root;
+        }
+
         //try to use lambda here
         private static List<List<SchemaAssembler>> reduceSameSchema(List<SchemaAssembler> assemblers) {
             List<List<SchemaAssembler>> schemaCollections = new ArrayList<>();
@@ -1,16 +1,31 @@
 package com.qihoo.qsql.metadata;
 
 import com.qihoo.qsql.metadata.entity.ColumnValue;
+import com.qihoo.qsql.utils.PropertiesReader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.calcite.model.JsonColumn;
+import org.apache.calcite.model.JsonCustomSchema;
+import org.apache.calcite.model.JsonCustomTable;
 
 /**
- * Provide table related params and methods which can generate metadata Json based on those params.
+ * Provide table related params and methods which can generate metadata based on those params, either as model objects
+ * handled by calcite directly or as Json.
  */
 public class SchemaAssembler {
 
+    /**
+     * Time to live of Elasticsearch cluster metadata in qsql-runner.properties, passed to schema factory as
+     * {@code metadataTtlSeconds}.
+     */
+    public static final String ES_METADATA_TTL_SECONDS = "qsql.elasticsearch.metadata.ttl.seconds";
+
     public String dbName;
     private String tableName;
     private MetadataMapping factory;
@@ -47,6 +62,55 @@ public class SchemaAssembler {
         return factory;
     }
 
+    /**
+     * Copy this assembler with its own connection properties, so that a cached instance is never modified by
+     * callers.
+     *
+     * @return a copy of this assembler
+     */
+    SchemaAssembler copy() {
+        return new SchemaAssembler(dbName, tableName, factory, new HashMap<>(connProperties), fields);
+    }
+
+    /**
+     * Digest of metadata of this table, tables with the same metadata have the same digest.
+     *
+     * @return digest
+     */
+    public String digest() {
+        return factory + ":" + dbName + "." + tableName + ":" + new TreeMap<>(connProperties) + ":" + fields;
+    }
+
+    /**
+     * Reduce same schema into a model object, which is the same as the one parsed from
+     * {@link #reduceSameJsonSchema(List)} and is handled without writing and reading Json.
+     *
+     * @param sameSchemas Same schemas
+     * @return Metadata model of schema
+     */
+    public JsonCustomSchema reduceSameSchema(List<SchemaAssembler> sameSchemas) {
+        JsonCustomSchema schema = new JsonCustomSchema();
+        schema.name = dbName;
+        schema.factory = factory.schemaClass;
+        if (factory == MetadataMapping.Elasticsearch) {
+            schema.operand = new HashMap<>(reduceSchemaOperand());
+        }
+
+        for (SchemaAssembler assembler : sameSchemas) {
+            JsonCustomTable table = new JsonCustomTable();
+            table.name = assembler.tableName;
+            table.factory = assembler.factory.tableClass;
+            table.operand = new HashMap<>(reduceTableOperand(assembler.connProperties, assembler.factory));
+            for (String field : reduceFields(assembler.fields)) {
+                JsonColumn column = new JsonColumn();
+                column.name = field;
+                table.columns.add(column);
+            }
+            schema.tables.add(table);
+        }
+        return schema;
+    }
+
     /**
      * Reduce same Json schema if exists. Used when there are several tables in sql which are from one type of data
      * storage.
@@ -92,6 +156,12 @@ public class SchemaAssembler {
 
     //maybe exist same db name problem
     private String reduceJsonSchemaOperand() {
+        return reduceSchemaOperand().entrySet().stream()
+            .map(entry -> formatPlainProperty(entry.getKey(), entry.getValue()))
+            .reduce((x, y) -> x + ",\n" + y).orElse("");
+    }
+
+    private Map<String, String> reduceSchemaOperand() {
         String coordinates = new StringBuilder("{'")
             .append(connProperties.getOrDefault("esNodes", ""))
             .append("': ")
@@ -105,29 +175,46 @@ public class SchemaAssembler {
             .append("'esPass':'").append(connProperties.getOrDefault("esPass", ""))
             .append("'}")
             .toString();
-        return Stream.of(
-            formatPlainProperty("coordinates", coordinates),
-            formatPlainProperty("userConfig", userConfig),
-            formatPlainProperty("index", connProperties.getOrDefault("esIndex", "")
-                .split("/")[0])
-        ).reduce((x, y) -> x + ",\n" + y).orElse("");
+        Map<String, String> operand = new LinkedHashMap<>();
+        operand.put("coordinates", coordinates);
+        operand.put("userConfig", userConfig);
+        operand.put("index", connProperties.getOrDefault("esIndex", "").split("/")[0]);
+        String metadataTtl = PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties")
+            .getProperty(ES_METADATA_TTL_SECONDS, "").trim();
+        if (! metadataTtl.isEmpty()) {
+            operand.put("metadataTtlSeconds", metadataTtl);
+        }
+        return operand;
     }
 
     private String reduceJsonTableOperand(Map<String, String> properties, MetadataMapping factory) {
+        return reduceTableOperand(properties, factory).entrySet().stream()
+            .map(entry -> formatPlainProperty(entry.getKey(), entry.getValue()))
+            .reduce((left, right) -> left + ",\n" + right)
+            .orElse("");
+    }
+
+    private Map<String, String> reduceTableOperand(Map<String, String> properties, MetadataMapping factory) {
         if (factory == MetadataMapping.Elasticsearch) {
             properties.put("dbName",
                 properties.getOrDefault("dbName", "")
                     .replaceAll("-", "_"));
         }
 
-        return factory.calciteProperties.stream()
-            .map(prop -> formatPlainProperty(prop, properties.getOrDefault(prop, "")))
+        Map<String, String> operand = new LinkedHashMap<>();
+        factory.calciteProperties.forEach(prop -> operand.put(prop, properties.getOrDefault(prop, "")));
+        return operand;
+    }
+
+    private String reduceJsonFields(List<ColumnValue> fields) {
+        return reduceFields(fields).stream()
+            .map(field -> "{" + formatPlainProperty("name", field) + "}")
             .reduce((left, right) -> left + ",\n" + right)
             .orElse("");
     }
 
-    //need to add more dataType
-    private String reduceJsonFields(List<ColumnValue> fields) {
+    //need to add more dataType, each field is "name:type"
+    private List<String> reduceFields(List<ColumnValue> fields) {
         return fields.stream()
             .filter(field -> ! (field.getColumnName().isEmpty() || field.getTypeName().isEmpty()))
             .map(field -> {
@@ -136,19 +223,14 @@ public class SchemaAssembler {
                     case "date":
                     case "string":
                     case "int":
-                        return field.toString();
+                        return field.getColumnName() + ":" + type;
                     default:
-                        ColumnValue value = new ColumnValue();
-                        value.setColumnName(field.getColumnName());
-                        value.setTypeName("string");
-                        return value.toString();
+                        return field.getColumnName() + ":string";
                 }
             })
-            .reduce((left, right) -> left + ",\n" + right)
-            .orElse("");
+            .collect(Collectors.toList());
     }
 
-
     private String formatPlainProperty(String key, String value) {
         return new StringBuilder("\"")
             .append(key)
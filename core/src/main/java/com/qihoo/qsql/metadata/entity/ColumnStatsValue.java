@@ -0,0 +1,115 @@
+package com.qihoo.qsql.metadata.entity;
+
+import java.util.Objects;
+
+/**
+ * Column statistics collected from data source.
+ * <p>
+ * cdId, the table id in table metadata
+ * columnName, the column name
+ * numDistincts, number of distinct values, null if it is unknown
+ * numNulls, number of null values, null if it is unknown
+ * unique, whether data source declares the column unique and not null
+ * </p>
+ */
+public class ColumnStatsValue {
+
+    private Long cdId;
+    private String columnName;
+    private Long numDistincts;
+    private Long numNulls;
+    private boolean unique;
+
+    public ColumnStatsValue() {}
+
+    /**
+     * constructor.
+     * @param cdId cdId
+     * @param columnName columnName
+     * @param numDistincts numDistincts
+     */
+    public ColumnStatsValue(Long cdId, String columnName, Long numDistincts) {
+        this.cdId = cdId;
+        this.columnName = columnName;
+        this.numDistincts = numDistincts;
+    }
+
+    /**
+     * constructor.
+     * @param cdId cdId
+     * @param columnName columnName
+     * @param numDistincts numDistincts
+     * @param unique unique
+     */
+    public ColumnStatsValue(Long cdId, String columnName, Long numDistincts, boolean unique) {
+        this(cdId, columnName, numDistincts);
+        this.unique = unique;
+    }
+
+    public Long getCdId() {
+        return cdId;
+    }
+
+    public void setCdId(Long cdId) {
+        this.cdId = cdId;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public void setColumnName(String columnName) {
+        this.columnName = columnName;
+    }
+
+    public Long getNumDistincts() {
+        return numDistincts;
+    }
+
+    public void setNumDistincts(Long numDistincts) {
+        this.numDistincts = numDistincts;
+    }
+
+    public Long getNumNulls() {
+        return numNulls;
+    }
+
+    public void setNumNulls(Long numNulls) {
+        this.numNulls = numNulls;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public void setUnique(boolean unique) {
+        this.unique = unique;
+    }
+
+    @Override
+    public String toString() {
+        return columnName + ":" + numDistincts + (unique ? ":unique" : "");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ColumnStatsValue that = (ColumnStatsValue) obj;
+        return Objects.equals(cdId, that.cdId)
+            && Objects.equals(columnName, that.columnName)
+            && Objects.equals(numDistincts, that.numDistincts)
+            && Objects.equals(numNulls, that.numNulls)
+            && unique == that.unique;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(cdId, columnName, numDistincts, numNulls, unique);
+    }
+}
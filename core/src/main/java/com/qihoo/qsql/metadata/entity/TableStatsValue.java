@@ -0,0 +1,92 @@
+package com.qihoo.qsql.metadata.entity;
+
+import java.util.Objects;
+
+/**
+ * Table statistics collected from data source.
+ * <p>
+ * tblId, table id
+ * rowCount, number of rows, null if it is unknown
+ * totalSize, number of bytes stored, null if it is unknown
+ * analyzedTime, time of collecting
+ * </p>
+ */
+public class TableStatsValue {
+
+    private Long tblId;
+    private Long rowCount;
+    private Long totalSize;
+    private String analyzedTime;
+
+    public TableStatsValue() {}
+
+    /**
+     * constructor.
+     * @param tblId tblId
+     * @param rowCount rowCount
+     * @param totalSize totalSize
+     */
+    public TableStatsValue(Long tblId, Long rowCount, Long totalSize) {
+        this.tblId = tblId;
+        this.rowCount = rowCount;
+        this.totalSize = totalSize;
+    }
+
+    public Long getTblId() {
+        return tblId;
+    }
+
+    public void setTblId(Long tblId) {
+        this.tblId = tblId;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(Long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public String getAnalyzedTime() {
+        return analyzedTime;
+    }
+
+    public void setAnalyzedTime(String analyzedTime) {
+        this.analyzedTime = analyzedTime;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"rowCount\": " + rowCount + ", \"totalSize\": " + totalSize + "}";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TableStatsValue that = (TableStatsValue) obj;
+        return Objects.equals(tblId, that.tblId)
+            && Objects.equals(rowCount, that.rowCount)
+            && Objects.equals(totalSize, that.totalSize)
+            && Objects.equals(analyzedTime, that.analyzedTime);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(tblId, rowCount, totalSize, analyzedTime);
+    }
+}
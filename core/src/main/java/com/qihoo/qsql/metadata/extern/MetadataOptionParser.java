@@ -11,9 +11,10 @@ import java.util.regex.Pattern;
 /**
  * Metadata option parser Class.
  * <p>
- * This class tries to parsing options coming from command line. Now qsql support two options. One is dbType, which aims
- * to decide storage type for extern metadata storage, such as mysql. The other is action, and it decides which action
- * needs to be done with metadata, such as init and delete.
+ * This class tries to parsing options coming from command line. Now qsql support three options. One is dbType, which
+ * aims to decide storage type for extern metadata storage, such as mysql. Another is action, and it decides which
+ * action needs to be done with metadata, such as init, delete and analyze. The last is tables, which are analyzed by
+ * analyze action, separated by comma.
  * </p>
  */
 public class MetadataOptionParser {
@@ -22,11 +23,13 @@ public class MetadataOptionParser {
     private static final String DB_TYPE = "--dbType";
     private static final List<String> DB_TYPE_VALUES = Collections.singletonList("mysql");
     private static final String ACTION = "--action";
-    private static final List<String> ACTION_VALUES = Arrays.asList("init", "delete");
+    private static final List<String> ACTION_VALUES = Arrays.asList("init", "delete", "analyze");
+    private static final String TABLES = "--tables";
 
     private final String[][] metadataOptions = {
         {DB_TYPE},
-        {ACTION}
+        {ACTION},
+        {TABLES}
     };
     private Properties properties = new Properties();
 
@@ -88,6 +91,11 @@ public class MetadataOptionParser {
                     throw new ParseException("Qsql cannot support this type of action: " + value);
                 }
                 return value;
+            case TABLES:
+                if (value == null || value.trim().isEmpty()) {
+                    throw new ParseException("Please set tables to analyze, e.g., db.table1,db.table2");
+                }
+                return value;
             default:
                 throw new ParseException("Qsql cannot support this param: " + name);
 
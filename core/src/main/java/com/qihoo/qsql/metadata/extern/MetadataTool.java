@@ -2,6 +2,7 @@ package com.qihoo.qsql.metadata.extern;
 
 import com.qihoo.qsql.exception.ParseException;
 import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.metadata.MetadataCache;
 import com.qihoo.qsql.metadata.utils.MetaConnectionUtil;
 import com.qihoo.qsql.utils.PropertiesReader;
 import java.io.File;
@@ -9,6 +10,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Properties;
 import org.apache.ibatis.jdbc.ScriptRunner;
 
@@ -33,6 +35,11 @@ public class MetadataTool {
      * @param metadataProperties options parsed from command line
      */
     public void run(Properties metadataProperties) {
+        if ("analyze".equalsIgnoreCase(metadataProperties.getProperty("--action"))) {
+            analyze(metadataProperties);
+            return;
+        }
+
         if (MetaConnectionUtil.isEmbeddedDatabase(properties)) {
             throw new QsqlException("Extern metadata storage config is not set properly! "
                 + "Please Check metadata.properties.");
@@ -56,6 +63,7 @@ public class MetadataTool {
             runner.runScript(
                 new FileReader(PropertiesReader.getMetadataFilePath() + File.separator + fileName)
             );
+            MetadataCache.invalidateAll();
         } catch (IOException ex) {
             ex.printStackTrace();
             throw new QsqlException("Failed in reading sql line from : " + fileName, ex);
@@ -68,4 +76,17 @@ public class MetadataTool {
         }
     }
 
+    /**
+     * Collect statistics of tables from their data sources, both embedded and extern metadata storage are supported.
+     *
+     * @param metadataProperties options parsed from command line
+     */
+    private void analyze(Properties metadataProperties) {
+        if (! metadataProperties.containsKey("--tables")) {
+            throw new ParseException("Please set --tables");
+        }
+
+        new StatisticsCollector().collect(
+            Arrays.asList(metadataProperties.getProperty("--tables").trim().split("\\s*,\\s*")));
+    }
 }
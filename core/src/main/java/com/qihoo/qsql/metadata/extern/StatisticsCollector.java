@@ -0,0 +1,238 @@
+package com.qihoo.qsql.metadata.extern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.metadata.MetadataClient;
+import com.qihoo.qsql.metadata.MetadataPostman;
+import com.qihoo.qsql.metadata.SchemaAssembler;
+import com.qihoo.qsql.metadata.entity.ColumnStatsValue;
+import com.qihoo.qsql.metadata.entity.TableStatsValue;
+import com.qihoo.qsql.metadata.entity.TableValue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collect statistics of tables from their data sources and save them into metadata storage.
+ * <p>
+ * Tables are not scanned, statistics are read from what data sources have maintained: table status and cardinality of
+ * indexes in information_schema of MySQL, count and store size of Elasticsearch index, numRows and totalSize in table
+ * properties of Hive, which are computed by ANALYZE TABLE of Hive or Spark. Number of distinct values is only known for
+ * MySQL columns leading an index, and a column is unique only if it is not null and a unique index of MySQL consists
+ * of it alone.
+ * </p>
+ */
+public class StatisticsCollector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsCollector.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SparkSession spark;
+
+    /**
+     * Collect statistics of tables and replace the old ones in metadata storage.
+     *
+     * @param identifiers table names, as db.table or table
+     */
+    public void collect(List<String> identifiers) {
+        List<SchemaAssembler> assemblers = MetadataPostman.getAssembledSchema(identifiers);
+        try (MetadataClient client = new MetadataClient()) {
+            for (SchemaAssembler assembler : assemblers) {
+                Map<String, String> properties = assembler.getConnectionProperties();
+                TableValue table = findTable(client, properties.get("dbName"), properties.get("tableName"));
+                List<ColumnStatsValue> columns = new ArrayList<>();
+                TableStatsValue stats = new TableStatsValue(table.getTblId(), null, null);
+
+                switch (assembler.getMetadataMapping()) {
+                    case JDBC:
+                        collectMySql(properties, stats, columns);
+                        break;
+                    case Elasticsearch:
+                        collectElasticsearch(properties, stats);
+                        break;
+                    case Hive:
+                        collectHive(properties, stats);
+                        break;
+                    default:
+                        throw new QsqlException("Qsql cannot analyze table of " + assembler.getMetadataMapping());
+                }
+
+                client.setAutoCommit(false);
+                try {
+                    client.replaceStatistics(stats, columns);
+                    client.commit();
+                } catch (RuntimeException ex) {
+                    client.rollback();
+                    throw ex;
+                }
+                LOGGER.info("Statistics of {}.{} are {}, columns {}", properties.get("dbName"),
+                    properties.get("tableName"), stats, columns);
+            }
+        } catch (SQLException ex) {
+            throw new QsqlException("Failed in saving statistics into metadata storage", ex);
+        } finally {
+            if (spark != null) {
+                spark.stop();
+            }
+        }
+    }
+
+    private TableValue findTable(MetadataClient client, String dbName, String tableName) {
+        return client.getTableSchemasWithDatabase(Collections.singletonList(tableName)).stream()
+            .filter(table -> table.getValue().getName().equals(dbName))
+            .map(Map.Entry::getKey)
+            .findFirst()
+            .orElseThrow(() -> new QsqlException("The table '" + dbName + "." + tableName + "' was not found"));
+    }
+
+    private void collectMySql(Map<String, String> properties, TableStatsValue stats,
+        List<ColumnStatsValue> columns) throws SQLException {
+        String dbName = properties.get("dbName");
+        String tableName = properties.get("tableName");
+        try {
+            Class.forName(properties.get("jdbcDriver"));
+        } catch (ClassNotFoundException ex) {
+            throw new QsqlException("Jdbc driver is not found: " + properties.get("jdbcDriver"), ex);
+        }
+
+        try (Connection connection = DriverManager.getConnection(properties.get("jdbcUrl"),
+            properties.get("jdbcUser"), properties.get("jdbcPassword"))) {
+            //TABLE_ROWS is estimated by InnoDB, which is enough to compare sizes of tables
+            try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT TABLE_ROWS, DATA_LENGTH + INDEX_LENGTH AS TOTAL_SIZE FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+                statement.setString(1, dbName);
+                statement.setString(2, tableName);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (! resultSet.next()) {
+                        throw new QsqlException("Table " + dbName + "." + tableName + " is not found in MySQL");
+                    }
+                    stats.setRowCount(resultSet.getLong("TABLE_ROWS"));
+                    stats.setTotalSize(resultSet.getLong("TOTAL_SIZE"));
+                }
+            }
+
+            //CARDINALITY is estimated as well, uniqueness is only taken from unique indexes
+            try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT S.COLUMN_NAME, MAX(S.CARDINALITY) AS NUM_DISTINCTS, "
+                    + "MAX(CASE WHEN S.NON_UNIQUE = 0 AND S.NULLABLE <> 'YES' AND NOT EXISTS ("
+                    + "SELECT 1 FROM information_schema.STATISTICS C WHERE C.TABLE_SCHEMA = S.TABLE_SCHEMA "
+                    + "AND C.TABLE_NAME = S.TABLE_NAME AND C.INDEX_NAME = S.INDEX_NAME AND C.SEQ_IN_INDEX > 1) "
+                    + "THEN 1 ELSE 0 END) AS IS_UNIQUE "
+                    + "FROM information_schema.STATISTICS S "
+                    + "WHERE S.TABLE_SCHEMA = ? AND S.TABLE_NAME = ? AND S.SEQ_IN_INDEX = 1 GROUP BY S.COLUMN_NAME")) {
+                statement.setString(1, dbName);
+                statement.setString(2, tableName);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    columns.addAll(readColumnStatistics(stats.getTblId(), resultSet));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read column statistics from the index statistics of MySQL.
+     *
+     * @param tblId table id in metadata storage
+     * @param resultSet rows of COLUMN_NAME, NUM_DISTINCTS and IS_UNIQUE
+     * @return statistics of columns which have a known ndv or are unique
+     * @throws SQLException error when reading result set
+     */
+    static List<ColumnStatsValue> readColumnStatistics(Long tblId, ResultSet resultSet) throws SQLException {
+        List<ColumnStatsValue> columns = new ArrayList<>();
+        while (resultSet.next()) {
+            long ndv = resultSet.getLong("NUM_DISTINCTS");
+            Long numDistincts = resultSet.wasNull() ? null : ndv;
+            boolean unique = resultSet.getInt("IS_UNIQUE") != 0;
+            if (numDistincts != null || unique) {
+                columns.add(new ColumnStatsValue(tblId, resultSet.getString("COLUMN_NAME"), numDistincts, unique));
+            }
+        }
+        return columns;
+    }
+
+    private void collectElasticsearch(Map<String, String> properties, TableStatsValue stats) {
+        String[] indexAndType = properties.getOrDefault("esIndex", "").split("/");
+        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(AuthScope.ANY,
+            new UsernamePasswordCredentials(properties.getOrDefault("esUser", "none"),
+                properties.getOrDefault("esPass", "none")));
+
+        try (RestClient client = RestClient.builder(new HttpHost(properties.get("esNodes"),
+            Integer.parseInt(properties.get("esPort"))))
+            .setHttpClientConfigCallback(builder -> builder.setDefaultCredentialsProvider(credentialsProvider))
+            .build()) {
+            String countEndpoint = indexAndType.length > 1
+                ? "/" + indexAndType[0] + "/" + indexAndType[1] + "/_count" : "/" + indexAndType[0] + "/_count";
+            stats.setRowCount(request(client, countEndpoint).path("count").asLong());
+            //size of primary shards, replicas do not need to be read
+            stats.setTotalSize(request(client, "/" + indexAndType[0] + "/_stats/store")
+                .path("_all").path("primaries").path("store").path("size_in_bytes").asLong());
+        } catch (IOException ex) {
+            throw new QsqlException("Failed in reading statistics of index " + indexAndType[0], ex);
+        }
+    }
+
+    private JsonNode request(RestClient client, String endpoint) throws IOException {
+        try (InputStream is = client.performRequest("GET", endpoint).getEntity().getContent()) {
+            return MAPPER.readTree(is);
+        }
+    }
+
+    private void collectHive(Map<String, String> properties, TableStatsValue stats) {
+        if (spark == null) {
+            spark = SparkSession.builder()
+                .appName("qsql-metadata-analyze")
+                .enableHiveSupport()
+                .getOrCreate();
+        }
+
+        Map<String, String> tableProperties = new HashMap<>();
+        for (Row row : spark.sql("SHOW TBLPROPERTIES " + properties.get("dbName") + "."
+            + properties.get("tableName")).collectAsList()) {
+            tableProperties.put(row.getString(0), row.getString(1));
+        }
+        //statistics computed by Hive come first, Spark saves them with its own prefix
+        stats.setRowCount(parseCount(tableProperties.getOrDefault("numRows",
+            tableProperties.get("spark.sql.statistics.numRows"))));
+        stats.setTotalSize(parseCount(tableProperties.getOrDefault("totalSize",
+            tableProperties.get("spark.sql.statistics.totalSize"))));
+    }
+
+    /**
+     * Parse a count of table properties.
+     *
+     * @param value count in text
+     * @return count, null if it is missing, negative or not a number
+     */
+    static Long parseCount(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            long number = Long.parseLong(value.trim());
+            return number < 0 ? null : number;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
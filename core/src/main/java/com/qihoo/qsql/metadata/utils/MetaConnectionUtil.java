@@ -2,10 +2,12 @@ package com.qihoo.qsql.metadata.utils;
 
 import com.qihoo.qsql.exception.QsqlException;
 import com.qihoo.qsql.metadata.MetadataParams;
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
+import org.apache.commons.dbcp2.BasicDataSource;
 
 /**
  * Utils for make connection with extern storage.
@@ -41,4 +43,53 @@ public class MetaConnectionUtil {
             throw new QsqlException("Failed in building connection with external metadata storage", ey);
         }
     }
+
+    /**
+     * Create a pooled data source for metadata storage, embedded or external based on properties. Prepared
+     * statements are pooled per connection, so that lookups with the same sql text are parsed only once.
+     *
+     * @param properties params for jdbc connection and pool
+     * @return pooled DataSource
+     */
+    public static BasicDataSource createPooledDataSource(Properties properties) {
+        BasicDataSource dataSource = new BasicDataSource();
+        if (isEmbeddedDatabase(properties)) {
+            dataSource.setDriverClassName("org.sqlite.JDBC");
+            dataSource.setUrl(getEmbeddedUrl(properties));
+        } else {
+            dataSource.setDriverClassName(
+                properties.getProperty(MetadataParams.META_EXTERN_SCHEMA_DRIVER).trim());
+            dataSource.setUrl(properties.getProperty(MetadataParams.META_EXTERN_SCHEMA_URL).trim());
+            dataSource.setUsername(properties.getProperty(MetadataParams.META_EXTERN_SCHEMA_USER).trim());
+            dataSource.setPassword(properties.getProperty(MetadataParams.META_EXTERN_SCHEMA_PASSWORD).trim());
+        }
+
+        int maxTotal = Integer.parseInt(
+            properties.getProperty(MetadataParams.META_POOL_MAX_TOTAL, "8").trim());
+        dataSource.setMaxTotal(maxTotal);
+        dataSource.setMaxIdle(maxTotal);
+        dataSource.setMaxWaitMillis(Long.parseLong(
+            properties.getProperty(MetadataParams.META_POOL_MAX_WAIT_MILLIS, "10000").trim()));
+        dataSource.setPoolPreparedStatements(true);
+        dataSource.setMaxOpenPreparedStatements(Integer.parseInt(
+            properties.getProperty(MetadataParams.META_POOL_MAX_STATEMENTS, "32").trim()));
+        dataSource.setValidationQuery("SELECT 1");
+        dataSource.setTestOnBorrow(false);
+        dataSource.setTestWhileIdle(true);
+        dataSource.setTimeBetweenEvictionRunsMillis(Long.parseLong(
+            properties.getProperty(MetadataParams.META_POOL_EVICTION_INTERVAL_MILLIS, "60000").trim()));
+        return dataSource;
+    }
+
+    /**
+     * Create jdbc url of embedded metadata storage.
+     *
+     * @param properties params for jdbc connection
+     * @return sqlite jdbc url
+     */
+    public static String getEmbeddedUrl(Properties properties) {
+        return "jdbc:sqlite://"
+            + new File(properties.getProperty(MetadataParams.META_INTERN_SCHEMA_DIR, "../sqlite/schema.db"))
+            .getAbsolutePath();
+    }
 }
@@ -0,0 +1,97 @@
+package com.qihoo.qsql.plan;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.hep.HepMatchOrder;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelVisitor;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.rules.JoinToMultiJoinRule;
+import org.apache.calcite.rel.rules.LoptOptimizeJoinRule;
+import org.apache.calcite.schema.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reorder joins by the statistics of tables, which are collected by the analyze action of metadata tool.
+ * <p>
+ * Joins are reordered only when every table in plan has a row count and comes from a different data source, and all
+ * of the joins are inner joins. So that no join of a single source is split, it is still pushed down to the source as a
+ * whole, and the order written in sql is kept when tables have not been analyzed.
+ * </p>
+ */
+final class CostBasedJoinOrder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CostBasedJoinOrder.class);
+    private static final int MIN_JOIN_COUNT = 2;
+
+    private CostBasedJoinOrder() {
+    }
+
+    /**
+     * Reorder joins of plan if it is allowed.
+     *
+     * @param root logical plan, whose sub-queries have been removed
+     * @return plan with reordered joins, or root itself
+     */
+    static RelNode reorder(RelNode root) {
+        if (! isReorderable(root)) {
+            return root;
+        }
+        LOGGER.debug("Reorder joins by statistics of tables");
+
+        HepProgram multiJoin = new HepProgramBuilder()
+            .addMatchOrder(HepMatchOrder.BOTTOM_UP)
+            .addRuleInstance(JoinToMultiJoinRule.INSTANCE)
+            .build();
+        HepPlanner multiJoinPlanner = new HepPlanner(multiJoin);
+        multiJoinPlanner.setRoot(root);
+
+        HepProgram optimize = new HepProgramBuilder()
+            .addRuleInstance(LoptOptimizeJoinRule.INSTANCE)
+            .build();
+        HepPlanner optimizePlanner = new HepPlanner(optimize);
+        optimizePlanner.setRoot(multiJoinPlanner.findBestExp());
+        return optimizePlanner.findBestExp();
+    }
+
+    private static boolean isReorderable(RelNode root) {
+        List<RelOptTable> tables = new ArrayList<>();
+        int[] joins = new int[1];
+        boolean[] outer = new boolean[1];
+        new RelVisitor() {
+            @Override
+            public void visit(RelNode node, int ordinal, RelNode parent) {
+                if (node instanceof TableScan) {
+                    tables.add(node.getTable());
+                } else if (node instanceof Join) {
+                    joins[0]++;
+                    outer[0] |= ((Join) node).getJoinType() != JoinRelType.INNER;
+                }
+                super.visit(node, ordinal, parent);
+            }
+        }.go(root);
+
+        if (joins[0] < MIN_JOIN_COUNT || outer[0]) {
+            return false;
+        }
+        for (int i = 0; i < tables.size(); i++) {
+            Table table = tables.get(i).unwrap(Table.class);
+            if (table == null || table.getStatistic().getRowCount() == null) {
+                return false;
+            }
+            for (int j = i + 1; j < tables.size(); j++) {
+                if (! SubtreeSyncopator.shouldBeDivided(tables.get(i), tables.get(j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
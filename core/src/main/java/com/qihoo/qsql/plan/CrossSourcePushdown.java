@@ -0,0 +1,237 @@
+package com.qihoo.qsql.plan;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.adapter.druid.DruidQuery;
+import org.apache.calcite.adapter.druid.DruidTable;
+import org.apache.calcite.adapter.elasticsearch.ElasticsearchTable;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.hep.HepRelVertex;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.rules.FilterJoinRule;
+import org.apache.calcite.rel.rules.FilterProjectTransposeRule;
+import org.apache.calcite.rel.rules.PushProjector;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+
+/**
+ * Rules which push predicates and projections down to the joins that {@link SubtreeSyncopator} will cut, so that each
+ * data source filters its rows and reads only the referenced columns before they are moved into the engine.
+ * <p>
+ * Rules only fire on joins and projects whose inputs come from different data sources. Sub-trees of a single source
+ * are kept as they are, the source will optimize them by itself. Predicates are not pushed into a join which reads
+ * from Elasticsearch or Druid, because not every predicate can be translated into their queries.
+ * </p>
+ */
+final class CrossSourcePushdown {
+
+    /**
+     * Rules pushing predicates, which are applied before {@link #PROJECTION_RULES}.
+     */
+    static final List<RelOptRule> PREDICATE_RULES = ImmutableList.of(
+        new CutFilterProjectTransposeRule(),
+        new CutFilterIntoJoinRule(),
+        new CutJoinConditionPushRule());
+
+    /**
+     * Rules pushing projections.
+     */
+    static final List<RelOptRule> PROJECTION_RULES = ImmutableList.of(
+        new CutProjectJoinTransposeRule());
+
+    private CrossSourcePushdown() {
+    }
+
+    /**
+     * Whether the inputs of a join read from data sources that are divided from each other.
+     */
+    private static boolean isCut(Join join) {
+        List<RelOptTable> leftTables = tablesOf(join.getLeft());
+        List<RelOptTable> rightTables = tablesOf(join.getRight());
+        for (RelOptTable left : leftTables) {
+            for (RelOptTable right : rightTables) {
+                if (SubtreeSyncopator.shouldBeDivided(left, right)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPredicatePushable(Join join) {
+        if (! isCut(join)) {
+            return false;
+        }
+        for (RelOptTable table : tablesOf(join)) {
+            if (table.unwrap(ElasticsearchTable.class) != null || table.unwrap(DruidTable.class) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<RelOptTable> tablesOf(RelNode node) {
+        List<RelOptTable> tables = new ArrayList<>();
+        collectTables(node, tables);
+        return tables;
+    }
+
+    private static void collectTables(RelNode node, List<RelOptTable> tables) {
+        RelNode rel = unwrap(node);
+        if (rel instanceof TableScan || rel instanceof DruidQuery) {
+            tables.add(rel.getTable());
+            return;
+        }
+        for (RelNode input : rel.getInputs()) {
+            collectTables(input, tables);
+        }
+    }
+
+    private static RelNode unwrap(RelNode node) {
+        return node instanceof HepRelVertex ? ((HepRelVertex) node).getCurrentRel() : node;
+    }
+
+    /**
+     * Keeps only equi-conditions between both sides in ON clause of an inner join, other conditions stay in WHERE
+     * clause of transform sql.
+     */
+    private static boolean isValidInCondition(Join join, JoinRelType joinType, RexNode condition) {
+        if (joinType != JoinRelType.INNER) {
+            return true;
+        }
+        if (! condition.isA(SqlKind.EQUALS)) {
+            return false;
+        }
+        List<RexNode> operands = ((RexCall) condition).getOperands();
+        RexNode first = stripCast(operands.get(0));
+        RexNode second = stripCast(operands.get(1));
+        if (! (first instanceof RexInputRef) || ! (second instanceof RexInputRef)) {
+            return false;
+        }
+        int leftCount = join.getLeft().getRowType().getFieldCount();
+        return (((RexInputRef) first).getIndex() < leftCount) != (((RexInputRef) second).getIndex() < leftCount);
+    }
+
+    private static RexNode stripCast(RexNode node) {
+        RexNode stripped = node;
+        while (stripped.isA(SqlKind.CAST)) {
+            stripped = ((RexCall) stripped).getOperands().get(0);
+        }
+        return stripped;
+    }
+
+    /**
+     * Pushes a filter past a project on a cut join, so that the filter can be pushed into the join then.
+     */
+    private static class CutFilterProjectTransposeRule extends FilterProjectTransposeRule {
+
+        CutFilterProjectTransposeRule() {
+            super(LogicalFilter.class, LogicalProject.class, true, true, RelFactories.LOGICAL_BUILDER);
+        }
+
+        @Override
+        public boolean matches(RelOptRuleCall call) {
+            Project project = call.rel(1);
+            RelNode input = unwrap(project.getInput());
+            return input instanceof Join && isPredicatePushable((Join) input);
+        }
+    }
+
+    /**
+     * Pushes a filter into a cut join and the inputs of it.
+     */
+    private static class CutFilterIntoJoinRule extends FilterJoinRule.FilterIntoJoinRule {
+
+        CutFilterIntoJoinRule() {
+            super(true, RelFactories.LOGICAL_BUILDER, CrossSourcePushdown::isValidInCondition);
+        }
+
+        @Override
+        public boolean matches(RelOptRuleCall call) {
+            return isPredicatePushable(call.rel(1));
+        }
+    }
+
+    /**
+     * Pushes the conditions of a cut join, which only reference one side, into the inputs of it.
+     */
+    private static class CutJoinConditionPushRule extends FilterJoinRule.JoinConditionPushRule {
+
+        CutJoinConditionPushRule() {
+            super(RelFactories.LOGICAL_BUILDER, CrossSourcePushdown::isValidInCondition);
+        }
+
+        @Override
+        public boolean matches(RelOptRuleCall call) {
+            return isPredicatePushable(call.rel(0));
+        }
+    }
+
+    /**
+     * Pushes a project into the inputs of a cut join, so that each input only reads the columns referenced above or in
+     * join condition. Unlike {@link org.apache.calcite.rel.rules.ProjectJoinTransposeRule}, expressions are left in
+     * the top project and no project is created on an input whose columns are all referenced.
+     */
+    private static class CutProjectJoinTransposeRule extends RelOptRule {
+
+        CutProjectJoinTransposeRule() {
+            super(operand(LogicalProject.class, operand(LogicalJoin.class, any())),
+                RelFactories.LOGICAL_BUILDER, null);
+        }
+
+        @Override
+        public boolean matches(RelOptRuleCall call) {
+            return isCut(call.rel(1));
+        }
+
+        @Override
+        public void onMatch(RelOptRuleCall call) {
+            Project origProject = call.rel(0);
+            Join join = call.rel(1);
+
+            PushProjector pushProjector = new PushProjector(origProject, join.getCondition(), join,
+                PushProjector.ExprCondition.FALSE, call.builder());
+            if (pushProjector.locateAllRefs()) {
+                return;
+            }
+
+            RelNode left = trim(pushProjector.createProjectRefsAndExprs(join.getLeft(), true, false));
+            RelNode right = trim(pushProjector.createProjectRefsAndExprs(join.getRight(), true, true));
+
+            int[] adjustments = pushProjector.getAdjustments();
+            RexNode condition = null;
+            if (join.getCondition() != null) {
+                List<RelDataTypeField> fields = new ArrayList<>(join.getSystemFieldList());
+                fields.addAll(left.getRowType().getFieldList());
+                fields.addAll(right.getRowType().getFieldList());
+                condition = pushProjector.convertRefsAndExprs(join.getCondition(), fields, adjustments);
+            }
+
+            Join newJoin = join.copy(join.getTraitSet(), condition, left, right,
+                join.getJoinType(), join.isSemiJoinDone());
+            call.transformTo(pushProjector.createNewProject(newJoin, adjustments));
+        }
+
+        private RelNode trim(Project project) {
+            if (RexUtil.isIdentity(project.getProjects(), project.getInput().getRowType())) {
+                return project.getInput();
+            }
+            return project;
+        }
+    }
+}
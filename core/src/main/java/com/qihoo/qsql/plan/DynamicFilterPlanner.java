@@ -0,0 +1,199 @@
+package com.qihoo.qsql.plan;
+
+import com.qihoo.qsql.plan.proc.DynamicFilter;
+import com.qihoo.qsql.plan.proc.ExtractProcedure;
+import com.qihoo.qsql.plan.proc.PreparedExtractProcedure;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.calcite.adapter.elasticsearch.ElasticsearchTable;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelVisitor;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinInfo;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.Util;
+
+/**
+ * Decide which {@link ExtractProcedure} could be filtered at runtime by the join keys extracted by another one.
+ * <p>
+ * It works on the plan cut by {@link SubtreeSyncopator}. For an equi-join whose inputs are both extracted, the side
+ * with a filter, an aggregation or a limit is regarded as the selective build side. When neither side has one, the
+ * side with fewer estimated rows is the build side if statistics of both sides are known. The other side is the probe
+ * side if it only scans, filters and projects a table of MySql, Hive or Elasticsearch. A field of Elasticsearch must
+ * be mapped as keyword, numeric or date, terms of analyzed text are tokens rather than whole values. The outer side of
+ * an outer join is never filtered.
+ * </p>
+ */
+final class DynamicFilterPlanner {
+
+    private final Map<String, ExtractProcedure> extracts = new HashMap<>();
+    private final Map<String, RelNode> subtrees = new HashMap<>();
+    private final Set<String> buildTables = new HashSet<>();
+
+    private DynamicFilterPlanner(Map<RelNode, AbstractMap.SimpleEntry<String, RelOptTable>> subtrees,
+        List<ExtractProcedure> extracts) {
+        for (ExtractProcedure extract : extracts) {
+            this.extracts.put(extract.getTableName(), extract);
+        }
+        for (Map.Entry<RelNode, AbstractMap.SimpleEntry<String, RelOptTable>> entry : subtrees.entrySet()) {
+            this.subtrees.put(entry.getValue().getKey(), entry.getKey());
+        }
+    }
+
+    /**
+     * Set dynamic filters of extract procedures.
+     *
+     * @param root plan cut by {@link SubtreeSyncopator}
+     * @param subtrees sub-trees cut from plan and their temp table names
+     * @param extracts extract procedures of sub-trees
+     */
+    static void plan(RelNode root, Map<RelNode, AbstractMap.SimpleEntry<String, RelOptTable>> subtrees,
+        List<ExtractProcedure> extracts) {
+        DynamicFilterPlanner planner = new DynamicFilterPlanner(subtrees, extracts);
+        new RelVisitor() {
+            @Override
+            public void visit(RelNode node, int ordinal, RelNode parent) {
+                if (node instanceof Join) {
+                    planner.planJoin((Join) node);
+                }
+                super.visit(node, ordinal, parent);
+            }
+        }.go(root);
+    }
+
+    private void planJoin(Join join) {
+        JoinInfo info = join.analyzeCondition();
+        if (info.pairs().isEmpty() || join.getJoinType() == JoinRelType.FULL) {
+            return;
+        }
+        String left = extractedTableName(join.getLeft());
+        String right = extractedTableName(join.getRight());
+        if (left == null || right == null) {
+            return;
+        }
+
+        boolean leftSelective = isSelective(subtrees.get(left));
+        boolean rightSelective = isSelective(subtrees.get(right));
+        //row counts are of whole tables, a filter may make the bigger table the smaller input
+        if (! leftSelective && ! rightSelective) {
+            Double leftRows = estimateRowCount(left);
+            Double rightRows = estimateRowCount(right);
+            if (leftRows != null && rightRows != null) {
+                leftSelective = leftRows < rightRows;
+                rightSelective = rightRows < leftRows;
+            }
+        }
+        if (leftSelective && ! rightSelective && join.getJoinType() != JoinRelType.RIGHT) {
+            planProbe(left, info.leftKeys.get(0), right, info.rightKeys.get(0));
+        } else if (rightSelective && ! leftSelective && join.getJoinType() != JoinRelType.LEFT) {
+            planProbe(right, info.rightKeys.get(0), left, info.leftKeys.get(0));
+        }
+    }
+
+    private void planProbe(String build, int buildKey, String probe, int probeKey) {
+        ExtractProcedure buildExtract = extracts.get(build);
+        ExtractProcedure probeExtract = extracts.get(probe);
+        //a build side must run before all its probe sides, so it can not be filtered itself
+        if (buildExtract.getDynamicFilter() != null || probeExtract.getDynamicFilter() != null
+            || buildTables.contains(probe)) {
+            return;
+        }
+
+        RelNode probeSubtree = subtrees.get(probe);
+        if (! isPlainScan(probeSubtree)) {
+            return;
+        }
+
+        String probeColumn;
+        if (probeExtract instanceof PreparedExtractProcedure.ElasticsearchExtractor) {
+            //terms query works on field of index, and would match tokens instead of whole values of analyzed text
+            probeColumn = sourceFieldName(probeSubtree, probeKey);
+            if (probeColumn != null && ! isExactValueField(probeSubtree, probeColumn)) {
+                return;
+            }
+        } else if (probeExtract instanceof PreparedExtractProcedure.MySqlExtractor
+            || probeExtract instanceof PreparedExtractProcedure.HiveExtractor) {
+            probeColumn = probeSubtree.getRowType().getFieldNames().get(probeKey);
+        } else {
+            return;
+        }
+        if (probeColumn == null) {
+            return;
+        }
+
+        String buildColumn = subtrees.get(build).getRowType().getFieldNames().get(buildKey);
+        probeExtract.setDynamicFilter(new DynamicFilter(build, buildColumn, probeColumn));
+        buildTables.add(build);
+    }
+
+    private Double estimateRowCount(String tableName) {
+        ExtractProcedure extract = extracts.get(tableName);
+        return extract instanceof PreparedExtractProcedure
+            ? ((PreparedExtractProcedure) extract).estimateRowCount() : null;
+    }
+
+    private String extractedTableName(RelNode input) {
+        if (! (input instanceof TableScan)) {
+            return null;
+        }
+        String name = Util.last(input.getTable().getQualifiedName());
+        return extracts.containsKey(name) && subtrees.containsKey(name) ? name : null;
+    }
+
+    private static boolean isSelective(RelNode node) {
+        if (node instanceof Filter || node instanceof Aggregate
+            || node instanceof Sort && ((Sort) node).fetch != null) {
+            return true;
+        }
+        for (RelNode input : node.getInputs()) {
+            if (isSelective(input)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPlainScan(RelNode node) {
+        if (node instanceof TableScan) {
+            return true;
+        }
+        if (! (node instanceof Project) && ! (node instanceof Filter)) {
+            return false;
+        }
+        return isPlainScan(node.getInput(0));
+    }
+
+    private static boolean isExactValueField(RelNode node, String field) {
+        if (! (node instanceof TableScan)) {
+            return isExactValueField(node.getInput(0), field);
+        }
+        ElasticsearchTable table = node.getTable().unwrap(ElasticsearchTable.class);
+        return table != null && table.isExactValueField(field);
+    }
+
+    private static String sourceFieldName(RelNode node, int index) {
+        if (node instanceof TableScan) {
+            return node.getRowType().getFieldNames().get(index);
+        }
+        if (node instanceof Filter) {
+            return sourceFieldName(node.getInput(0), index);
+        }
+        RexNode project = ((Project) node).getProjects().get(index);
+        if (! (project instanceof RexInputRef)) {
+            return null;
+        }
+        return sourceFieldName(node.getInput(0), ((RexInputRef) project).getIndex());
+    }
+}
@@ -0,0 +1,165 @@
+package com.qihoo.qsql.plan;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import org.apache.calcite.avatica.util.Casing;
+import org.apache.calcite.avatica.util.Quoting;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.apache.calcite.sql.parser.SqlParser;
+import org.apache.calcite.sql.util.SqlShuttle;
+import org.apache.calcite.sql.validate.SqlConformanceEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Result of parsing a sql once, which holds both the table names it refers to and its parse tree.
+ * <p>
+ * Parse results are memoized by sql text in a process-wide LRU cache of at most {@code qsql.parse.cache.max.size}
+ * entries, 0 disables it, so that finding table names and planning a sql share one parse. Validation rewrites the
+ * tree in place, so the cached tree is never handed out, {@link #getSqlNode()} returns a deep copy of it instead.
+ * Failed parses are not cached.
+ * </p>
+ */
+public class ParsedQuery {
+
+    public static final String PARSE_CACHE_MAX_SIZE = "qsql.parse.cache.max.size";
+
+    /**
+     * Parser config of QSQL, shared by table name collecting and planning.
+     */
+    public static final SqlParser.Config PARSER_CONFIG = SqlParser.configBuilder()
+        .setConformance(SqlConformanceEnum.MYSQL_5)
+        .setQuoting(Quoting.BACK_TICK)
+        .setQuotedCasing(Casing.UNCHANGED)
+        .setUnquotedCasing(Casing.UNCHANGED)
+        .setCaseSensitive(true)
+        .build();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParsedQuery.class);
+    private static final long DEFAULT_MAX_SIZE = 256L;
+
+    private static final Cache<String, ParsedQuery> CACHE;
+
+    static {
+        Properties properties = PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties");
+        long maxSize = Long.parseLong(properties.getProperty(
+            PARSE_CACHE_MAX_SIZE, String.valueOf(DEFAULT_MAX_SIZE)).trim());
+
+        CACHE = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    private final SqlNode sqlNode;
+    private final List<String> tableNames;
+
+    private ParsedQuery(SqlNode sqlNode, List<String> tableNames) {
+        this.sqlNode = sqlNode;
+        this.tableNames = ImmutableList.copyOf(tableNames);
+    }
+
+    /**
+     * Get parse result of sql, parse it if it is not cached.
+     *
+     * @param sql sql
+     * @return parse result
+     * @throws SqlParseException if sql is invalid
+     * @throws com.qihoo.qsql.exception.ParseException if a table name is not supported
+     */
+    public static ParsedQuery parse(String sql) throws SqlParseException {
+        try {
+            return CACHE.get(sql, () -> {
+                LOGGER.debug("Sql is not parsed before, parse it");
+                SqlNode sqlNode = SqlParser.create(sql, PARSER_CONFIG).parseQuery();
+                return new ParsedQuery(sqlNode, new TableNameCollector().collectTableName(sqlNode));
+            });
+        } catch (UncheckedExecutionException | ExecutionError ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SqlParseException) {
+                throw (SqlParseException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Get hit, miss and load statistics of cache.
+     *
+     * @return statistics since process started
+     */
+    public static CacheStats stats() {
+        return CACHE.stats();
+    }
+
+    /**
+     * Drop all cached parse results.
+     */
+    public static void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * Get names of tables sql refers to, in the order of {@link TableNameCollector}.
+     *
+     * @return immutable table names
+     */
+    public List<String> getTableNames() {
+        return tableNames;
+    }
+
+    /**
+     * Get parse tree of sql which can be validated or modified by caller.
+     *
+     * @return a copy of parse tree
+     */
+    public SqlNode getSqlNode() {
+        return sqlNode.accept(DeepCopier.INSTANCE);
+    }
+
+    /**
+     * Copy every call, node list and identifier of a tree, literals and other leaves are immutable and shared.
+     */
+    private static class DeepCopier extends SqlShuttle {
+
+        static final DeepCopier INSTANCE = new DeepCopier();
+
+        @Override
+        public SqlNode visit(SqlCall call) {
+            ArgHandler<SqlNode> argHandler = new CallCopyingArgHandler(call, true);
+            call.getOperator().acceptCall(this, call, false, argHandler);
+            return argHandler.result();
+        }
+
+        @Override
+        public SqlNode visit(SqlNodeList nodeList) {
+            SqlNodeList copy = new SqlNodeList(nodeList.getParserPosition());
+            for (SqlNode node : nodeList) {
+                copy.add(node == null ? null : node.accept(this));
+            }
+            return copy;
+        }
+
+        @Override
+        public SqlNode visit(SqlIdentifier id) {
+            return id.clone(id.getParserPosition());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.qihoo.qsql.plan;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.qihoo.qsql.metadata.MetadataCache;
+import com.qihoo.qsql.plan.proc.QueryProcedure;
+import com.qihoo.qsql.utils.PropertiesReader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Process-wide LRU cache of {@link QueryProcedure}, keyed by normalized sql, schema and metadata version.
+ * <p>
+ * The cache holds at most {@code qsql.plan.cache.max.size} plans, 0 disables it. Entries become unreachable once
+ * {@link MetadataCache#version()} changes, so plans of modified tables are never reused. A schema given as a file is
+ * keyed by its modification time and size as well. Failed plans are not cached.
+ * </p>
+ */
+public class QueryProcedureCache {
+
+    public static final String PLAN_CACHE_MAX_SIZE = "qsql.plan.cache.max.size";
+
+    private static final long DEFAULT_MAX_SIZE = 256L;
+
+    private static final Cache<String, QueryProcedure> CACHE;
+
+    static {
+        Properties properties = PropertiesReader.readPropertiesOrEmpty("qsql-runner.properties");
+        long maxSize = Long.parseLong(properties.getProperty(
+            PLAN_CACHE_MAX_SIZE, String.valueOf(DEFAULT_MAX_SIZE)).trim());
+
+        CACHE = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    private QueryProcedureCache() {
+    }
+
+    /**
+     * Get cached plan, or create and cache it.
+     *
+     * @param schema schema path or inline model the plan is made with
+     * @param sql sql
+     * @param loader creates plan on miss
+     * @return plan
+     */
+    static QueryProcedure get(String schema, String sql, Callable<QueryProcedure> loader) {
+        try {
+            return CACHE.get(key(schema, sql), loader);
+        } catch (UncheckedExecutionException | ExecutionError ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Get hit, miss and load statistics of cache.
+     *
+     * @return statistics since process started
+     */
+    public static CacheStats stats() {
+        return CACHE.stats();
+    }
+
+    /**
+     * Drop all cached plans.
+     */
+    public static void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+
+    static String key(String schema, String sql) {
+        return MetadataCache.version() + ":"
+            + Hashing.murmur3_128().hashString(fingerprint(schema), StandardCharsets.UTF_8) + ":"
+            + normalize(sql);
+    }
+
+    /**
+     * Identify content of schema. Inline and assembled models are their own content, a model file is identified by
+     * its path, modification time and size, so that plans are not reused after the file is edited.
+     *
+     * @param schema schema path or inline model
+     * @return string which changes with content of schema
+     */
+    private static String fingerprint(String schema) {
+        if (schema.startsWith("inline:") || schema.startsWith("assembled:")) {
+            return schema;
+        }
+        File file = new File(schema);
+        if (! file.isFile()) {
+            return schema;
+        }
+        return schema + ":" + file.lastModified() + ":" + file.length();
+    }
+
+    /**
+     * Collapse whitespace outside of quotes, and remove trailing semicolons, so that differently formatted
+     * statements share a plan.
+     *
+     * @param sql sql
+     * @return normalized sql
+     */
+    static String normalize(String sql) {
+        StringBuilder builder = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (quote != 0) {
+                builder.append(ch);
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"' || ch == '`') {
+                appendSpace(builder, space);
+                space = false;
+                quote = ch;
+                builder.append(ch);
+            } else if (ch == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-') {
+                //line comment ends at line break, keep it as it is
+                appendSpace(builder, space);
+                space = false;
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? sql.length() : end + 1;
+                builder.append(sql, i, end);
+                i = end - 1;
+            } else if (Character.isWhitespace(ch)) {
+                space = true;
+            } else {
+                appendSpace(builder, space);
+                space = false;
+                builder.append(ch);
+            }
+        }
+
+        int length = builder.length();
+        while (length > 0 && (builder.charAt(length - 1) == ';'
+            || Character.isWhitespace(builder.charAt(length - 1)))) {
+            length--;
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+
+    private static void appendSpace(StringBuilder builder, boolean space) {
+        if (space && builder.length() > 0 && builder.charAt(builder.length() - 1) != '\n') {
+            builder.append(' ');
+        }
+    }
+}
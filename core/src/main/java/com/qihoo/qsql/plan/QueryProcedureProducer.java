@@ -1,6 +1,10 @@
 package com.qihoo.qsql.plan;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.qihoo.qsql.exception.ParseException;
+import com.qihoo.qsql.metadata.MetadataPostman;
+import com.qihoo.qsql.metadata.SchemaAssembler;
 import com.qihoo.qsql.plan.proc.DataSetTransformProcedure;
 import com.qihoo.qsql.plan.proc.ExtractProcedure;
 import com.qihoo.qsql.plan.proc.LoadProcedure;
@@ -9,12 +13,11 @@ import com.qihoo.qsql.plan.proc.PreparedExtractProcedure;
 import com.qihoo.qsql.plan.proc.QueryProcedure;
 import com.qihoo.qsql.plan.proc.TransformProcedure;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import org.apache.calcite.avatica.util.Casing;
-import org.apache.calcite.avatica.util.Quoting;
 import org.apache.calcite.model.ModelHandler;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelTraitDef;
@@ -27,8 +30,6 @@ import org.apache.calcite.rel.rules.SubQueryRemoveRule;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.parser.SqlParseException;
-import org.apache.calcite.sql.parser.SqlParser;
-import org.apache.calcite.sql.validate.SqlConformanceEnum;
 import org.apache.calcite.sql2rel.SqlToRelConverter;
 import org.apache.calcite.tools.FrameworkConfig;
 import org.apache.calcite.tools.Frameworks;
@@ -40,23 +41,47 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Generate the QueryProcedure chain.
+ * <p>
+ * Procedures are cached by {@link QueryProcedureCache}, the model is only handled when a sql is not found there.
+ * Metadata fetched from metadata storage is handled as a model built from {@link SchemaAssembler}s, which is never
+ * written as Json, and is identified by the digest of assemblers.
+ * </p>
  */
 public class QueryProcedureProducer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryProcedureProducer.class);
+    private static final String ASSEMBLED_MODEL_PREFIX = "assembled:";
+    private final String jsonPath;
+    private final List<SchemaAssembler> assemblers;
     private FrameworkConfig config = null;
 
     /**
-     * Constructs an QueryProcedureProducer with init planner config.
+     * Constructs an QueryProcedureProducer, planner config is initialized on first use.
      *
      * @param jsonPath The url path of the metadata
      */
     public QueryProcedureProducer(String jsonPath) {
-        try {
-            initPlannerConfig(jsonPath);
-        } catch (IOException ex) {
-            throw new ParseException("Error When Parsing Meta Data :" + ex.getMessage(), ex);
-        }
+        this.jsonPath = jsonPath;
+        this.assemblers = null;
+    }
+
+    /**
+     * Constructs an QueryProcedureProducer on tables whose metadata are fetched from metadata storage.
+     *
+     * @param assemblers schemas of tables
+     */
+    public QueryProcedureProducer(List<SchemaAssembler> assemblers) {
+        this.jsonPath = digest(assemblers);
+        this.assemblers = assemblers;
+    }
+
+    private static String digest(List<SchemaAssembler> assemblers) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        assemblers.stream()
+            .map(SchemaAssembler::digest)
+            .sorted()
+            .forEach(digest -> hasher.putString(digest, StandardCharsets.UTF_8));
+        return ASSEMBLED_MODEL_PREFIX + hasher.hash();
     }
 
     /**
@@ -66,6 +91,21 @@ public class QueryProcedureProducer {
      * @return QueryProcedure
      */
     public QueryProcedure createQueryProcedure(String sql) {
+        return QueryProcedureCache.get(jsonPath, sql, () -> {
+            LOGGER.debug("Plan of sql is not cached, create it");
+            return produceQueryProcedure(sql);
+        });
+    }
+
+    private QueryProcedure produceQueryProcedure(String sql) {
+        if (config == null) {
+            try {
+                initPlannerConfig(jsonPath);
+            } catch (IOException ex) {
+                throw new ParseException("Error When Parsing Meta Data :" + ex.getMessage(), ex);
+            }
+        }
+
         RelNode originalLogicalPlan = buildLogicalPlan(sql);
         RelNode optimizedPlan = optimizeLogicalPlan(originalLogicalPlan);
 
@@ -85,28 +125,26 @@ public class QueryProcedureProducer {
                 config, entry.getKey(),
                 entry.getValue().getKey(), sql));
         }
+        DynamicFilterPlanner.plan(optimizedPlan, resultRelNode, extractProcedures);
         return new ProcedurePortFire(extractProcedures).optimize();
     }
 
     private void initPlannerConfig(String jsonPath) throws IOException {
         final SchemaPlus rootSchema = Frameworks.createRootSchema(true);
 
-        new ModelHandler(rootSchema, jsonPath);
+        if (assemblers != null) {
+            new ModelHandler(rootSchema, jsonPath, MetadataPostman.assembleModel(assemblers));
+        } else {
+            new ModelHandler(rootSchema, jsonPath);
+        }
         final SqlToRelConverter.Config convertConfig = SqlToRelConverter.configBuilder()
             .withTrimUnusedFields(false)
             .withConvertTableAccess(false)
             .withExpand(false)
             .build();
 
-        final SqlParser.Config parserConfig = SqlParser.configBuilder()
-            .setConformance(SqlConformanceEnum.MYSQL_5)
-            .setQuoting(Quoting.BACK_TICK)
-            .setCaseSensitive(true)
-            .setUnquotedCasing(Casing.UNCHANGED)
-            .build();
-
         this.config = Frameworks.newConfigBuilder()
-            .parserConfig(parserConfig)
+            .parserConfig(ParsedQuery.PARSER_CONFIG)
             .defaultSchema(rootSchema)
             .traitDefs((List<RelTraitDef>) null)
             .sqlToRelConverterConfig(convertConfig)
@@ -117,13 +155,15 @@ public class QueryProcedureProducer {
         Planner planner = Frameworks.getPlanner(config);
 
         try {
-            SqlNode parsed = planner.parse(sql);
-            SqlNode validated = planner.validate(parsed);
+            //parsed once with table names, validation works on a copy of cached tree
+            SqlNode validated = planner.validate(ParsedQuery.parse(sql).getSqlNode());
             return planner.rel(validated).rel;
         } catch (SqlParseException ex) {
             throw new ParseException("Error When Parsing Origin SQL: " + ex.getMessage(), ex);
         } catch (ValidationException | RelConversionException ev) {
             throw new ParseException("Error When Validating: " + ev.getMessage(), ev);
+        } catch (ParseException ex) {
+            throw ex;
         } catch (Throwable ex) {
             throw new ParseException(
                 "Unknown Parse Exception, Concrete Message is: " + ex.getMessage());
@@ -131,14 +171,24 @@ public class QueryProcedureProducer {
     }
 
     private RelNode optimizeLogicalPlan(RelNode root) {
-        final HepProgram program = new HepProgramBuilder()
+        final HepProgram subQueryProgram = new HepProgramBuilder()
             .addRuleInstance(SubQueryRemoveRule.PROJECT)
             .addRuleInstance(SubQueryRemoveRule.FILTER)
             .addRuleInstance(SubQueryRemoveRule.JOIN)
             .build();
 
+        HepPlanner subQueryPlanner = new HepPlanner(subQueryProgram);
+        subQueryPlanner.setRoot(root);
+        RelNode reordered = CostBasedJoinOrder.reorder(subQueryPlanner.findBestExp());
+
+        final HepProgram program = new HepProgramBuilder()
+            //sink predicates and projections to the joins cut by SubtreeSyncopator
+            .addRuleCollection(CrossSourcePushdown.PREDICATE_RULES)
+            .addRuleCollection(CrossSourcePushdown.PROJECTION_RULES)
+            .build();
+
         HepPlanner prePlanner = new HepPlanner(program);
-        prePlanner.setRoot(root);
+        prePlanner.setRoot(reordered);
 
         return prePlanner.findBestExp();
     }
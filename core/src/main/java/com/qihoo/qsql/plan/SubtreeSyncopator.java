@@ -166,7 +166,7 @@ public class SubtreeSyncopator extends RelShuttleImpl {
         return false;
     }
 
-    private boolean shouldBeDivided(RelOptTable left, RelOptTable right) {
+    static boolean shouldBeDivided(RelOptTable left, RelOptTable right) {
         RelOptTableImpl leftImpl = ((RelOptTableImpl) left);
         RelOptTableImpl rightImpl = ((RelOptTableImpl) right);
 
@@ -177,7 +177,7 @@ public class SubtreeSyncopator extends RelShuttleImpl {
             || isDiffFromEachOther(leftTable, rightTable);
     }
 
-    private boolean isDiffFromEachOther(Table left, Table right) {
+    private static boolean isDiffFromEachOther(Table left, Table right) {
         if (! isDiffClassFromEachOther(left, right)) {
             return ! (left instanceof TranslatableTable)
                 || ! (right instanceof TranslatableTable)
@@ -187,15 +187,15 @@ public class SubtreeSyncopator extends RelShuttleImpl {
         return true;
     }
 
-    private boolean isDiffClassFromEachOther(Table left, Table right) {
+    private static boolean isDiffClassFromEachOther(Table left, Table right) {
         return ! left.getClass().equals(right.getClass());
     }
 
-    private boolean isDiffDbFromEachOther(TranslatableTable left, TranslatableTable right) {
+    private static boolean isDiffDbFromEachOther(TranslatableTable left, TranslatableTable right) {
         return ! left.getBaseName().toLowerCase().equals(right.getBaseName().toLowerCase());
     }
 
-    private boolean notSupportedBinOp(Table left, Table right) {
+    private static boolean notSupportedBinOp(Table left, Table right) {
         return ((left instanceof ElasticsearchTable)
             && (right instanceof ElasticsearchTable)
             || (left instanceof DruidQuery
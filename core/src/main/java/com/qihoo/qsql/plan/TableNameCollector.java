@@ -1,8 +1,6 @@
 package com.qihoo.qsql.plan;
 
 import com.qihoo.qsql.exception.ParseException;
-import org.apache.calcite.avatica.util.Casing;
-import org.apache.calcite.avatica.util.Quoting;
 import org.apache.calcite.sql.SqlAsOperator;
 import org.apache.calcite.sql.SqlBasicCall;
 import org.apache.calcite.sql.SqlCall;
@@ -19,8 +17,6 @@ import org.apache.calcite.sql.SqlSelect;
 import org.apache.calcite.sql.parser.SqlParseException;
 import org.apache.calcite.sql.parser.SqlParser;
 import org.apache.calcite.sql.util.SqlVisitor;
-import org.apache.calcite.sql.validate.SqlConformance;
-import org.apache.calcite.sql.validate.SqlConformanceEnum;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,18 +28,6 @@ import java.util.List;
 public class TableNameCollector implements SqlVisitor<List<String>> {
 
     private List<String> tableNames = new ArrayList<>();
-    //TODO extract SqlParser to correspond with calcite-core
-    private SqlConformance conformance = SqlConformanceEnum.MYSQL_5;
-    private Quoting quoting = Quoting.BACK_TICK;
-
-    private SqlParser.Config config = SqlParser
-        .configBuilder()
-        .setConformance(conformance)
-        .setQuoting(quoting)
-        .setQuotedCasing(Casing.UNCHANGED)
-        .setUnquotedCasing(Casing.UNCHANGED)
-        .setCaseSensitive(true)
-        .build();
 
     /**
      * Get table names from sql.
@@ -52,8 +36,17 @@ public class TableNameCollector implements SqlVisitor<List<String>> {
      * @return List of TableName
      */
     public List<String> parseTableName(String sql) throws SqlParseException {
-        SqlParser parser = SqlParser.create(sql, config);
-        SqlNode sqlNode = parser.parseQuery(sql);
+        SqlParser parser = SqlParser.create(sql, ParsedQuery.PARSER_CONFIG);
+        return collectTableName(parser.parseQuery());
+    }
+
+    /**
+     * Get table names from a parsed sql.
+     *
+     * @param sqlNode parse tree of sql, which is not modified
+     * @return List of TableName
+     */
+    public List<String> collectTableName(SqlNode sqlNode) {
         return validateTableName(sqlNode.accept(this));
     }
 
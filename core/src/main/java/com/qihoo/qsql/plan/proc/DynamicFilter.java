@@ -0,0 +1,50 @@
+package com.qihoo.qsql.plan.proc;
+
+/**
+ * Filter of an {@link ExtractProcedure} which is only known at runtime, the rows it extracts are needed only if their
+ * key matches a key extracted by another procedure on the other side of a join.
+ * <p>
+ * The procedure of build side runs first and saves its rows as {@code buildTableName}, then the distinct values of
+ * {@code buildColumn} are injected into the query of probe side as a predicate on {@code probeColumn}. When there are
+ * more than {@link #MAX_KEYS} distinct values, the range of them is injected instead if they are numbers or dates, or
+ * else the probe side is not filtered.
+ * </p>
+ */
+public class DynamicFilter {
+
+    public static final int MAX_KEYS = 1000;
+
+    private final String buildTableName;
+    private final String buildColumn;
+    private final String probeColumn;
+
+    /**
+     * Dynamic filter of a probe side extract procedure.
+     *
+     * @param buildTableName temp table name of build side
+     * @param buildColumn join key of build side
+     * @param probeColumn join key of probe side, which is a column of the query of probe side
+     */
+    public DynamicFilter(String buildTableName, String buildColumn, String probeColumn) {
+        this.buildTableName = buildTableName;
+        this.buildColumn = buildColumn;
+        this.probeColumn = probeColumn;
+    }
+
+    public String getBuildTableName() {
+        return buildTableName;
+    }
+
+    public String getBuildColumn() {
+        return buildColumn;
+    }
+
+    public String getProbeColumn() {
+        return probeColumn;
+    }
+
+    @Override
+    public String toString() {
+        return probeColumn + " IN (SELECT " + buildColumn + " FROM " + buildTableName + ")";
+    }
+}
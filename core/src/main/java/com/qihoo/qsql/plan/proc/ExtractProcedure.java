@@ -10,6 +10,7 @@ public abstract class ExtractProcedure extends QueryProcedure {
 
     private Properties connectionProperties;
     private String tableName;
+    private DynamicFilter dynamicFilter;
 
     /**
      * Extract Procedure, correspond to data engine.
@@ -36,9 +37,23 @@ public abstract class ExtractProcedure extends QueryProcedure {
         return connectionProperties;
     }
 
+    public DynamicFilter getDynamicFilter() {
+        return dynamicFilter;
+    }
+
+    /**
+     * Set filter which is injected into query at runtime, the procedure will run after the other extract procedures.
+     *
+     * @param dynamicFilter filter by keys of build side
+     */
+    public void setDynamicFilter(DynamicFilter dynamicFilter) {
+        this.dynamicFilter = dynamicFilter;
+    }
+
     @Override
     public int getValue() {
-        return 0x10;
+        //probe side runs after build side
+        return dynamicFilter == null ? 0x10 : 0x0F;
     }
 
     public abstract String getCategory();
@@ -5,6 +5,7 @@ import com.google.common.collect.ImmutableMap;
 import com.qihoo.qsql.utils.SqlUtil;
 import java.io.IOException;
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import org.apache.calcite.adapter.csv.CsvTable;
@@ -35,11 +36,16 @@ import org.apache.calcite.prepare.Prepare;
 import org.apache.calcite.prepare.RelOptTableImpl;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelVisitor;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.rel2sql.RelToSqlConverter;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.sql.SqlDialect;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.impl.OperandStatistic;
 import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.dialect.CalciteSqlDialect;
 import org.apache.calcite.sql.dialect.HiveSqlDialect;
 import org.apache.calcite.sql.dialect.MysqlSqlDialect;
 import org.apache.calcite.sql.parser.SqlParseException;
@@ -135,6 +141,99 @@ public abstract class PreparedExtractProcedure extends ExtractProcedure {
         return Util.toLinux(sqlNode.toSqlString(dialect).getSql()).replaceAll("\n", " ");
     }
 
+    /**
+     * Query of the extracted sub-tree, which can be executed by an embedded calcite connection on the same model.
+     *
+     * @return sql in calcite dialect
+     */
+    public String toEmbeddedQuery() {
+        return sql(CalciteSqlDialect.DEFAULT);
+    }
+
+    /**
+     * Upper bound of the number of extracted rows. It is proved by the plan, such as a limit or an aggregation without
+     * group keys, or is the row count in statistic of the table when the sub-tree does not join.
+     *
+     * @return number of rows, or null if it is unknown
+     */
+    public Double estimateRowCount() {
+        Double maxRowCount = relNode.getCluster().getMetadataQuery().getMaxRowCount(relNode);
+        if (maxRowCount != null && maxRowCount.isInfinite()) {
+            maxRowCount = null;
+        }
+
+        Table table = singleScannedTable();
+        Double tableRowCount = table == null ? null : table.getStatistic().getRowCount();
+
+        if (maxRowCount == null) {
+            return tableRowCount;
+        }
+        return tableRowCount == null ? maxRowCount : Math.min(maxRowCount, tableRowCount);
+    }
+
+    /**
+     * Size of extracted rows in bytes, which is {@link #estimateRowCount()} times the average row size in statistic of
+     * the table. It is known only when the sub-tree does not join and the table has been analyzed.
+     *
+     * @return number of bytes, or null if it is unknown
+     */
+    public Double estimateBytes() {
+        Double rowCount = estimateRowCount();
+        Table table = singleScannedTable();
+        if (rowCount == null || table == null || ! (table.getStatistic() instanceof OperandStatistic)) {
+            return null;
+        }
+
+        OperandStatistic statistic = (OperandStatistic) table.getStatistic();
+        if (statistic.getRowCount() == null || statistic.getTotalSize() == null) {
+            return null;
+        }
+        return statistic.getRowCount() == 0
+            ? 0D : rowCount * statistic.getTotalSize() / statistic.getRowCount();
+    }
+
+    /**
+     * Whether the extracted rows are cut by a limit or an offset. Such a query returns a different set of rows each
+     * time it is evaluated unless it is totally ordered, so it must not be split into partitions which evaluate it
+     * separately.
+     *
+     * @return true if a sort of the plan has a fetch or an offset
+     */
+    public boolean isLimited() {
+        boolean[] limited = new boolean[1];
+        new RelVisitor() {
+            @Override
+            public void visit(RelNode node, int ordinal, RelNode parent) {
+                if (node instanceof Sort && (((Sort) node).fetch != null || ((Sort) node).offset != null)) {
+                    limited[0] = true;
+                }
+                super.visit(node, ordinal, parent);
+            }
+        }.go(relNode);
+        return limited[0];
+    }
+
+    private Table singleScannedTable() {
+        List<TableScan> scans = new ArrayList<>();
+        boolean[] joined = new boolean[1];
+        new RelVisitor() {
+            @Override
+            public void visit(RelNode node, int ordinal, RelNode parent) {
+                if (node instanceof TableScan) {
+                    scans.add((TableScan) node);
+                } else if (node instanceof Join) {
+                    joined[0] = true;
+                }
+                super.visit(node, ordinal, parent);
+            }
+        }.go(relNode);
+
+        if (joined[0] || scans.size() != 1) {
+            return null;
+        }
+        return scans.get(0).getTable().unwrap(Table.class);
+    }
+
     @Override
     public String toString() {
         return toRecognizedQuery();
@@ -152,6 +251,11 @@ public abstract class PreparedExtractProcedure extends ExtractProcedure {
             .append("\n").append(prefix)
             .append(" \"logical_node\":").append(relNode)
             .append("\n");
+        if (getDynamicFilter() != null) {
+            newBuilder.append(prefix)
+                .append(" \"dynamic_filter\":").append(getDynamicFilter())
+                .append("\n");
+        }
 
         if (next() != null) {
             return next().digest(newBuilder, tabs);
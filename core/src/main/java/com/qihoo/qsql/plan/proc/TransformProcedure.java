@@ -34,7 +34,16 @@ public abstract class TransformProcedure extends QueryProcedure {
      * @return sql
      */
     public String sql() {
-        SqlDialect dialect = new HiveSqlDialect(SqlDialect.EMPTY_CONTEXT);
+        return sql(new HiveSqlDialect(SqlDialect.EMPTY_CONTEXT));
+    }
+
+    /**
+     * RelNode to SQL of the given dialect.
+     *
+     * @param dialect dialect of the engine which executes the sql
+     * @return sql
+     */
+    public String sql(SqlDialect dialect) {
         RelToSqlConverter converter = new RelToSqlConverter(dialect);
 
         SqlNode sqlNode = converter.visitChild(0, parent).asStatement();
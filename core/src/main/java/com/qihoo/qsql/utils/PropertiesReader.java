@@ -5,9 +5,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class PropertiesReader {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertiesReader.class);
+
     /**
      * Read properties file.
      *
@@ -27,6 +31,21 @@ public class PropertiesReader {
         return properties;
     }
 
+    /**
+     * Read properties file which is optional, default values are used by caller when it can not be read.
+     *
+     * @param fileName fileName in conf
+     * @return Properties, empty if file can not be read
+     */
+    public static Properties readPropertiesOrEmpty(String fileName) {
+        try {
+            return readProperties(fileName);
+        } catch (RuntimeException ex) {
+            LOGGER.debug("Cannot read {}, use default config", fileName, ex);
+            return new Properties();
+        }
+    }
+
     /**
      * Create conf file path.
      *
@@ -2,7 +2,7 @@ package com.qihoo.qsql.utils;
 
 import com.qihoo.qsql.exec.JdbcPipeline;
 import com.qihoo.qsql.metadata.MetadataPostman;
-import com.qihoo.qsql.plan.TableNameCollector;
+import com.qihoo.qsql.plan.ParsedQuery;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.calcite.sql.parser.SqlParseException;
@@ -13,15 +13,14 @@ import org.apache.calcite.sql.parser.SqlParseException;
 public class SqlUtil {
 
     /**
-     * Parse table names.
+     * Parse table names, the parse result is memoized and reused by planner.
      *
      * @param sql sql string
      * @return table names
      */
     public static List<String> parseTableName(String sql) {
-        TableNameCollector collector = new TableNameCollector();
         try {
-            return new ArrayList<>(collector.parseTableName(sql));
+            return new ArrayList<>(ParsedQuery.parse(sql).getTableNames());
         } catch (SqlParseException ex) {
             throw new RuntimeException(ex.getMessage());
         }
@@ -2,6 +2,7 @@ package com.qihoo.qsql.api;
 
 import com.qihoo.qsql.api.SqlRunner.Builder.RunnerType;
 import com.qihoo.qsql.exec.JdbcPipeline;
+import com.qihoo.qsql.exec.LocalPipeline;
 import com.qihoo.qsql.exec.flink.FlinkPipeline;
 import com.qihoo.qsql.exec.spark.SparkPipeline;
 import com.qihoo.qsql.plan.proc.EmbeddedElasticsearchPolicy;
@@ -57,6 +58,33 @@ public class SqlRunnerTest {
         Assert.assertEquals(buildDynamicSqlRunner().sql(sql).getClass(), SparkPipeline.class);
     }
 
+    @Test
+    public void testSmallMixQueryBetweenMySqlAndElasticsearch() {
+        String sql = "SELECT a.dep_id, b.stu_id"
+            + " FROM (SELECT dep_id FROM edu_manage.department LIMIT 10) AS a,"
+            + " (SELECT stu_id FROM student_profile.student LIMIT 10) AS b"
+            + " WHERE a.dep_id = b.stu_id";
+        Assert.assertEquals(buildDynamicSqlRunner().sql(sql).getClass(), LocalPipeline.class);
+    }
+
+    @Test
+    public void testSmallMixQueryBetweenMySqlAndHive() {
+        String sql = "SELECT a.dep_id, b.stu_id"
+            + " FROM (SELECT dep_id FROM edu_manage.department LIMIT 10) AS a,"
+            + " (SELECT stu_id FROM action_required.homework_content LIMIT 10) AS b"
+            + " WHERE a.dep_id = b.stu_id";
+        Assert.assertEquals(buildDynamicSqlRunner().sql(sql).getClass(), SparkPipeline.class);
+    }
+
+    @Test
+    public void testSmallMixQueryBetweenMySqlAndElasticsearchWithSpark() {
+        String sql = "SELECT a.dep_id, b.stu_id"
+            + " FROM (SELECT dep_id FROM edu_manage.department LIMIT 10) AS a,"
+            + " (SELECT stu_id FROM student_profile.student LIMIT 10) AS b"
+            + " WHERE a.dep_id = b.stu_id";
+        Assert.assertEquals(buildSparkSqlRunner().sql(sql).getClass(), SparkPipeline.class);
+    }
+
     @Test
     public void testMixQueryBetweenElasticsearchAndHive() {
         String sql = "SELECT a.stu_id, b.stu_id"
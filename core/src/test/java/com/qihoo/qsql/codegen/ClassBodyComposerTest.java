@@ -37,8 +37,12 @@ public class ClassBodyComposerTest {
                 + "        }\n"
                 + "\n"
                 + "       public void execute(){\n"
+                + "           try {\n"
                 + "\t\t\tString str = \"Test\";\n"
                 + "\t\t\tSystem.out.println(str);\n"
+                + "           } finally {\n"
+                + "               deleteTemporaryPaths();\n"
+                + "           }\n"
                 + "       }\n"
                 + "}\n",
             composer.getCompleteClass());
@@ -66,6 +70,10 @@ public class ClassBodyComposerTest {
                 + "\n"
                 + "\n"
                 + "       public void execute(){\n"
+                + "           try {\n"
+                + "           } finally {\n"
+                + "               deleteTemporaryPaths();\n"
+                + "           }\n"
                 + "       }\n"
                 + "}\n",
             composer.getCompleteClass());
@@ -98,6 +106,10 @@ public class ClassBodyComposerTest {
             + "         }\n"
             + "\n"
             + "       public void execute(){\n"
+            + "           try {\n"
+            + "           } finally {\n"
+            + "               deleteTemporaryPaths();\n"
+            + "           }\n"
             + "       }\n"
             + "}\n", composer.getCompleteClass());
     }
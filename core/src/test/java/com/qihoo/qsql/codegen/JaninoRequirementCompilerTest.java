@@ -0,0 +1,43 @@
+package com.qihoo.qsql.codegen;
+
+import java.util.Map;
+import org.codehaus.commons.compiler.CompileException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link JaninoRequirementCompiler}.
+ */
+public class JaninoRequirementCompilerTest {
+
+    static final String SOURCE = "import org.apache.spark.sql.Dataset;\n"
+        + "import org.apache.spark.sql.Row;\n"
+        + "import org.apache.spark.sql.SparkSession;\n"
+        + "import com.qihoo.qsql.exec.spark.SparkRequirement;\n"
+        + "\n"
+        + "public class Requirement_janino extends SparkRequirement { \n"
+        + "       public Requirement_janino(SparkSession spark){\n"
+        + "           super(spark);\n"
+        + "       }\n"
+        + "\n"
+        + "       public void execute(){\n"
+        + "\t\t\tDataset<Row> $1 = spark.sql(literal(0));\n"
+        + "\t\t\t$1.createOrReplaceTempView(literal(1));\n"
+        + "\t\t\t$1.show();\n"
+        + "       }\n"
+        + "}\n";
+
+    @Test
+    public void testCompileRequirement() throws CompileException {
+        Map<String, byte[]> bytecode = JaninoRequirementCompiler.compile(SOURCE, "");
+
+        Assert.assertEquals(1, bytecode.size());
+        Assert.assertTrue(bytecode.get("Requirement_janino").length > 0);
+    }
+
+    @Test(expected = CompileException.class)
+    public void testUnsupportedSyntax() throws CompileException {
+        JaninoRequirementCompiler.compile(SOURCE.replace("$1.show();",
+            "java.util.function.Supplier<Long> count = () -> $1.count();"), "");
+    }
+}
@@ -0,0 +1,73 @@
+package com.qihoo.qsql.codegen;
+
+import java.sql.Timestamp;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JdbcRangePartitionerTest {
+
+    @Test
+    public void testNumericPredicates() {
+        Assert.assertArrayEquals(new String[] {
+            "`id` < 25 OR `id` IS NULL",
+            "`id` >= 25 AND `id` < 50",
+            "`id` >= 50 AND `id` < 75",
+            "`id` >= 75"
+        }, JdbcRangePartitioner.numericPredicates("`id`", 0, 100, 4));
+    }
+
+    @Test
+    public void testNumericPredicatesWithSmallRange() {
+        Assert.assertArrayEquals(new String[] {
+            "`id` < 2 OR `id` IS NULL",
+            "`id` >= 2 AND `id` < 3",
+            "`id` >= 3"
+        }, JdbcRangePartitioner.numericPredicates("`id`", 1, 3, 10));
+        Assert.assertArrayEquals(new String[] {"1 = 1"},
+            JdbcRangePartitioner.numericPredicates("`id`", 5, 5, 4));
+    }
+
+    @Test
+    public void testDatePredicates() {
+        long day = 24 * 60 * 60 * 1000L;
+        String middle = "'" + new Timestamp(day) + "'";
+        Assert.assertArrayEquals(new String[] {
+            "`dt` < " + middle + " OR `dt` IS NULL",
+            "`dt` >= " + middle
+        }, JdbcRangePartitioner.datePredicates("`dt`", 0, 2 * day, 2));
+    }
+
+    @Test
+    public void testPartitionQuery() {
+        Assert.assertEquals("SELECT * FROM (select id from t) qsql_partitioned WHERE `id` >= 75",
+            JdbcRangePartitioner.partitionQuery("select id from t", "`id` >= 75"));
+    }
+
+    @Test
+    public void testCursorFetchUrl() {
+        Assert.assertEquals("jdbc:mysql://localhost:3306/db?useCursorFetch=true",
+            JdbcRangePartitioner.cursorFetchUrl("jdbc:mysql://localhost:3306/db"));
+        Assert.assertEquals("jdbc:mysql://localhost:3306/db?useSSL=false&useCursorFetch=true",
+            JdbcRangePartitioner.cursorFetchUrl("jdbc:mysql://localhost:3306/db?useSSL=false"));
+        Assert.assertEquals("jdbc:mysql://localhost:3306/db?useCursorFetch=false",
+            JdbcRangePartitioner.cursorFetchUrl("jdbc:mysql://localhost:3306/db?useCursorFetch=false"));
+        Assert.assertEquals("jdbc:oracle:thin:@localhost:1521:db",
+            JdbcRangePartitioner.cursorFetchUrl("jdbc:oracle:thin:@localhost:1521:db"));
+    }
+
+    @Test
+    public void testReadProperties() {
+        Properties properties = new Properties();
+        Assert.assertEquals(1, JdbcRangePartitioner.partitionNum(properties));
+        Assert.assertEquals(JdbcRangePartitioner.DEFAULT_FETCH_SIZE, JdbcRangePartitioner.fetchSize(properties));
+        Assert.assertEquals("", JdbcRangePartitioner.partitionColumn(properties));
+
+        properties.put(JdbcRangePartitioner.PARTITION_NUM, "8");
+        properties.put(JdbcRangePartitioner.FETCH_SIZE, "500");
+        properties.put(JdbcRangePartitioner.PARTITION_COLUMN, "id");
+        Assert.assertEquals(8, JdbcRangePartitioner.partitionNum(properties));
+        Assert.assertEquals(500, JdbcRangePartitioner.fetchSize(properties));
+        Assert.assertEquals("id", JdbcRangePartitioner.partitionColumn(properties));
+    }
+}
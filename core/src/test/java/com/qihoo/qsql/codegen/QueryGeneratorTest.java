@@ -7,9 +7,13 @@ import com.qihoo.qsql.exec.AbstractPipeline;
 import com.qihoo.qsql.exec.spark.SparkPipeline;
 import com.qihoo.qsql.plan.QueryProcedureProducer;
 import com.qihoo.qsql.plan.proc.EmbeddedElasticsearchPolicy;
+import com.qihoo.qsql.plan.proc.ExtractProcedure;
+import com.qihoo.qsql.plan.proc.PreparedExtractProcedure.MySqlExtractor;
 import com.qihoo.qsql.plan.proc.QueryProcedure;
 import com.qihoo.qsql.utils.SqlUtil;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.Assert;
@@ -32,7 +36,7 @@ public class QueryGeneratorTest {
         wrapper.interpretProcedure(procedure);
         wrapper.importSpecificDependency();
 
-        Class requirementClass = wrapper.compile();
+        Class requirementClass = wrapper.compile().getRequirementClass();
         MatcherAssert.assertThat("", requirementClass.getSuperclass().toString(),
             CoreMatchers.containsString("class com.qihoo.qsql.exec.spark.SparkRequirement"));
     }
@@ -57,7 +61,7 @@ public class QueryGeneratorTest {
         IntegratedQueryWrapper wrapper = new SparkBodyWrapper();
         wrapper.interpretProcedure(procedure);
         wrapper.importSpecificDependency();
-        Class requirementClass = wrapper.compile();
+        Class requirementClass = wrapper.compile().getRequirementClass();
 
         MatcherAssert.assertThat("",
             requirementClass.getSuperclass().toString(),
@@ -65,6 +69,48 @@ public class QueryGeneratorTest {
                 .containsString("class com.qihoo.qsql.exec.spark.SparkRequirement"));
     }
 
+    @Test
+    public void testMysqlGeneratorSplitsQueryIntoPartitions() {
+        String source = mysqlSource("SELECT a.dep_id, b.stu_id"
+            + " FROM (SELECT dep_id FROM edu_manage.department WHERE dep_id > 1) AS a"
+            + " JOIN action_required.homework_content AS b ON a.dep_id = b.stu_id");
+        Assert.assertTrue(source.contains(" = readPartitioned(\""));
+    }
+
+    @Test
+    public void testMysqlGeneratorReadsLimitedQueryOnce() {
+        String source = mysqlSource("SELECT a.dep_id, b.stu_id"
+            + " FROM (SELECT dep_id FROM edu_manage.department LIMIT 10) AS a"
+            + " JOIN action_required.homework_content AS b ON a.dep_id = b.stu_id");
+        Assert.assertFalse(source.contains(" = readPartitioned(\""));
+        Assert.assertTrue(source.contains(" = persist(\""));
+    }
+
+    private static String mysqlSource(String sql) {
+        List<String> tableList = SqlUtil.parseTableName(sql);
+        QueryProcedureProducer producer = new QueryProcedureProducer(
+            SqlUtil.getSchemaPath(tableList));
+        QueryProcedure procedure = producer.createQueryProcedure(sql);
+
+        List<Properties> partitioned = new ArrayList<>();
+        for (QueryProcedure curr = procedure; curr instanceof ExtractProcedure; curr = curr.next()) {
+            if (curr instanceof MySqlExtractor) {
+                Properties properties = ((ExtractProcedure) curr).getConnProperties();
+                properties.setProperty(JdbcRangePartitioner.PARTITION_NUM, "4");
+                partitioned.add(properties);
+            }
+        }
+        Assert.assertFalse(partitioned.isEmpty());
+        try {
+            IntegratedQueryWrapper wrapper = new SparkBodyWrapper();
+            wrapper.interpretProcedure(procedure);
+            wrapper.importSpecificDependency();
+            return wrapper.toString();
+        } finally {
+            partitioned.forEach(properties -> properties.remove(JdbcRangePartitioner.PARTITION_NUM));
+        }
+    }
+
     @Test
     public void testVirtualGenerator() {
         AbstractPipeline pipeline = SqlRunner.builder().setTransformRunner(RunnerType.SPARK).ok().sql("select 1");
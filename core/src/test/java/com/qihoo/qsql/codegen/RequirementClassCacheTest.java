@@ -0,0 +1,79 @@
+package com.qihoo.qsql.codegen;
+
+import com.qihoo.qsql.codegen.RequirementClassCache.ParameterizedSource;
+import com.qihoo.qsql.exec.Requirement;
+import org.apache.spark.sql.SparkSession;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RequirementClassCache}.
+ */
+public class RequirementClassCacheTest {
+
+    private static final String SOURCE = "public class Requirement1234 extends SparkRequirement {\n"
+        + "    public Requirement1234(SparkSession spark){ super(spark); }\n"
+        + "    public void execute(){\n"
+        + "        char quote = '\"';\n"
+        + "        // keep \"comment\"\n"
+        + "        Dataset<Row> $1 = spark.sql(\"%s\");\n"
+        + "        $1.createOrReplaceTempView(\"%s\");\n"
+        + "    }\n"
+        + "}\n";
+
+    @Test
+    public void testParameterizeLiterals() {
+        ParameterizedSource source = ParameterizedSource.parameterize(
+            String.format(SOURCE, "select * from t where a = \\\"x\\\\y\\\"\\n", "tmp_t"), "Requirement1234");
+
+        Assert.assertArrayEquals(new String[] {"select * from t where a = \"x\\y\"\n", "tmp_t"}, source.literals);
+        Assert.assertTrue(source.code.contains("spark.sql(literal(0))"));
+        Assert.assertTrue(source.code.contains("createOrReplaceTempView(literal(1))"));
+        Assert.assertTrue(source.code.contains("char quote = '\"';"));
+        Assert.assertTrue(source.code.contains("// keep \"comment\""));
+        Assert.assertTrue(source.code.contains("public class " + source.className + " extends"));
+        Assert.assertTrue(source.code.contains("public " + source.className + "(SparkSession spark)"));
+        Assert.assertFalse(source.code.contains("Requirement1234"));
+    }
+
+    @Test
+    public void testSameShapeSharesClass() {
+        ParameterizedSource first = ParameterizedSource.parameterize(
+            String.format(SOURCE, "select 1", "a"), "Requirement1234");
+        ParameterizedSource second = ParameterizedSource.parameterize(
+            String.format(SOURCE, "select 2", "b").replace("Requirement1234", "Requirement5678"), "Requirement5678");
+        ParameterizedSource inline = ParameterizedSource.inline(
+            String.format(SOURCE, "select 1", "a"), "Requirement1234");
+
+        Assert.assertEquals(first.className, second.className);
+        Assert.assertEquals(first.code, second.code);
+        Assert.assertNotEquals(first.className, inline.className);
+        Assert.assertEquals(0, inline.literals.length);
+    }
+
+    @Test
+    public void testLiteralsInFieldInitializer() throws ReflectiveOperationException {
+        String source = "import org.apache.spark.sql.SparkSession;\n"
+            + "import com.qihoo.qsql.exec.spark.SparkRequirement;\n"
+            + "\n"
+            + "public class Requirement4321 extends SparkRequirement {\n"
+            + "    public final String table = \"tmp_%s\";\n"
+            + "    public Requirement4321(SparkSession spark){ super(spark); }\n"
+            + "    public void execute(){}\n"
+            + "}\n";
+
+        Requirement first = RequirementClassCache.load(String.format(source, "a"), "Requirement4321", "")
+            .newInstance(SparkSession.class, null);
+        Requirement second = RequirementClassCache.load(String.format(source, "b"), "Requirement4321", "")
+            .newInstance(SparkSession.class, null);
+
+        Assert.assertSame(first.getClass(), second.getClass());
+        Assert.assertEquals("tmp_a", first.getClass().getField("table").get(first));
+        Assert.assertEquals("tmp_b", second.getClass().getField("table").get(second));
+    }
+
+    @Test
+    public void testUnescape() {
+        Assert.assertEquals("a\tb\u00e9\u0000\377\0123", ParameterizedSource.unescape("a\\tb\\u00e9\\0\\377\\0123"));
+    }
+}
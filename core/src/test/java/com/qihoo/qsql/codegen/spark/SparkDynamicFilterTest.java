@@ -0,0 +1,82 @@
+package com.qihoo.qsql.codegen.spark;
+
+import com.qihoo.qsql.codegen.spark.SparkDynamicFilter.Keys;
+import com.qihoo.qsql.plan.proc.DynamicFilter;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.spark.sql.types.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SparkDynamicFilterTest {
+
+    private static final String SQL = "SELECT stu_id, signature FROM action_required.homework_content";
+
+    @Test
+    public void testFilterSqlByKeys() {
+        Assert.assertEquals("SELECT * FROM (" + SQL + ") dynamic_filtered WHERE `stu_id` IN (1, 2, 3)",
+            SparkDynamicFilter.filterSql(SQL, "stu_id", Keys.of(Arrays.asList(1, 2L, 3))));
+        Assert.assertEquals("SELECT * FROM (" + SQL + ") dynamic_filtered WHERE `signature` IN ('a\\'b', 'c')",
+            SparkDynamicFilter.filterSql(SQL, "signature", Keys.of(Arrays.asList("a'b", "c"))));
+    }
+
+    @Test
+    public void testFilterSqlByNonFiniteKeys() {
+        Assert.assertEquals("SELECT * FROM (" + SQL + ") dynamic_filtered WHERE `score` IN ('NaN', 'Infinity', 1.5)",
+            SparkDynamicFilter.filterSql(SQL, "score",
+                Keys.of(Arrays.asList(Double.NaN, Float.POSITIVE_INFINITY, 1.5))));
+        Assert.assertEquals("SELECT * FROM (" + SQL + ") dynamic_filtered WHERE `score` BETWEEN '-Infinity' AND 2.0",
+            SparkDynamicFilter.filterSql(SQL, "score", Keys.range(Double.NEGATIVE_INFINITY, 2.0)));
+    }
+
+    @Test
+    public void testFilterSqlByRange() {
+        Assert.assertEquals("SELECT * FROM (" + SQL + ") dynamic_filtered WHERE `stu_id` BETWEEN 1 AND 1000",
+            SparkDynamicFilter.filterSql(SQL, "stu_id", Keys.range(1, 1000)));
+    }
+
+    @Test
+    public void testRangeOnlyOfSourceOrderedTypes() {
+        Assert.assertTrue(SparkDynamicFilter.isRangeComparable(DataTypes.IntegerType));
+        Assert.assertTrue(SparkDynamicFilter.isRangeComparable(DataTypes.createDecimalType(20, 0)));
+        Assert.assertTrue(SparkDynamicFilter.isRangeComparable(DataTypes.DateType));
+        Assert.assertTrue(SparkDynamicFilter.isRangeComparable(DataTypes.TimestampType));
+        //'B' < 'a' in Spark, but MySQL compares them case insensitively
+        Assert.assertFalse(SparkDynamicFilter.isRangeComparable(DataTypes.StringType));
+        Assert.assertFalse(SparkDynamicFilter.isRangeComparable(DataTypes.BinaryType));
+    }
+
+    @Test
+    public void testUnfilteredKeys() {
+        Assert.assertEquals(SQL, SparkDynamicFilter.filterSql(SQL, "signature", Keys.unfiltered()));
+        String json = "{\"query\":{\"term\":{\"province\":\"hunan\"}},\"size\":10}";
+        Assert.assertEquals(json, SparkDynamicFilter.filterElasticsearchQuery(json, "city", Keys.unfiltered()));
+    }
+
+    @Test
+    public void testFilterSqlWithoutKeys() {
+        Assert.assertEquals("SELECT * FROM (" + SQL + ") dynamic_filtered WHERE 1 = 0",
+            SparkDynamicFilter.filterSql(SQL, "stu_id", Keys.of(Collections.emptyList())));
+    }
+
+    @Test
+    public void testFilterElasticsearchQuery() {
+        Assert.assertEquals("{\"query\":{\"bool\":{\"must\":{\"term\":{\"province\":\"hunan\"}},"
+                + "\"filter\":{\"terms\":{\"stu_id\":[1,2]}}}},\"size\":10}",
+            SparkDynamicFilter.filterElasticsearchQuery(
+                "{\"query\":{\"term\":{\"province\":\"hunan\"}},\"size\":10}",
+                "stu_id", Keys.of(Arrays.asList(1, 2))));
+        Assert.assertEquals("{\"query\":{\"bool\":{\"filter\":{\"range\":{\"stu_id\":{\"gte\":1,\"lte\":9}}}}},"
+                + "\"_source\":[\"city\"]}",
+            SparkDynamicFilter.filterElasticsearchQuery("{\"query\":{},\"_source\":[\"city\"]}",
+                "stu_id", Keys.range(1, 9)));
+    }
+
+    @Test
+    public void testInvocation() {
+        Assert.assertEquals("SparkDynamicFilter.filterSql(\"" + SQL + "\", spark.table(\"edu_manage_department_0\"), "
+                + "\"stu_id\", \"stu_id\", " + DynamicFilter.MAX_KEYS + ")",
+            SparkDynamicFilter.invocation("filterSql", "\"" + SQL + "\"",
+                new DynamicFilter("edu_manage_department_0", "stu_id", "stu_id")));
+    }
+}
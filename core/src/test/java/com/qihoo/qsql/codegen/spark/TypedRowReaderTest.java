@@ -0,0 +1,133 @@
+package com.qihoo.qsql.codegen.spark;
+
+import com.qihoo.qsql.codegen.spark.SparkMySqlGenerator.TypedRowReader;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TypedRowReader} and the {@link com.qihoo.qsql.codegen.JdbcColumnType} it reads by.
+ */
+public class TypedRowReaderTest {
+
+    //type, precision, scale, signed
+    private static final int[][] COLUMNS = {
+        {Types.DECIMAL, 10, 2, 1},
+        {Types.DECIMAL, 0, 0, 1},
+        {Types.DECIMAL, 65, 30, 1},
+        {Types.BIGINT, 20, 0, 0},
+        {Types.INTEGER, 10, 0, 0},
+        {Types.TIME, 8, 0, 1},
+        {Types.BIT, 1, 0, 1},
+        {Types.BIT, 8, 0, 1}
+    };
+
+    @Test
+    public void testSchema() throws SQLException {
+        DataType[] expected = {
+            DataTypes.createDecimalType(10, 2),
+            DataTypes.createDecimalType(38, 18),
+            DataTypes.StringType,
+            DataTypes.createDecimalType(20, 0),
+            DataTypes.LongType,
+            DataTypes.StringType,
+            DataTypes.BooleanType,
+            DataTypes.LongType
+        };
+
+        TypedRowReader reader = new TypedRowReader(metaData());
+        Assert.assertEquals(expected.length, reader.getSchema().fields().length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals("column " + (i + 1), expected[i], reader.getSchema().fields()[i].dataType());
+            Assert.assertTrue(reader.getSchema().fields()[i].nullable());
+        }
+    }
+
+    @Test
+    public void testReadValues() throws SQLException {
+        Object[] row = {
+            new BigDecimal("12.50"),
+            new BigDecimal("3.141592653589793238"),
+            new BigDecimal("1234567890123456789012345678901234567890.5"),
+            new BigDecimal("18446744073709551615"),
+            4294967295L,
+            "12:34:56",
+            true,
+            255L
+        };
+
+        Object[] values = new TypedRowReader(metaData()).read(resultSet(row));
+        Assert.assertEquals(new BigDecimal("12.50"), values[0]);
+        Assert.assertEquals(new BigDecimal("3.141592653589793238"), values[1]);
+        //precision above 38 is kept exact as text
+        Assert.assertEquals("1234567890123456789012345678901234567890.5", values[2]);
+        Assert.assertEquals(new BigDecimal("18446744073709551615"), values[3]);
+        Assert.assertEquals(4294967295L, values[4]);
+        Assert.assertEquals("12:34:56", values[5]);
+        Assert.assertEquals(true, values[6]);
+        Assert.assertEquals(255L, values[7]);
+    }
+
+    @Test
+    public void testReadNulls() throws SQLException {
+        Object[] values = new TypedRowReader(metaData()).read(resultSet(new Object[COLUMNS.length]));
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertNull("column " + (i + 1), values[i]);
+        }
+    }
+
+    private static ResultSetMetaData metaData() {
+        return (ResultSetMetaData) Proxy.newProxyInstance(TypedRowReaderTest.class.getClassLoader(),
+            new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+                if ("getColumnCount".equals(method.getName())) {
+                    return COLUMNS.length;
+                }
+                int[] column = COLUMNS[(Integer) args[0] - 1];
+                switch (method.getName()) {
+                    case "getColumnType":
+                        return column[0];
+                    case "getPrecision":
+                        return column[1];
+                    case "getScale":
+                        return column[2];
+                    case "isSigned":
+                        return column[3] == 1;
+                    case "getColumnLabel":
+                        return "c" + args[0];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static ResultSet resultSet(Object[] row) {
+        boolean[] wasNull = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(TypedRowReaderTest.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                if ("wasNull".equals(method.getName())) {
+                    return wasNull[0];
+                }
+                Object value = row[(Integer) args[0] - 1];
+                wasNull[0] = value == null;
+                switch (method.getName()) {
+                    case "getBigDecimal":
+                        return value;
+                    case "getString":
+                        return value == null ? null : value.toString();
+                    case "getLong":
+                        return value == null ? 0L : ((Number) value).longValue();
+                    case "getBoolean":
+                        return value != null && (Boolean) value;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
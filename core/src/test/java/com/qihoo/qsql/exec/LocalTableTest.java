@@ -0,0 +1,167 @@
+package com.qihoo.qsql.exec;
+
+import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.exec.LocalTable.Column;
+import com.qihoo.qsql.exec.pool.DirectConnectionProvider;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LocalTableTest {
+
+    @Test
+    public void testJoinTablesInMemory() throws SQLException {
+        LocalTable department = new LocalTable(
+            Arrays.asList(new Column("dep_id", SqlTypeName.INTEGER, 0, 0),
+                new Column("dep_name", SqlTypeName.VARCHAR, 0, 0)),
+            Arrays.asList(new Object[] {1, "math"}, new Object[] {2, "physics"}, new Object[] {3, null}));
+        LocalTable student = new LocalTable(
+            Arrays.asList(new Column("stu_id", SqlTypeName.BIGINT, 0, 0),
+                new Column("dep_id", SqlTypeName.INTEGER, 0, 0)),
+            Arrays.asList(new Object[] {10L, 1}, new Object[] {11L, 1}, new Object[] {12L, 3}));
+
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = createLocalConnection()) {
+            SchemaPlus rootSchema = connection.unwrap(CalciteConnection.class).getRootSchema();
+            rootSchema.add("edu_manage_department_0", department);
+            rootSchema.add("student_profile_student_1", student);
+
+            try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT \"t0\".\"stu_id\", \"t1\".\"dep_name\""
+                    + " FROM \"student_profile_student_1\" AS \"t0\""
+                    + " INNER JOIN \"edu_manage_department_0\" AS \"t1\" ON \"t0\".\"dep_id\" = \"t1\".\"dep_id\""
+                    + " ORDER BY \"t0\".\"stu_id\"")) {
+                while (resultSet.next()) {
+                    rows.add(resultSet.getLong(1) + ":" + resultSet.getString(2));
+                }
+            }
+        }
+        Assert.assertEquals(Arrays.asList("10:math", "11:math", "12:null"), rows);
+    }
+
+    @Test
+    public void testMaterializeInCalciteRepresentation() throws SQLException {
+        Date date = Date.valueOf("1970-01-11");
+        Timestamp timestamp = Timestamp.valueOf("1970-01-01 00:00:01");
+        ResultSet resultSet = resultSet(
+            new String[] {"tiny", "big", "real", "amount", "flag", "day", "at", "name", "raw"},
+            new int[] {Types.TINYINT, Types.BIGINT, Types.REAL, Types.DECIMAL, Types.BOOLEAN, Types.DATE,
+                Types.TIMESTAMP, Types.VARCHAR, Types.OTHER},
+            new Object[][] {
+                {(byte) 1, 2L, 1.5F, new BigDecimal("3.25"), true, date, timestamp, "a", "{}"},
+                {null, null, null, null, null, null, null, null, null}});
+
+        LocalTable table = LocalTable.materialize(resultSet, 10);
+        Assert.assertEquals(2, table.size());
+
+        RelDataType rowType = table.getRowType(new JavaTypeFactoryImpl());
+        Assert.assertEquals(Arrays.asList("tiny", "big", "real", "amount", "flag", "day", "at", "name", "raw"),
+            rowType.getFieldNames());
+        List<SqlTypeName> types = new ArrayList<>();
+        rowType.getFieldList().forEach(field -> types.add(field.getType().getSqlTypeName()));
+        Assert.assertEquals(Arrays.asList(SqlTypeName.INTEGER, SqlTypeName.BIGINT, SqlTypeName.DOUBLE,
+            SqlTypeName.DECIMAL, SqlTypeName.BOOLEAN, SqlTypeName.DATE, SqlTypeName.TIMESTAMP,
+            SqlTypeName.VARCHAR, SqlTypeName.VARCHAR), types);
+        Assert.assertTrue(rowType.getFieldList().stream().allMatch(field -> field.getType().isNullable()));
+        Assert.assertEquals(10, rowType.getFieldList().get(3).getType().getPrecision());
+        Assert.assertEquals(2, rowType.getFieldList().get(3).getType().getScale());
+
+        List<Object[]> rows = table.scan(null).toList();
+        Assert.assertArrayEquals(new Object[] {1, 2L, 1.5D, new BigDecimal("3.25"), true, 10, 1000L, "a", "{}"},
+            rows.get(0));
+        Assert.assertArrayEquals(new Object[9], rows.get(1));
+    }
+
+    @Test
+    public void testMaterializeUpToMaxRows() throws SQLException {
+        Object[][] rows = {{1}, {2}, {3}};
+        Assert.assertEquals(3, LocalTable.materialize(
+            resultSet(new String[] {"id"}, new int[] {Types.INTEGER}, rows), 3).size());
+        try {
+            LocalTable.materialize(resultSet(new String[] {"id"}, new int[] {Types.INTEGER}, rows), 2);
+            Assert.fail("Rows more than the limit should not be materialized");
+        } catch (QsqlException ex) {
+            Assert.assertTrue(ex.getMessage().contains("more than 2"));
+        }
+    }
+
+    private static Connection createLocalConnection() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("lex", "ORACLE");
+        return new DirectConnectionProvider(info)
+            .getConnection("org.apache.calcite.jdbc.Driver", "jdbc:calcite:", info);
+    }
+
+    private static ResultSet resultSet(String[] labels, int[] types, Object[][] rows) {
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(LocalTableTest.class.getClassLoader(),
+            new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return types.length;
+                    case "getColumnLabel":
+                        return labels[(Integer) args[0] - 1];
+                    case "getColumnType":
+                        return types[(Integer) args[0] - 1];
+                    case "getPrecision":
+                        return types[(Integer) args[0] - 1] == Types.DECIMAL ? 10 : 0;
+                    case "getScale":
+                        return types[(Integer) args[0] - 1] == Types.DECIMAL ? 2 : 0;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        int[] cursor = {- 1};
+        boolean[] wasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(LocalTableTest.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return ++ cursor[0] < rows.length;
+                    case "getMetaData":
+                        return meta;
+                    case "wasNull":
+                        return wasNull[0];
+                    default:
+                        break;
+                }
+                Object value = rows[cursor[0]][(Integer) args[0] - 1];
+                wasNull[0] = value == null;
+                switch (method.getName()) {
+                    case "getInt":
+                        return value == null ? 0 : ((Number) value).intValue();
+                    case "getLong":
+                        return value == null ? 0L : ((Number) value).longValue();
+                    case "getDouble":
+                        return value == null ? 0D : ((Number) value).doubleValue();
+                    case "getBoolean":
+                        return value != null && (Boolean) value;
+                    case "getBigDecimal":
+                    case "getDate":
+                    case "getTimestamp":
+                        return value;
+                    case "getString":
+                        return value == null ? null : value.toString();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,73 @@
+package com.qihoo.qsql.exec.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PooledConnectionProviderTest {
+
+    private static final String CALCITE_DRIVER = "org.apache.calcite.jdbc.Driver";
+    private static final String CALCITE_URL = "jdbc:calcite:";
+
+    private PooledConnectionProvider provider;
+
+    @Before
+    public void open() {
+        provider = new PooledConnectionProvider(new Properties());
+    }
+
+    @Test
+    public void testConnectionIsReusedAfterClosed() throws SQLException {
+        CalciteConnection first;
+        try (Connection connection = provider.getConnection(CALCITE_DRIVER, CALCITE_URL, info("true"))) {
+            first = connection.unwrap(CalciteConnection.class);
+        }
+        try (Connection connection = provider.getConnection(CALCITE_DRIVER, CALCITE_URL, info("true"))) {
+            Assert.assertSame(first, connection.unwrap(CalciteConnection.class));
+        }
+    }
+
+    @Test
+    public void testBorrowedConnectionsAreNotShared() throws SQLException {
+        try (Connection first = provider.getConnection(CALCITE_DRIVER, CALCITE_URL, info("true"));
+            Connection second = provider.getConnection(CALCITE_DRIVER, CALCITE_URL, info("true"))) {
+            Assert.assertNotSame(first.unwrap(CalciteConnection.class), second.unwrap(CalciteConnection.class));
+        }
+    }
+
+    @Test
+    public void testConnectionsAreKeyedByProperties() throws SQLException {
+        CalciteConnection first;
+        try (Connection connection = provider.getConnection(CALCITE_DRIVER, CALCITE_URL, info("true"))) {
+            first = connection.unwrap(CalciteConnection.class);
+        }
+        try (Connection connection = provider.getConnection(CALCITE_DRIVER, CALCITE_URL, info("false"))) {
+            Assert.assertNotSame(first, connection.unwrap(CalciteConnection.class));
+        }
+    }
+
+    @Test
+    public void testCreateConfiguredProvider() {
+        Properties properties = new Properties();
+        Assert.assertTrue(ConnectionProviders.create(properties) instanceof PooledConnectionProvider);
+        properties.setProperty(ConnectionProviders.CONNECTION_PROVIDER,
+            DirectConnectionProvider.class.getCanonicalName());
+        Assert.assertTrue(ConnectionProviders.create(properties) instanceof DirectConnectionProvider);
+    }
+
+    @After
+    public void close() {
+        provider.close();
+    }
+
+    private Properties info(String caseSensitive) {
+        Properties info = new Properties();
+        info.setProperty("caseSensitive", caseSensitive);
+        return info;
+    }
+}
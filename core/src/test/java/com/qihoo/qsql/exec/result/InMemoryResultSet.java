@@ -0,0 +1,78 @@
+package com.qihoo.qsql.exec.result;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * Forward-only {@link ResultSet} over rows in memory, which answers the getters used by result printers.
+ */
+final class InMemoryResultSet implements InvocationHandler {
+
+    private final int[] types;
+    private final Object[][] rows;
+    private int cursor = - 1;
+    private boolean wasNull;
+
+    private InMemoryResultSet(int[] types, Object[][] rows) {
+        this.types = types;
+        this.rows = rows;
+    }
+
+    static ResultSet create(int[] types, Object[][] rows) {
+        return (ResultSet) Proxy.newProxyInstance(InMemoryResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class}, new InMemoryResultSet(types, rows));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "next":
+                return ++ cursor < rows.length;
+            case "getMetaData":
+                return Proxy.newProxyInstance(InMemoryResultSet.class.getClassLoader(),
+                    new Class<?>[] {ResultSetMetaData.class}, this::invokeMetaData);
+            case "wasNull":
+                return wasNull;
+            case "close":
+                return null;
+            default:
+                break;
+        }
+        Object value = rows[cursor][(Integer) args[0] - 1];
+        wasNull = value == null;
+        switch (method.getName()) {
+            case "getObject":
+                return value;
+            case "getString":
+                return value == null ? null : value.toString();
+            case "getInt":
+                return value == null ? 0 : ((Number) value).intValue();
+            case "getLong":
+                return value == null ? 0L : ((Number) value).longValue();
+            case "getFloat":
+                return value == null ? 0F : ((Number) value).floatValue();
+            case "getDouble":
+                return value == null ? 0D : ((Number) value).doubleValue();
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private Object invokeMetaData(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getColumnCount":
+                return types.length;
+            case "getColumnType":
+                return types[(Integer) args[0] - 1];
+            case "getColumnLabel":
+                return "c" + args[0];
+            case "isSigned":
+                return true;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
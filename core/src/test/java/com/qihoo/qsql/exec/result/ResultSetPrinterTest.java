@@ -0,0 +1,48 @@
+package com.qihoo.qsql.exec.result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.sql.Types;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ResultSetPrinter}.
+ */
+public class ResultSetPrinterTest {
+
+    private static final int[] TYPES = {
+        Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.REAL, Types.VARCHAR, Types.DECIMAL, Types.TINYINT};
+
+    private static final Object[][] ROWS = {
+        {1, Long.MIN_VALUE, 1.5D, 2.25F, "a b", new BigDecimal("1.50"), true},
+        {null, null, null, null, null, null, null},
+        {- 3, 0L, 1e20D, 0.1F, "\u4e2d\u6587", BigDecimal.ZERO, false}
+    };
+
+    @Test
+    public void testPrintSameAsConcatFunc() throws SQLException, IOException {
+        StringBuilder expected = new StringBuilder();
+        for (Object[] row : ROWS) {
+            expected.append(JdbcResultSetIterator.CONCAT_FUNC.apply(row)).append('\n');
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = new ResultSetPrinter(output, 16).print(InMemoryResultSet.create(TYPES, ROWS));
+
+        Assert.assertEquals(ROWS.length, rows);
+        Assert.assertArrayEquals(expected.toString().getBytes(Charset.defaultCharset()), output.toByteArray());
+    }
+
+    @Test
+    public void testPrintEmptyResult() throws SQLException, IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ResultSetPrinter printer = new ResultSetPrinter(output);
+
+        Assert.assertEquals(0, printer.print(InMemoryResultSet.create(TYPES, new Object[0][])));
+        Assert.assertEquals(0, output.size());
+    }
+}
@@ -0,0 +1,166 @@
+package com.qihoo.qsql.exec.result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link RowFileWriter} and {@link RowFileFormat}.
+ */
+public class RowFileWriterTest {
+
+    private static final String[] COLUMNS = {"id", "name", "score"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteText() throws IOException {
+        File dir = folder.newFolder("text");
+        try (RowFileWriter writer = new RowFileWriter(dir.getPath(),
+            new RowFileFormat.Text(COLUMNS, "\t"), new Properties())) {
+            writer.write(new Object[] {1, "a", new BigDecimal("1.50")});
+            writer.write(new Object[] {- 20L, "\u4e2d\u6587", null});
+            writer.write(new Object[] {Long.MIN_VALUE, "\ud83d\ude00", 2.0});
+        }
+
+        Assert.assertEquals("1\ta\t1.50\n"
+                + "-20\t\u4e2d\u6587\tnull\n"
+                + Long.MIN_VALUE + "\t\ud83d\ude00\t2.0\n",
+            read(new File(dir, "part-00000.txt"), false));
+    }
+
+    @Test
+    public void testWriteUnpairedSurrogates() throws IOException {
+        File dir = folder.newFolder("surrogates");
+        try (RowFileWriter writer = new RowFileWriter(dir.getPath(),
+            new RowFileFormat.Text(new String[] {"text"}, "\t"), new Properties())) {
+            writer.write(new Object[] {"a\ud83d"});
+            writer.write(new Object[] {"\ude00b"});
+            writer.write(new Object[] {"\ud83d\ud83d\ude00"});
+            writer.write(new Object[] {"x\ud83dy"});
+        }
+
+        Assert.assertEquals("a\ufffd\n"
+                + "\ufffdb\n"
+                + "\ufffd\ud83d\ude00\n"
+                + "x\ufffdy\n",
+            read(new File(dir, "part-00000.txt"), false));
+    }
+
+    @Test
+    public void testWriteCsv() throws IOException {
+        File dir = folder.newFolder("csv");
+        try (RowFileWriter writer = new RowFileWriter(dir.getPath(),
+            new RowFileFormat.Csv(COLUMNS), new Properties())) {
+            writer.write(new Object[] {1, "a,b", null});
+            writer.write(new Object[] {2, "say \"hi\"", 3.5});
+        }
+
+        Assert.assertEquals("id,name,score\r\n"
+                + "1,\"a,b\",\r\n"
+                + "2,\"say \"\"hi\"\"\",3.5\r\n",
+            read(new File(dir, "part-00000.csv"), false));
+    }
+
+    @Test
+    public void testWriteGzipJson() throws IOException {
+        File dir = folder.newFolder("json");
+        Properties properties = new Properties();
+        properties.put(RowFileWriter.SINK_COMPRESSION, "gzip");
+        try (RowFileWriter writer = new RowFileWriter(dir.getPath(),
+            new RowFileFormat.Json(COLUMNS), properties)) {
+            writer.write(new Object[] {1, "line\n\"quoted\"", Double.NaN});
+            writer.write(new Object[] {2, null, true});
+        }
+
+        Assert.assertEquals("{\"id\":1,\"name\":\"line\\n\\\"quoted\\\"\",\"score\":\"NaN\"}\n"
+                + "{\"id\":2,\"name\":null,\"score\":true}\n",
+            read(new File(dir, "part-00000.json.gz"), true));
+    }
+
+    @Test
+    public void testWriteHadoopCodec() throws IOException {
+        File dir = folder.newFolder("bzip2");
+        Properties properties = new Properties();
+        properties.put(RowFileWriter.SINK_COMPRESSION, "bzip2");
+        try (RowFileWriter writer = new RowFileWriter(dir.getPath(),
+            new RowFileFormat.Text(COLUMNS, ","), properties)) {
+            writer.write(new Object[] {1, "a", 2.5});
+        }
+
+        BZip2Codec codec = new BZip2Codec();
+        codec.setConf(new Configuration());
+        try (InputStream input = codec.createInputStream(
+            Files.newInputStream(new File(dir, "part-00000.txt.bz2").toPath()))) {
+            Assert.assertEquals("1,a,2.5\n", read(input));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCompression() {
+        Properties properties = new Properties();
+        properties.put(RowFileWriter.SINK_COMPRESSION, "zstd");
+        new RowFileWriter(folder.getRoot().getPath(), new RowFileFormat.Csv(COLUMNS), properties);
+    }
+
+    @Test
+    public void testRollFilesBySize() throws IOException {
+        File dir = folder.newFolder("roll");
+        Files.write(new File(dir, "part-00009.txt").toPath(), "stale".getBytes(StandardCharsets.UTF_8));
+
+        Properties properties = new Properties();
+        properties.put(RowFileWriter.SINK_ROLL_BYTES, "10");
+        properties.put(RowFileWriter.SINK_BUFFER_BYTES, "64");
+        try (RowFileWriter writer = new RowFileWriter(dir.getPath(),
+            new RowFileFormat.Text(COLUMNS, ","), properties)) {
+            for (int i = 0; i < 5; i++) {
+                writer.write(new Object[] {i, "abcdefgh", i * 10});
+            }
+        }
+
+        String[] parts = dir.list();
+        Assert.assertNotNull(parts);
+        Assert.assertEquals(5, parts.length);
+        Assert.assertFalse(new File(dir, "part-00009.txt").exists());
+        Assert.assertEquals("4,abcdefgh,40\n", read(new File(dir, "part-00004.txt"), false));
+    }
+
+    @Test
+    public void testEmptyResult() throws IOException {
+        File dir = folder.newFolder("empty");
+        new RowFileWriter(dir.getPath(), new RowFileFormat.Csv(COLUMNS), new Properties()).close();
+
+        Assert.assertEquals("id,name,score\r\n", read(new File(dir, "part-00000.csv"), false));
+    }
+
+    private static String read(File file, boolean gzip) throws IOException {
+        try (InputStream input = gzip
+            ? new GZIPInputStream(Files.newInputStream(file.toPath()))
+            : Files.newInputStream(file.toPath())) {
+            return read(input);
+        }
+    }
+
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] bytes = new byte[4096];
+        int length;
+        while ((length = input.read(bytes)) > 0) {
+            output.write(bytes, 0, length);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -28,6 +28,24 @@ public class OptionsParserTest {
         Assert.assertEquals(parser.getOptionValue(SubmitOption.JAR), "tools.jar;sun.jar");
     }
 
+    @Test
+    public void testDefaultOptions() throws ParseException {
+        String[] args = {
+            "--runner", "SPARK",
+            "--master", "local[*]",
+            "--driver_memory", "",
+            "--worker_memory", "4G",
+            "--jar", "tools.jar"
+        };
+
+        OptionsParser parser = new OptionsParser(args);
+        Assert.assertTrue(parser.isDefault(SubmitOption.MASTER_MODE));
+        Assert.assertTrue(parser.isDefault(SubmitOption.DRIVER_MEMORY));
+        Assert.assertTrue(parser.isDefault(SubmitOption.APP_NAME));
+        Assert.assertFalse(parser.isDefault(SubmitOption.WORKER_MEMORY));
+        Assert.assertFalse(parser.isDefault(SubmitOption.JAR));
+    }
+
     @Test
     public void testErrorOptionLength() throws ParseException {
         String[] args = {
@@ -0,0 +1,138 @@
+package com.qihoo.qsql.launcher;
+
+import com.qihoo.qsql.exception.QsqlException;
+import com.qihoo.qsql.launcher.SparkJobProtocol.JobRequest;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SparkJobServer}, with jobs which print instead of running on Spark.
+ */
+public class SparkJobServerTest {
+
+    private static final byte[] SECRET = "secret".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PrintStream console;
+    private SparkJobServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        console = System.out;
+        server = new SparkJobServer(null, 0, 2, SECRET) {
+            @Override
+            void runJob(JobRequest request, String pool) {
+                if ("fail".equals(request.source)) {
+                    throw new IllegalStateException("Table not found");
+                }
+                for (int i = 0; i < 3; i++) {
+                    System.out.println(request.source + "\t" + i);
+                }
+                scala.Console.println(pool.startsWith("qsql_job_"));
+            }
+        };
+        Thread serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        System.setOut(console);
+    }
+
+    @Test
+    public void testStreamJobOutput() throws IOException {
+        Assert.assertEquals("a\t0\na\t1\na\t2\ntrue\n", submit("a"));
+        Assert.assertEquals("b\t0\nb\t1\nb\t2\ntrue\n", submit("b"));
+    }
+
+    @Test
+    public void testJobFailed() throws IOException {
+        try {
+            submit("fail");
+            Assert.fail("Job should fail");
+        } catch (QsqlException ex) {
+            Assert.assertTrue(ex.getMessage().contains("Table not found"));
+        }
+        Assert.assertEquals("c\t0\nc\t1\nc\t2\ntrue\n", submit("c"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectWrongSecret() throws IOException {
+        submit("a", "wrong".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectIllegalLength() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(SparkJobProtocol.MAGIC);
+            out.writeInt(SECRET.length);
+            out.write(SECRET);
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+            SparkJobProtocol.readResult(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                new ByteArrayOutputStream());
+        }
+    }
+
+    @Test
+    public void testSecretFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("conf").resolve("spark-server.secret");
+        byte[] secret = SparkJobProtocol.createSecret(file);
+
+        Assert.assertEquals(64, secret.length);
+        Assert.assertArrayEquals(secret, SparkJobProtocol.createSecret(file));
+        Assert.assertArrayEquals(secret, SparkJobProtocol.readSecret(file));
+        Assert.assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+        try {
+            SparkJobProtocol.readSecret(file);
+            Assert.fail("Secret readable by others should be rejected");
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage().contains("by its owner only"));
+        }
+    }
+
+    private String submit(String source) throws IOException {
+        return submit(source, SECRET);
+    }
+
+    private String submit(String source, byte[] secret) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            SparkJobProtocol.writeRequest(new DataOutputStream(socket.getOutputStream()),
+                secret, new JobRequest("Requirement1", source, "test"));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            SparkJobProtocol.readResult(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                output);
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.qihoo.qsql.metadata;
 
 
+import com.qihoo.qsql.metadata.entity.ColumnStatsValue;
 import com.qihoo.qsql.metadata.entity.ColumnValue;
 import com.qihoo.qsql.metadata.entity.DatabaseParamValue;
 import com.qihoo.qsql.metadata.entity.DatabaseValue;
+import com.qihoo.qsql.metadata.entity.TableStatsValue;
 import com.qihoo.qsql.metadata.entity.TableValue;
 import java.sql.SQLException;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import org.junit.AfterClass;
@@ -115,6 +121,52 @@ public class MetadataClientTest {
                 ! column.getColumnName().isEmpty() && ! column.getTypeName().isEmpty()));
     }
 
+    @Test
+    public void testQueryTablesWithDatabaseInBatch() {
+        List<SimpleImmutableEntry<TableValue, DatabaseValue>> tables =
+            client.getTableSchemasWithDatabase(Arrays.asList("student", "NOT_EXISTED_TABLE"));
+        Assert.assertEquals(1, tables.size());
+        Assert.assertEquals("student-profile", tables.get(0).getValue().getName());
+        Assert.assertEquals("es", tables.get(0).getValue().getDbType());
+
+        Long dbId = tables.get(0).getKey().getDbId();
+        Map<Long, List<DatabaseParamValue>> params = client.getDatabaseSchemas(Collections.singletonList(dbId));
+        Assert.assertEquals(client.getDatabaseSchema(dbId), params.get(dbId));
+
+        Long tblId = tables.get(0).getKey().getTblId();
+        Map<Long, List<ColumnValue>> columns = client.getFieldsSchemas(Collections.singletonList(tblId));
+        Assert.assertEquals(
+            client.getFieldsSchema(tblId).stream().map(ColumnValue::getColumnName).collect(Collectors.toList()),
+            columns.get(tblId).stream().map(ColumnValue::getColumnName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testReplaceStatistics() throws SQLException {
+        Long tblId = client.getTableSchema("student").get(0).getTblId();
+        List<Long> tableIds = Collections.singletonList(tblId);
+
+        //rolled back, so that embedded metadata storage is not changed
+        client.setAutoCommit(false);
+        try {
+            client.replaceStatistics(new TableStatsValue(tblId, 100L, 2048L),
+                Collections.singletonList(new ColumnStatsValue(tblId, "stu_id", 100L)));
+            client.replaceStatistics(new TableStatsValue(tblId, 200L, null),
+                Arrays.asList(new ColumnStatsValue(tblId, "stu_id", 200L, true),
+                    new ColumnStatsValue(tblId, "city", 10L)));
+
+            TableStatsValue tableStats = client.getTableStatistics(tableIds).get(tblId);
+            Assert.assertEquals(Long.valueOf(200L), tableStats.getRowCount());
+            Assert.assertNull(tableStats.getTotalSize());
+            Assert.assertEquals(Arrays.asList("city:10", "stu_id:200:unique"),
+                client.getColumnStatistics(tableIds).get(tblId).stream()
+                    .map(ColumnStatsValue::toString).sorted().collect(Collectors.toList()));
+        } finally {
+            client.rollback();
+            client.setAutoCommit(true);
+        }
+        Assert.assertFalse(client.getTableStatistics(tableIds).containsKey(tblId));
+    }
+
     /**
      * close resource.
      */
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.apache.calcite.model.JsonCustomSchema;
+import org.apache.calcite.model.JsonRoot;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -41,6 +43,34 @@ public class MetadataPostmanTest {
         validateSimpleName(meta, "action_required", "homework_content");
     }
 
+    @Test
+    public void testAssembledSchemaIsCachedAsCopy() {
+        SchemaAssembler first = MetadataPostman.getAssembledSchema(
+            Collections.singletonList("student")).get(0);
+        SchemaAssembler second = MetadataPostman.getAssembledSchema(
+            Collections.singletonList("student")).get(0);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.getConnectionProperties(), second.getConnectionProperties());
+
+        first.getConnectionProperties().put("tableName", "modified");
+        SchemaAssembler third = MetadataPostman.getAssembledSchema(
+            Collections.singletonList("student")).get(0);
+        Assert.assertEquals("student", third.getConnectionProperties().get("tableName"));
+    }
+
+    @Test
+    public void testAssembleModelWithoutJson() {
+        JsonRoot root = MetadataPostman.assembleModel(MetadataPostman.getAssembledSchema(
+            Arrays.asList("homework_content", "department")));
+        Assert.assertEquals("QSql", root.defaultSchema);
+        Assert.assertTrue(root.schemas.stream().anyMatch(schema -> schema.name.equals("action_required")
+            && ((JsonCustomSchema) schema).tables.stream()
+            .anyMatch(table -> table.name.equals("homework_content"))));
+        Assert.assertTrue(root.schemas.stream().anyMatch(schema -> schema.name.equals("edu_manage")
+            && ((JsonCustomSchema) schema).tables.stream()
+            .anyMatch(table -> table.name.equals("department") && ! table.columns.isEmpty())));
+    }
+
     private void validateSimpleName(String meta, String dbName, String tableName) {
         JsonParser parser = new JsonParser();
         JsonElement element = parser.parse(meta);
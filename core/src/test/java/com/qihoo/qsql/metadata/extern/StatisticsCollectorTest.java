@@ -0,0 +1,68 @@
+package com.qihoo.qsql.metadata.extern;
+
+import com.qihoo.qsql.metadata.entity.ColumnStatsValue;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StatisticsCollector}.
+ */
+public class StatisticsCollectorTest {
+
+    @Test
+    public void testReadColumnStatistics() throws SQLException {
+        ResultSet resultSet = indexStatistics(new Object[][] {
+            {"stu_id", 980L, 1},
+            {"city", 12L, 0},
+            {"card_no", null, 1},
+            {"remark", null, 0}});
+
+        List<ColumnStatsValue> columns = StatisticsCollector.readColumnStatistics(7L, resultSet);
+        Assert.assertEquals(Arrays.asList("stu_id:980:unique", "city:12", "card_no:null:unique"),
+            columns.stream().map(ColumnStatsValue::toString).collect(Collectors.toList()));
+        Assert.assertTrue(columns.stream().allMatch(column -> column.getCdId() == 7L));
+    }
+
+    @Test
+    public void testParseCount() {
+        Assert.assertEquals(Long.valueOf(1024L), StatisticsCollector.parseCount(" 1024 "));
+        Assert.assertNull(StatisticsCollector.parseCount(null));
+        Assert.assertNull(StatisticsCollector.parseCount("-1"));
+        Assert.assertNull(StatisticsCollector.parseCount("unknown"));
+    }
+
+    private static ResultSet indexStatistics(Object[][] rows) {
+        List<String> labels = Arrays.asList("COLUMN_NAME", "NUM_DISTINCTS", "IS_UNIQUE");
+        int[] cursor = {- 1};
+        boolean[] wasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(StatisticsCollectorTest.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return ++ cursor[0] < rows.length;
+                    case "wasNull":
+                        return wasNull[0];
+                    default:
+                        break;
+                }
+                Object value = rows[cursor[0]][labels.indexOf((String) args[0])];
+                wasNull[0] = value == null;
+                switch (method.getName()) {
+                    case "getString":
+                        return value;
+                    case "getLong":
+                        return value == null ? 0L : ((Number) value).longValue();
+                    case "getInt":
+                        return value == null ? 0 : ((Number) value).intValue();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
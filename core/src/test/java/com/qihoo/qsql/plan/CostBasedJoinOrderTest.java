@@ -0,0 +1,112 @@
+package com.qihoo.qsql.plan;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelVisitor;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.rules.MultiJoin;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.tools.Frameworks;
+import org.apache.calcite.tools.RelBuilder;
+import org.apache.calcite.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CostBasedJoinOrder}.
+ */
+public class CostBasedJoinOrderTest {
+
+    @Test
+    public void testReorderAnalyzedTables() {
+        RelNode root = join(JoinRelType.INNER, 1000000D, 10D, 1000D);
+        RelNode reordered = CostBasedJoinOrder.reorder(root);
+
+        Assert.assertNotSame(root, reordered);
+        Assert.assertEquals(root.getRowType(), reordered.getRowType());
+        List<String> tables = new ArrayList<>();
+        boolean[] multiJoin = new boolean[1];
+        new RelVisitor() {
+            @Override
+            public void visit(RelNode node, int ordinal, RelNode parent) {
+                if (node instanceof TableScan) {
+                    tables.add(Util.last(node.getTable().getQualifiedName()));
+                }
+                multiJoin[0] |= node instanceof MultiJoin;
+                super.visit(node, ordinal, parent);
+            }
+        }.go(reordered);
+        Collections.sort(tables);
+        Assert.assertEquals(Arrays.asList("t0", "t1", "t2"), tables);
+        Assert.assertFalse(multiJoin[0]);
+    }
+
+    @Test
+    public void testKeepOrderWithoutStatistics() {
+        RelNode root = join(JoinRelType.INNER, 1000000D, null, 1000D);
+        Assert.assertSame(root, CostBasedJoinOrder.reorder(root));
+    }
+
+    @Test
+    public void testKeepOrderOfOuterJoin() {
+        RelNode root = join(JoinRelType.LEFT, 1000000D, 10D, 1000D);
+        Assert.assertSame(root, CostBasedJoinOrder.reorder(root));
+    }
+
+    @Test
+    public void testKeepSingleJoin() {
+        RelNode root = join(JoinRelType.INNER, 1000000D, 10D);
+        Assert.assertSame(root, CostBasedJoinOrder.reorder(root));
+    }
+
+    private static RelNode join(JoinRelType lastJoinType, Double... rowCounts) {
+        SchemaPlus rootSchema = Frameworks.createRootSchema(true);
+        for (int i = 0; i < rowCounts.length; i++) {
+            rootSchema.add("t" + i, new AnalyzedTable(rowCounts[i]));
+        }
+        RelBuilder builder = RelBuilder.create(Frameworks.newConfigBuilder().defaultSchema(rootSchema).build());
+        builder.scan("t0");
+        for (int i = 1; i < rowCounts.length; i++) {
+            builder.scan("t" + i)
+                .join(i == rowCounts.length - 1 ? lastJoinType : JoinRelType.INNER,
+                    builder.equals(builder.field(2, 0, 0), builder.field(2, 1, 0)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Table of a different data source from each other, whose row count is collected or not.
+     */
+    private static class AnalyzedTable extends AbstractTable {
+
+        private final Double rowCount;
+
+        AnalyzedTable(Double rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+            return typeFactory.builder()
+                .add("id", SqlTypeName.INTEGER)
+                .add("name", SqlTypeName.VARCHAR)
+                .build();
+        }
+
+        @Override
+        public Statistic getStatistic() {
+            return rowCount == null ? Statistics.UNKNOWN : Statistics.of(rowCount, ImmutableList.of());
+        }
+    }
+}
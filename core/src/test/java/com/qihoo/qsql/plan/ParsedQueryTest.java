@@ -0,0 +1,88 @@
+package com.qihoo.qsql.plan;
+
+import com.google.common.cache.CacheStats;
+import com.qihoo.qsql.exception.ParseException;
+import java.util.Arrays;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.calcite.util.Litmus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParsedQuery}.
+ */
+public class ParsedQueryTest {
+
+    @Before
+    public void invalidate() {
+        ParsedQuery.invalidateAll();
+    }
+
+    @Test
+    public void testTableNamesAreCollected() throws SqlParseException {
+        ParsedQuery query = ParsedQuery.parse("SELECT * FROM A JOIN B ON A.id = B.id");
+        Assert.assertEquals(Arrays.asList("A", "B"), query.getTableNames());
+    }
+
+    @Test
+    public void testParseIsMemoized() throws SqlParseException {
+        CacheStats before = ParsedQuery.stats();
+
+        ParsedQuery first = ParsedQuery.parse("SELECT a FROM db.t WHERE b = 'x'");
+        ParsedQuery second = ParsedQuery.parse("SELECT a FROM db.t WHERE b = 'x'");
+
+        Assert.assertSame(first, second);
+        CacheStats stats = ParsedQuery.stats().minus(before);
+        Assert.assertEquals(1, stats.missCount());
+        Assert.assertEquals(1, stats.hitCount());
+    }
+
+    @Test
+    public void testSqlNodeIsCopied() throws SqlParseException {
+        ParsedQuery query = ParsedQuery.parse("SELECT a, b FROM t WHERE a > 1 ORDER BY b");
+        SqlNode first = query.getSqlNode();
+        SqlNode second = query.getSqlNode();
+
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.toString(), second.toString());
+        Assert.assertTrue(first.equalsDeep(second, Litmus.IGNORE));
+
+        SqlSelect select = (SqlSelect) ((SqlOrderBy) first).query;
+        select.setSelectList(new SqlNodeList(SqlParserPos.ZERO));
+        select.setWhere(null);
+        Assert.assertEquals(second.toString(), query.getSqlNode().toString());
+    }
+
+    @Test
+    public void testFailedParseIsNotCached() {
+        CacheStats before = ParsedQuery.stats();
+        for (int i = 0; i < 2; i++) {
+            try {
+                ParsedQuery.parse("SELECT FROM");
+                Assert.fail();
+            } catch (SqlParseException ex) {
+                Assert.assertNotNull(ex.getMessage());
+            }
+        }
+
+        CacheStats stats = ParsedQuery.stats().minus(before);
+        Assert.assertEquals(0, stats.hitCount());
+        Assert.assertEquals(2, stats.loadExceptionCount());
+    }
+
+    @Test
+    public void testUnsupportedTableName() throws SqlParseException {
+        try {
+            ParsedQuery.parse("SELECT * FROM a.b.c");
+            Assert.fail();
+        } catch (ParseException ex) {
+            Assert.assertTrue(ex.getMessage().contains("a.b.c"));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.qihoo.qsql.plan;
+
+import com.google.common.cache.CacheStats;
+import com.qihoo.qsql.exception.ParseException;
+import com.qihoo.qsql.metadata.MetadataCache;
+import com.qihoo.qsql.plan.proc.MemoryLoadProcedure;
+import com.qihoo.qsql.plan.proc.QueryProcedure;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link QueryProcedureCache}.
+ */
+public class QueryProcedureCacheTest {
+
+    private static final String SCHEMA = "inline: {}";
+
+    @Before
+    public void setUp() {
+        QueryProcedureCache.invalidateAll();
+    }
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("SELECT a FROM t WHERE b = 'x  y'",
+            QueryProcedureCache.normalize("  SELECT a\n\tFROM t   WHERE b = 'x  y' ;\n"));
+        Assert.assertEquals("SELECT `a  b` FROM t -- comment\nWHERE c = 1",
+            QueryProcedureCache.normalize("SELECT `a  b` FROM t -- comment\n   WHERE c = 1"));
+    }
+
+    @Test
+    public void testReusePlanOfSameSql() {
+        AtomicInteger loads = new AtomicInteger();
+        CacheStats before = QueryProcedureCache.stats();
+
+        QueryProcedure first = QueryProcedureCache.get(SCHEMA, "SELECT 1", () -> {
+            loads.incrementAndGet();
+            return new MemoryLoadProcedure();
+        });
+        QueryProcedure second = QueryProcedureCache.get(SCHEMA, "SELECT   1;", () -> {
+            loads.incrementAndGet();
+            return new MemoryLoadProcedure();
+        });
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, loads.get());
+        CacheStats stats = QueryProcedureCache.stats().minus(before);
+        Assert.assertEquals(1, stats.hitCount());
+        Assert.assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    public void testMissAfterMetadataChanged() {
+        QueryProcedure first = QueryProcedureCache.get(SCHEMA, "SELECT 1", MemoryLoadProcedure::new);
+        MetadataCache.invalidateAll();
+        QueryProcedure second = QueryProcedureCache.get(SCHEMA, "SELECT 1", MemoryLoadProcedure::new);
+        QueryProcedure other = QueryProcedureCache.get("inline: {\"version\": \"1.0\"}", "SELECT 1",
+            MemoryLoadProcedure::new);
+
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(second, other);
+    }
+
+    @Test
+    public void testMissAfterSchemaFileChanged() throws IOException {
+        File file = File.createTempFile("qsql-schema", ".json");
+        try {
+            Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+            String before = QueryProcedureCache.key(file.getPath(), "SELECT 1");
+            Assert.assertEquals(before, QueryProcedureCache.key(file.getPath(), "SELECT 1"));
+
+            Files.write(file.toPath(), "{\"version\": \"1.0\"}".getBytes(StandardCharsets.UTF_8));
+            Assert.assertNotEquals(before, QueryProcedureCache.key(file.getPath(), "SELECT 1"));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testFailedPlanIsNotCached() {
+        try {
+            QueryProcedureCache.get(SCHEMA, "SELECT", () -> {
+                throw new ParseException("Error When Parsing Origin SQL");
+            });
+            Assert.fail("Parse exception should be thrown");
+        } catch (ParseException ex) {
+            Assert.assertEquals("Error When Parsing Origin SQL", ex.getMessage());
+        }
+
+        AtomicInteger loads = new AtomicInteger();
+        QueryProcedureCache.get(SCHEMA, "SELECT", () -> {
+            loads.incrementAndGet();
+            return new MemoryLoadProcedure();
+        });
+        Assert.assertEquals(1, loads.get());
+    }
+}
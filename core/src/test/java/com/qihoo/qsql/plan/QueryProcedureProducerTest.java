@@ -136,6 +136,18 @@ public class QueryProcedureProducerTest {
         }
     }
 
+    @Test
+    public void testProcedureFromAssembledMetadata() {
+        String sql = "SELECT a.dep_id, b.stu_id FROM edu_manage.department AS a"
+            + " JOIN student_profile.student AS b ON a.dep_id = b.stu_id WHERE a.dep_id = 1";
+        List<String> tableNames = Arrays.asList(MYSQL_TABLE_NAME, ES_TABLE_NAME);
+        QueryProcedure fromJson = new QueryProcedureProducer(getSchemaPath(tableNames))
+            .createQueryProcedure(sql);
+        QueryProcedure fromModel = new QueryProcedureProducer(MetadataPostman.getAssembledSchema(tableNames))
+            .createQueryProcedure(sql);
+        Assert.assertEquals(getExtractorList(fromJson), getExtractorList(fromModel));
+    }
+
     private String getSchemaPath(List<String> tableNames) {
         return "inline: " + MetadataPostman.getCalciteModelSchema(tableNames);
     }
@@ -215,15 +215,14 @@ public class QueryProcedureTest {
             .checkExtra("SELECT MAX(stu_id) m, COUNT(*) c,"
                     + " COUNT(stu_id) d FROM (SELECT stu_id FROM action_required.homework_content "
                     + "ORDER BY stu_id LIMIT 100) t1",
-                "select * from edu_manage.department")
+                "select * from edu_manage.department where times > 12")
             .checkTrans("SELECT edu_manage_department_0.type,"
                 + " edu_manage_department_0.times FROM edu_manage_department_0,"
                 + " action_required_homework_content_1 WHERE CASE WHEN action_required_homework_content_1.c = 0 "
                 + "THEN FALSE WHEN edu_manage_department_0.dep_id <"
                 + " action_required_homework_content_1.m IS TRUE "
                 + "THEN TRUE WHEN action_required_homework_content_1.c > action_required_homework_content_1.d "
-                + "THEN NULL ELSE edu_manage_department_0.dep_id < action_required_homework_content_1.m END "
-                + "AND edu_manage_department_0.times > 12")
+                + "THEN NULL ELSE edu_manage_department_0.dep_id < action_required_homework_content_1.m END")
             .checkArchitect("[E]->[E]->[T]->[L]");
     }
 
@@ -457,15 +456,45 @@ public class QueryProcedureTest {
                 + "WHERE logparse.date_time = '20180901' LIMIT 100";
 
         prepareForChecking(sql)
-            .checkExtra("SELECT * FROM action_required.homework_content",
+            .checkExtra("SELECT * FROM action_required.homework_content WHERE date_time = '20180901'",
                 "select department_student_relation.stu_id, department.times "
                     + "from edu_manage.department inner join "
                     + "edu_manage.department_student_relation "
                     + "on department.dep_id = department_student_relation.dep_id")
             .checkTrans("SELECT * FROM edu_manage_department_0 "
                 + "INNER JOIN action_required_homework_content_1 "
-                + "ON edu_manage_department_0.stu_id = action_required_homework_content_1.stu_id "
-                + "WHERE action_required_homework_content_1.date_time = '20180901' LIMIT 100")
+                + "ON edu_manage_department_0.stu_id = action_required_homework_content_1.stu_id LIMIT 100")
+            .checkArchitect("[E]->[E]->[T]->[L]");
+    }
+
+    @Test
+    public void testPushdownBeforeSyncopation() {
+        String sql = "SELECT rel.dep_id, hw.signature FROM edu_manage.department_student_relation AS rel "
+            + "INNER JOIN action_required.homework_content AS hw ON rel.stu_id = hw.stu_id "
+            + "WHERE rel.dep_id > 10 AND hw.date_time = '20180901'";
+
+        prepareForChecking(sql)
+            .checkExtra("SELECT stu_id, signature FROM action_required.homework_content "
+                    + "WHERE date_time = '20180901'",
+                "select dep_id, stu_id from edu_manage.department_student_relation where dep_id > 10")
+            .checkTrans("SELECT edu_manage_department_student_relation_0.dep_id, "
+                + "action_required_homework_content_1.signature "
+                + "FROM edu_manage_department_student_relation_0 "
+                + "INNER JOIN action_required_homework_content_1 "
+                + "ON edu_manage_department_student_relation_0.stu_id = action_required_homework_content_1.stu_id")
+            .checkArchitect("[E]->[E]->[T]->[L]");
+    }
+
+    @Test
+    public void testDynamicFilterOnProbeSide() {
+        String sql = "SELECT rel.dep_id, hw.signature FROM edu_manage.department_student_relation AS rel "
+            + "INNER JOIN action_required.homework_content AS hw ON rel.stu_id = hw.stu_id "
+            + "WHERE rel.dep_id > 10";
+
+        prepareForChecking(sql)
+            .checkExtra("SELECT stu_id, signature FROM action_required.homework_content",
+                "select dep_id, stu_id from edu_manage.department_student_relation where dep_id > 10")
+            .checkDynamicFilter("stu_id IN (SELECT stu_id FROM edu_manage_department_student_relation_0)")
             .checkArchitect("[E]->[E]->[T]->[L]");
     }
 
@@ -512,6 +541,29 @@ public class QueryProcedureTest {
             return this;
         }
 
+        SqlHolder checkDynamicFilter(String expected) {
+            List<String> built = new ArrayList<>();
+            DynamicFilter filter = null;
+            QueryProcedure current = procedure;
+            do {
+                if (current instanceof ExtractProcedure) {
+                    ExtractProcedure extract = (ExtractProcedure) current;
+                    if (extract.getDynamicFilter() != null) {
+                        filter = extract.getDynamicFilter();
+                        //build side has been extracted before probe side
+                        Assert.assertTrue(built.contains(filter.getBuildTableName()));
+                    }
+                    built.add(extract.getTableName());
+                }
+                current = current.next();
+            }
+            while (current != null && current.hasNext());
+
+            Assert.assertTrue(filter != null);
+            Assert.assertEquals(expected, filter.toString());
+            return this;
+        }
+
         SqlHolder checkTrans() {
             QueryProcedure current = procedure;
             while (current.hasNext()) {
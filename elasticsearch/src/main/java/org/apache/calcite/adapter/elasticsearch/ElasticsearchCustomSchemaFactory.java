@@ -14,9 +14,7 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.elasticsearch.client.RestClient;
 
 import java.io.IOException;
-import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
 public class ElasticsearchCustomSchemaFactory extends ElasticsearchSchemaFactory {
@@ -41,8 +39,11 @@ public class ElasticsearchCustomSchemaFactory extends ElasticsearchSchemaFactory
             final String index = (String) operand.get("index");
             Preconditions.checkArgument(index != null, "index is missing in configuration");
 
-            final RestClient client = connect(coordinates, userConfig);
-            return new ElasticsearchSchema(client, index);
+            applyMetadataTtl(operand);
+            final Set<HttpHost> hosts = hosts(coordinates);
+            final RestClient client = connect(hosts, userConfig);
+            return new ElasticsearchSchema(client, index,
+                ElasticsearchMetadataCache.clusterKey(hosts));
         } catch (IOException e) {
             throw new RuntimeException("Cannot parse values from json", e);
         }
@@ -51,24 +52,17 @@ public class ElasticsearchCustomSchemaFactory extends ElasticsearchSchemaFactory
     /**
      * Builds elastic rest client from user configuration
      *
-     * @param coordinates list of {@code hostname/port} to connect to
+     * @param hosts hosts to connect to
      * @return newly initialized low-level rest http client for ES
      */
-    private static RestClient connect(Map<String, Integer> coordinates,
+    private static RestClient connect(Set<HttpHost> hosts,
         Map<String, String> userConfig) {
-        Objects.requireNonNull(coordinates, "coordinates");
-        Preconditions.checkArgument(!coordinates.isEmpty(), "no ES coordinates specified");
-        final Set<HttpHost> set = new LinkedHashSet<>();
-        for (Map.Entry<String, Integer> entry : coordinates.entrySet()) {
-            set.add(new HttpHost(entry.getKey(), entry.getValue()));
-        }
-
         final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
         credentialsProvider.setCredentials(AuthScope.ANY,
             new UsernamePasswordCredentials(userConfig.getOrDefault("esUser", "none"),
                 userConfig.getOrDefault("esPass", "none")));
 
-        return RestClient.builder(set.toArray(new HttpHost[0]))
+        return RestClient.builder(hosts.toArray(new HttpHost[0]))
             .setHttpClientConfigCallback(httpClientBuilder ->
                 httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider))
             .setMaxRetryTimeoutMillis(300000).build();
@@ -88,7 +88,7 @@ class ElasticsearchEnumerators {
     return getter;
   }
 
-  private static Object convert(Object o, Class clazz) {
+  static Object convert(Object o, Class clazz) {
     if (o == null) {
       return null;
     }
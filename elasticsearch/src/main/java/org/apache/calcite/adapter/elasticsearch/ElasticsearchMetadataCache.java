@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.http.HttpHost;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Process-wide cache of cluster metadata, which would otherwise be requested
+ * again each time a schema is built for a query: the version detected by
+ * {@code GET /}, the types found in {@code _mapping} of an index and the
+ * mapped types of fields.
+ *
+ * <p>Entries are keyed by the host list of cluster and expire after
+ * {@link #DEFAULT_TTL_SECONDS} seconds, or the time set by
+ * {@link #setTtlSeconds(long)}, which schema factories take from the
+ * {@code metadataTtlSeconds} operand.
+ * Use {@link #invalidate(String)} or {@link #invalidateAll()} to refresh them
+ * earlier, e.g. after a cluster upgrade or a mapping change.
+ */
+public final class ElasticsearchMetadataCache {
+
+  /**
+   * Default time to live of entries, in seconds.
+   */
+  public static final long DEFAULT_TTL_SECONDS = 600L;
+
+  private static volatile Cache<String, ElasticsearchVersion> versions =
+      newCache(DEFAULT_TTL_SECONDS);
+
+  private static volatile Cache<List<String>, Set<String>> types = newCache(DEFAULT_TTL_SECONDS);
+
+  private static volatile Cache<List<String>, String> fieldTypes = newCache(DEFAULT_TTL_SECONDS);
+
+  private static long ttlSeconds = DEFAULT_TTL_SECONDS;
+
+  private ElasticsearchMetadataCache() {}
+
+  /**
+   * Sets time to live of entries, entries cached before are dropped if it
+   * differs from the current one.
+   * @param seconds time to live, in seconds
+   */
+  public static synchronized void setTtlSeconds(long seconds) {
+    if (seconds < 0) {
+      throw new IllegalArgumentException("ttl should not be negative: " + seconds);
+    }
+    if (seconds == ttlSeconds) {
+      return;
+    }
+    ttlSeconds = seconds;
+    versions = newCache(seconds);
+    types = newCache(seconds);
+    fieldTypes = newCache(seconds);
+  }
+
+  private static <K, V> Cache<K, V> newCache(long ttlSeconds) {
+    return CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * Returns key of a cluster, which does not depend on order of hosts.
+   * @param hosts hosts of cluster
+   * @return cluster key
+   */
+  public static String clusterKey(Collection<HttpHost> hosts) {
+    return hosts.stream()
+        .map(HttpHost::toURI)
+        .sorted()
+        .collect(Collectors.joining(","));
+  }
+
+  /**
+   * Returns version of cluster, detected by {@code loader} when it is not cached.
+   * @param cluster cluster key; or null to always call loader
+   * @param loader detects version
+   * @return version of cluster
+   * @throws IOException if loader failed
+   */
+  static ElasticsearchVersion version(String cluster, Callable<ElasticsearchVersion> loader)
+      throws IOException {
+    return cluster == null ? call(loader) : get(versions, cluster, loader);
+  }
+
+  /**
+   * Returns types of an index, listed by {@code loader} when they are not cached.
+   * @param cluster cluster key; or null to always call loader
+   * @param index name of index
+   * @param loader lists types of index
+   * @return types of index
+   * @throws IOException if loader failed
+   */
+  static Set<String> types(String cluster, String index, Callable<Set<String>> loader)
+      throws IOException {
+    return cluster == null ? call(loader) : get(types, Arrays.asList(cluster, index), loader);
+  }
+
+  /**
+   * Returns mapped type of a field, such as {@code keyword} or {@code text},
+   * read by {@code loader} when it is not cached.
+   * @param cluster cluster key; or null to always call loader
+   * @param index name of index
+   * @param type name of type
+   * @param field name of field
+   * @param loader reads mapped type of field, empty if field is not mapped
+   * @return mapped type of field
+   * @throws IOException if loader failed
+   */
+  static String fieldType(String cluster, String index, String type, String field,
+      Callable<String> loader) throws IOException {
+    return cluster == null
+        ? call(loader) : get(fieldTypes, Arrays.asList(cluster, index, type, field), loader);
+  }
+
+  /**
+   * Drops cached metadata of a cluster.
+   * @param cluster cluster key, see {@link #clusterKey(Collection)}
+   */
+  public static void invalidate(String cluster) {
+    versions.invalidate(cluster);
+    types.asMap().keySet().removeIf(key -> key.get(0).equals(cluster));
+    fieldTypes.asMap().keySet().removeIf(key -> key.get(0).equals(cluster));
+  }
+
+  /**
+   * Drops cached metadata of all clusters.
+   */
+  public static void invalidateAll() {
+    versions.invalidateAll();
+    types.invalidateAll();
+    fieldTypes.invalidateAll();
+  }
+
+  private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) throws IOException {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static <V> V call(Callable<V> loader) throws IOException {
+    try {
+      return loader.call();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
+
+// End ElasticsearchMetadataCache.java
@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Decodes a search response into rows, straight from the JSON token stream.
+ *
+ * <p>Unlike {@link ElasticsearchJson.Result} no object graph is built for
+ * hits. Only fields which are projected are read from {@code _source} (or
+ * {@code fields}), all other values are skipped by the parser. Rows have the
+ * same shape and values as the ones produced by
+ * {@link ElasticsearchEnumerators#getter(List)}: a map for {@code select *},
+ * the value for a single field and an array otherwise.
+ */
+class ElasticsearchRowDecoder {
+
+  private final ObjectMapper mapper;
+  private final List<Map.Entry<String, Class>> fields;
+  private final Level root;
+
+  /**
+   * Creates a decoder.
+   * @param mapper mapper used to create parser and read nested values
+   * @param fields projected fields; or null to return whole document as map
+   */
+  ElasticsearchRowDecoder(ObjectMapper mapper, List<Map.Entry<String, Class>> fields) {
+    this.mapper = Objects.requireNonNull(mapper, "mapper");
+    this.fields = fields;
+    this.root = fields == null ? null : projection(fields);
+  }
+
+  /**
+   * Builds lookup of projected paths. Like
+   * {@link ElasticsearchEnumerators#getter(List)} a field with several columns
+   * is searched in lower case first, then with its original name.
+   */
+  private static Level projection(List<Map.Entry<String, Class>> fields) {
+    final Level level = new Level();
+    final boolean multiple = fields.size() > 1;
+    for (int i = 0; i < fields.size(); i++) {
+      final String name = fields.get(i).getKey();
+      if (multiple) {
+        level.add(name.toLowerCase(Locale.ROOT), i, 0);
+        level.add(name, i, 1);
+      } else {
+        level.add(name, i, 0);
+      }
+    }
+    return level;
+  }
+
+  /**
+   * Reads a search (or scroll) response.
+   * @param stream response body
+   * @return rows of hits, with total and scroll id of response
+   * @throws IOException if response can not be parsed
+   */
+  Page decode(InputStream stream) throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser(stream)) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+      final Page page = new Page();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        parser.nextToken();
+        if ("_scroll_id".equals(name)) {
+          page.scrollId = parser.getValueAsString();
+        } else if ("hits".equals(name)) {
+          readHits(parser, page);
+        } else {
+          parser.skipChildren();
+        }
+      }
+      return page;
+    }
+  }
+
+  private void readHits(JsonParser parser, Page page) throws IOException {
+    expect(parser.getCurrentToken(), JsonToken.START_OBJECT, parser);
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      final JsonToken token = parser.nextToken();
+      if ("total".equals(name)) {
+        page.total = readTotal(parser, token);
+      } else if ("hits".equals(name)) {
+        expect(token, JsonToken.START_ARRAY, parser);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          page.rows.add(readHit(parser));
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  /**
+   * Total is a number before ES 7 and {@code {"value": n, "relation": "eq"}} since.
+   */
+  private static long readTotal(JsonParser parser, JsonToken token) throws IOException {
+    if (token != JsonToken.START_OBJECT) {
+      return parser.getValueAsLong();
+    }
+    long total = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      parser.nextToken();
+      if ("value".equals(name)) {
+        total = parser.getValueAsLong();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return total;
+  }
+
+  private Object readHit(JsonParser parser) throws IOException {
+    String id = null;
+    Object row = null;
+    boolean found = false;
+    final Values values = root == null ? null : new Values(fields.size());
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      final JsonToken token = parser.nextToken();
+      if ("_id".equals(name)) {
+        id = parser.getValueAsString();
+      } else if (("_source".equals(name) || "fields".equals(name))
+          && token == JsonToken.START_OBJECT) {
+        if (found) {
+          final String message = String.format(Locale.ROOT,
+              "Both '_source' and 'fields' are populated (non-null) for %s", id);
+          throw new IllegalArgumentException(message);
+        }
+        found = true;
+        if (values == null) {
+          row = mapper.readValue(parser, Map.class);
+        } else if ("_source".equals(name)) {
+          readSource(parser, root, 0, values);
+        } else {
+          readFields(parser, values);
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    if (!found) {
+      final String message = String.format(Locale.ROOT,
+          "Both '_source' and 'fields' are missing for %s", id);
+      throw new IllegalArgumentException(message);
+    }
+
+    if (values == null) {
+      return row;
+    }
+    if (fields.size() == 1) {
+      return ElasticsearchEnumerators.convert(values.get(0), fields.get(0).getValue());
+    }
+    final Object[] objects = new Object[fields.size()];
+    for (int i = 0; i < objects.length; i++) {
+      objects[i] = ElasticsearchEnumerators.convert(values.get(i), fields.get(i).getValue());
+    }
+    return objects;
+  }
+
+  /**
+   * Reads projected values of an object of {@code _source}. A path {@code a.b}
+   * matches key {@code a.b} first, then key {@code b} of nested object {@code a}.
+   */
+  private void readSource(JsonParser parser, Level level, int depth, Values values)
+      throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      final JsonToken token = parser.nextToken();
+      final List<Slot> slots = level.exact.get(name);
+      final Level nested = level.nested.get(name);
+      if (slots != null) {
+        final Object value = readValue(parser, token);
+        for (Slot slot : slots) {
+          values.offer(slot, depth, value);
+        }
+        if (nested != null && value instanceof Map) {
+          offerNested(nested, depth + 1, (Map<?, ?>) value, values);
+        }
+      } else if (nested != null && token == JsonToken.START_OBJECT) {
+        readSource(parser, nested, depth + 1, values);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #readSource} for an object which was already read, because
+   * it is also projected as a whole.
+   */
+  private static void offerNested(Level level, int depth, Map<?, ?> map, Values values) {
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      final List<Slot> slots = level.exact.get(entry.getKey());
+      if (slots != null) {
+        for (Slot slot : slots) {
+          values.offer(slot, depth, entry.getValue());
+        }
+      }
+      final Level nested = level.nested.get(entry.getKey());
+      if (nested != null && entry.getValue() instanceof Map) {
+        offerNested(nested, depth + 1, (Map<?, ?>) entry.getValue(), values);
+      }
+    }
+  }
+
+  /**
+   * Reads script fields, which are arrays whose first element is the value.
+   * Dotted names are not expanded.
+   */
+  private void readFields(JsonParser parser, Values values) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final List<Slot> slots = root.exact.get(parser.getCurrentName());
+      final JsonToken token = parser.nextToken();
+      if (slots == null) {
+        parser.skipChildren();
+        continue;
+      }
+      Object value;
+      if (token == JsonToken.START_ARRAY) {
+        final JsonToken first = parser.nextToken();
+        value = first == JsonToken.END_ARRAY ? null : readValue(parser, first);
+        if (first != JsonToken.END_ARRAY) {
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        value = readValue(parser, token);
+      }
+      for (Slot slot : slots) {
+        values.offer(slot, 0, value);
+      }
+    }
+  }
+
+  /**
+   * Reads current value the way a {@code Map<String, Object>} is deserialized.
+   */
+  private Object readValue(JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+    case VALUE_STRING:
+      return parser.getText();
+    case VALUE_NUMBER_INT:
+    case VALUE_NUMBER_FLOAT:
+      return parser.getNumberValue();
+    case VALUE_TRUE:
+      return Boolean.TRUE;
+    case VALUE_FALSE:
+      return Boolean.FALSE;
+    case VALUE_NULL:
+      return null;
+    default:
+      return mapper.readValue(parser, Object.class);
+    }
+  }
+
+  private static void expect(JsonToken actual, JsonToken expected, JsonParser parser) {
+    if (actual != expected) {
+      final String message = String.format(Locale.ROOT,
+          "Expected %s but got %s at %s", expected, actual, parser.getCurrentLocation());
+      throw new IllegalStateException(message);
+    }
+  }
+
+  /**
+   * Decoded response.
+   */
+  static class Page {
+    private final List<Object> rows = new ArrayList<>();
+    private long total;
+    private String scrollId;
+
+    List<Object> rows() {
+      return rows;
+    }
+
+    long total() {
+      return total;
+    }
+
+    String scrollId() {
+      return scrollId;
+    }
+  }
+
+  /**
+   * Projected keys of one level of {@code _source}.
+   */
+  private static class Level {
+    private final Map<String, List<Slot>> exact = new HashMap<>();
+    private final Map<String, Level> nested = new HashMap<>();
+
+    void add(String path, int column, int candidate) {
+      exact.computeIfAbsent(path, k -> new ArrayList<>(1))
+          .add(new Slot(column, candidate));
+      final int index = path.indexOf('.');
+      if (index > 0 && index < path.length() - 1) {
+        nested.computeIfAbsent(path.substring(0, index), k -> new Level())
+            .add(path.substring(index + 1), column, candidate);
+      }
+    }
+  }
+
+  /**
+   * Column which a path is projected to; lower candidate is preferred.
+   */
+  private static class Slot {
+    private final int column;
+    private final int candidate;
+
+    Slot(int column, int candidate) {
+      this.column = column;
+      this.candidate = candidate;
+    }
+  }
+
+  /**
+   * Values of a hit. When several paths match a column, first non-null value of
+   * the preferred candidate wins and a shallower (more exact) match wins over a
+   * deeper one.
+   */
+  private static class Values {
+    private final Object[] values;
+    private final int[] ranks;
+
+    Values(int size) {
+      this.values = new Object[size];
+      this.ranks = new int[size];
+      Arrays.fill(ranks, Integer.MAX_VALUE);
+    }
+
+    void offer(Slot slot, int depth, Object value) {
+      if (value == null) {
+        return;
+      }
+      final int rank = slot.candidate * 1024 + depth;
+      if (rank < ranks[slot.column]) {
+        ranks[slot.column] = rank;
+        values[slot.column] = value;
+      }
+    }
+
+    Object get(int column) {
+      return values[column];
+    }
+  }
+}
+
+// End ElasticsearchRowDecoder.java
@@ -47,6 +47,12 @@ public class ElasticsearchSchema extends AbstractSchema {
 
   private final Map<String, Table> tableMap;
 
+  private final int fetchSize;
+
+  private final int scanParallelism;
+
+  private final String cluster;
+
   /**
    * Allows schema to be instantiated from existing elastic search client.
    * This constructor is used in tests.
@@ -60,16 +66,34 @@ public class ElasticsearchSchema extends AbstractSchema {
 
   //Updated by qsql-team
   public ElasticsearchSchema(RestClient client, String index) {
+    this(client, index, null);
+  }
+
+  /**
+   * Creates schema whose tables are added later, see {@link #addTable(String, Table)}.
+   * @param client existing client instance
+   * @param index name of ES index
+   * @param cluster key of cluster whose metadata is cached; or null to request
+   *                it each time
+   */
+  public ElasticsearchSchema(RestClient client, String index, String cluster) {
     this.client = Objects.requireNonNull(client, "client");
     this.mapper = new ObjectMapper();
     this.index = Objects.requireNonNull(index, "index");
     this.tableMap = new HashMap<>();
+    this.fetchSize = ElasticsearchTable.DEFAULT_FETCH_SIZE;
+    this.scanParallelism = 1;
+    this.cluster = cluster;
   }
   //Updated by qsql-team
   public RestClient getClient() {
     return client;
   }
 
+  public String getCluster() {
+    return cluster;
+  }
+
   public void addTable(String type, Table table) {
     if(tableMap instanceof ImmutableMap)
       throw new RuntimeException("error metadata class");
@@ -77,13 +101,46 @@ public class ElasticsearchSchema extends AbstractSchema {
   }
 
   public ElasticsearchSchema(RestClient client, ObjectMapper mapper, String index, String type) {
+    this(client, mapper, index, type, ElasticsearchTable.DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * Creates schema whose tables scroll results in pages of {@code fetchSize} hits.
+   * @param client existing client instance
+   * @param mapper mapper for JSON (de)serialization
+   * @param index name of ES index
+   * @param type name of ES type; or null to expose all types of index
+   * @param fetchSize number of hits in a page of scroll
+   */
+  public ElasticsearchSchema(RestClient client, ObjectMapper mapper, String index, String type,
+      int fetchSize) {
+    this(client, mapper, index, type, fetchSize, 1, null);
+  }
+
+  /**
+   * Creates schema whose cluster metadata is cached.
+   * @param client existing client instance
+   * @param mapper mapper for JSON (de)serialization
+   * @param index name of ES index
+   * @param type name of ES type; or null to expose all types of index
+   * @param fetchSize number of hits in a page of scroll
+   * @param scanParallelism number of slices read concurrently by unsorted scrolls
+   * @param cluster key of cluster, see {@link ElasticsearchMetadataCache#clusterKey}; or
+   *                null to request metadata each time
+   */
+  public ElasticsearchSchema(RestClient client, ObjectMapper mapper, String index, String type,
+      int fetchSize, int scanParallelism, String cluster) {
     super();
     this.client = Objects.requireNonNull(client, "client");
     this.mapper = Objects.requireNonNull(mapper, "mapper");
     this.index = Objects.requireNonNull(index, "index");
+    this.fetchSize = fetchSize;
+    this.scanParallelism = scanParallelism;
+    this.cluster = cluster;
     if (type == null) {
       try {
-        this.tableMap = createTables(listTypesFromElastic());
+        this.tableMap = createTables(
+            ElasticsearchMetadataCache.types(cluster, index, this::listTypesFromElastic));
       } catch (IOException e) {
         throw new UncheckedIOException("Couldn't get types for " + index, e);
       }
@@ -99,7 +156,8 @@ public class ElasticsearchSchema extends AbstractSchema {
   private Map<String, Table> createTables(Iterable<String> types) {
     final ImmutableMap.Builder<String, Table> builder = ImmutableMap.builder();
     for (String type : types) {
-      builder.put(type, new ElasticsearchTable(client, mapper, index, type));
+      builder.put(type, new ElasticsearchTable(client, mapper, index, type, fetchSize,
+          scanParallelism, cluster));
     }
     return builder.build();
   }
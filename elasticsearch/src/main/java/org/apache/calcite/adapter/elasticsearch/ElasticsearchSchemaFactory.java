@@ -59,7 +59,8 @@ public class ElasticsearchSchemaFactory implements SchemaFactory {
           mapper.readValue((String) map.get("coordinates"),
               new TypeReference<Map<String, Integer>>() { });
 
-      final RestClient client = connect(coordinates);
+      final Set<HttpHost> hosts = hosts(coordinates);
+      final RestClient client = RestClient.builder(hosts.toArray(new HttpHost[0])).build();
 
       final Map<String, String> userConfig =
           mapper.readValue((String) map.get("userConfig"),
@@ -67,26 +68,39 @@ public class ElasticsearchSchemaFactory implements SchemaFactory {
 
       final String index = (String) map.get("index");
       Preconditions.checkArgument(index != null, "index is missing in configuration");
-      return new ElasticsearchSchema(client, new ObjectMapper(), index);
+      applyMetadataTtl(operand);
+      return new ElasticsearchSchema(client, new ObjectMapper(), index, null,
+          ElasticsearchTable.DEFAULT_FETCH_SIZE, 1, ElasticsearchMetadataCache.clusterKey(hosts));
     } catch (IOException e) {
       throw new RuntimeException("Cannot parse values from json", e);
     }
   }
 
   /**
-   * Builds elastic rest client from user configuration
+   * Sets time to live of cached cluster metadata from the optional
+   * {@code metadataTtlSeconds} operand.
+   * @param operand schema operand
+   */
+  static void applyMetadataTtl(Map<String, Object> operand) {
+    final Object ttl = operand.get("metadataTtlSeconds");
+    if (ttl != null && !ttl.toString().trim().isEmpty()) {
+      ElasticsearchMetadataCache.setTtlSeconds(Long.parseLong(ttl.toString().trim()));
+    }
+  }
+
+  /**
+   * Builds hosts of elastic cluster from user configuration
    * @param coordinates list of {@code hostname/port} to connect to
-   * @return newly initialized low-level rest http client for ES
+   * @return hosts to connect to
    */
-  private static RestClient connect(Map<String, Integer> coordinates) {
+  static Set<HttpHost> hosts(Map<String, Integer> coordinates) {
     Objects.requireNonNull(coordinates, "coordinates");
     Preconditions.checkArgument(!coordinates.isEmpty(), "no ES coordinates specified");
     final Set<HttpHost> set = new LinkedHashSet<>();
     for (Map.Entry<String, Integer> entry: coordinates.entrySet()) {
       set.add(new HttpHost(entry.getKey(), entry.getValue()));
     }
-
-    return RestClient.builder(set.toArray(new HttpHost[0])).build();
+    return set;
   }
 
 }
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enumerator which streams rows of a search through the
+ * <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-request-scroll.html">scroll API</a>.
+ *
+ * <p>Only one page of hits is held in memory. The next page is requested
+ * in background while the current one is consumed. Scroll context is cleared
+ * on {@link #close()}, so enumerator must be closed even if it is not
+ * consumed completely.
+ */
+class ElasticsearchScrollEnumerator implements Enumerator<Object> {
+
+  /**
+   * Shared pool of daemon threads fetching pages of scrolls.
+   */
+  static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable,
+              "elasticsearch-scroll-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private final ElasticsearchTable table;
+  private final ObjectNode query;
+  private final ElasticsearchRowDecoder decoder;
+  private final Long limit;
+
+  private Iterator<Object> page = Collections.emptyIterator();
+  private CompletableFuture<ElasticsearchRowDecoder.Page> next;
+  private Object current;
+  private String scrollId;
+  private long total = -1;
+  private long fetched;
+  private long emitted;
+  private boolean closed;
+
+  /**
+   * Creates an enumerator, first page is requested on first {@link #moveNext()}.
+   * @param table table to query
+   * @param query search request, its {@code size} is the size of a page
+   * @param decoder decoder of hits into rows
+   * @param limit maximum number of rows to return; or null to return all
+   */
+  ElasticsearchScrollEnumerator(ElasticsearchTable table, ObjectNode query,
+      ElasticsearchRowDecoder decoder, Long limit) {
+    this.table = Objects.requireNonNull(table, "table");
+    this.query = Objects.requireNonNull(query, "query");
+    this.decoder = Objects.requireNonNull(decoder, "decoder");
+    this.limit = limit;
+  }
+
+  @Override public Object current() {
+    return current;
+  }
+
+  @Override public boolean moveNext() {
+    if (closed || (limit != null && emitted >= limit)) {
+      return false;
+    }
+
+    if (!page.hasNext()) {
+      if (total < 0) {
+        accept(search());
+      } else if (next != null) {
+        final CompletableFuture<ElasticsearchRowDecoder.Page> pending = next;
+        next = null;
+        accept(join(pending));
+      }
+    }
+
+    if (!page.hasNext()) {
+      current = null;
+      return false;
+    }
+
+    current = page.next();
+    emitted++;
+    return true;
+  }
+
+  private ElasticsearchRowDecoder.Page search() {
+    try {
+      return table.scrollSearch(query, decoder);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void accept(ElasticsearchRowDecoder.Page result) {
+    total = result.total();
+    fetched += result.rows().size();
+    page = result.rows().iterator();
+    if (result.scrollId() != null) {
+      scrollId = result.scrollId();
+    }
+
+    final boolean exhausted = result.rows().isEmpty()
+        || fetched >= total
+        || (limit != null && fetched >= limit);
+    if (!exhausted && scrollId != null) {
+      // prefetch next page while current one is consumed
+      final String id = scrollId;
+      next = CompletableFuture.supplyAsync(() -> {
+        try {
+          return table.scroll(id, decoder);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, EXECUTOR);
+    }
+  }
+
+  private static ElasticsearchRowDecoder.Page join(
+      CompletableFuture<ElasticsearchRowDecoder.Page> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Override public void reset() {
+    throw new UnsupportedOperationException("Scroll can not be reset");
+  }
+
+  @Override public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    page = Collections.emptyIterator();
+    current = null;
+
+    final CompletableFuture<ElasticsearchRowDecoder.Page> pending = next;
+    next = null;
+    if (pending == null) {
+      clearScroll(scrollId);
+    } else {
+      // scroll id may be renewed by page in flight
+      final String id = scrollId;
+      pending.whenComplete((result, error) ->
+          clearScroll(result == null || result.scrollId() == null ? id : result.scrollId()));
+    }
+  }
+
+  private void clearScroll(String id) {
+    if (id != null) {
+      table.clearScroll(id);
+    }
+  }
+}
+
+// End ElasticsearchScrollEnumerator.java
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Enumerator which reads a search through several
+ * <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-request-scroll.html#sliced-scroll">sliced scrolls</a>
+ * concurrently.
+ *
+ * <p>Each slice is read by an {@link ElasticsearchScrollEnumerator} in a
+ * background thread, which puts its rows into a bounded queue. Rows of
+ * different slices are interleaved, so the search must not be sorted.
+ */
+class ElasticsearchSlicedScrollEnumerator implements Enumerator<Object> {
+
+  /**
+   * Stands for a null row in queue.
+   */
+  private static final Object NULL = new Object();
+
+  /**
+   * Put into queue by a slice once it is read.
+   */
+  private static final Object END = new Object();
+
+  private final ElasticsearchTable table;
+  private final ObjectNode query;
+  private final ElasticsearchRowDecoder decoder;
+  private final int slices;
+  private final Long limit;
+
+  private final BlockingQueue<Object> queue;
+  private final AtomicReference<RuntimeException> error = new AtomicReference<>();
+  private volatile boolean closed;
+  private boolean started;
+  private int ended;
+  private long emitted;
+  private Object current;
+
+  /**
+   * Creates an enumerator, slices are started on first {@link #moveNext()}.
+   * @param table table to query
+   * @param query search request, its {@code size} is the size of a page
+   * @param decoder decoder of hits into rows
+   * @param slices number of slices read concurrently
+   * @param limit maximum number of rows to return; or null to return all
+   */
+  ElasticsearchSlicedScrollEnumerator(ElasticsearchTable table, ObjectNode query,
+      ElasticsearchRowDecoder decoder, int slices, Long limit) {
+    this.table = Objects.requireNonNull(table, "table");
+    this.query = Objects.requireNonNull(query, "query");
+    this.decoder = Objects.requireNonNull(decoder, "decoder");
+    this.slices = slices;
+    this.limit = limit;
+    // about two pages of each slice are buffered
+    final int pageSize = query.path("size").asInt(ElasticsearchTable.DEFAULT_FETCH_SIZE);
+    this.queue = new ArrayBlockingQueue<>(Math.max(2 * pageSize * slices, 1));
+  }
+
+  @Override public Object current() {
+    return current;
+  }
+
+  @Override public boolean moveNext() {
+    if (closed || (limit != null && emitted >= limit)) {
+      return false;
+    }
+    if (!started) {
+      started = true;
+      start();
+    }
+
+    while (ended < slices) {
+      if (error.get() != null) {
+        break;
+      }
+      final Object row;
+      try {
+        row = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while reading slices", e);
+      }
+      if (row == END) {
+        ended++;
+        continue;
+      }
+      current = row == NULL ? null : row;
+      emitted++;
+      return true;
+    }
+
+    current = null;
+    if (error.get() != null) {
+      close();
+      throw error.get();
+    }
+    return false;
+  }
+
+  private void start() {
+    for (int i = 0; i < slices; i++) {
+      final ObjectNode slice = query.deepCopy();
+      slice.with("slice").put("id", i).put("max", slices);
+      ElasticsearchScrollEnumerator.EXECUTOR.execute(() -> read(slice));
+    }
+  }
+
+  private void read(ObjectNode slice) {
+    try (ElasticsearchScrollEnumerator enumerator =
+             new ElasticsearchScrollEnumerator(table, slice, decoder, limit)) {
+      while (!closed && enumerator.moveNext()) {
+        final Object row = enumerator.current();
+        if (!put(row == null ? NULL : row)) {
+          return;
+        }
+      }
+    } catch (RuntimeException e) {
+      error.compareAndSet(null, e);
+    } finally {
+      put(END);
+    }
+  }
+
+  /**
+   * Puts an element into queue, gives up when enumerator is closed.
+   */
+  private boolean put(Object element) {
+    try {
+      while (!closed) {
+        if (queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  @Override public void reset() {
+    throw new UnsupportedOperationException("Scroll can not be reset");
+  }
+
+  @Override public void close() {
+    closed = true;
+    current = null;
+    // readers blocked on a full queue notice the flag and clear their scrolls
+    queue.clear();
+  }
+}
+
+// End ElasticsearchSlicedScrollEnumerator.java
@@ -18,6 +18,7 @@ package org.apache.calcite.adapter.elasticsearch;
 
 import java.util.function.Consumer;
 import org.apache.calcite.adapter.java.AbstractQueryableTable;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Linq4j;
@@ -71,10 +72,35 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
    */
   private static final String AGGREGATIONS = "aggregations";
 
+  /**
+   * Default number of hits in a page of scroll. Half of the default
+   * {@code index.max_result_window} of 10000, so that a page stays well below
+   * the limit of a single search and the heap holds only a moderate page.
+   */
+  static final int DEFAULT_FETCH_SIZE = 5000;
+
+  /**
+   * Default time a scroll context is kept alive between two pages, as a time
+   * value of Elasticsearch.
+   */
+  static final String DEFAULT_SCROLL_KEEP_ALIVE = "1m";
+
+  /**
+   * Mapped types whose values are indexed as they are, so that term and range
+   * queries match whole values. Analyzed {@code text} is indexed as tokens.
+   */
+  private static final Set<String> EXACT_VALUE_TYPES = new HashSet<>(
+      Arrays.asList("keyword", "long", "integer", "short", "byte", "double", "float",
+          "half_float", "scaled_float", "date"));
+
   private final RestClient restClient;
   private final ElasticsearchVersion version;
   private final String indexName;
   private final String typeName;
+  private final int fetchSize;
+  private final int scanParallelism;
+  private final String scrollKeepAlive;
+  private final String cluster;
   final ObjectMapper mapper;
 
   @Override
@@ -90,10 +116,48 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
    * @param typeName elastic searh index type
    */
   ElasticsearchTable(RestClient client, ObjectMapper mapper, String indexName, String typeName) {
+    this(client, mapper, indexName, typeName, DEFAULT_FETCH_SIZE, 1, null);
+  }
+
+  /**
+   * Creates an ElasticsearchTable.
+   * @param client low-level ES rest client
+   * @param mapper Jackson API
+   * @param indexName elastic search index
+   * @param typeName elastic searh index type
+   * @param fetchSize number of hits in a page when results are scrolled
+   * @param scanParallelism number of slices read concurrently when an unsorted
+   *                        result is scrolled
+   * @param cluster key of cluster whose version is cached; or null to detect
+   *                version each time
+   */
+  ElasticsearchTable(RestClient client, ObjectMapper mapper, String indexName, String typeName,
+      int fetchSize, int scanParallelism, String cluster) {
+    this(client, mapper, indexName, typeName, fetchSize, scanParallelism,
+        DEFAULT_SCROLL_KEEP_ALIVE, cluster);
+  }
+
+  /**
+   * Creates an ElasticsearchTable.
+   * @param client low-level ES rest client
+   * @param mapper Jackson API
+   * @param indexName elastic search index
+   * @param typeName elastic searh index type
+   * @param fetchSize number of hits in a page when results are scrolled
+   * @param scanParallelism number of slices read concurrently when an unsorted
+   *                        result is scrolled
+   * @param scrollKeepAlive time a scroll context is kept alive between two
+   *                        pages, such as {@code 1m}
+   * @param cluster key of cluster whose version is cached; or null to detect
+   *                version each time
+   */
+  ElasticsearchTable(RestClient client, ObjectMapper mapper, String indexName, String typeName,
+      int fetchSize, int scanParallelism, String scrollKeepAlive, String cluster) {
     super(Object[].class);
     this.restClient = Objects.requireNonNull(client, "client");
     try {
-      this.version = detectVersion(client, mapper);
+      this.version = ElasticsearchMetadataCache.version(cluster,
+          () -> detectVersion(client, mapper));
     } catch (IOException e) {
       final String message = String.format(Locale.ROOT, "Couldn't detect ES version "
           + "for %s/%s", indexName, typeName);
@@ -102,7 +166,55 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
     this.indexName = Objects.requireNonNull(indexName, "indexName");
     this.typeName = Objects.requireNonNull(typeName, "typeName");
     this.mapper = Objects.requireNonNull(mapper, "mapper");
+    if (fetchSize <= 0) {
+      throw new IllegalArgumentException("fetchSize should be positive: " + fetchSize);
+    }
+    this.fetchSize = fetchSize;
+    if (scanParallelism <= 0) {
+      throw new IllegalArgumentException("scanParallelism should be positive: " + scanParallelism);
+    }
+    this.scanParallelism = scanParallelism;
+    this.scrollKeepAlive = Objects.requireNonNull(scrollKeepAlive, "scrollKeepAlive");
+    this.cluster = cluster;
+  }
+
+  /**
+   * Returns whether term and range queries on a field match its whole values,
+   * that is whether it is mapped as keyword, numeric or date rather than as
+   * analyzed text.
+   * @param field name of field
+   * @return whether field is matched by whole values; false if its mapping can
+   *         not be read
+   */
+  public boolean isExactValueField(String field) {
+    try {
+      return EXACT_VALUE_TYPES.contains(ElasticsearchMetadataCache.fieldType(cluster, indexName,
+          typeName, field, () -> fieldType(field)));
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Couldn't read mapping of field {} in {}/{}", field, indexName, typeName, e);
+      return false;
+    }
+  }
 
+  /**
+   * Reads mapped type of a field from {@code _mapping} of index.
+   * @param field name of field
+   * @return mapped type; or empty string if field is not mapped
+   * @throws IOException if mapping can not be read
+   */
+  private String fieldType(String field) throws IOException {
+    final String endpoint = version == ElasticsearchVersion.ES7
+        ? String.format(Locale.ROOT, "/%s/_mapping/field/%s", indexName, field)
+        : String.format(Locale.ROOT, "/%s/_mapping/%s/field/%s", indexName, typeName, field);
+    final Response response = restClient.performRequest("GET", endpoint);
+    try (InputStream is = response.getEntity().getContent()) {
+      final JsonNode mapping = mapper.readTree(is).findValue("mapping");
+      if (mapping == null || mapping.size() == 0) {
+        return "";
+      }
+      final JsonNode type = mapping.elements().next().get("type");
+      return type == null ? "" : type.asText();
+    }
   }
 
   /**
@@ -177,6 +289,26 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
       );
     }
 
+    final ElasticsearchRowDecoder decoder = new ElasticsearchRowDecoder(mapper, fields);
+
+    if (offset == null && (fetch == null || fetch > fetchSize)) {
+      // large or unbounded result, stream it page by page instead of
+      // reading a single window of hits into memory
+      query.put("size", fetchSize);
+      // sliced scroll is supported since ES 5, rows of slices are not ordered
+      final int slices = sort.isEmpty() && version != ElasticsearchVersion.ES2
+          ? scanParallelism : 1;
+      return new AbstractEnumerable<Object>() {
+        @Override public Enumerator<Object> enumerator() {
+          if (slices > 1) {
+            return new ElasticsearchSlicedScrollEnumerator(ElasticsearchTable.this, query,
+                decoder, slices, fetch);
+          }
+          return new ElasticsearchScrollEnumerator(ElasticsearchTable.this, query, decoder, fetch);
+        }
+      };
+    }
+
     if (offset != null) {
       query.put("from", offset);
     }
@@ -186,10 +318,10 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
     }
 
     try {
-      ElasticsearchJson.Result search = httpRequest(query);
-      final Function1<ElasticsearchJson.SearchHit, Object> getter =
-          ElasticsearchEnumerators.getter(fields);
-      return Linq4j.asEnumerable(search.searchHits().hits()).select(getter);
+      Response response = search(query, Collections.emptyMap());
+      try (InputStream is = response.getEntity().getContent()) {
+        return Linq4j.asEnumerable(decoder.decode(is).rows());
+      }
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
@@ -325,6 +457,71 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
   }
 
   private ElasticsearchJson.Result httpRequest(ObjectNode query) throws IOException {
+    Response response = search(query, Collections.emptyMap());
+    try (InputStream is = response.getEntity().getContent()) {
+      return mapper.readValue(is, ElasticsearchJson.Result.class);
+    }
+  }
+
+  /**
+   * Starts a scroll with given search, the first page of rows and the scroll id
+   * are returned.
+   *
+   * @param query search request, its {@code size} is the size of a page
+   * @param decoder decoder of hits into rows
+   * @return first page of rows
+   * @throws IOException if request failed
+   */
+  ElasticsearchRowDecoder.Page scrollSearch(ObjectNode query, ElasticsearchRowDecoder decoder)
+      throws IOException {
+    Response response = search(query, Collections.singletonMap("scroll", scrollKeepAlive));
+    try (InputStream is = response.getEntity().getContent()) {
+      return decoder.decode(is);
+    }
+  }
+
+  /**
+   * Fetches next page of a scroll.
+   *
+   * @param scrollId id returned by previous page
+   * @param decoder decoder of hits into rows
+   * @return next page of rows, which is empty when scroll is exhausted
+   * @throws IOException if request failed
+   */
+  ElasticsearchRowDecoder.Page scroll(String scrollId, ElasticsearchRowDecoder decoder)
+      throws IOException {
+    final ObjectNode request = mapper.createObjectNode()
+        .put("scroll", scrollKeepAlive)
+        .put("scroll_id", scrollId);
+    final String json = mapper.writeValueAsString(request);
+    HttpEntity entity = new StringEntity(json, ContentType.APPLICATION_JSON);
+    Response response = restClient.performRequest("POST", "/_search/scroll",
+        Collections.emptyMap(), entity);
+    checkStatus(response, json);
+    try (InputStream is = response.getEntity().getContent()) {
+      return decoder.decode(is);
+    }
+  }
+
+  /**
+   * Releases a scroll context on server. Failure is only logged since context
+   * expires anyway after keep alive time.
+   *
+   * @param scrollId scroll to clear
+   */
+  void clearScroll(String scrollId) {
+    final ObjectNode request = mapper.createObjectNode();
+    request.withArray("scroll_id").add(scrollId);
+    try {
+      HttpEntity entity = new StringEntity(mapper.writeValueAsString(request),
+          ContentType.APPLICATION_JSON);
+      restClient.performRequest("DELETE", "/_search/scroll", Collections.emptyMap(), entity);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to clear scroll {} of {}", scrollId, this, e);
+    }
+  }
+
+  private Response search(ObjectNode query, Map<String, String> params) throws IOException {
     Objects.requireNonNull(query, "query");
     String uri = String.format(Locale.ROOT, "/%s/%s/_search", indexName, typeName);
 
@@ -334,7 +531,12 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
     LOGGER.debug("Elasticsearch Query: {}", json);
 
     HttpEntity entity = new StringEntity(json, ContentType.APPLICATION_JSON);
-    Response response = restClient.performRequest("POST", uri, Collections.emptyMap(), entity);
+    Response response = restClient.performRequest("POST", uri, params, entity);
+    checkStatus(response, json);
+    return response;
+  }
+
+  private static void checkStatus(Response response, String query) throws IOException {
     if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
       final String error = EntityUtils.toString(response.getEntity());
       final String message = String.format(Locale.ROOT,
@@ -342,10 +544,6 @@ public class ElasticsearchTable extends AbstractQueryableTable implements Transl
           response.getHost(), response.getRequestLine(), response.getStatusLine(), query, error);
       throw new RuntimeException(message);
     }
-
-    try (InputStream is = response.getEntity().getContent()) {
-      return mapper.readValue(is, ElasticsearchJson.Result.class);
-    }
   }
 
   @Override public RelDataType getRowType(RelDataTypeFactory relDataTypeFactory) {
@@ -14,7 +14,7 @@ public class ElasticsearchTableFactory implements TableFactory<ElasticsearchTabl
         final ElasticsearchSchema esSchema = schema.unwrap(ElasticsearchSchema.class);
         String type = operand.getOrDefault("tableName", "").toString();
         ElasticsearchTable table = new ElasticsearchTranslatableTable(esSchema.getClient(), new ObjectMapper(),
-                esSchema.getIndex(), type, operand);
+                esSchema.getIndex(), type, operand, esSchema.getCluster());
         esSchema.addTable(type, table);
         return table;
     }
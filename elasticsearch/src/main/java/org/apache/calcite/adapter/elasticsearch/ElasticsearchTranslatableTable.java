@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.calcite.model.ModelHandler;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.impl.OperandStatistic;
 import org.elasticsearch.client.RestClient;
 
 import java.util.HashMap;
@@ -12,11 +14,32 @@ import java.util.Properties;
 
 public class ElasticsearchTranslatableTable extends ElasticsearchTable {
     private Map<String, Object> operand;
+    private Statistic statistic;
 
-    ElasticsearchTranslatableTable(RestClient client, ObjectMapper mapper,
-                                   String indexName, String typeName, Map<String, Object> operand) {
-        super(client, mapper, indexName, typeName);
+    ElasticsearchTranslatableTable(RestClient client, ObjectMapper mapper, String indexName,
+                                   String typeName, Map<String, Object> operand, String cluster) {
+        super(client, mapper, indexName, typeName, intOperand(operand, "esScrollNum", DEFAULT_FETCH_SIZE),
+            intOperand(operand, "esScanParallelism", 1),
+            stringOperand(operand, "esScrollKeepAlive", DEFAULT_SCROLL_KEEP_ALIVE), cluster);
         this.operand = operand;
+        this.statistic = OperandStatistic.of(operand,
+            operand.getOrDefault(ModelHandler.ExtraOperand.MODEL_URI.camelName, "").toString(),
+            operand.getOrDefault("dbName", "").toString(), operand.getOrDefault("tableName", "").toString());
+    }
+
+    //esScrollNum is also the page size when table is scrolled in jdbc mode,
+    //esScanParallelism is the number of slices read concurrently
+    private static int intOperand(Map<String, Object> operand, String key, int defaultValue) {
+        return Integer.parseInt(stringOperand(operand, key, String.valueOf(defaultValue)));
+    }
+
+    //esScrollKeepAlive is a time value of Elasticsearch, such as 1m or 30s
+    private static String stringOperand(Map<String, Object> operand, String key, String defaultValue) {
+        Object value = operand.get(key);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.toString().trim();
     }
 
     public Properties getProperties() {
@@ -32,6 +55,11 @@ public class ElasticsearchTranslatableTable extends ElasticsearchTable {
                 operand.getOrDefault("tableName", "").toString(), relDataTypeFactory);
     }
 
+    @Override
+    public Statistic getStatistic() {
+        return statistic;
+    }
+
     @Override
     public String getBaseName() {
         return operand.getOrDefault("dbName", "").toString();
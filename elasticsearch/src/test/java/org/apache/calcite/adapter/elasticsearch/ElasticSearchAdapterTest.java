@@ -44,6 +44,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Set of tests for ES adapter. Uses real instance via {@link EmbeddedElasticsearchPolicy}. Document
  * source is local {@code zips-mini.json} file (located in test classpath).
@@ -305,7 +308,8 @@ public class ElasticSearchAdapterTest {
                     + "pop:{script: 'params._source.pop'}, "
                     + "state:{script: 'params._source.state'}, "
                     + "id:{script: 'params._source.id'}}",
-                "sort: [ {state: 'asc'}, {pop: 'asc'}]"))
+                "sort: [ {state: 'asc'}, {pop: 'asc'}]",
+                "size:5000"))
         .explainContains(explain);
   }
 
@@ -330,7 +334,8 @@ public class ElasticSearchAdapterTest {
             +  "city:{script: 'params._source.city'}, "
             +  "pop:{script: 'params._source.pop'}, "
             +  "state:{script: 'params._source.state'}, "
-            +  "id:{script: 'params._source.id'}}"
+            +  "id:{script: 'params._source.id'}}",
+        "size:5000"
     };
 
     calciteAssert()
@@ -342,6 +347,56 @@ public class ElasticSearchAdapterTest {
         .queryContains(ElasticsearchChecker.elasticsearchChecker(searches));
   }
 
+  /**
+   * Results larger than fetch size are scrolled in several pages.
+   */
+  @Test public void scrollInPages() {
+    final CalciteAssert.AssertThat scrolled = CalciteAssert.that()
+        .with(scrollingConnectionFactory(7, 1));
+
+    scrolled.query("select * from elastic.zips")
+        .returnsCount(149);
+    scrolled.query("select * from elastic.zips limit 30")
+        .returnsCount(30)
+        .queryContains(ElasticsearchChecker.elasticsearchChecker("size:7"));
+    scrolled.query("select * from elastic.zips limit 5")
+        .returnsCount(5)
+        .queryContains(ElasticsearchChecker.elasticsearchChecker("size:5"));
+  }
+
+  /**
+   * Unsorted results are scrolled in slices concurrently, sorted ones in a single scroll.
+   */
+  @Test public void scrollInSlices() {
+    final CalciteAssert.AssertThat sliced = CalciteAssert.that()
+        .with(scrollingConnectionFactory(7, 3));
+
+    sliced.query("select * from elastic.zips")
+        .returnsCount(149);
+    sliced.query("select * from elastic.zips limit 30")
+        .returnsCount(30);
+    sliced.query("select cast(_MAP['city'] AS varchar(20)) AS \"city\" from elastic.zips"
+        + " where _MAP['state'] = 'CA'")
+        .returnsUnordered("city=BELL GARDENS", "city=LOS ANGELES", "city=NORWALK");
+    sliced.query("select cast(_MAP['pop'] AS integer) AS \"pop\" from elastic.zips"
+        + " order by cast(_MAP['pop'] AS integer)")
+        .limit(3)
+        .returnsOrdered("pop=21", "pop=17522", "pop=22576");
+  }
+
+  private CalciteAssert.ConnectionFactory scrollingConnectionFactory(final int fetchSize,
+      final int scanParallelism) {
+    return new CalciteAssert.ConnectionFactory() {
+      @Override public Connection createConnection() throws SQLException {
+        final Connection connection = DriverManager.getConnection("jdbc:calcite:lex=JAVA");
+        final SchemaPlus root = connection.unwrap(CalciteConnection.class).getRootSchema();
+        root.add("elastic", new ElasticsearchSchema(NODE.restClient(), NODE.mapper(), ZIPS, null,
+            fetchSize, scanParallelism, null));
+        return connection;
+      }
+    };
+  }
+
   @Test public void testZips() {
     calciteAssert()
         .query("select state, city from zips")
@@ -363,7 +418,8 @@ public class ElasticSearchAdapterTest {
                     + "{zero:{script:'0'},"
                     + "state:{script:'params._source.state'},"
                     + "city:{script:'params._source.city'}}",
-                "sort:[{state:'asc'},{city:'asc'}]"));
+                "sort:[{state:'asc'},{city:'asc'}]",
+                "size:5000"));
   }
 
   @Test public void testFilter() {
@@ -579,6 +635,25 @@ public class ElasticSearchAdapterTest {
 
   }
 
+  /**
+   * Only fields whose whole values are indexed may be filtered by terms of keys
+   * of another table.
+   * @throws IOException if index can not be created
+   */
+  @Test
+  public void exactValueFields() throws IOException {
+    NODE.createIndex("articles", ImmutableMap.of("title", "text", "tag", "keyword",
+        "views", "long", "published", "date"));
+    final ElasticsearchTable table = new ElasticsearchTable(NODE.restClient(), NODE.mapper(),
+        "articles", "articles");
+
+    assertFalse(table.isExactValueField("title"));
+    assertTrue(table.isExactValueField("tag"));
+    assertTrue(table.isExactValueField("views"));
+    assertTrue(table.isExactValueField("published"));
+    assertFalse(table.isExactValueField("missing"));
+  }
+
 }
 
 // End ElasticSearchAdapterTest.java
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.http.HttpHost;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ElasticsearchMetadataCache}.
+ */
+public class ElasticsearchMetadataCacheTest {
+
+  private static final String CLUSTER = ElasticsearchMetadataCache.clusterKey(
+      Arrays.asList(new HttpHost("es2", 9200), new HttpHost("es1", 9200)));
+
+  @After
+  public void tearDown() {
+    ElasticsearchMetadataCache.setTtlSeconds(ElasticsearchMetadataCache.DEFAULT_TTL_SECONDS);
+    ElasticsearchMetadataCache.invalidateAll();
+  }
+
+  @Test
+  public void ttlIsTakenFromSchemaOperand() throws IOException {
+    final AtomicInteger calls = new AtomicInteger();
+    ElasticsearchMetadataCache.version(CLUSTER, () -> {
+      calls.incrementAndGet();
+      return ElasticsearchVersion.ES6;
+    });
+
+    // the same ttl, given each time a schema is built, keeps entries
+    ElasticsearchSchemaFactory.applyMetadataTtl(
+        Collections.singletonMap("metadataTtlSeconds", "600"));
+    ElasticsearchSchemaFactory.applyMetadataTtl(Collections.emptyMap());
+    ElasticsearchMetadataCache.version(CLUSTER, () -> {
+      calls.incrementAndGet();
+      return ElasticsearchVersion.ES6;
+    });
+    assertThat(calls.get(), is(1));
+
+    // no entry lives with a zero ttl
+    ElasticsearchSchemaFactory.applyMetadataTtl(
+        Collections.singletonMap("metadataTtlSeconds", "0"));
+    for (int i = 0; i < 2; i++) {
+      ElasticsearchMetadataCache.version(CLUSTER, () -> {
+        calls.incrementAndGet();
+        return ElasticsearchVersion.ES6;
+      });
+    }
+    assertThat(calls.get(), is(3));
+  }
+
+  @Test
+  public void clusterKeyIgnoresHostOrder() {
+    assertThat(CLUSTER, is("http://es1:9200,http://es2:9200"));
+    assertThat(ElasticsearchMetadataCache.clusterKey(
+        Arrays.asList(new HttpHost("es1", 9200), new HttpHost("es2", 9200))), is(CLUSTER));
+  }
+
+  @Test
+  public void versionIsDetectedOncePerCluster() throws IOException {
+    final AtomicInteger calls = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      assertThat(ElasticsearchMetadataCache.version(CLUSTER, () -> {
+        calls.incrementAndGet();
+        return ElasticsearchVersion.ES6;
+      }), is(ElasticsearchVersion.ES6));
+    }
+    assertThat(calls.get(), is(1));
+
+    ElasticsearchMetadataCache.version("http://other:9200", () -> {
+      calls.incrementAndGet();
+      return ElasticsearchVersion.ES5;
+    });
+    assertThat(calls.get(), is(2));
+
+    ElasticsearchMetadataCache.invalidate(CLUSTER);
+    ElasticsearchMetadataCache.version(CLUSTER, () -> {
+      calls.incrementAndGet();
+      return ElasticsearchVersion.ES6;
+    });
+    assertThat(calls.get(), is(3));
+  }
+
+  @Test
+  public void typesAreCachedPerIndex() throws IOException {
+    final AtomicInteger calls = new AtomicInteger();
+    final Set<String> zips = ImmutableSet.of("zips");
+    for (int i = 0; i < 2; i++) {
+      ElasticsearchMetadataCache.types(CLUSTER, "zips", () -> {
+        calls.incrementAndGet();
+        return zips;
+      });
+      ElasticsearchMetadataCache.types(CLUSTER, "other", () -> {
+        calls.incrementAndGet();
+        return Collections.singleton("other");
+      });
+    }
+    assertThat(calls.get(), is(2));
+    assertThat(ElasticsearchMetadataCache.types(CLUSTER, "zips", () -> null), is(zips));
+
+    ElasticsearchMetadataCache.invalidate(CLUSTER);
+    ElasticsearchMetadataCache.types(CLUSTER, "zips", () -> {
+      calls.incrementAndGet();
+      return zips;
+    });
+    assertThat(calls.get(), is(3));
+  }
+
+  @Test
+  public void failureIsNotCached() throws IOException {
+    try {
+      ElasticsearchMetadataCache.version(CLUSTER, () -> {
+        throw new IOException("connection refused");
+      });
+      fail("expected IOException");
+    } catch (IOException e) {
+      assertThat(e.getMessage(), is("connection refused"));
+    }
+    assertThat(ElasticsearchMetadataCache.version(CLUSTER, () -> ElasticsearchVersion.ES6),
+        is(ElasticsearchVersion.ES6));
+  }
+
+  @Test
+  public void nullClusterIsNotCached() throws IOException {
+    final AtomicInteger calls = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      ElasticsearchMetadataCache.version(null, () -> {
+        calls.incrementAndGet();
+        return ElasticsearchVersion.ES6;
+      });
+    }
+    assertThat(calls.get(), is(2));
+  }
+}
+
+// End ElasticsearchMetadataCacheTest.java
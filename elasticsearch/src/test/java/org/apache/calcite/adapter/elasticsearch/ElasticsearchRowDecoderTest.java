@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.calcite.linq4j.function.Function1;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that {@link ElasticsearchRowDecoder} produces the same rows as
+ * {@link ElasticsearchJson.Result} with {@link ElasticsearchEnumerators#getter(List)}.
+ */
+public class ElasticsearchRowDecoderTest {
+
+  private static final String RESPONSE = "{_scroll_id: 'scroll1', took: 3, timed_out: false,"
+      + " _shards: {total: 1, successful: 1, failed: 0},"
+      + " hits: {total: 3, max_score: 1.0, hits: ["
+      + "{_index: 'zips', _type: 'zips', _id: '1', _score: 1.0, _source:"
+      + " {city: 'BROOKLYN', pop: 111396, loc: [-73.956985, 40.646694],"
+      + " address: {street: 'MAIN', zip: {code: '11226'}}, 'address.street': 'FLAT',"
+      + " State: 'NY', tags: [{a: 1}, {b: 2}]}},"
+      + "{_index: 'zips', _type: 'zips', _id: '2', _score: 1.0, _source:"
+      + " {city: 'NORWALK', pop: null, address: {zip: {code: '90650'}}, state: 'CA'}},"
+      + "{_index: 'zips', _type: 'zips', _id: '3', _score: 1.0, _source: {}}"
+      + "]}}";
+
+  private static final String FIELDS = "{took: 1, hits: {total: 2, hits: ["
+      + "{_id: '1', fields: {city: ['BROOKLYN'], pop: [111396, 1], empty: []}},"
+      + "{_id: '2', fields: {city: ['NORWALK']}}"
+      + "]}}";
+
+  private ObjectMapper mapper;
+
+  @Before
+  public void setUp() throws Exception {
+    this.mapper = new ObjectMapper()
+        .configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true)
+        .configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+  }
+
+  @Test
+  public void pageAttributes() throws Exception {
+    ElasticsearchRowDecoder.Page page = decode(RESPONSE, null);
+    assertThat(page.total(), is(3L));
+    assertThat(page.scrollId(), is("scroll1"));
+    assertThat(page.rows().size(), is(3));
+
+    page = decode("{hits: {total: {value: 7, relation: 'eq'}, hits: []}}", null);
+    assertThat(page.total(), is(7L));
+    assertThat(page.scrollId(), nullValue());
+    assertThat(page.rows().size(), is(0));
+  }
+
+  @Test
+  public void selectStar() throws Exception {
+    assertSameRows(RESPONSE, null);
+    assertSameRows(FIELDS, null);
+  }
+
+  @Test
+  public void singleField() throws Exception {
+    assertSameRows(RESPONSE, fields("city", String.class));
+    assertSameRows(RESPONSE, fields("pop", Long.class));
+    assertSameRows(RESPONSE, fields("address.zip.code", String.class));
+    assertSameRows(FIELDS, fields("pop", Integer.class));
+  }
+
+  @Test
+  public void projection() throws Exception {
+    assertSameRows(RESPONSE, fields("city", String.class, "pop", Integer.class,
+        "loc", Object.class, "state", String.class, "missing", String.class));
+    assertSameRows(FIELDS, fields("city", String.class, "pop", Long.class,
+        "empty", Object.class));
+  }
+
+  @Test
+  public void dottedPath() throws Exception {
+    // literal key "address.street" wins over nested "address"
+    final List<Map.Entry<String, Class>> fields = fields("address.street", String.class,
+        "address.zip.code", String.class, "address", Object.class, "tags", Object.class);
+    assertSameRows(RESPONSE, fields);
+
+    final Object[] first = (Object[]) decode(RESPONSE, fields).rows().get(0);
+    assertThat(first[0], is("FLAT"));
+    assertThat(first[1], is("11226"));
+  }
+
+  @Test
+  public void lowerCaseFirst() throws Exception {
+    final List<Map.Entry<String, Class>> fields = fields("State", String.class,
+        "city", String.class);
+    assertSameRows(RESPONSE, fields);
+    assertThat(((Object[]) decode(RESPONSE, fields).rows().get(1))[0], is("CA"));
+  }
+
+  private ElasticsearchRowDecoder.Page decode(String json,
+      List<Map.Entry<String, Class>> fields) throws Exception {
+    return new ElasticsearchRowDecoder(mapper, fields)
+        .decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private void assertSameRows(String json, List<Map.Entry<String, Class>> fields)
+      throws Exception {
+    final ElasticsearchJson.Result result = mapper.readValue(json, ElasticsearchJson.Result.class);
+    final Function1<ElasticsearchJson.SearchHit, Object> getter =
+        ElasticsearchEnumerators.getter(fields);
+    final List<Object> expected = new ArrayList<>();
+    for (ElasticsearchJson.SearchHit hit : result.searchHits().hits()) {
+      expected.add(getter.apply(hit));
+    }
+
+    final List<Object> actual = decode(json, fields).rows();
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      if (expected.get(i) instanceof Object[]) {
+        assertArrayEquals((Object[]) expected.get(i), (Object[]) actual.get(i));
+      } else {
+        assertEquals(expected.get(i), actual.get(i));
+      }
+    }
+  }
+
+  private static List<Map.Entry<String, Class>> fields(Object... namesAndTypes) {
+    final List<Map.Entry<String, Class>> fields = new ArrayList<>();
+    for (int i = 0; i < namesAndTypes.length; i += 2) {
+      fields.add(
+          new AbstractMap.SimpleEntry<>((String) namesAndTypes[i], (Class) namesAndTypes[i + 1]));
+    }
+    return fields;
+  }
+}
+
+// End ElasticsearchRowDecoderTest.java
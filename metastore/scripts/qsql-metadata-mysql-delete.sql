@@ -1,3 +1,7 @@
+DROP TABLE COLUMN_STATS;
+
+DROP TABLE TABLE_STATS;
+
 
 DROP TABLE COLUMNS;
 
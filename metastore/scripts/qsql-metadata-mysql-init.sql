@@ -39,3 +39,23 @@ CREATE TABLE `COLUMNS` (
   INDEX `COLUMNS_INDEX` (`CD_ID`),
   CONSTRAINT `COLUMNS_FK1` FOREIGN KEY (`CD_ID`) REFERENCES `TBLS` (`TBL_ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+CREATE TABLE `TABLE_STATS` (
+  `TBL_ID` bigint(20) NOT NULL,
+  `ROW_COUNT` bigint(20) DEFAULT NULL,
+  `TOTAL_SIZE` bigint(20) DEFAULT NULL,
+  `ANALYZED_TIME` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`TBL_ID`),
+  CONSTRAINT `TABLE_STATS_FK1` FOREIGN KEY (`TBL_ID`) REFERENCES `TBLS` (`TBL_ID`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE TABLE `COLUMN_STATS` (
+  `CD_ID` bigint(20) NOT NULL,
+  `COLUMN_NAME` varchar(128) CHARACTER SET latin1 COLLATE latin1_bin NOT NULL,
+  `NUM_DISTINCTS` bigint(20) DEFAULT NULL,
+  `NUM_NULLS` bigint(20) DEFAULT NULL,
+  `IS_UNIQUE` tinyint(1) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`CD_ID`,`COLUMN_NAME`),
+  KEY `COLUMN_STATS_N49` (`CD_ID`),
+  CONSTRAINT `COLUMN_STATS_FK1` FOREIGN KEY (`CD_ID`) REFERENCES `TBLS` (`TBL_ID`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;